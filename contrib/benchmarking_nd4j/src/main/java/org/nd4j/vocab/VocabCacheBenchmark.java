@@ -0,0 +1,176 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+package org.nd4j.vocab;
+
+import org.deeplearning4j.models.sequencevectors.iterators.AbstractSequenceIterator;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.deeplearning4j.models.word2vec.wordstore.VocabConstructor;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.CompactVocabCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares vocabulary build time, peak heap and retained heap of {@link AbstractCache} and {@link CompactVocabCache},
+ * both built by {@link VocabConstructor}.
+ *
+ * Build time: java -jar target/benchmarks.jar VocabCacheBenchmark
+ * Peak and retained heap: java -cp target/benchmarks.jar org.nd4j.vocab.VocabCacheBenchmark [vocabSize]
+ */
+public class VocabCacheBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Corpus {
+        @Param({"100000", "1000000"})
+        public int vocabSize;
+
+        public String[] tokens;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            tokens = tokens(vocabSize, vocabSize * 10);
+        }
+    }
+
+    @Benchmark @BenchmarkMode(Mode.SingleShotTime) @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2) @Measurement(iterations = 5) @Fork(1)
+    public VocabCache<VocabWord> buildAbstractCache(Corpus corpus) {
+        return build(new AbstractCache.Builder<VocabWord>().build(), corpus.tokens);
+    }
+
+    @Benchmark @BenchmarkMode(Mode.SingleShotTime) @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2) @Measurement(iterations = 5) @Fork(1)
+    public VocabCache<VocabWord> buildCompactCache(Corpus corpus) {
+        return build(new CompactVocabCache(), corpus.tokens);
+    }
+
+    /**
+     * Builds vocabulary with Huffman tree through VocabConstructor, feeding tokens as sequences of 100 elements
+     */
+    private static VocabCache<VocabWord> build(VocabCache<VocabWord> cache, String[] tokens) {
+        VocabConstructor<VocabWord> constructor = new VocabConstructor.Builder<VocabWord>()
+                .addSource(new AbstractSequenceIterator.Builder<>(sequences(tokens, 100)).build(), 1)
+                .setTargetVocabCache(cache).build();
+
+        constructor.buildJointVocabulary(false, true);
+        return cache;
+    }
+
+    /**
+     * Creates sequences lazily, so they don't add up to measured heap (and aren't shared between builds)
+     */
+    private static Iterable<Sequence<VocabWord>> sequences(String[] tokens, int length) {
+        return () -> new Iterator<Sequence<VocabWord>>() {
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < tokens.length;
+            }
+
+            @Override
+            public Sequence<VocabWord> next() {
+                Sequence<VocabWord> sequence = new Sequence<>();
+                int end = Math.min(tokens.length, position + length);
+                for (; position < end; position++)
+                    sequence.addElement(new VocabWord(1.0, tokens[position]));
+                return sequence;
+            }
+        };
+    }
+
+    /**
+     * Zipf-like token stream over vocabSize distinct words, so every word occurs at least once
+     */
+    private static String[] tokens(int vocabSize, int length) {
+        Random random = new Random(12345);
+        String[] tokens = new String[length];
+        for (int i = 0; i < length; i++) {
+            int rank = i < vocabSize ? i : (int) Math.min(vocabSize - 1, Math.floor(Math.exp(random.nextDouble() * Math.log(vocabSize))) - 1);
+            tokens[i] = "token" + rank;
+        }
+        return tokens;
+    }
+
+    // keeps measured object reachable while heap is sampled
+    private static Object sink;
+
+    private static long retainedHeap(Supplier<Object> supplier) throws InterruptedException {
+        long before = usedHeap();
+        sink = supplier.get();
+        long after = usedHeap();
+        sink = null;
+        return after - before;
+    }
+
+    /**
+     * Sum of peak usage of heap pools while supplier runs: approximate, since pools don't peak at the same time
+     */
+    private static long peakHeap(Supplier<Object> supplier) throws InterruptedException {
+        usedHeap();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                pool.resetPeakUsage();
+        }
+
+        sink = supplier.get();
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP)
+                peak += pool.getPeakUsage().getUsed();
+        }
+        sink = null;
+        return peak;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int vocabSize = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        String[] tokens = tokens(vocabSize, vocabSize * 10);
+
+        long abstractPeak = peakHeap(() -> build(new AbstractCache.Builder<VocabWord>().build(), tokens));
+        long compactPeak = peakHeap(() -> build(new CompactVocabCache(), tokens));
+        long abstractCache = retainedHeap(() -> build(new AbstractCache.Builder<VocabWord>().build(), tokens));
+        long compactCache = retainedHeap(() -> build(new CompactVocabCache(), tokens));
+
+        System.out.println(String.format("Vocab size: %d", vocabSize));
+        System.out.println(String.format("AbstractCache:     %,d bytes retained (%.1f bytes/word), %,d bytes peak",
+                        abstractCache, abstractCache / (double) vocabSize, abstractPeak));
+        System.out.println(String.format("CompactVocabCache: %,d bytes retained (%.1f bytes/word), %,d bytes peak",
+                        compactCache, compactCache / (double) vocabSize, compactPeak));
+    }
+}
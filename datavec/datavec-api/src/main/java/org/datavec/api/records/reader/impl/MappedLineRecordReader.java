@@ -0,0 +1,452 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.records.reader.impl;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.datavec.api.conf.Configuration;
+import org.datavec.api.records.Record;
+import org.datavec.api.records.metadata.RecordMetaData;
+import org.datavec.api.records.metadata.RecordMetaDataLine;
+import org.datavec.api.records.reader.BaseRecordReader;
+import org.datavec.api.split.InputSplit;
+import org.datavec.api.writable.Text;
+import org.datavec.api.writable.Writable;
+import org.nd4j.common.base.Preconditions;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A line record reader for (very) large local text files, based on memory mapped files.<br>
+ * On first use, the byte offsets of all lines in each file are indexed, and the index is persisted to a
+ * {@code <filename>.lineidx} file next to the data file (or in a separate index directory, if one is provided).
+ * Subsequent initializations re-use the persisted index, as long as the length and last modified time of the data file
+ * have not changed.<br>
+ * With the index, every line can be accessed directly by line number. This gives:
+ * <ul>
+ *     <li>Cheap {@link #reset()}: no files are re-opened or re-read</li>
+ *     <li>Optional shuffling of all lines (across all files) with a new order every epoch</li>
+ *     <li>Random access for {@link #loadFromMetaData(List)}</li>
+ * </ul>
+ * Lines are copied directly from the mapped file into the UTF-8 byte representation of {@link Text}, and are only
+ * decoded to a String if {@link Text#toString()} is called.<br>
+ * Notes:<br>
+ * - Like {@link LineRecordReader}, lines are separated by '\n' or "\r\n"; a lone '\r' is not considered a line separator<br>
+ * - Files must be UTF-8 (or ASCII) encoded<br>
+ * - Only local files (file: URIs) are supported<br>
+ * - Shuffling is supported for up to {@link Integer#MAX_VALUE} lines in total<br>
+ * - Locations ending with {@link #INDEX_EXTENSION} are ignored, so a FileSplit over the data directory may be used
+ */
+@Slf4j
+public class MappedLineRecordReader extends BaseRecordReader {
+    public static final String INDEX_EXTENSION = ".lineidx";
+
+    private static final int INDEX_MAGIC = 0x4C494458;  //"LIDX"
+    private static final int INDEX_VERSION = 1;
+    private static final int SCAN_SIZE = 1 << 26;
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final boolean persistIndex;
+    private final File indexDirectory;
+    private final Random shuffleRng;
+    private Configuration conf;
+
+    private transient MappedFile[] files;
+    private transient Map<URI, MappedFile> filesByUri;
+    private long[] cumulativeLines;
+    @Getter
+    private long numLines;
+    private int[] order;
+    private long position;
+    private transient byte[] scratch = new byte[1024];
+
+    /**
+     * Reader without shuffling, persisting line indexes next to the data files
+     */
+    public MappedLineRecordReader() {
+        this(true, null, null);
+    }
+
+    /**
+     * Reader persisting line indexes next to the data files
+     *
+     * @param shuffleRng If non-null: lines are returned in a random order (different for each epoch)
+     */
+    public MappedLineRecordReader(Random shuffleRng) {
+        this(true, null, shuffleRng);
+    }
+
+    /**
+     * @param persistIndex   If true: save the line index after building it, and load it (if present and up to date)
+     *                       instead of re-indexing the data file
+     * @param indexDirectory Directory to persist line indexes to. If null: persist next to the data files
+     * @param shuffleRng     If non-null: lines are returned in a random order (different for each epoch)
+     */
+    public MappedLineRecordReader(boolean persistIndex, File indexDirectory, Random shuffleRng) {
+        this.persistIndex = persistIndex;
+        this.indexDirectory = indexDirectory;
+        this.shuffleRng = shuffleRng;
+    }
+
+    @Override
+    public void initialize(InputSplit split) throws IOException, InterruptedException {
+        super.initialize(split);
+        List<URI> uris = new ArrayList<>();
+        Iterator<URI> iter = split.locationsIterator();
+        while (iter.hasNext()) {
+            URI u = iter.next();
+            //Skip persisted indexes, when these are stored in the directory of a FileSplit
+            if (!u.getPath().endsWith(INDEX_EXTENSION))
+                uris.add(u);
+        }
+
+        files = new MappedFile[uris.size()];
+        filesByUri = new HashMap<>();
+        cumulativeLines = new long[uris.size() + 1];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = open(uris.get(i));
+            filesByUri.put(files[i].uri, files[i]);
+            cumulativeLines[i + 1] = cumulativeLines[i] + files[i].numLines();
+        }
+        numLines = cumulativeLines[files.length];
+        if (shuffleRng != null && numLines > Integer.MAX_VALUE)
+            throw new IllegalStateException("Shuffling is only supported for up to Integer.MAX_VALUE lines, got " + numLines);
+        order = null;
+        position = 0;
+        shuffle();
+    }
+
+    @Override
+    public void initialize(Configuration conf, InputSplit split) throws IOException, InterruptedException {
+        this.conf = conf;
+        initialize(split);
+    }
+
+    private void shuffle() {
+        if (shuffleRng == null)
+            return;
+        int n = (int) numLines;
+        if (order == null) {
+            order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = shuffleRng.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+
+    private MappedFile open(URI uri) throws IOException {
+        File f;
+        try {
+            f = new File(uri);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedOperationException("MappedLineRecordReader only supports local files, got URI " + uri, e);
+        }
+
+        try (FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            long lastModified = f.lastModified();
+            File indexFile = indexFile(f);
+            long[] offsets = persistIndex ? loadIndex(indexFile, size, lastModified) : null;
+            if (offsets == null) {
+                offsets = buildIndex(ch, size);
+                if (persistIndex)
+                    saveIndex(indexFile, offsets, size, lastModified);
+            }
+            return new MappedFile(uri, offsets, ch);
+        }
+    }
+
+    private File indexFile(File f) {
+        if (indexDirectory == null)
+            return new File(f.getPath() + INDEX_EXTENSION);
+        //Include a hash of the full path: files with the same name in different directories may share an index directory
+        String name = f.getName() + "_" + Integer.toHexString(f.getAbsolutePath().hashCode()) + INDEX_EXTENSION;
+        return new File(indexDirectory, name);
+    }
+
+    private static long[] buildIndex(FileChannel ch, long size) throws IOException {
+        long[] offsets = new long[1024];
+        int n = 1;
+        for (long pos = 0; pos < size; pos += SCAN_SIZE) {
+            int len = (int) Math.min(SCAN_SIZE, size - pos);
+            MappedByteBuffer bb = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            for (int i = 0; i < len; i++) {
+                if (bb.get(i) == '\n') {
+                    if (n == offsets.length) {
+                        if (n == Integer.MAX_VALUE - 8)
+                            throw new IllegalStateException("Files with more than " + (n - 1) + " lines are not supported");
+                        offsets = Arrays.copyOf(offsets, (int) Math.min(2L * n, Integer.MAX_VALUE - 8));
+                    }
+                    offsets[n++] = pos + i + 1;
+                }
+            }
+        }
+        //Final line without a trailing line separator
+        if (offsets[n - 1] < size) {
+            if (n == offsets.length)
+                offsets = Arrays.copyOf(offsets, n + 1);
+            offsets[n++] = size;
+        }
+        return Arrays.copyOf(offsets, n);
+    }
+
+    private static long[] loadIndex(File indexFile, long size, long lastModified) {
+        if (!indexFile.exists())
+            return null;
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 1 << 16))) {
+            if (dis.readInt() != INDEX_MAGIC || dis.readInt() != INDEX_VERSION || dis.readLong() != size
+                    || dis.readLong() != lastModified) {
+                log.info("Line index {} is out of date or invalid; re-indexing", indexFile);
+                return null;
+            }
+            long[] offsets = new long[dis.readInt()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = dis.readLong();
+            }
+            if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != size) {
+                log.info("Line index {} is invalid; re-indexing", indexFile);
+                return null;
+            }
+            return offsets;
+        } catch (IOException e) {
+            log.warn("Could not load line index {}; re-indexing", indexFile, e);
+            return null;
+        }
+    }
+
+    private static void saveIndex(File indexFile, long[] offsets, long size, long lastModified) {
+        //Write to a temporary file first, so that concurrent readers never see a partially written index
+        File tmp = new File(indexFile.getPath() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+                dos.writeInt(INDEX_MAGIC);
+                dos.writeInt(INDEX_VERSION);
+                dos.writeLong(size);
+                dos.writeLong(lastModified);
+                dos.writeInt(offsets.length);
+                for (long l : offsets) {
+                    dos.writeLong(l);
+                }
+            }
+            Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not persist line index to {}; index will be rebuilt next time", indexFile, e);
+            tmp.delete();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        Preconditions.checkState(files != null, "Record reader has not been initialized");
+        return position < numLines;
+    }
+
+    @Override
+    public List<Writable> next() {
+        if (!hasNext())
+            throw new NoSuchElementException("No more elements found!");
+        long idx = (order != null ? order[(int) position] : position);
+        position++;
+        int fileIdx = fileIndex(idx);
+        Text t = files[fileIdx].line((int) (idx - cumulativeLines[fileIdx]));
+        invokeListeners(t);
+        return Collections.singletonList(t);
+    }
+
+    @Override
+    public Record nextRecord() {
+        long idx = (order != null ? order[(int) position] : position);
+        List<Writable> next = next();
+        int fileIdx = fileIndex(idx);
+        RecordMetaData meta = new RecordMetaDataLine((int) (idx - cumulativeLines[fileIdx]), files[fileIdx].uri,
+                MappedLineRecordReader.class);
+        return new org.datavec.api.records.impl.Record(next, meta);
+    }
+
+    private int fileIndex(long globalLine) {
+        int idx = Arrays.binarySearch(cumulativeLines, globalLine);
+        if (idx < 0)
+            return -idx - 2;
+        //Exact match on the start of a file: skip over any empty files
+        while (cumulativeLines[idx + 1] == globalLine) {
+            idx++;
+        }
+        return idx;
+    }
+
+    @Override
+    public boolean batchesSupported() {
+        return true;
+    }
+
+    @Override
+    public List<List<Writable>> next(int num) {
+        List<List<Writable>> ret = new ArrayList<>((int) Math.min(num, Math.min(10000, numLines - position)));
+        while (ret.size() < num && hasNext()) {
+            ret.add(next());
+        }
+        return ret;
+    }
+
+    @Override
+    public Record loadFromMetaData(RecordMetaData recordMetaData) throws IOException {
+        return loadFromMetaData(Collections.singletonList(recordMetaData)).get(0);
+    }
+
+    @Override
+    public List<Record> loadFromMetaData(List<RecordMetaData> recordMetaDatas) throws IOException {
+        Preconditions.checkState(files != null, "Record reader has not been initialized");
+        List<Record> out = new ArrayList<>(recordMetaDatas.size());
+        for (RecordMetaData m : recordMetaDatas) {
+            if (!(m instanceof RecordMetaDataLine))
+                throw new IllegalArgumentException("Invalid metadata; expected RecordMetaDataLine instance; got: " + m);
+            RecordMetaDataLine l = (RecordMetaDataLine) m;
+            MappedFile f = filesByUri.get(l.getURI());
+            if (f == null)
+                throw new IllegalArgumentException("Location " + l.getURI() + " is not part of the InputSplit this reader was initialized with");
+            if (l.getLineNumber() < 0 || l.getLineNumber() >= f.numLines())
+                throw new IllegalArgumentException("Invalid line number " + l.getLineNumber() + " for location "
+                        + l.getURI() + " with " + f.numLines() + " lines");
+            out.add(new org.datavec.api.records.impl.Record(Collections.<Writable>singletonList(f.line(l.getLineNumber())), m));
+        }
+        return out;
+    }
+
+    @Override
+    public List<Writable> record(URI uri, DataInputStream dataInputStream) throws IOException {
+        invokeListeners(uri);
+        BufferedReader br = new BufferedReader(new InputStreamReader(dataInputStream));
+        String line = br.readLine();
+        return Collections.singletonList((Writable) new Text(line));
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        if (files == null)
+            throw new UnsupportedOperationException("Cannot reset without first initializing");
+        position = 0;
+        shuffle();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        //Mapped buffers are released by the garbage collector once no longer referenced
+        files = null;
+        filesByUri = null;
+        order = null;
+    }
+
+    @Override
+    public void setConf(Configuration conf) {
+        this.conf = conf;
+    }
+
+    @Override
+    public Configuration getConf() {
+        return conf;
+    }
+
+    /**
+     * One memory mapped file. Files larger than 2GB are mapped as multiple segments, split on line boundaries so that
+     * every line is fully contained in one segment.
+     */
+    private class MappedFile {
+        private final URI uri;
+        private final long[] offsets;
+        private final ByteBuffer[] segments;
+        private final long[] segmentStart;
+        private final int[] segmentFirstLine;
+
+        private MappedFile(URI uri, long[] offsets, FileChannel ch) throws IOException {
+            this.uri = uri;
+            this.offsets = offsets;
+            List<ByteBuffer> segs = new ArrayList<>();
+            List<Integer> firstLines = new ArrayList<>();
+            int line = 0;
+            while (line < numLines()) {
+                long start = offsets[line];
+                int end = Arrays.binarySearch(offsets, line + 1, offsets.length, start + MAX_SEGMENT_SIZE);
+                end = (end >= 0 ? end : -end - 2);
+                if (end <= line)
+                    throw new IllegalStateException("Line " + line + " of " + uri + " is longer than " + MAX_SEGMENT_SIZE + " bytes");
+                segs.add(ch.map(FileChannel.MapMode.READ_ONLY, start, offsets[end] - start));
+                firstLines.add(line);
+                line = end;
+            }
+            this.segments = segs.toArray(new ByteBuffer[0]);
+            this.segmentStart = new long[segments.length];
+            this.segmentFirstLine = new int[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                segmentFirstLine[i] = firstLines.get(i);
+                segmentStart[i] = offsets[segmentFirstLine[i]];
+            }
+        }
+
+        private int numLines() {
+            return offsets.length - 1;
+        }
+
+        private Text line(int line) {
+            int s = Arrays.binarySearch(segmentFirstLine, line);
+            if (s < 0)
+                s = -s - 2;
+            ByteBuffer seg = segments[s];
+            int pos = (int) (offsets[line] - segmentStart[s]);
+            int len = (int) (offsets[line + 1] - offsets[line]);
+            if (len > 0 && seg.get(pos + len - 1) == '\n')
+                len--;
+            if (len > 0 && seg.get(pos + len - 1) == '\r')
+                len--;
+            if (scratch == null || scratch.length < len)
+                scratch = new byte[Math.max(len, 2 * (scratch == null ? 0 : scratch.length))];
+            ByteBuffer dup = seg.duplicate();
+            dup.position(pos);
+            dup.get(scratch, 0, len);
+            Text t = new Text();
+            t.set(scratch, 0, len);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.records.reader.impl.csv;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.datavec.api.conf.Configuration;
+import org.datavec.api.split.InputSplit;
+import org.datavec.api.writable.Writable;
+import org.datavec.api.writable.batch.ColumnarRecordBatch;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV record reader for all-numeric data, with a columnar batch mode.<br>
+ * {@link #next(int)} parses up to N lines straight into a single {@code [N, numColumns]} array, returned as a
+ * {@link ColumnarRecordBatch}: no per-value {@link Writable} objects are created. RecordReaderDataSetIterator and
+ * RecordReaderMultiDataSetIterator use the array directly.<br>
+ * Single record methods ({@link #next()}, {@link #nextRecord()}) behave as for {@link CSVRecordReader}.<br>
+ * All lines must have the same number of values; quotes around values and whitespace are ignored.
+ */
+public class CSVColumnarRecordReader extends CSVRecordReader {
+
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    @Getter
+    private final DataType dataType;
+    private char delimiter;
+    private char quote;
+
+    public CSVColumnarRecordReader() {
+        this(0, DEFAULT_DELIMITER);
+    }
+
+    /**
+     * @param skipNumLines Number of lines to skip
+     * @param delimiter    Delimiter to use
+     */
+    public CSVColumnarRecordReader(int skipNumLines, char delimiter) {
+        this(skipNumLines, delimiter, DEFAULT_QUOTE, DataType.FLOAT);
+    }
+
+    /**
+     * @param skipNumLines Number of lines to skip
+     * @param delimiter    Delimiter to use
+     * @param quote        Quote character, stripped from values
+     * @param dataType     Floating point type of the batch arrays
+     */
+    public CSVColumnarRecordReader(int skipNumLines, char delimiter, char quote, @NonNull DataType dataType) {
+        super(skipNumLines, delimiter, quote);
+        if (!dataType.isFPType())
+            throw new IllegalArgumentException("Data type must be a floating point type, got " + dataType);
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.dataType = dataType;
+    }
+
+    @Override
+    public void initialize(Configuration conf, InputSplit split) throws IOException, InterruptedException {
+        super.initialize(conf, split);
+        this.delimiter = conf.getChar(DELIMITER, DEFAULT_DELIMITER);
+        this.quote = conf.getChar(QUOTE, DEFAULT_QUOTE);
+    }
+
+    @Override
+    public List<List<Writable>> next(int num) {
+        if (!hasNext())
+            return new ArrayList<>();
+
+        String line = readStringLine();
+        int numColumns = countColumns(line);
+        INDArray out = Nd4j.createUninitialized(dataType, num, numColumns);
+        DataBuffer buffer = out.data();
+        long offset = out.offset();
+
+        int rows = 0;
+        while (true) {
+            parseInto(line, buffer, offset + (long) rows * numColumns, numColumns);
+            rows++;
+            if (rows == num || !hasNext())
+                break;
+            line = readStringLine();
+        }
+
+        if (rows < num) {
+            out = out.get(NDArrayIndex.interval(0, rows), NDArrayIndex.all());
+        }
+        return new ColumnarRecordBatch(out);
+    }
+
+    private int countColumns(String line) {
+        int count = 1;
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == quote) {
+                inQuotes = !inQuotes;
+            } else if (c == delimiter && !inQuotes) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void parseInto(String line, DataBuffer buffer, long offset, int numColumns) {
+        int col = 0;
+        int start = 0;
+        int length = line.length();
+        boolean inQuotes = false;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? line.charAt(i) : delimiter;
+            if (c == quote) {
+                inQuotes = !inQuotes;
+            } else if (c == delimiter && (!inQuotes || i == length)) {
+                if (col >= numColumns)
+                    throw new IllegalStateException("Line " + (lineIndex - 1) + " has more than " + numColumns
+                            + " values: \"" + line + "\"");
+                buffer.put(offset + col, parseDouble(line, start, i));
+                col++;
+                start = i + 1;
+            }
+        }
+        if (col != numColumns)
+            throw new IllegalStateException("Line " + (lineIndex - 1) + " has " + col + " values, expected "
+                    + numColumns + ": \"" + line + "\"");
+    }
+
+    /**
+     * Parse a double from the given range, ignoring whitespace and quotes. Plain decimal values with up to 15 digits
+     * are parsed without allocation (and are exact: the significand and the power of ten are both exactly
+     * representable, so the single division is correctly rounded); everything else falls back to
+     * {@link Double#parseDouble(String)}
+     */
+    private double parseDouble(String s, int start, int end) {
+        while (start < end && (Character.isWhitespace(s.charAt(start)) || s.charAt(start) == quote))
+            start++;
+        while (end > start && (Character.isWhitespace(s.charAt(end - 1)) || s.charAt(end - 1) == quote))
+            end--;
+        if (start == end)
+            throw new NumberFormatException("Empty value in line " + (lineIndex - 1) + ": \"" + s + "\"");
+
+        int i = start;
+        boolean negative = false;
+        char first = s.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long significand = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+        boolean seenDigit = false;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (significand != 0 || c != '0')
+                    digits++;
+                significand = significand * 10 + (c - '0');
+                if (seenPoint)
+                    fractionDigits++;
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                //Exponent, NaN, Infinity etc
+                return Double.parseDouble(s.substring(start, end));
+            }
+            if (digits > 15 || fractionDigits >= POWERS_OF_TEN.length)
+                return Double.parseDouble(s.substring(start, end));
+        }
+        if (!seenDigit)
+            return Double.parseDouble(s.substring(start, end));
+
+        double v = fractionDigits == 0 ? significand : significand / POWERS_OF_TEN[fractionDigits];
+        return negative ? -v : v;
+    }
+}
@@ -0,0 +1,465 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.records.reader.impl.csv;
+
+import lombok.Getter;
+import org.datavec.api.conf.Configuration;
+import org.datavec.api.records.Record;
+import org.datavec.api.records.metadata.RecordMetaData;
+import org.datavec.api.records.metadata.RecordMetaDataLine;
+import org.datavec.api.records.reader.BaseRecordReader;
+import org.datavec.api.split.InputSplit;
+import org.datavec.api.writable.Text;
+import org.datavec.api.writable.Writable;
+import org.nd4j.common.base.Preconditions;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * CSV record reader that reads and parses multiple {@link InputSplit} locations concurrently.<br>
+ * Each location (file) is read and parsed by one of {@code numThreads} worker threads, and parsed records are handed
+ * to the consumer in chunks through bounded queues - i.e., at most {@code prefetch} chunks of {@code chunkSize}
+ * records are buffered per location, so memory use is bounded regardless of the dataset size.<br>
+ * In ordered mode (default), records are returned in exactly the same order as a sequential {@link CSVRecordReader}
+ * would return them. In unordered mode, chunks are returned as soon as any worker has parsed them, which avoids
+ * head-of-line blocking on large or slow locations.<br>
+ * Locations with a ".gz" extension are transparently decompressed. The first {@code skipNumLines} lines are skipped
+ * in every location (not only the first one), as each shard of a sharded dataset usually has its own header.<br>
+ * Note that this reader is only useful for splits with multiple locations; for a single file, use {@link CSVRecordReader}.
+ */
+public class ParallelCSVRecordReader extends BaseRecordReader {
+    public static final String NUM_THREADS = NAME_SPACE + ".numthreads";
+    public static final String ORDERED = NAME_SPACE + ".ordered";
+    public static final int DEFAULT_PREFETCH = 4;
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private static final AtomicInteger READER_COUNT = new AtomicInteger();
+
+    @Getter
+    private int numThreads;
+    @Getter
+    private boolean ordered;
+    private int skipNumLines;
+    private char delimiter;
+    private char quote;
+    private final int prefetch;
+    private final int chunkSize;
+    private Charset charset = StandardCharsets.UTF_8;
+    private Configuration conf;
+
+    private URI[] locations;
+    private transient ExecutorService executor;
+    private transient volatile boolean stopped;
+    //Ordered mode: one queue per in-flight location, in location order
+    private transient Deque<BlockingQueue<Chunk>> inFlight;
+    private int nextLocation;
+    //Unordered mode: one queue shared by all locations
+    private transient BlockingQueue<Chunk> shared;
+    private int finishedLocations;
+
+    private transient Chunk current;
+    private int positionInChunk;
+    private URI lastURI;
+    private int lastLine;
+
+    /**
+     * Ordered reader using all available processors, no lines skipped and the default delimiter and quote
+     */
+    public ParallelCSVRecordReader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param numThreads Number of locations to read and parse concurrently
+     */
+    public ParallelCSVRecordReader(int numThreads) {
+        this(numThreads, true, 0, CSVRecordReader.DEFAULT_DELIMITER);
+    }
+
+    /**
+     * @param numThreads   Number of locations to read and parse concurrently
+     * @param ordered      If true: return records in the same order as a sequential {@link CSVRecordReader}
+     * @param skipNumLines Number of lines to skip at the start of each location
+     * @param delimiter    Delimiter character for CSV
+     */
+    public ParallelCSVRecordReader(int numThreads, boolean ordered, int skipNumLines, char delimiter) {
+        this(numThreads, ordered, skipNumLines, delimiter, CSVRecordReader.DEFAULT_QUOTE, DEFAULT_PREFETCH, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param numThreads   Number of locations to read and parse concurrently
+     * @param ordered      If true: return records in the same order as a sequential {@link CSVRecordReader}
+     * @param skipNumLines Number of lines to skip at the start of each location
+     * @param delimiter    Delimiter character for CSV
+     * @param quote        Quote character to strip
+     * @param prefetch     Maximum number of parsed chunks to buffer per location (ordered) or in total (unordered)
+     * @param chunkSize    Number of records per chunk
+     */
+    public ParallelCSVRecordReader(int numThreads, boolean ordered, int skipNumLines, char delimiter, char quote,
+                                   int prefetch, int chunkSize) {
+        Preconditions.checkArgument(numThreads > 0, "Number of threads must be > 0, got %s", numThreads);
+        Preconditions.checkArgument(skipNumLines >= 0, "Number of lines to skip must be >= 0, got %s", skipNumLines);
+        Preconditions.checkArgument(prefetch > 0, "Prefetch must be > 0, got %s", prefetch);
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be > 0, got %s", chunkSize);
+        this.numThreads = numThreads;
+        this.ordered = ordered;
+        this.skipNumLines = skipNumLines;
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.prefetch = prefetch;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void initialize(InputSplit split) throws IOException, InterruptedException {
+        super.initialize(split);
+        URI[] l = split.locations();
+        if (l == null)
+            throw new UnsupportedOperationException("ParallelCSVRecordReader requires an InputSplit with locations " +
+                    "(such as FileSplit); got " + split.getClass().getSimpleName());
+        this.locations = l;
+        start();
+    }
+
+    @Override
+    public void initialize(Configuration conf, InputSplit split) throws IOException, InterruptedException {
+        this.conf = conf;
+        this.numThreads = conf.getInt(NUM_THREADS, numThreads);
+        this.ordered = conf.getBoolean(ORDERED, ordered);
+        this.skipNumLines = conf.getInt(CSVRecordReader.SKIP_NUM_LINES, skipNumLines);
+        this.delimiter = conf.getChar(CSVRecordReader.DELIMITER, delimiter);
+        this.quote = conf.getChar(CSVRecordReader.QUOTE, quote);
+        initialize(split);
+    }
+
+    private void start() {
+        stopped = false;
+        current = null;
+        positionInChunk = 0;
+        nextLocation = 0;
+        finishedLocations = 0;
+        final int readerIdx = READER_COUNT.getAndIncrement();
+        final AtomicInteger threadIdx = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(numThreads, r -> {
+            Thread t = new Thread(r, "ParallelCSVRecordReader-" + readerIdx + "-" + threadIdx.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+
+        if (ordered) {
+            //Submitting locations in order means location i is always started before location i+1, hence the consumer
+            //(which blocks on the oldest location) can always make progress. Keep more locations in flight than
+            //threads so that workers don't idle while the consumer drains earlier locations
+            inFlight = new ArrayDeque<>();
+            int window = Math.min(locations.length, 2 * numThreads);
+            for (int i = 0; i < window; i++) {
+                submitNextOrdered();
+            }
+        } else {
+            shared = new ArrayBlockingQueue<>(Math.max(prefetch, numThreads) * numThreads);
+            for (URI u : locations) {
+                final URI uri = u;
+                executor.execute(() -> readLocation(uri, shared));
+            }
+        }
+    }
+
+    private void submitNextOrdered() {
+        if (nextLocation >= locations.length)
+            return;
+        final URI uri = locations[nextLocation++];
+        final BlockingQueue<Chunk> q = new ArrayBlockingQueue<>(prefetch + 1);
+        inFlight.addLast(q);
+        executor.execute(() -> readLocation(uri, q));
+    }
+
+    private void stop() {
+        stopped = true;
+        if (executor != null) {
+            //Interrupt workers that are blocked on a full queue
+            executor.shutdownNow();
+            executor = null;
+        }
+        inFlight = null;
+        shared = null;
+        current = null;
+    }
+
+    /**
+     * Read and parse all lines of one location, handing them over in chunks. Always finishes with either an
+     * end-of-location marker or an error marker (unless the reader was stopped).
+     */
+    private void readLocation(URI uri, BlockingQueue<Chunk> out) {
+        SerializableCSVParser parser = new SerializableCSVParser(delimiter, quote);
+        try (BufferedReader br = openReader(uri)) {
+            List<List<Writable>> records = new ArrayList<>(chunkSize);
+            int firstLine = 0;
+            int lineNum = 0;
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (lineNum < skipNumLines) {
+                    lineNum++;
+                    continue;
+                }
+                if (records.isEmpty())
+                    firstLine = lineNum;
+                records.add(parseLine(parser, line));
+                lineNum++;
+                if (records.size() == chunkSize) {
+                    if (!put(out, new Chunk(uri, firstLine, records, null)))
+                        return;
+                    records = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!records.isEmpty() && !put(out, new Chunk(uri, firstLine, records, null)))
+                return;
+        } catch (Throwable t) {
+            put(out, new Chunk(uri, -1, null, t));
+            return;
+        }
+        put(out, new Chunk(uri, -1, null, null));
+    }
+
+    private boolean put(BlockingQueue<Chunk> out, Chunk c) {
+        try {
+            while (!stopped) {
+                if (out.offer(c, 100, TimeUnit.MILLISECONDS))
+                    return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private BufferedReader openReader(URI uri) throws IOException {
+        InputStream is = streamCreatorFn.apply(uri);
+        String path = uri.getPath() != null ? uri.getPath() : uri.toString();
+        if (path.endsWith(".gz"))
+            is = new GZIPInputStream(is, 65536);
+        return new BufferedReader(new InputStreamReader(is, charset), 65536);
+    }
+
+    private static List<Writable> parseLine(SerializableCSVParser parser, String line) throws IOException {
+        String[] split = parser.parseLine(line);
+        List<Writable> ret = new ArrayList<>(split.length);
+        for (String s : split) {
+            ret.add(new Text(s));
+        }
+        return ret;
+    }
+
+    /**
+     * @return The next chunk of records, or null if all locations have been fully read
+     */
+    private Chunk take() {
+        Preconditions.checkState(executor != null, "RecordReader has not been initialized before use");
+        try {
+            while (true) {
+                Chunk c;
+                if (ordered) {
+                    BlockingQueue<Chunk> q = inFlight.peekFirst();
+                    if (q == null)
+                        return null;
+                    c = q.take();
+                    if (c.isEnd()) {
+                        inFlight.pollFirst();
+                        submitNextOrdered();
+                        continue;
+                    }
+                } else {
+                    if (finishedLocations >= locations.length)
+                        return null;
+                    c = shared.take();
+                    if (c.isEnd()) {
+                        finishedLocations++;
+                        continue;
+                    }
+                }
+                if (c.error != null) {
+                    stop();
+                    throw new RuntimeException("Error reading or parsing CSV data from location " + c.location, c.error);
+                }
+                return c;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for CSV data", e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current == null || positionInChunk >= current.records.size()) {
+            current = take();
+            positionInChunk = 0;
+            if (current == null)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<Writable> next() {
+        if (!hasNext())
+            throw new NoSuchElementException("No next element found!");
+        List<Writable> ret = current.records.get(positionInChunk);
+        lastURI = current.location;
+        lastLine = current.firstLine + positionInChunk;
+        positionInChunk++;
+        invokeListeners(ret);
+        return ret;
+    }
+
+    @Override
+    public boolean batchesSupported() {
+        return true;
+    }
+
+    @Override
+    public List<List<Writable>> next(int num) {
+        List<List<Writable>> ret = new ArrayList<>(Math.min(num, 10000));
+        while (ret.size() < num && hasNext()) {
+            ret.add(next());
+        }
+        return ret;
+    }
+
+    @Override
+    public Record nextRecord() {
+        List<Writable> next = next();
+        RecordMetaData meta = new RecordMetaDataLine(lastLine, lastURI, ParallelCSVRecordReader.class);
+        return new org.datavec.api.records.impl.Record(next, meta);
+    }
+
+    @Override
+    public Record loadFromMetaData(RecordMetaData recordMetaData) throws IOException {
+        return loadFromMetaData(Collections.singletonList(recordMetaData)).get(0);
+    }
+
+    @Override
+    public List<Record> loadFromMetaData(List<RecordMetaData> recordMetaDatas) throws IOException {
+        //Group by location, so each location is only read once
+        Map<URI, TreeMap<Integer, List<Integer>>> byLocation = new LinkedHashMap<>();
+        for (int i = 0; i < recordMetaDatas.size(); i++) {
+            RecordMetaData m = recordMetaDatas.get(i);
+            if (!(m instanceof RecordMetaDataLine))
+                throw new IllegalArgumentException("Invalid metadata; expected RecordMetaDataLine instance; got: " + m);
+            RecordMetaDataLine l = (RecordMetaDataLine) m;
+            byLocation.computeIfAbsent(l.getURI(), k -> new TreeMap<>())
+                    .computeIfAbsent(l.getLineNumber(), k -> new ArrayList<>()).add(i);
+        }
+
+        Record[] out = new Record[recordMetaDatas.size()];
+        SerializableCSVParser parser = new SerializableCSVParser(delimiter, quote);
+        for (Map.Entry<URI, TreeMap<Integer, List<Integer>>> e : byLocation.entrySet()) {
+            TreeMap<Integer, List<Integer>> lines = e.getValue();
+            try (BufferedReader br = openReader(e.getKey())) {
+                int lineNum = 0;
+                String line;
+                while (!lines.isEmpty() && (line = br.readLine()) != null) {
+                    List<Integer> idxs = lines.remove(lineNum++);
+                    if (idxs == null)
+                        continue;
+                    List<Writable> record = parseLine(parser, line);
+                    for (int i : idxs) {
+                        out[i] = new org.datavec.api.records.impl.Record(new ArrayList<>(record), recordMetaDatas.get(i));
+                    }
+                }
+            }
+            if (!lines.isEmpty())
+                throw new IllegalStateException("Could not find line " + lines.firstKey() + " in location " + e.getKey());
+        }
+        return Arrays.asList(out);
+    }
+
+    @Override
+    public List<Writable> record(URI uri, DataInputStream dataInputStream) throws IOException {
+        BufferedReader br = new BufferedReader(new InputStreamReader(dataInputStream, charset));
+        for (int i = 0; i < skipNumLines; i++) {
+            br.readLine();
+        }
+        return parseLine(new SerializableCSVParser(delimiter, quote), br.readLine());
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        stop();
+        if (inputSplit != null) {
+            inputSplit.reset();
+            //Locations may change on reset (for example, splits that shuffle their locations)
+            URI[] l = inputSplit.locations();
+            if (l != null)
+                locations = l;
+        }
+        start();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return inputSplit == null || inputSplit.resetSupported();
+    }
+
+    @Override
+    public void close() throws IOException {
+        stop();
+    }
+
+    @Override
+    public void setConf(Configuration conf) {
+        this.conf = conf;
+    }
+
+    @Override
+    public Configuration getConf() {
+        return conf;
+    }
+
+    private static class Chunk {
+        private final URI location;
+        private final int firstLine;
+        private final List<List<Writable>> records;
+        private final Throwable error;
+
+        private Chunk(URI location, int firstLine, List<List<Writable>> records, Throwable error) {
+            this.location = location;
+            this.firstLine = firstLine;
+            this.records = records;
+            this.error = error;
+        }
+
+        private boolean isEnd() {
+            return records == null && error == null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.writable.batch;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.datavec.api.writable.DoubleWritable;
+import org.datavec.api.writable.Writable;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of numeric records, stored as a single {@code [numRecords, numColumns]} array: row i is record i, column j is
+ * column (writable index) j.<br>
+ * Consumers that know about this class (such as RecordReaderMultiDataSetIterator) can use the array directly instead
+ * of iterating over per-value writables. {@link #get(int)} is still supported for compatibility, creating one
+ * {@link DoubleWritable} per value.
+ */
+public class ColumnarRecordBatch extends AbstractWritableRecordBatch {
+
+    @Getter
+    private final INDArray array;
+
+    public ColumnarRecordBatch(@NonNull INDArray array) {
+        Preconditions.checkArgument(array.rank() == 2, "Expected rank 2 array of shape [numRecords, numColumns], " +
+                "got rank %s", array.rank());
+        this.array = array;
+    }
+
+    /**
+     * @return Number of columns (values per record)
+     */
+    public int numColumns() {
+        return (int) array.size(1);
+    }
+
+    /**
+     * @param from        First column, inclusive
+     * @param toInclusive Last column, inclusive
+     * @return View of the given columns, shape {@code [numRecords, toInclusive - from + 1]}
+     */
+    public INDArray getColumns(int from, int toInclusive) {
+        Preconditions.checkArgument(from >= 0 && toInclusive >= from && toInclusive < numColumns(), "Invalid column " +
+                "range: [%s, %s] for %s columns", from, toInclusive, numColumns());
+        return array.get(NDArrayIndex.all(), NDArrayIndex.interval(from, toInclusive, true));
+    }
+
+    @Override
+    public int size() {
+        return (int) array.size(0);
+    }
+
+    @Override
+    public List<Writable> get(int index) {
+        Preconditions.checkArgument(index >= 0 && index < size(), "Invalid index: %s, size = %s", index, size());
+        int n = numColumns();
+        List<Writable> out = new ArrayList<>(n);
+        for (int j = 0; j < n; j++) {
+            out.add(new DoubleWritable(array.getDouble(index, j)));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.arrow.ipc;
+
+import lombok.NonNull;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.dataset.api.DataSetPreProcessor;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link DataSetIterator} over the record batches of Arrow IPC data (see {@link ArrowIpcReader}): each record
+ * batch becomes one {@link DataSet}, with the features and labels taken from the given numeric columns. The
+ * minibatch size is therefore the record batch size the data was written with.<br>
+ * When iterating over a file, single columns (for example, one fixed size list column holding the feature vectors)
+ * are views of the read-only memory mapped file. By default, such features and labels are copied, so that returned
+ * data sets can be modified in place (for example by {@link DataSet#shuffle()} or a normalizer) like those of any
+ * other iterator. With {@link #setZeroCopy(boolean)}, they are returned as views instead, without any copy: writing
+ * to them crashes the JVM, and they are only valid until the iterator is reset or closed. Views are copied anyway
+ * when a {@link DataSetPreProcessor} is set, as preprocessors modify the data in place.<br>
+ * Iterators over an {@link InputStream} cannot be reset.
+ */
+public class ArrowDataSetIterator implements DataSetIterator, Closeable {
+
+    private final File file;
+    private final String[] featureColumns;
+    private final String[] labelColumns;
+    private ArrowIpcReader reader;
+    private ArrowIpcBatch nextBatch;
+    private DataSetPreProcessor preProcessor;
+    private boolean zeroCopy;
+
+    /**
+     * @param file           Arrow IPC file (file or streaming format)
+     * @param featureColumns Columns to use as features
+     * @param labelColumns   Columns to use as labels. May be null or empty, for data without labels
+     */
+    public ArrowDataSetIterator(@NonNull File file, @NonNull String[] featureColumns, String[] labelColumns) throws IOException {
+        this(file, ArrowIpcReader.open(file), featureColumns, labelColumns);
+    }
+
+    /**
+     * @param stream         Arrow IPC data in the streaming format
+     * @param featureColumns Columns to use as features
+     * @param labelColumns   Columns to use as labels. May be null or empty, for data without labels
+     */
+    public ArrowDataSetIterator(@NonNull InputStream stream, @NonNull String[] featureColumns, String[] labelColumns) throws IOException {
+        this(null, ArrowIpcReader.fromStream(stream), featureColumns, labelColumns);
+    }
+
+    private ArrowDataSetIterator(File file, ArrowIpcReader reader, String[] featureColumns, String[] labelColumns) {
+        if (featureColumns.length == 0) {
+            throw new IllegalArgumentException("At least one feature column is required");
+        }
+        this.file = file;
+        this.reader = reader;
+        this.featureColumns = featureColumns;
+        this.labelColumns = labelColumns == null || labelColumns.length == 0 ? null : labelColumns;
+    }
+
+    @Override
+    public DataSet next(int num) {
+        throw new UnsupportedOperationException("Unable to load custom number of examples: batch size is defined by the record batches of the Arrow data");
+    }
+
+    @Override
+    public int inputColumns() {
+        ArrowIpcBatch b = peek();
+        if (b == null)
+            throw new IllegalStateException("Cannot determine number of input columns: no record batches remaining");
+        return (int) b.getColumns(featureColumns).size(1);
+    }
+
+    @Override
+    public int totalOutcomes() {
+        ArrowIpcBatch b = peek();
+        if (labelColumns == null)
+            return 0;
+        if (b == null)
+            throw new IllegalStateException("Cannot determine number of outcomes: no record batches remaining");
+        return (int) b.getColumns(labelColumns).size(1);
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return file != null;
+    }
+
+    @Override
+    public boolean asyncSupported() {
+        return true;
+    }
+
+    @Override
+    public void reset() {
+        if (file == null) {
+            throw new UnsupportedOperationException("Reset is not supported for iterators over a stream");
+        }
+        try {
+            reader.close();
+            reader = ArrowIpcReader.open(file);
+            nextBatch = null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Error reopening Arrow file " + file, e);
+        }
+    }
+
+    @Override
+    public int batch() {
+        ArrowIpcBatch b = peek();
+        return b == null ? 0 : b.getNumRows();
+    }
+
+    @Override
+    public void setPreProcessor(DataSetPreProcessor preProcessor) {
+        this.preProcessor = preProcessor;
+    }
+
+    @Override
+    public DataSetPreProcessor getPreProcessor() {
+        return preProcessor;
+    }
+
+    /**
+     * @param zeroCopy If true, return single column features and labels of memory mapped files as read-only views
+     *                 instead of copies. Only safe if no consumer of the data sets modifies them in place.
+     *                 False by default
+     */
+    public void setZeroCopy(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+    }
+
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return peek() != null;
+    }
+
+    @Override
+    public DataSet next() {
+        ArrowIpcBatch b = peek();
+        if (b == null)
+            throw new NoSuchElementException("No more record batches");
+        nextBatch = null;
+        INDArray features = b.getColumns(featureColumns);
+        INDArray labels = labelColumns == null ? null : b.getColumns(labelColumns);
+        if ((!zeroCopy || preProcessor != null) && b.isView()) {
+            //Single columns are views of the read-only mapping, which must not be modified in place
+            features = featureColumns.length == 1 ? features.dup() : features;
+            labels = labels != null && labelColumns.length == 1 ? labels.dup() : labels;
+        }
+        DataSet ds = new DataSet(features, labels);
+        if (preProcessor != null)
+            preProcessor.preProcess(ds);
+        return ds;
+    }
+
+    private ArrowIpcBatch peek() {
+        if (nextBatch == null) {
+            try {
+                nextBatch = reader.next();
+            } catch (IOException e) {
+                throw new IllegalStateException("Error reading Arrow record batch", e);
+            }
+        }
+        return nextBatch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.arrow.ipc;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.bytedeco.javacpp.BytePointer;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * One record batch read by an {@link ArrowIpcReader}. Numeric columns can be exported as {@link INDArray}s:
+ * <ul>
+ *     <li>Integer and floating point columns are returned as {@code [numRows, 1]} arrays</li>
+ *     <li>Fixed size list columns of integers or floating point values (for example, feature vectors written from
+ *     numpy) are returned as {@code [numRows, listSize]} arrays</li>
+ * </ul>
+ * For memory mapped readers, each column is a read-only view of the mapped file (no copy): use {@code dup()} before
+ * modifying it. Otherwise each column is copied with one bulk copy. Columns with null values cannot be exported.
+ */
+public class ArrowIpcBatch {
+
+    @Getter
+    private final Schema schema;
+    @Getter
+    private final int numRows;
+    private final List<FieldData> columns;
+    private final boolean views;
+
+    ArrowIpcBatch(Schema schema, int numRows, List<FieldData> columns, boolean views) {
+        this.schema = schema;
+        this.numRows = numRows;
+        this.columns = columns;
+        this.views = views;
+    }
+
+    /**
+     * @return True if the arrays returned by this batch are views of a memory mapped file
+     */
+    public boolean isView() {
+        return views;
+    }
+
+    /**
+     * @return The given column, as a {@code [numRows, width]} array
+     */
+    public INDArray getColumn(String name) {
+        return getColumn(indexOf(name));
+    }
+
+    /**
+     * @return The given column, as a {@code [numRows, width]} array
+     */
+    public INDArray getColumn(int column) {
+        Preconditions.checkArgument(column >= 0 && column < columns.size(), "Invalid column index %s: batch has %s columns",
+                column, columns.size());
+        FieldData f = columns.get(column);
+        checkNoNulls(f, f.field.getName());
+        DataType dt = dataType(f.type);
+        if (dt != null) {
+            return array(f, dt, numRows, 1);
+        }
+        if (f.type instanceof ArrowType.FixedSizeList && f.children.size() == 1) {
+            FieldData child = f.children.get(0);
+            checkNoNulls(child, f.field.getName());
+            DataType childType = dataType(child.type);
+            if (childType != null) {
+                int listSize = ((ArrowType.FixedSizeList) f.type).getListSize();
+                return array(child, childType, numRows, listSize);
+            }
+        }
+        throw new IllegalStateException("Column \"" + f.field.getName() + "\" of type " + f.type
+                + " cannot be exported as an array: only integer, floating point and fixed size list of integer or"
+                + " floating point columns are supported");
+    }
+
+    /**
+     * Get the given columns as a single {@code [numRows, totalWidth]} array. A single column is returned as per
+     * {@link #getColumn(String)} (a view for memory mapped readers); multiple columns are concatenated, with one bulk
+     * copy per column. Columns of different types are converted to DOUBLE if any column is DOUBLE, or FLOAT otherwise
+     */
+    public INDArray getColumns(String... names) {
+        Preconditions.checkArgument(names != null && names.length > 0, "No column names provided");
+        if (names.length == 1) {
+            return getColumn(names[0]);
+        }
+        INDArray[] arrays = new INDArray[names.length];
+        boolean sameType = true;
+        boolean anyDouble = false;
+        for (int i = 0; i < names.length; i++) {
+            arrays[i] = getColumn(names[i]);
+            sameType &= arrays[i].dataType() == arrays[0].dataType();
+            anyDouble |= arrays[i].dataType() == DataType.DOUBLE;
+        }
+        if (!sameType) {
+            DataType target = anyDouble ? DataType.DOUBLE : DataType.FLOAT;
+            for (int i = 0; i < arrays.length; i++) {
+                arrays[i] = arrays[i].castTo(target);
+            }
+        }
+        return Nd4j.hstack(arrays);
+    }
+
+    private int indexOf(String name) {
+        List<Field> fields = schema.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).getName().equals(name))
+                return i;
+        }
+        throw new IllegalArgumentException("No column with name \"" + name + "\" in schema " + schema);
+    }
+
+    private INDArray array(FieldData f, DataType dataType, long rows, long cols) {
+        long length = rows * cols;
+        ByteBuffer data = f.buffers[1];
+        if (data.capacity() < length * dataType.width()) {
+            throw new IllegalStateException("Invalid Arrow record batch: data buffer for column \"" + f.field.getName()
+                    + "\" has " + data.capacity() + " bytes, expected at least " + length * dataType.width());
+        }
+        if (length == 0) {
+            return Nd4j.create(dataType, rows, cols);
+        }
+        DataBuffer buffer = Nd4j.createBuffer(new BytePointer(data), length, dataType);
+        INDArray arr = Nd4j.create(buffer, new long[]{rows, cols});
+        return views ? arr : arr.dup();
+    }
+
+    private static void checkNoNulls(FieldData f, String column) {
+        if (f.nullCount > 0) {
+            throw new IllegalStateException("Column \"" + column + "\" has " + f.nullCount
+                    + " null values: columns with null values cannot be exported as arrays");
+        }
+    }
+
+    private static DataType dataType(ArrowType type) {
+        if (type instanceof ArrowType.Int) {
+            ArrowType.Int t = (ArrowType.Int) type;
+            switch (t.getBitWidth()) {
+                case 8:
+                    return t.getIsSigned() ? DataType.BYTE : DataType.UBYTE;
+                case 16:
+                    return t.getIsSigned() ? DataType.SHORT : DataType.UINT16;
+                case 32:
+                    return t.getIsSigned() ? DataType.INT : DataType.UINT32;
+                case 64:
+                    return t.getIsSigned() ? DataType.LONG : DataType.UINT64;
+                default:
+                    return null;
+            }
+        } else if (type instanceof ArrowType.FloatingPoint) {
+            switch (((ArrowType.FloatingPoint) type).getPrecision()) {
+                case HALF:
+                    return DataType.HALF;
+                case SINGLE:
+                    return DataType.FLOAT;
+                case DOUBLE:
+                    return DataType.DOUBLE;
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Field node and buffers of one field of a record batch
+     */
+    @AllArgsConstructor
+    static class FieldData {
+        private final Field field;
+        private final ArrowType type;
+        private final long length;
+        private final long nullCount;
+        private final ByteBuffer[] buffers;
+        private final List<FieldData> children;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.arrow.ipc;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.arrow.flatbuf.MessageHeader;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.vector.TypeLayout;
+import org.apache.arrow.vector.ipc.ReadChannel;
+import org.apache.arrow.vector.ipc.message.MessageMetadataResult;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads Arrow IPC data - both the file format and the streaming format - one record batch at a time, exposing
+ * numeric columns as {@link org.nd4j.linalg.api.ndarray.INDArray}s (see {@link ArrowIpcBatch}).<br>
+ * When reading from a file, the body of each record batch is memory mapped read-only, and arrays are views of
+ * the mapped file: no values are copied. These arrays are read-only (writing to them crashes the JVM) and only
+ * valid until the reader is closed; use {@code dup()} on arrays that must be modified or outlive the reader.<br>
+ * When reading from an {@link InputStream}, each record batch is read into memory once, and arrays are copied out
+ * of it with one bulk copy per column.<br>
+ * Compressed record batches are not supported. Dictionary batches are skipped: dictionary encoded columns are
+ * returned as their (integer) dictionary indices.
+ */
+@Slf4j
+public class ArrowIpcReader implements Closeable {
+    private static final byte[] FILE_MAGIC = "ARROW1".getBytes(StandardCharsets.US_ASCII);
+    private static final int FILE_HEADER_SIZE = 8;
+
+    private final RandomAccessFile file;
+    private final FileChannel fileChannel;
+    private final ReadChannel in;
+    @Getter
+    private final Schema schema;
+    private final List<MappedByteBuffer> mapped = new ArrayList<>();
+    private boolean finished;
+
+    private ArrowIpcReader(RandomAccessFile file, ReadChannel in) throws IOException {
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+            throw new IllegalStateException("Reading Arrow IPC data is only supported on little endian platforms");
+        }
+        this.file = file;
+        this.fileChannel = file == null ? null : file.getChannel();
+        this.in = in;
+        MessageMetadataResult message = MessageSerializer.readMessage(in);
+        if (message == null || message.headerType() != MessageHeader.Schema) {
+            throw new IllegalStateException("Invalid Arrow IPC data: expected schema message at start of stream");
+        }
+        this.schema = MessageSerializer.deserializeSchema(message);
+    }
+
+    /**
+     * Open an Arrow IPC file. Both the file format and the streaming format (when written to a file) are supported;
+     * the format is detected automatically
+     */
+    public static ArrowIpcReader open(File f) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            byte[] magic = new byte[FILE_MAGIC.length];
+            boolean fileFormat = raf.length() >= FILE_HEADER_SIZE && raf.read(magic) == magic.length
+                    && Arrays.equals(magic, FILE_MAGIC);
+            channel.position(fileFormat ? FILE_HEADER_SIZE : 0);
+            return new ArrowIpcReader(raf, new ReadChannel(channel));
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read Arrow IPC data in the streaming format from the given stream. The stream is closed when the reader is
+     * closed
+     */
+    public static ArrowIpcReader fromStream(InputStream is) throws IOException {
+        return new ArrowIpcReader(null, new ReadChannel(Channels.newChannel(is)));
+    }
+
+    /**
+     * @return True if the batches of this reader are views of a memory mapped file; false if they are copied
+     */
+    public boolean isMemoryMapped() {
+        return file != null;
+    }
+
+    /**
+     * Read the next record batch
+     *
+     * @return The next record batch, or null if there are no more record batches
+     */
+    public ArrowIpcBatch next() throws IOException {
+        while (!finished) {
+            MessageMetadataResult message = MessageSerializer.readMessage(in);
+            if (message == null) {
+                //End of stream marker (or, for the file format, the start of the footer)
+                finished = true;
+                break;
+            }
+            long bodyLength = message.getMessageBodyLength();
+            if (message.headerType() != MessageHeader.RecordBatch) {
+                log.debug("Skipping Arrow IPC message of type {}", MessageHeader.name(message.headerType()));
+                skip(bodyLength);
+                continue;
+            }
+
+            RecordBatch batch = (RecordBatch) message.getMessage().header(new RecordBatch());
+            if (batch.compression() != null) {
+                throw new IllegalStateException("Compressed Arrow record batches are not supported");
+            }
+            if (batch.length() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Record batches with more than Integer.MAX_VALUE rows are not supported");
+            }
+            return new ArrowIpcBatch(schema, (int) batch.length(), columns(batch, readBody(bodyLength)), isMemoryMapped());
+        }
+        return null;
+    }
+
+    private ByteBuffer readBody(long bodyLength) throws IOException {
+        if (bodyLength > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Record batches larger than 2GB are not supported: got " + bodyLength + " bytes");
+        }
+        if (fileChannel != null) {
+            long position = fileChannel.position();
+            MappedByteBuffer body = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, bodyLength);
+            //Arrays are (read-only) views of the mapped memory: keep the mapping reachable until the reader is closed
+            mapped.add(body);
+            fileChannel.position(position + bodyLength);
+            return body;
+        }
+        ByteBuffer body = ByteBuffer.allocateDirect((int) bodyLength);
+        if (in.readFully(body) != bodyLength) {
+            throw new EOFException("Unexpected end of Arrow IPC stream");
+        }
+        body.rewind();
+        return body;
+    }
+
+    private void skip(long length) throws IOException {
+        if (fileChannel != null) {
+            fileChannel.position(fileChannel.position() + length);
+        } else {
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                int n = in.readFully(buffer);
+                if (n <= 0) {
+                    throw new EOFException("Unexpected end of Arrow IPC stream");
+                }
+                remaining -= n;
+            }
+        }
+    }
+
+    private List<ArrowIpcBatch.FieldData> columns(RecordBatch batch, ByteBuffer body) {
+        int[] position = new int[2];    //Next field node, next buffer
+        List<ArrowIpcBatch.FieldData> out = new ArrayList<>();
+        for (Field f : schema.getFields()) {
+            out.add(fieldData(f, batch, body, position));
+        }
+        return out;
+    }
+
+    private static ArrowIpcBatch.FieldData fieldData(Field field, RecordBatch batch, ByteBuffer body, int[] position) {
+        if (position[0] >= batch.nodesLength()) {
+            throw new IllegalStateException("Invalid Arrow record batch: missing field node for field " + field.getName());
+        }
+        org.apache.arrow.flatbuf.FieldNode node = batch.nodes(position[0]++);
+        //Dictionary encoded fields hold the indices, not the values
+        ArrowType type = field.getDictionary() != null ? field.getDictionary().getIndexType() : field.getType();
+        int numBuffers = TypeLayout.getTypeLayout(type).getBufferLayouts().size();
+        ByteBuffer[] buffers = new ByteBuffer[numBuffers];
+        for (int i = 0; i < numBuffers; i++) {
+            if (position[1] >= batch.buffersLength()) {
+                throw new IllegalStateException("Invalid Arrow record batch: missing buffer for field " + field.getName());
+            }
+            org.apache.arrow.flatbuf.Buffer b = batch.buffers(position[1]++);
+            if (b.offset() + b.length() > body.capacity()) {
+                throw new IllegalStateException("Invalid Arrow record batch: buffer for field " + field.getName()
+                        + " extends past the end of the record batch body");
+            }
+            ByteBuffer slice = body.duplicate();
+            slice.position((int) b.offset());
+            slice.limit((int) (b.offset() + b.length()));
+            buffers[i] = slice.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+        List<ArrowIpcBatch.FieldData> children = new ArrayList<>();
+        if (field.getDictionary() == null) {
+            for (Field c : field.getChildren()) {
+                children.add(fieldData(c, batch, body, position));
+            }
+        }
+        return new ArrowIpcBatch.FieldData(field, type, node.length(), node.nullCount(), buffers, children);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mapped.clear();
+        finished = true;
+        if (file != null) {
+            file.close();
+        } else {
+            in.close();
+        }
+    }
+}
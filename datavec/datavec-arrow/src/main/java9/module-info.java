@@ -3,10 +3,14 @@ open module datavec.arrow {
     requires commons.io;
     requires slf4j.api;
     requires arrow.memory.core;
+    requires arrow.format;
+    requires flatbuffers.java;
     requires arrow.vector;
     requires datavec.api;
     requires nd4j.api;
+    requires org.bytedeco.javacpp;
     requires nd4j.common;
     exports org.datavec.arrow;
+    exports org.datavec.arrow.ipc;
     exports org.datavec.arrow.recordreader;
 }
@@ -337,20 +337,7 @@ public abstract class BaseImageRecordReader extends BaseRecordReader {
             cnt++;
         }
 
-        INDArray features = Nd4j.createUninitialized(new long[] {cnt, channels, height, width}, 'c');
-        Nd4j.getAffinityManager().tagLocation(features, AffinityManager.Location.HOST);
-        for (int i = 0; i < cnt; i++) {
-            try {
-                ((NativeImageLoader) imageLoader).asMatrixView(currBatch.get(i),
-                        features.tensorAlongDimension(i, 1, 2, 3));
-            } catch (Exception e) {
-                System.out.println("Image file failed during load: " + currBatch.get(i).getAbsolutePath());
-                throw new RuntimeException(e);
-            }
-        }
-        if(!nchw_channels_first){
-            features = features.permute(0,2,3,1);   //NCHW to NHWC
-        }
+        INDArray features = loadFeatures(currBatch);
         Nd4j.getAffinityManager().ensureLocation(features, AffinityManager.Location.DEVICE);
 
 
@@ -398,6 +385,32 @@ public abstract class BaseImageRecordReader extends BaseRecordReader {
         return new NDArrayRecordBatch(ret);
     }
 
+    /**
+     * Decode (and transform) a batch of images into one features array, in the configured (NCHW or NHWC) format.
+     * Used by {@link #next(int)}; subclasses may override this to decode images in parallel.
+     *
+     * @param files Image files in the batch
+     * @return Features array, [numExamples, channels, height, width] or [numExamples, height, width, channels]
+     */
+    protected INDArray loadFeatures(List<File> files) {
+        int cnt = files.size();
+        INDArray features = Nd4j.createUninitialized(new long[] {cnt, channels, height, width}, 'c');
+        Nd4j.getAffinityManager().tagLocation(features, AffinityManager.Location.HOST);
+        for (int i = 0; i < cnt; i++) {
+            try {
+                ((NativeImageLoader) imageLoader).asMatrixView(files.get(i),
+                        features.tensorAlongDimension(i, 1, 2, 3));
+            } catch (Exception e) {
+                System.out.println("Image file failed during load: " + files.get(i).getAbsolutePath());
+                throw new RuntimeException(e);
+            }
+        }
+        if(!nchw_channels_first){
+            features = features.permute(0,2,3,1);   //NCHW to NHWC
+        }
+        return features;
+    }
+
     @Override
     public void close() throws IOException {
         //No op
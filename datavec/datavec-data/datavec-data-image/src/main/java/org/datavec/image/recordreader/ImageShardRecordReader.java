@@ -0,0 +1,374 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.image.recordreader;
+
+import lombok.Getter;
+import org.bytedeco.javacpp.BytePointer;
+import org.datavec.api.conf.Configuration;
+import org.datavec.api.records.Record;
+import org.datavec.api.records.metadata.RecordMetaData;
+import org.datavec.api.records.metadata.RecordMetaDataURI;
+import org.datavec.api.records.reader.BaseRecordReader;
+import org.datavec.api.split.InputSplit;
+import org.datavec.api.writable.IntWritable;
+import org.datavec.api.writable.NDArrayWritable;
+import org.datavec.api.writable.Writable;
+import org.datavec.api.writable.batch.NDArrayRecordBatch;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * Reads the image shard files written by {@link ImageShardWriter}, so that images only need to be decoded once
+ * instead of once per epoch.<br>
+ * The image data of each shard is memory mapped read-only, so no decoding is required and shard files only need read
+ * permission. Each batch is copied (UINT8) or cast (FLOAT by default, as for {@link ImageRecordReader}) out of the
+ * mapped memory, so in-place modifications of returned arrays (for example by a normalizer) are safe and never modify
+ * the shard files.<br>
+ * With UINT8 features, zero-copy mode ({@link #ImageShardRecordReader(DataType, boolean)}) instead returns views of
+ * the mapped data for records and for batches within one shard. Shards are then mapped copy-on-write, which needs
+ * write permission on the shard files: in-place modifications of the views never reach the files, but are visible
+ * to later reads of the same records by this reader (until it is re-initialized). Shards that are not writable are
+ * mapped read-only and copied out as usual.<br>
+ * Records have the same format as those of {@link ImageRecordReader}: features (with shape [1, c, h, w] or
+ * [1, h, w, c]) followed by the integer class index, if the shards have labels. Batches ({@link #next(int)}) have
+ * one-hot labels. Record metadata refers to the URI of the original image.
+ */
+public class ImageShardRecordReader extends BaseRecordReader {
+    public static final String SHARD_EXTENSION = ".imgshard";
+
+    static final int MAGIC = 0x44564953;  //"DVIS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    @Getter
+    private final DataType dataType;
+    @Getter
+    private final boolean zeroCopy;
+    private Configuration conf;
+
+    private transient List<Shard> shards;
+    private transient Map<URI, int[]> uriIndex;
+    @Getter
+    private List<String> labels;
+    private boolean hasLabels;
+    private int shardIdx;
+    private int positionInShard;
+
+    /**
+     * Reader returning FLOAT features, as {@link ImageRecordReader} does
+     */
+    public ImageShardRecordReader() {
+        this(DataType.FLOAT);
+    }
+
+    /**
+     * @param dataType Data type of the returned features. UINT8 avoids any conversion, features are a plain copy of the shard data
+     */
+    public ImageShardRecordReader(DataType dataType) {
+        this(dataType, false);
+    }
+
+    /**
+     * @param dataType Data type of the returned features
+     * @param zeroCopy If true, return UINT8 features as views of the copy-on-write mapped shard data instead of
+     *                 copies. Only supported for UINT8 features
+     */
+    public ImageShardRecordReader(DataType dataType, boolean zeroCopy) {
+        Preconditions.checkArgument(!zeroCopy || dataType == DataType.UINT8,
+                "Zero-copy features are only supported for data type UINT8, got %s", dataType);
+        this.dataType = dataType;
+        this.zeroCopy = zeroCopy;
+    }
+
+    @Override
+    public void initialize(InputSplit split) throws IOException, InterruptedException {
+        super.initialize(split);
+        shards = new ArrayList<>();
+        uriIndex = new HashMap<>();
+        labels = null;
+        Iterator<URI> iter = split.locationsIterator();
+        while (iter.hasNext()) {
+            URI u = iter.next();
+            if (!u.getPath().endsWith(SHARD_EXTENSION))
+                continue;
+            Shard s = new Shard(u, zeroCopy);
+            if (shards.isEmpty()) {
+                labels = s.labelNames;
+                hasLabels = s.hasLabels;
+            } else {
+                Shard first = shards.get(0);
+                if (!Arrays.equals(first.shape, s.shape) || first.hasLabels != s.hasLabels
+                        || !Objects.equals(first.labelNames, s.labelNames))
+                    throw new IllegalStateException("Image shards are not compatible: shard " + u + " has shape " +
+                            Arrays.toString(s.shape) + " and labels " + s.labelNames + ", shard " + first.location +
+                            " has shape " + Arrays.toString(first.shape) + " and labels " + first.labelNames);
+            }
+            for (int i = 0; i < s.numRecords; i++) {
+                if (s.uris[i] != null)
+                    uriIndex.put(s.uris[i], new int[]{shards.size(), i});
+            }
+            shards.add(s);
+        }
+        if (shards.isEmpty())
+            throw new IllegalArgumentException("No image shard files (extension " + SHARD_EXTENSION + ") found in split");
+        shardIdx = 0;
+        positionInShard = 0;
+    }
+
+    @Override
+    public void initialize(Configuration conf, InputSplit split) throws IOException, InterruptedException {
+        this.conf = conf;
+        initialize(split);
+    }
+
+    @Override
+    public boolean hasNext() {
+        Preconditions.checkState(shards != null, "Record reader has not been initialized");
+        while (shardIdx < shards.size() && positionInShard >= shards.get(shardIdx).numRecords) {
+            shardIdx++;
+            positionInShard = 0;
+        }
+        return shardIdx < shards.size();
+    }
+
+    @Override
+    public List<Writable> next() {
+        if (!hasNext())
+            throw new NoSuchElementException("No next element");
+        List<Writable> ret = record(shards.get(shardIdx), positionInShard++);
+        invokeListeners(ret);
+        return ret;
+    }
+
+    private List<Writable> record(Shard s, int idx) {
+        List<Writable> ret = new ArrayList<>(2);
+        ret.add(new NDArrayWritable(convert(s, s.features(idx, idx + 1))));
+        if (hasLabels)
+            ret.add(new IntWritable(s.labels[idx]));
+        return ret;
+    }
+
+    private INDArray convert(Shard s, INDArray uint8) {
+        //Never hand out views of a read-only mapping: writes to them would crash the process
+        if (s.copyOnWrite)
+            return uint8;
+        return dataType == DataType.UINT8 ? uint8.dup() : uint8.castTo(dataType);
+    }
+
+    @Override
+    public boolean batchesSupported() {
+        return true;
+    }
+
+    @Override
+    public List<List<Writable>> next(int num) {
+        Preconditions.checkArgument(num > 0, "Number of examples must be > 0: got %s", num);
+        if (!hasNext())
+            throw new NoSuchElementException("No next element");
+
+        //Batches within one shard are sliced from the mapped data and copied once in convert (unless zero-copy);
+        // batches spanning shards are copied by concat
+        List<INDArray> features = new ArrayList<>();
+        Shard first = shards.get(shardIdx);
+        List<Integer> batchLabels = new ArrayList<>();
+        int count = 0;
+        while (count < num && hasNext()) {
+            Shard s = shards.get(shardIdx);
+            int n = Math.min(num - count, s.numRecords - positionInShard);
+            features.add(s.features(positionInShard, positionInShard + n));
+            for (int i = 0; i < n; i++) {
+                if (hasLabels)
+                    batchLabels.add(s.labels[positionInShard + i]);
+            }
+            positionInShard += n;
+            count += n;
+        }
+        INDArray f;
+        if (features.size() == 1) {
+            f = convert(first, features.get(0));
+        } else {
+            f = Nd4j.concat(0, features.toArray(new INDArray[0]));
+            if (dataType != DataType.UINT8)
+                f = f.castTo(dataType);
+        }
+
+        List<INDArray> ret = new ArrayList<>(2);
+        ret.add(f);
+        if (hasLabels) {
+            INDArray l;
+            if (labels.isEmpty()) {
+                l = Nd4j.create(DataType.FLOAT, count, 1);
+                for (int i = 0; i < count; i++) {
+                    l.putScalar(i, 0, batchLabels.get(i));
+                }
+            } else {
+                l = Nd4j.create(DataType.FLOAT, count, labels.size());
+                for (int i = 0; i < count; i++) {
+                    l.putScalar(i, batchLabels.get(i), 1.0f);
+                }
+            }
+            ret.add(l);
+        }
+        return new NDArrayRecordBatch(ret);
+    }
+
+    @Override
+    public Record nextRecord() {
+        if (!hasNext())
+            throw new NoSuchElementException("No next element");
+        Shard s = shards.get(shardIdx);
+        URI uri = s.uris[positionInShard];
+        List<Writable> next = next();
+        return new org.datavec.api.records.impl.Record(next, new RecordMetaDataURI(uri, ImageShardRecordReader.class));
+    }
+
+    @Override
+    public Record loadFromMetaData(RecordMetaData recordMetaData) throws IOException {
+        return loadFromMetaData(Collections.singletonList(recordMetaData)).get(0);
+    }
+
+    @Override
+    public List<Record> loadFromMetaData(List<RecordMetaData> recordMetaDatas) throws IOException {
+        Preconditions.checkState(shards != null, "Record reader has not been initialized");
+        List<Record> out = new ArrayList<>(recordMetaDatas.size());
+        for (RecordMetaData m : recordMetaDatas) {
+            int[] loc = uriIndex.get(m.getURI());
+            if (loc == null)
+                throw new IllegalArgumentException("No image with URI " + m.getURI() + " found in image shards");
+            out.add(new org.datavec.api.records.impl.Record(record(shards.get(loc[0]), loc[1]), m));
+        }
+        return out;
+    }
+
+    @Override
+    public List<Writable> record(URI uri, DataInputStream dataInputStream) throws IOException {
+        throw new UnsupportedOperationException("Reading individual records from a stream is not supported for image shards");
+    }
+
+    @Override
+    public void reset() {
+        Preconditions.checkState(shards != null, "Cannot reset without first initializing");
+        shardIdx = 0;
+        positionInShard = 0;
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        //Mapped buffers are released by the garbage collector once no longer referenced
+        shards = null;
+        uriIndex = null;
+    }
+
+    @Override
+    public void setConf(Configuration conf) {
+        this.conf = conf;
+    }
+
+    @Override
+    public Configuration getConf() {
+        return conf;
+    }
+
+    /**
+     * One memory mapped shard file
+     */
+    private static class Shard {
+        private final URI location;
+        private final int numRecords;
+        private final long[] shape;
+        private final boolean hasLabels;
+        private final List<String> labelNames = new ArrayList<>();
+        private final int[] labels;
+        private final URI[] uris;
+        private final boolean copyOnWrite;
+        private final MappedByteBuffer mapped;
+        private final INDArray data;
+
+        private Shard(URI location, boolean zeroCopy) throws IOException {
+            this.location = location;
+            File file = new File(location);
+            //Copy-on-write (private) mappings need a channel opened for writing, even though the file is never written
+            copyOnWrite = zeroCopy && file.canWrite();
+            try (RandomAccessFile raf = new RandomAccessFile(file, copyOnWrite ? "rw" : "r")) {
+                if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC)
+                    throw new IllegalStateException("Not a valid image shard file: " + location);
+                int version = raf.readInt();
+                if (version != VERSION)
+                    throw new IllegalStateException("Unsupported image shard version " + version + " in " + location);
+                numRecords = raf.readInt();
+                shape = new long[]{raf.readInt(), raf.readInt(), raf.readInt()};
+                raf.readBoolean();  //Channels last flag - informational; shape is stored as returned by the source reader
+                long trailerOffset = raf.readLong();
+
+                raf.seek(trailerOffset);
+                DataInputStream dis = new DataInputStream(new BufferedInputStream(Channels.newInputStream(raf.getChannel())));
+                hasLabels = dis.readBoolean();
+                labels = hasLabels ? new int[numRecords] : null;
+                if (hasLabels) {
+                    int numLabelNames = dis.readInt();
+                    for (int i = 0; i < numLabelNames; i++) {
+                        labelNames.add(dis.readUTF());
+                    }
+                    for (int i = 0; i < numRecords; i++) {
+                        labels[i] = dis.readInt();
+                    }
+                }
+                uris = new URI[numRecords];
+                for (int i = 0; i < numRecords; i++) {
+                    if (dis.readBoolean())
+                        uris[i] = URI.create(dis.readUTF());
+                }
+
+                long length = trailerOffset - HEADER_SIZE;
+                if (numRecords == 0) {
+                    mapped = null;
+                    data = null;
+                } else {
+                    //Records of read-only mappings are always copied out, see convert(Shard, INDArray)
+                    mapped = raf.getChannel().map(copyOnWrite ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY,
+                            HEADER_SIZE, length);
+                    DataBuffer buffer = Nd4j.createBuffer(new BytePointer(mapped), length, DataType.UINT8);
+                    data = Nd4j.create(buffer, new long[]{numRecords, shape[0], shape[1], shape[2]});
+                }
+            }
+        }
+
+        private INDArray features(int from, int to) {
+            return data.get(NDArrayIndex.interval(from, to), NDArrayIndex.all(), NDArrayIndex.all(), NDArrayIndex.all());
+        }
+    }
+}
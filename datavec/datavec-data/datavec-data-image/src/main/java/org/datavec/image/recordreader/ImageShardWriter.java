@@ -0,0 +1,183 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.image.recordreader;
+
+import lombok.extern.slf4j.Slf4j;
+import org.datavec.api.records.Record;
+import org.datavec.api.writable.IntWritable;
+import org.datavec.api.writable.NDArrayWritable;
+import org.datavec.api.writable.Writable;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.*;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.datavec.image.recordreader.ImageShardRecordReader.*;
+
+/**
+ * Converts the images of an image record reader (such as {@link ImageRecordReader}) once into a set of binary shard
+ * files, that can be read by {@link ImageShardRecordReader} without decoding the images again.<br>
+ * Each shard stores the decoded images as fixed-size uint8 tensors in one contiguous, memory-mappable block,
+ * followed by the integer labels, the label names and the URIs of the source images.<br>
+ * Notes:<br>
+ * - Image values are rounded and clipped to the range [0, 255]. Any normalization should be applied after loading<br>
+ * - Any image transform of the source reader is applied once, at conversion time. Random augmentation should hence
+ * not be used on the source reader<br>
+ * - Only readers without labels, or with a single integer (class index) label are supported<br>
+ * - The shard files preserve the iteration order of the source reader; use a randomized split for the source
+ * (for example, {@code new FileSplit(dir, allowedFormats, new Random(seed))}) so each shard contains a mix of classes
+ */
+@Slf4j
+public class ImageShardWriter {
+
+    private ImageShardWriter() {
+    }
+
+    /**
+     * Convert all remaining images of the given (initialized) reader into shards in the output directory
+     *
+     * @param source          Source reader. Must be initialized
+     * @param outputDir       Output directory for the shard files
+     * @param recordsPerShard Maximum number of images per shard file
+     * @return The shard files that were written
+     */
+    public static List<File> convert(BaseImageRecordReader source, File outputDir, int recordsPerShard) throws IOException {
+        Preconditions.checkArgument(recordsPerShard > 0, "Records per shard must be > 0, got %s", recordsPerShard);
+        if (!outputDir.exists() && !outputDir.mkdirs())
+            throw new IOException("Could not create output directory " + outputDir);
+
+        List<String> labelNames = source.getLabels() == null ? new ArrayList<String>() : source.getLabels();
+        boolean channelsLast = !source.isNchw_channels_first();
+        List<File> shards = new ArrayList<>();
+        ShardOutput out = null;
+        while (source.hasNext()) {
+            Record r = source.nextRecord();
+            List<Writable> record = r.getRecord();
+            INDArray features = ((NDArrayWritable) record.get(0)).get();
+            Preconditions.checkState(features.rank() == 4 && features.size(0) == 1,
+                    "Expected features with shape [1, a, b, c], got %s", Arrays.toString(features.shape()));
+            long[] shape = {features.size(1), features.size(2), features.size(3)};
+
+            Integer label = null;
+            if (record.size() == 2 && record.get(1) instanceof IntWritable) {
+                label = record.get(1).toInt();
+            } else if (record.size() != 1) {
+                throw new UnsupportedOperationException("Only image records without labels or with a single integer label " +
+                        "are supported; got record with " + record.size() + " values: " + record);
+            }
+
+            if (out == null || out.numRecords == recordsPerShard) {
+                if (out != null)
+                    out.close();
+                File f = new File(outputDir, String.format("shard_%05d%s", shards.size(), SHARD_EXTENSION));
+                out = new ShardOutput(f, shape, channelsLast, label != null, labelNames, recordsPerShard);
+                shards.add(f);
+            }
+            out.write(features, shape, label, r.getMetaData() == null ? null : r.getMetaData().getURI());
+        }
+        if (out != null)
+            out.close();
+        log.info("Wrote {} image shard(s) to {}", shards.size(), outputDir);
+        return shards;
+    }
+
+    private static class ShardOutput {
+        private final File file;
+        private final long[] shape;
+        private final boolean channelsLast;
+        private final boolean hasLabels;
+        private final List<String> labelNames;
+        private final DataOutputStream dos;
+        private final byte[] bytes;
+        private final List<Integer> labels = new ArrayList<>();
+        private final List<URI> uris = new ArrayList<>();
+        private int numRecords;
+
+        private ShardOutput(File file, long[] shape, boolean channelsLast, boolean hasLabels, List<String> labelNames,
+                            int maxRecords) throws IOException {
+            long recordBytes = shape[0] * shape[1] * shape[2];
+            if (recordBytes * maxRecords > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Shard size would exceed 2GB: reduce the number of records per shard to at most "
+                        + (Integer.MAX_VALUE / recordBytes) + " for images with shape " + Arrays.toString(shape));
+            this.file = file;
+            this.shape = shape;
+            this.channelsLast = channelsLast;
+            this.hasLabels = hasLabels;
+            this.labelNames = labelNames;
+            this.bytes = new byte[(int) recordBytes];
+            this.dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            //Placeholder for the fixed size header, written once the number of records is known
+            dos.write(new byte[HEADER_SIZE]);
+        }
+
+        private void write(INDArray features, long[] shape, Integer label, URI uri) throws IOException {
+            if (!Arrays.equals(shape, this.shape))
+                throw new IllegalStateException("All images must have the same shape: expected " + Arrays.toString(this.shape)
+                        + ", got " + Arrays.toString(shape));
+            if ((label != null) != hasLabels)
+                throw new IllegalStateException("Either all or no records must have labels");
+            float[] values = features.castTo(DataType.FLOAT).dup('c').data().asFloat();
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) Math.max(0, Math.min(255, Math.round(values[i])));
+            }
+            dos.write(bytes);
+            labels.add(label);
+            uris.add(uri);
+            numRecords++;
+        }
+
+        private void close() throws IOException {
+            long trailerOffset = HEADER_SIZE + (long) numRecords * bytes.length;
+            dos.writeBoolean(hasLabels);
+            if (hasLabels) {
+                dos.writeInt(labelNames.size());
+                for (String s : labelNames) {
+                    dos.writeUTF(s);
+                }
+                for (Integer l : labels) {
+                    dos.writeInt(l);
+                }
+            }
+            for (URI u : uris) {
+                dos.writeBoolean(u != null);
+                if (u != null)
+                    dos.writeUTF(u.toString());
+            }
+            dos.close();
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.writeInt(MAGIC);
+                raf.writeInt(VERSION);
+                raf.writeInt(numRecords);
+                raf.writeInt((int) shape[0]);
+                raf.writeInt((int) shape[1]);
+                raf.writeInt((int) shape[2]);
+                raf.writeBoolean(channelsLast);
+                raf.writeLong(trailerOffset);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.image.recordreader;
+
+import lombok.Getter;
+import org.datavec.api.io.labels.PathLabelGenerator;
+import org.datavec.api.split.InputSplit;
+import org.datavec.image.data.ImageWritable;
+import org.datavec.image.loader.NativeImageLoader;
+import org.datavec.image.transform.ImageTransform;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.common.function.Supplier;
+import org.nd4j.linalg.api.concurrency.AffinityManager;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link ImageRecordReader} that decodes and transforms the images of each batch ({@link #next(int)}) on a pool
+ * of worker threads. Each worker writes its image directly into the corresponding slot of the preallocated
+ * NCHW or NHWC features array, so no per-image arrays are allocated and no final permute/copy is required.<br>
+ * Combined with an asynchronous iterator (such as AsyncDataSetIterator), decoding of the next batch overlaps
+ * with training on the current one.<br>
+ * <br>
+ * Image transforms are usually stateful and not thread safe. For full parallelism, provide a factory that creates
+ * one transform (such as a {@link org.datavec.image.transform.PipelineImageTransform}) per worker thread. If a single
+ * {@link ImageTransform} instance is provided instead, decoding happens in parallel but the transform calls are
+ * serialized.<br>
+ * Single-record {@link #next()} calls are not parallelized.
+ */
+public class ParallelImageRecordReader extends ImageRecordReader {
+    private static final AtomicInteger READER_COUNT = new AtomicInteger();
+
+    @Getter
+    private final int numWorkers;
+    private final Supplier<ImageTransform> transformFactory;
+
+    private transient ExecutorService executor;
+    private transient ThreadLocal<NativeImageLoader> workerLoaders;
+
+    /**
+     * Loads images in NCHW format, appending labels returned by the generator, with no image transform
+     *
+     * @param numWorkers Number of threads to decode images with
+     */
+    public ParallelImageRecordReader(long height, long width, long channels, PathLabelGenerator labelGenerator,
+                                     int numWorkers) {
+        this(height, width, channels, true, labelGenerator, (ImageTransform) null, numWorkers);
+    }
+
+    /**
+     * Loads images using a single image transform instance shared by all workers. Calls to the transform are
+     * serialized; use {@link #ParallelImageRecordReader(long, long, long, boolean, PathLabelGenerator, Supplier, int)}
+     * to also run the transforms in parallel.
+     *
+     * @param nchw_channels_first If true: NCHW output format. If false: NHWC
+     * @param imageTransform      Image transform to apply (may be null)
+     * @param numWorkers          Number of threads to decode images with
+     */
+    public ParallelImageRecordReader(long height, long width, long channels, boolean nchw_channels_first,
+                                     PathLabelGenerator labelGenerator, ImageTransform imageTransform, int numWorkers) {
+        super(height, width, channels, nchw_channels_first, labelGenerator, imageTransform);
+        Preconditions.checkArgument(numWorkers > 0, "Number of workers must be > 0, got %s", numWorkers);
+        this.numWorkers = numWorkers;
+        this.transformFactory = null;
+    }
+
+    /**
+     * Loads images using one image transform per worker thread, created by the given factory. The factory is also
+     * used once for the transform of the reader itself (used by {@link #next()}).
+     *
+     * @param nchw_channels_first If true: NCHW output format. If false: NHWC
+     * @param transformFactory    Factory for the per-thread image transforms
+     * @param numWorkers          Number of threads to decode and transform images with
+     */
+    public ParallelImageRecordReader(long height, long width, long channels, boolean nchw_channels_first,
+                                     PathLabelGenerator labelGenerator, Supplier<ImageTransform> transformFactory,
+                                     int numWorkers) {
+        super(height, width, channels, nchw_channels_first, labelGenerator, transformFactory == null ? null : transformFactory.get());
+        Preconditions.checkArgument(numWorkers > 0, "Number of workers must be > 0, got %s", numWorkers);
+        this.numWorkers = numWorkers;
+        this.transformFactory = transformFactory;
+    }
+
+    @Override
+    public void initialize(InputSplit split) throws IOException {
+        super.initialize(split);
+        //(Re)create the per-worker loaders, as the image transform may have been changed by the initialize call
+        final ImageTransform shared = transformFactory != null || imageTransform == null ? null
+                : new SynchronizedImageTransform(imageTransform);
+        workerLoaders = new ThreadLocal<NativeImageLoader>() {
+            @Override
+            protected NativeImageLoader initialValue() {
+                ImageTransform t = transformFactory != null ? transformFactory.get() : shared;
+                return new NativeImageLoader(height, width, channels, t);
+            }
+        };
+    }
+
+    @Override
+    protected INDArray loadFeatures(List<File> files) {
+        int cnt = files.size();
+        if (cnt == 0 || workerLoaders == null)
+            return super.loadFeatures(files);
+        if (executor == null)
+            executor = createExecutor();
+
+        //Preallocate the batch in the final format, and let workers write each image into its own slot
+        INDArray features = nchw_channels_first ?
+                Nd4j.createUninitialized(new long[] {cnt, channels, height, width}, 'c') :
+                Nd4j.createUninitialized(new long[] {cnt, height, width, channels}, 'c');
+        Nd4j.getAffinityManager().tagLocation(features, AffinityManager.Location.HOST);
+
+        List<Future<?>> futures = new ArrayList<>(cnt);
+        for (int i = 0; i < cnt; i++) {
+            final File f = files.get(i);
+            INDArray slot = features.tensorAlongDimension(i, 1, 2, 3);
+            final INDArray view = nchw_channels_first ? slot : slot.permute(2, 0, 1);  //[c,h,w] view of NHWC slot
+            futures.add(executor.submit(() -> {
+                workerLoaders.get().asMatrixView(f, view);
+                return null;
+            }));
+        }
+
+        for (int i = 0; i < cnt; i++) {
+            try {
+                futures.get(i).get();
+            } catch (ExecutionException e) {
+                for (Future<?> f : futures) {
+                    f.cancel(true);
+                }
+                throw new RuntimeException("Image file failed during load: " + files.get(i).getAbsolutePath(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for images to be loaded", e);
+            }
+        }
+        return features;
+    }
+
+    private ExecutorService createExecutor() {
+        final int readerIdx = READER_COUNT.getAndIncrement();
+        final AtomicInteger threadIdx = new AtomicInteger();
+        //Workers use the same device as the thread that uses this reader
+        final Integer deviceId = Nd4j.getAffinityManager().getDeviceForCurrentThread();
+        return Executors.newFixedThreadPool(numWorkers, r -> {
+            Thread t = new Thread(() -> {
+                Nd4j.getAffinityManager().unsafeSetDevice(deviceId);
+                r.run();
+            }, "ParallelImageRecordReader-" + readerIdx + "-" + threadIdx.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        super.close();
+    }
+
+    /**
+     * Serializes calls to an image transform that is shared between worker threads
+     */
+    private static class SynchronizedImageTransform implements ImageTransform {
+        private final ImageTransform transform;
+
+        private SynchronizedImageTransform(ImageTransform transform) {
+            this.transform = transform;
+        }
+
+        @Override
+        public synchronized ImageWritable transform(ImageWritable image) {
+            return transform.transform(image);
+        }
+
+        @Override
+        public synchronized ImageWritable transform(ImageWritable image, Random random) {
+            return transform.transform(image, random);
+        }
+
+        @Override
+        public synchronized float[] query(float... coordinates) {
+            return transform.query(coordinates);
+        }
+
+        @Override
+        public synchronized ImageWritable getCurrentImage() {
+            return transform.getCurrentImage();
+        }
+    }
+}
@@ -27,6 +27,11 @@ import lombok.val;
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.memory.RootAllocator;
 import org.apache.arrow.vector.FieldVector;
+import org.apache.commons.io.FileUtils;
+import org.datavec.api.records.reader.RecordReader;
+import org.datavec.api.records.reader.SequenceRecordReader;
+import org.datavec.api.records.writer.RecordWriter;
+import org.datavec.api.records.writer.SequenceRecordWriter;
 import org.datavec.api.transform.DataAction;
 import org.datavec.api.transform.Transform;
 import org.datavec.api.transform.TransformProcess;
@@ -44,9 +49,11 @@ import org.datavec.arrow.ArrowConverter;
 import org.datavec.local.transforms.functions.EmptyRecordFunction;
 import org.datavec.local.transforms.join.ExecuteJoinFromCoGroupFlatMapFunction;
 import org.datavec.local.transforms.join.ExtractKeysFunction;
+import org.datavec.local.transforms.join.PartitionedHashJoin;
 import org.datavec.local.transforms.misc.ColumnAsKeyPairFunction;
 import org.datavec.local.transforms.rank.UnzipForCalculateSortedRankFunction;
 import org.datavec.local.transforms.reduce.MapToPairForReducerFunction;
+import org.datavec.local.transforms.reduce.SortedGroupByReducer;
 import org.datavec.local.transforms.sequence.*;
 import org.datavec.local.transforms.transform.LocalTransformFunction;
 import org.datavec.local.transforms.transform.SequenceSplitFunction;
@@ -55,6 +62,9 @@ import org.nd4j.common.function.Function;
 import org.nd4j.common.function.FunctionalUtils;
 import org.nd4j.common.primitives.Pair;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
@@ -67,6 +77,10 @@ public class LocalTransformExecutor {
     //will cause some functions to invoke a try catch block and just log errors
     //returning empty records
     public final static String LOG_ERROR_PROPERTY = "org.datavec.spark.transform.logerrors";
+    //maximum number of records that joins and reductions hold in memory: above this, they spill to disk
+    public final static String MAX_RECORDS_IN_MEMORY_PROPERTY = "org.datavec.local.transform.maxrecordsinmemory";
+    //directory for spill files; defaults to the system temp directory
+    public final static String SPILL_DIRECTORY_PROPERTY = "org.datavec.local.transform.spilldirectory";
 
     private static BufferAllocator bufferAllocator = new RootAllocator(Long.MAX_VALUE);
 
@@ -155,6 +169,57 @@ public class LocalTransformExecutor {
     }
 
 
+    /**
+     * Execute the specified TransformProcess on all records of the given reader, writing the results to the given
+     * writer, without holding the whole data set in memory.<br>
+     * Note: this method can only be used if the TransformProcess returns non-sequence data. Uses the default
+     * configuration of {@link StreamingTransformExecutor}: use that class directly to configure threads, batch size
+     * and spilling
+     *
+     * @param input            Input records. Must be initialized
+     * @param output           Output writer. Must be initialized; is not closed
+     * @param transformProcess TransformProcess to execute
+     * @return Number of records written
+     */
+    public static long execute(RecordReader input, RecordWriter output,
+                               TransformProcess transformProcess) throws IOException {
+        return new StreamingTransformExecutor(transformProcess).execute(input, output);
+    }
+
+    /**
+     * As per {@link #execute(RecordReader, RecordWriter, TransformProcess)}, for a TransformProcess that returns
+     * sequence data
+     *
+     * @return Number of sequences written
+     */
+    public static long executeToSequence(RecordReader input, SequenceRecordWriter output,
+                                         TransformProcess transformProcess) throws IOException {
+        return new StreamingTransformExecutor(transformProcess).execute(input, output);
+    }
+
+    /**
+     * As per {@link #execute(RecordReader, RecordWriter, TransformProcess)}, for a TransformProcess that starts with
+     * sequence data and returns non-sequence data
+     *
+     * @return Number of records written
+     */
+    public static long executeSequenceToSeparate(SequenceRecordReader input, RecordWriter output,
+                                                 TransformProcess transformProcess) throws IOException {
+        return new StreamingTransformExecutor(transformProcess).execute(input, output);
+    }
+
+    /**
+     * As per {@link #execute(RecordReader, RecordWriter, TransformProcess)}, for a TransformProcess that starts with
+     * and returns sequence data
+     *
+     * @return Number of sequences written
+     */
+    public static long executeSequenceToSequence(SequenceRecordReader input, SequenceRecordWriter output,
+                                                 TransformProcess transformProcess) throws IOException {
+        return new StreamingTransformExecutor(transformProcess).execute(input, output);
+    }
+
+
 
     /**
      * Convert a string time series to
@@ -302,6 +367,46 @@ public class LocalTransformExecutor {
         return Boolean.getBoolean(LOG_ERROR_PROPERTY);
     }
 
+    /**
+     * Maximum number of records that joins and reductions process in memory, set via
+     * {@link #MAX_RECORDS_IN_MEMORY_PROPERTY}. Above this, they switch to external memory implementations
+     * ({@link PartitionedHashJoin} and {@link SortedGroupByReducer}) that spill to disk.
+     * Default: {@link StreamingTransformExecutor#DEFAULT_MAX_RECORDS_IN_MEMORY}
+     */
+    public static int maxRecordsInMemory() {
+        int max = Integer.getInteger(MAX_RECORDS_IN_MEMORY_PROPERTY, StreamingTransformExecutor.DEFAULT_MAX_RECORDS_IN_MEMORY);
+        if (max <= 0) {
+            throw new IllegalStateException("Invalid value for " + MAX_RECORDS_IN_MEMORY_PROPERTY + ": must be positive, got " + max);
+        }
+        return max;
+    }
+
+    private static File createSpillDirectory() throws IOException {
+        String dir = System.getProperty(SPILL_DIRECTORY_PROPERTY);
+        return dir == null ? Files.createTempDirectory("datavec_spill_").toFile()
+                : Files.createTempDirectory(new File(dir).toPath(), "datavec_spill_").toFile();
+    }
+
+    private static List<List<Writable>> reduceWithSpilling(IAssociativeReducer reducer, List<List<Writable>> input) {
+        log.debug("Reducing {} records with spilling to disk", input.size());
+        File spillDir = null;
+        try {
+            spillDir = createSpillDirectory();
+            try (SortedGroupByReducer groupBy = new SortedGroupByReducer(reducer, maxRecordsInMemory(), spillDir)) {
+                for (List<Writable> record : input) {
+                    groupBy.add(record);
+                }
+                List<List<Writable>> out = new ArrayList<>();
+                groupBy.reduce().forEachRemaining(out::add);
+                return out;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error executing reduction with spilling to disk", e);
+        } finally {
+            FileUtils.deleteQuietly(spillDir);
+        }
+    }
+
     private static Pair<List<List<Writable>>, List<List<List<Writable>>>> execute(
             List<List<Writable>> inputWritables, List<List<List<Writable>>> inputSequence,
             TransformProcess sequence) {
@@ -425,6 +530,10 @@ public class LocalTransformExecutor {
                 if (currentWritables == null)
                     throw new IllegalStateException("Error during execution of reduction: current writables are null. "
                             + "Trying to execute a reduce operation on a sequence?");
+                if (currentWritables.size() > maxRecordsInMemory()) {
+                    currentWritables = reduceWithSpilling(reducer, currentWritables);
+                    continue;
+                }
                 MapToPairForReducerFunction mapToPairForReducerFunction = new MapToPairForReducerFunction(reducer);
                 List<Pair<String, List<Writable>>> pair =
                         currentWritables.stream().map(input -> mapToPairForReducerFunction.apply(input))
@@ -554,7 +663,9 @@ public class LocalTransformExecutor {
 
 
     /**
-     * Execute a join on the specified data
+     * Execute a join on the specified data<br>
+     * If the total number of left and right records exceeds {@link #maxRecordsInMemory()}, the join is executed as
+     * a {@link PartitionedHashJoin} that spills the input to disk, instead of in memory
      *
      * @param join  Join to execute
      * @param left  Left data for join
@@ -563,6 +674,10 @@ public class LocalTransformExecutor {
      */
     public static List<List<Writable>> executeJoin(Join join, List<List<Writable>> left,
                                                    List<List<Writable>> right) {
+        int maxRecordsInMemory = maxRecordsInMemory();
+        if ((long) left.size() + right.size() > maxRecordsInMemory) {
+            return executeJoinWithSpilling(join, left, right, maxRecordsInMemory);
+        }
 
         String[] leftColumnNames = join.getJoinColumnsLeft();
         int[] leftColumnIndexes = new int[leftColumnNames.length];
@@ -599,5 +714,76 @@ public class LocalTransformExecutor {
 
     }
 
+    private static List<List<Writable>> executeJoinWithSpilling(Join join, List<List<Writable>> left,
+                                                                List<List<Writable>> right, int maxRecordsInMemory) {
+        log.debug("Joining {} left and {} right records with spilling to disk", left.size(), right.size());
+        int leftKeyLength = join.getJoinColumnsLeft().length;
+        int rightKeyLength = join.getJoinColumnsRight().length;
+        long total = (long) left.size() + right.size();
+        int numPartitions = (int) Math.max(StreamingTransformExecutor.DEFAULT_NUM_PARTITIONS, 2 * (total / maxRecordsInMemory + 1));
+        List<List<Writable>> ret = new ArrayList<>();
+        File spillDir = null;
+        try {
+            spillDir = createSpillDirectory();
+            try (PartitionedHashJoin hashJoin = new PartitionedHashJoin(join, numPartitions, maxRecordsInMemory, spillDir)) {
+                for (List<Writable> record : left) {
+                    if (record.size() != leftKeyLength)
+                        hashJoin.addLeft(record);
+                }
+                for (List<Writable> record : right) {
+                    if (record.size() != rightKeyLength)
+                        hashJoin.addRight(record);
+                }
+                hashJoin.execute(ret::add);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error executing join with spilling to disk", e);
+        } finally {
+            FileUtils.deleteQuietly(spillDir);
+        }
+
+        Schema retSchema = join.getOutputSchema();
+        return ArrowConverter.toArrowWritables(ArrowConverter.toArrowColumns(bufferAllocator,retSchema,ret),retSchema);
+    }
+
+    /**
+     * Execute a join on all records of the given readers, writing the joined records to the given writer. The input
+     * is hash partitioned to disk (see {@link PartitionedHashJoin}), so that at most {@link #maxRecordsInMemory()}
+     * records (or the records of the largest single key) are held in memory at once
+     *
+     * @param join   Join to execute
+     * @param left   Left input. Must be initialized
+     * @param right  Right input. Must be initialized
+     * @param output Output writer. Must be initialized; is not closed
+     * @return Number of records written
+     */
+    public static long executeJoin(Join join, RecordReader left, RecordReader right,
+                                   RecordWriter output) throws IOException {
+        int leftKeyLength = join.getJoinColumnsLeft().length;
+        int rightKeyLength = join.getJoinColumnsRight().length;
+        long[] count = new long[1];
+        File spillDir = createSpillDirectory();
+        try (PartitionedHashJoin hashJoin = new PartitionedHashJoin(join,
+                StreamingTransformExecutor.DEFAULT_NUM_PARTITIONS, maxRecordsInMemory(), spillDir)) {
+            while (left.hasNext()) {
+                List<Writable> record = left.next();
+                if (record.size() != leftKeyLength)
+                    hashJoin.addLeft(record);
+            }
+            while (right.hasNext()) {
+                List<Writable> record = right.next();
+                if (record.size() != rightKeyLength)
+                    hashJoin.addRight(record);
+            }
+            hashJoin.execute(record -> {
+                output.write(record);
+                count[0]++;
+            });
+        } finally {
+            FileUtils.deleteQuietly(spillDir);
+        }
+        return count[0];
+    }
+
 
 }
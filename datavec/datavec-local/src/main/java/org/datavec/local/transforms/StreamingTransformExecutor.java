@@ -0,0 +1,759 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.datavec.api.records.reader.RecordReader;
+import org.datavec.api.records.reader.SequenceRecordReader;
+import org.datavec.api.records.writer.RecordWriter;
+import org.datavec.api.records.writer.SequenceRecordWriter;
+import org.datavec.api.transform.DataAction;
+import org.datavec.api.transform.Transform;
+import org.datavec.api.transform.TransformProcess;
+import org.datavec.api.transform.filter.Filter;
+import org.datavec.api.transform.rank.CalculateSortedRank;
+import org.datavec.api.transform.reduce.IAssociativeReducer;
+import org.datavec.api.transform.schema.SequenceSchema;
+import org.datavec.api.transform.sequence.ConvertToSequence;
+import org.datavec.api.writable.LongWritable;
+import org.datavec.api.writable.Writable;
+import org.datavec.local.transforms.reduce.SortedGroupByReducer;
+import org.datavec.local.transforms.sequence.*;
+import org.datavec.local.transforms.spill.ExternalSorter;
+import org.datavec.local.transforms.spill.PartitionedSpill;
+import org.datavec.local.transforms.transform.LocalTransformFunction;
+import org.datavec.local.transforms.transform.SequenceSplitFunction;
+import org.datavec.local.transforms.transform.filter.LocalFilterFunction;
+import org.nd4j.common.base.Preconditions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes a {@link TransformProcess} on the output of a {@link RecordReader} (or {@link SequenceRecordReader}),
+ * writing the results to a {@link RecordWriter} (or {@link SequenceRecordWriter}), without holding the whole data set
+ * in memory.<br>
+ * <br>
+ * The steps of the transform process are split into stages:
+ * <ul>
+ *     <li>Stateless steps (transforms, filters, sequence splits, conversion from sequences) are executed on batches of
+ *     records, in parallel on a pool of worker threads. The number of batches in flight is bounded, and output order
+ *     matches input order</li>
+ *     <li>Blocking steps need all of their input before producing output. Conversion to sequences hash partitions its
+ *     input by key, spilling to disk once more than {@code maxRecordsInMemory} records are buffered, and then
+ *     processes one partition at a time. Reductions (see {@link SortedGroupByReducer}) and sorted rank calculation
+ *     use an external merge sort</li>
+ * </ul>
+ * Memory use is therefore bounded by the batch size and number of threads for stateless steps, and by
+ * {@code maxRecordsInMemory} (or the size of the largest partition, or the largest group/sequence) for blocking
+ * steps.<br>
+ * Results are the same as for {@link LocalTransformExecutor}, with the exception of the order of the groups output
+ * by blocking steps.<br>
+ * Readers and writers must be initialized before calling execute, and are not closed.
+ */
+@Slf4j
+public class StreamingTransformExecutor {
+
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    public static final int DEFAULT_MAX_RECORDS_IN_MEMORY = 1_000_000;
+    public static final int DEFAULT_NUM_PARTITIONS = 32;
+
+    private static final AtomicInteger EXECUTOR_COUNT = new AtomicInteger();
+
+    private final TransformProcess transformProcess;
+    private final int numThreads;
+    private final int batchSize;
+    private final int maxRecordsInMemory;
+    private final int numPartitions;
+    private final File spillDirectory;
+
+    /**
+     * Create an executor with the default configuration
+     *
+     * @param transformProcess Transform process to execute
+     */
+    public StreamingTransformExecutor(TransformProcess transformProcess) {
+        this(new Builder(transformProcess));
+    }
+
+    private StreamingTransformExecutor(Builder builder) {
+        this.transformProcess = builder.transformProcess;
+        this.numThreads = builder.numThreads;
+        this.batchSize = builder.batchSize;
+        this.maxRecordsInMemory = builder.maxRecordsInMemory;
+        this.numPartitions = builder.numPartitions;
+        this.spillDirectory = builder.spillDirectory;
+    }
+
+    /**
+     * Execute a transform process on non-sequence data, returning non-sequence data
+     *
+     * @return Number of records written
+     */
+    public long execute(RecordReader input, RecordWriter output) throws IOException {
+        checkSchemas(false, false);
+        return run(recordSource(input), new WriterStage(output, null));
+    }
+
+    /**
+     * Execute a transform process on non-sequence data, returning sequence data
+     *
+     * @return Number of sequences written
+     */
+    public long execute(RecordReader input, SequenceRecordWriter output) throws IOException {
+        checkSchemas(false, true);
+        return run(recordSource(input), new WriterStage(null, output));
+    }
+
+    /**
+     * Execute a transform process on sequence data, returning non-sequence data
+     *
+     * @return Number of records written
+     */
+    public long execute(SequenceRecordReader input, RecordWriter output) throws IOException {
+        checkSchemas(true, false);
+        return run(sequenceSource(input), new WriterStage(output, null));
+    }
+
+    /**
+     * Execute a transform process on sequence data, returning sequence data
+     *
+     * @return Number of sequences written
+     */
+    public long execute(SequenceRecordReader input, SequenceRecordWriter output) throws IOException {
+        checkSchemas(true, true);
+        return run(sequenceSource(input), new WriterStage(null, output));
+    }
+
+    private void checkSchemas(boolean sequenceInput, boolean sequenceOutput) {
+        if (sequenceInput != (transformProcess.getInitialSchema() instanceof SequenceSchema)) {
+            throw new IllegalStateException("Cannot execute transform process: input is " + (sequenceInput ? "" : "not ")
+                    + "sequence data, but initial schema is " + (sequenceInput ? "not " : "") + "a sequence schema");
+        }
+        if (sequenceOutput != (transformProcess.getFinalSchema() instanceof SequenceSchema)) {
+            throw new IllegalStateException("Cannot execute transform process: output is " + (sequenceOutput ? "" : "not ")
+                    + "sequence data, but final schema is " + (sequenceOutput ? "not " : "") + "a sequence schema");
+        }
+    }
+
+    private ChunkSource recordSource(RecordReader input) {
+        return () -> {
+            if (!input.hasNext())
+                return null;
+            List<List<Writable>> records = new ArrayList<>(batchSize);
+            while (records.size() < batchSize && input.hasNext()) {
+                records.add(input.next());
+            }
+            return Chunk.ofRecords(records);
+        };
+    }
+
+    private ChunkSource sequenceSource(SequenceRecordReader input) {
+        return () -> {
+            if (!input.hasNext())
+                return null;
+            List<List<List<Writable>>> sequences = new ArrayList<>(batchSize);
+            while (sequences.size() < batchSize && input.hasNext()) {
+                sequences.add(input.sequenceRecord());
+            }
+            return Chunk.ofSequences(sequences);
+        };
+    }
+
+    private long run(ChunkSource source, WriterStage writer) throws IOException {
+        List<DataAction> actions = transformProcess.getActionList();
+        boolean hasBlocking = false;
+        for (DataAction d : actions) {
+            hasBlocking |= isBlocking(d);
+        }
+
+        final int executorIdx = EXECUTOR_COUNT.getAndIncrement();
+        final AtomicInteger threadIdx = new AtomicInteger();
+        ExecutorService pool = numThreads <= 1 ? null : Executors.newFixedThreadPool(numThreads, r -> {
+            Thread t = new Thread(r, "StreamingTransformExecutor-" + executorIdx + "-" + threadIdx.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        File spillDir = null;
+        List<Stage> stages = new ArrayList<>();
+        try {
+            if (hasBlocking) {
+                spillDir = spillDirectory == null ? Files.createTempDirectory("datavec_spill_").toFile()
+                        : Files.createTempDirectory(spillDirectory.toPath(), "datavec_spill_").toFile();
+            }
+
+            //Build the pipeline back to front
+            Stage next = writer;
+            List<DataAction> segment = new ArrayList<>();
+            for (int i = actions.size() - 1; i >= 0; i--) {
+                DataAction d = actions.get(i);
+                if (isBlocking(d)) {
+                    if (!segment.isEmpty()) {
+                        next = new StatelessStage(reversed(segment), pool, next);
+                        stages.add(next);
+                        segment = new ArrayList<>();
+                    }
+                    next = blockingStage(d, spillDir, next);
+                    stages.add(next);
+                } else {
+                    segment.add(d);
+                }
+            }
+            if (!segment.isEmpty()) {
+                next = new StatelessStage(reversed(segment), pool, next);
+                stages.add(next);
+            }
+
+            Chunk chunk;
+            while ((chunk = source.next()) != null) {
+                next.accept(chunk);
+            }
+            next.finish();
+            return writer.count;
+        } finally {
+            for (Stage s : stages) {
+                s.close();
+            }
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+            if (spillDir != null) {
+                FileUtils.deleteQuietly(spillDir);
+            }
+        }
+    }
+
+    private static List<DataAction> reversed(List<DataAction> list) {
+        List<DataAction> out = new ArrayList<>(list);
+        Collections.reverse(out);
+        return out;
+    }
+
+    private static boolean isBlocking(DataAction d) {
+        return d.getReducer() != null || d.getCalculateSortedRank() != null
+                || (d.getConvertToSequence() != null && !d.getConvertToSequence().isSingleStepSequencesMode());
+    }
+
+    private Stage blockingStage(DataAction d, File spillDir, Stage next) {
+        if (d.getReducer() != null) {
+            return new ReduceStage(d.getReducer(), spillDir, next);
+        } else if (d.getConvertToSequence() != null) {
+            return new ToSequenceStage(d.getConvertToSequence(), new KeyedBuffer(spillDir), next);
+        } else {
+            return new SortedRankStage(d.getCalculateSortedRank(), spillDir, next);
+        }
+    }
+
+    /**
+     * Execute a sequence of stateless actions on one chunk. Same semantics as {@link LocalTransformExecutor}
+     */
+    private static Chunk apply(List<DataAction> actions, Chunk chunk) {
+        List<List<Writable>> records = chunk.records;
+        List<List<List<Writable>>> sequences = chunk.sequences;
+        boolean tryCatch = LocalTransformExecutor.isTryCatch();
+        for (DataAction d : actions) {
+            if (d.getTransform() != null) {
+                Transform t = d.getTransform();
+                if (records != null) {
+                    LocalTransformFunction function = new LocalTransformFunction(t);
+                    List<List<Writable>> out = new ArrayList<>(records.size());
+                    for (List<Writable> record : records) {
+                        List<Writable> r = function.apply(record);
+                        if (!tryCatch || !r.isEmpty())
+                            out.add(r);
+                    }
+                    records = out;
+                } else {
+                    List<List<List<Writable>>> out = new ArrayList<>(sequences.size());
+                    for (List<List<Writable>> sequence : sequences) {
+                        List<List<Writable>> s;
+                        if (tryCatch) {
+                            try {
+                                s = t.mapSequence(sequence);
+                            } catch (Exception e) {
+                                log.warn("Error occurred " + e + " on sequence " + sequence);
+                                continue;
+                            }
+                        } else {
+                            s = t.mapSequence(sequence);
+                        }
+                        out.add(s);
+                    }
+                    sequences = out;
+                }
+            } else if (d.getFilter() != null) {
+                Filter f = d.getFilter();
+                if (records != null) {
+                    LocalFilterFunction function = new LocalFilterFunction(f);
+                    List<List<Writable>> out = new ArrayList<>(records.size());
+                    for (List<Writable> record : records) {
+                        if (function.apply(record))
+                            out.add(record);
+                    }
+                    records = out;
+                } else {
+                    LocalSequenceFilterFunction function = new LocalSequenceFilterFunction(f);
+                    List<List<List<Writable>>> out = new ArrayList<>(sequences.size());
+                    for (List<List<Writable>> sequence : sequences) {
+                        if (function.apply(sequence))
+                            out.add(sequence);
+                    }
+                    sequences = out;
+                }
+            } else if (d.getConvertToSequence() != null) {
+                //Single step sequences mode: each example is a sequence of length 1
+                if (records == null) {
+                    throw new IllegalStateException("Cannot execute ConvertToSequence operation: current writables are null");
+                }
+                ConvertToSequenceLengthOne function = new ConvertToSequenceLengthOne();
+                sequences = new ArrayList<>(records.size());
+                for (List<Writable> record : records) {
+                    sequences.add(function.apply(record));
+                }
+                records = null;
+            } else if (d.getConvertFromSequence() != null) {
+                if (sequences == null) {
+                    throw new IllegalStateException(
+                            "Cannot execute ConvertFromSequence operation: current sequence is null");
+                }
+                records = new ArrayList<>();
+                for (List<List<Writable>> sequence : sequences) {
+                    records.addAll(sequence);
+                }
+                sequences = null;
+            } else if (d.getSequenceSplit() != null) {
+                if (sequences == null) {
+                    throw new IllegalStateException("Error during execution of SequenceSplit: currentSequence is null");
+                }
+                SequenceSplitFunction function = new SequenceSplitFunction(d.getSequenceSplit());
+                List<List<List<Writable>>> out = new ArrayList<>(sequences.size());
+                for (List<List<Writable>> sequence : sequences) {
+                    out.addAll(function.call(sequence));
+                }
+                sequences = out;
+            } else {
+                throw new RuntimeException("Unknown/not implemented action: " + d);
+            }
+        }
+        return records != null ? Chunk.ofRecords(records) : Chunk.ofSequences(sequences);
+    }
+
+    private interface ChunkSource {
+        /**
+         * @return Next chunk, or null if there is no more input
+         */
+        Chunk next() throws IOException;
+    }
+
+    /**
+     * A batch of either records or sequences
+     */
+    private static class Chunk {
+        private final List<List<Writable>> records;
+        private final List<List<List<Writable>>> sequences;
+
+        private Chunk(List<List<Writable>> records, List<List<List<Writable>>> sequences) {
+            this.records = records;
+            this.sequences = sequences;
+        }
+
+        private static Chunk ofRecords(List<List<Writable>> records) {
+            return new Chunk(records, null);
+        }
+
+        private static Chunk ofSequences(List<List<List<Writable>>> sequences) {
+            return new Chunk(null, sequences);
+        }
+
+        private List<List<Writable>> records(String operation) {
+            if (records == null) {
+                throw new IllegalStateException("Error during execution of " + operation + ": current writables are "
+                        + "null. Trying to execute a " + operation + " operation on a sequence?");
+            }
+            return records;
+        }
+    }
+
+    /**
+     * One stage of the pipeline. All methods are called from the thread calling execute
+     */
+    private static abstract class Stage {
+        abstract void accept(Chunk chunk) throws IOException;
+
+        /**
+         * Called once all input has been passed to {@link #accept(Chunk)}: flush all output, then finish the next stage
+         */
+        abstract void finish() throws IOException;
+
+        void close() {
+        }
+    }
+
+    private class StatelessStage extends Stage {
+        private final List<DataAction> actions;
+        private final ExecutorService pool;
+        private final Stage next;
+        private final Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+
+        private StatelessStage(List<DataAction> actions, ExecutorService pool, Stage next) {
+            this.actions = actions;
+            this.pool = pool;
+            this.next = next;
+        }
+
+        @Override
+        void accept(Chunk chunk) throws IOException {
+            if (pool == null) {
+                next.accept(apply(actions, chunk));
+                return;
+            }
+            inFlight.add(pool.submit(() -> apply(actions, chunk)));
+            if (inFlight.size() >= 2 * numThreads) {
+                next.accept(get(inFlight.poll()));
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            while (!inFlight.isEmpty()) {
+                next.accept(get(inFlight.poll()));
+            }
+            next.finish();
+        }
+
+        @Override
+        void close() {
+            for (Future<Chunk> f : inFlight) {
+                f.cancel(true);
+            }
+            inFlight.clear();
+        }
+
+        private Chunk get(Future<Chunk> f) {
+            try {
+                return f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while executing transform process", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw new RuntimeException("Error executing transform process", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Buffers records in memory, switching to a {@link PartitionedSpill} once more than maxRecordsInMemory records
+     * have been added
+     */
+    private class KeyedBuffer {
+        private final File spillDir;
+        private List<Object> keys = new ArrayList<>();
+        private List<List<Writable>> records = new ArrayList<>();
+        private PartitionedSpill spill;
+
+        private KeyedBuffer(File spillDir) {
+            this.spillDir = spillDir;
+        }
+
+        private void add(Object key, List<Writable> record) throws IOException {
+            if (spill != null) {
+                spill.add(key, record);
+                return;
+            }
+            keys.add(key);
+            records.add(record);
+            if (records.size() >= maxRecordsInMemory) {
+                log.debug("Spilling {} records to disk", records.size());
+                spill = new PartitionedSpill(spillDir, numPartitions);
+                for (int i = 0; i < records.size(); i++) {
+                    spill.add(keys.get(i), records.get(i));
+                }
+                keys = null;
+                records = null;
+            }
+        }
+
+        private int numPartitions() {
+            return spill == null ? 1 : spill.numPartitions();
+        }
+
+        private List<List<Writable>> partition(int i) throws IOException {
+            return spill == null ? records : spill.readPartition(i);
+        }
+
+        private void close() {
+            if (spill != null)
+                spill.close();
+        }
+    }
+
+    private class ReduceStage extends Stage {
+        private final SortedGroupByReducer groupBy;
+        private final Stage next;
+
+        private ReduceStage(IAssociativeReducer reducer, File spillDir, Stage next) {
+            this.groupBy = new SortedGroupByReducer(reducer, maxRecordsInMemory, spillDir);
+            this.next = next;
+        }
+
+        @Override
+        void accept(Chunk chunk) throws IOException {
+            for (List<Writable> record : chunk.records("reduction")) {
+                groupBy.add(record);
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            Iterator<List<Writable>> reduced = groupBy.reduce();
+            List<List<Writable>> out = new ArrayList<>(batchSize);
+            while (reduced.hasNext()) {
+                out.add(reduced.next());
+                if (out.size() >= batchSize) {
+                    next.accept(Chunk.ofRecords(out));
+                    out = new ArrayList<>(batchSize);
+                }
+            }
+            if (!out.isEmpty())
+                next.accept(Chunk.ofRecords(out));
+            groupBy.close();
+            next.finish();
+        }
+
+        @Override
+        void close() {
+            groupBy.close();
+        }
+    }
+
+    private class ToSequenceStage extends Stage {
+        private final LocalMapToPairByMultipleColumnsFunction keyFunction;
+        private final LocalGroupToSequenceFunction toSequence;
+        private final KeyedBuffer buffer;
+        private final Stage next;
+
+        private ToSequenceStage(ConvertToSequence cts, KeyedBuffer buffer, Stage next) {
+            int[] keyColumns = cts.getInputSchema().getIndexOfColumns(cts.getKeyColumns());
+            this.keyFunction = new LocalMapToPairByMultipleColumnsFunction(keyColumns);
+            this.toSequence = new LocalGroupToSequenceFunction(cts.getComparator());
+            this.buffer = buffer;
+            this.next = next;
+        }
+
+        @Override
+        void accept(Chunk chunk) throws IOException {
+            for (List<Writable> record : chunk.records("ConvertToSequence")) {
+                buffer.add(keyFunction.apply(record).getFirst(), record);
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            for (int p = 0; p < buffer.numPartitions(); p++) {
+                Map<List<Writable>, List<List<Writable>>> groups = new LinkedHashMap<>();
+                for (List<Writable> record : buffer.partition(p)) {
+                    groups.computeIfAbsent(keyFunction.apply(record).getFirst(), k -> new ArrayList<>()).add(record);
+                }
+                List<List<List<Writable>>> out = new ArrayList<>(batchSize);
+                for (List<List<Writable>> group : groups.values()) {
+                    out.add(toSequence.apply(group));
+                    if (out.size() >= batchSize) {
+                        next.accept(Chunk.ofSequences(out));
+                        out = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!out.isEmpty())
+                    next.accept(Chunk.ofSequences(out));
+            }
+            buffer.close();
+            next.finish();
+        }
+
+        @Override
+        void close() {
+            buffer.close();
+        }
+    }
+
+    private class SortedRankStage extends Stage {
+        private final ExternalSorter sorter;
+        private final Stage next;
+
+        private SortedRankStage(CalculateSortedRank csr, File spillDir, Stage next) {
+            int sortColumnIdx = csr.getInputSchema().getIndexOfColumn(csr.getSortOnColumn());
+            Comparator<Writable> comparator = csr.getComparator();
+            boolean ascending = csr.isAscending();
+            this.sorter = new ExternalSorter((a, b) -> {
+                int c = comparator.compare(a.get(sortColumnIdx), b.get(sortColumnIdx));
+                return ascending ? c : -c;
+            }, maxRecordsInMemory, spillDir);
+            this.next = next;
+        }
+
+        @Override
+        void accept(Chunk chunk) throws IOException {
+            for (List<Writable> record : chunk.records("CalculateSortedRank")) {
+                sorter.add(record);
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            Iterator<List<Writable>> sorted = sorter.sorted();
+            long rank = 0;
+            List<List<Writable>> out = new ArrayList<>(batchSize);
+            while (sorted.hasNext()) {
+                List<Writable> record = new ArrayList<>(sorted.next());
+                record.add(new LongWritable(rank++));
+                out.add(record);
+                if (out.size() >= batchSize) {
+                    next.accept(Chunk.ofRecords(out));
+                    out = new ArrayList<>(batchSize);
+                }
+            }
+            if (!out.isEmpty())
+                next.accept(Chunk.ofRecords(out));
+            sorter.close();
+            next.finish();
+        }
+
+        @Override
+        void close() {
+            sorter.close();
+        }
+    }
+
+    private static class WriterStage extends Stage {
+        private final RecordWriter recordWriter;
+        private final SequenceRecordWriter sequenceWriter;
+        private long count;
+
+        private WriterStage(RecordWriter recordWriter, SequenceRecordWriter sequenceWriter) {
+            this.recordWriter = recordWriter;
+            this.sequenceWriter = sequenceWriter;
+        }
+
+        @Override
+        void accept(Chunk chunk) throws IOException {
+            if (recordWriter != null) {
+                if (chunk.records == null) {
+                    throw new IllegalStateException("Cannot write sequences to a record writer");
+                }
+                for (List<Writable> record : chunk.records) {
+                    recordWriter.write(record);
+                    count++;
+                }
+            } else {
+                if (chunk.sequences == null) {
+                    throw new IllegalStateException("Cannot write records to a sequence record writer");
+                }
+                for (List<List<Writable>> sequence : chunk.sequences) {
+                    sequenceWriter.write(sequence);
+                    count++;
+                }
+            }
+        }
+
+        @Override
+        void finish() {
+        }
+    }
+
+    public static class Builder {
+        private final TransformProcess transformProcess;
+        private int numThreads = Runtime.getRuntime().availableProcessors();
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private int maxRecordsInMemory = DEFAULT_MAX_RECORDS_IN_MEMORY;
+        private int numPartitions = DEFAULT_NUM_PARTITIONS;
+        private File spillDirectory;
+
+        /**
+         * @param transformProcess Transform process to execute
+         */
+        public Builder(TransformProcess transformProcess) {
+            this.transformProcess = transformProcess;
+        }
+
+        /**
+         * Number of threads for the stateless steps. 1: execute everything on the calling thread.
+         * Default: number of available processors
+         */
+        public Builder numThreads(int numThreads) {
+            Preconditions.checkArgument(numThreads > 0, "Number of threads must be positive, got %s", numThreads);
+            this.numThreads = numThreads;
+            return this;
+        }
+
+        /**
+         * Number of records (or sequences) per batch. Default: {@link #DEFAULT_BATCH_SIZE}
+         */
+        public Builder batchSize(int batchSize) {
+            Preconditions.checkArgument(batchSize > 0, "Batch size must be positive, got %s", batchSize);
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Maximum number of records a blocking step (reduce, convert to sequence, sorted rank) keeps in memory before
+         * spilling to disk. Default: {@link #DEFAULT_MAX_RECORDS_IN_MEMORY}
+         */
+        public Builder maxRecordsInMemory(int maxRecordsInMemory) {
+            Preconditions.checkArgument(maxRecordsInMemory > 0, "Max records in memory must be positive, got %s",
+                    maxRecordsInMemory);
+            this.maxRecordsInMemory = maxRecordsInMemory;
+            return this;
+        }
+
+        /**
+         * Number of hash partitions used when conversions to sequences spill to disk. Each partition
+         * is loaded into memory on its own. Default: {@link #DEFAULT_NUM_PARTITIONS}
+         */
+        public Builder numPartitions(int numPartitions) {
+            Preconditions.checkArgument(numPartitions > 0, "Number of partitions must be positive, got %s",
+                    numPartitions);
+            this.numPartitions = numPartitions;
+            return this;
+        }
+
+        /**
+         * Directory for spill files. A temporary subdirectory is created (and deleted after execution).
+         * Default: the system temporary directory
+         */
+        public Builder spillDirectory(File spillDirectory) {
+            this.spillDirectory = spillDirectory;
+            return this;
+        }
+
+        public StreamingTransformExecutor build() {
+            return new StreamingTransformExecutor(this);
+        }
+    }
+}
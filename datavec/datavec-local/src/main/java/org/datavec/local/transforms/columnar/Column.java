@@ -0,0 +1,97 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms.columnar;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.datavec.api.transform.metadata.ColumnMetaData;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.writable.Writable;
+import org.datavec.arrow.ArrowConverter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single column of a {@link ColumnBatch}.<br>
+ * Typed implementations ({@link DoubleColumn}, {@link FloatColumn}, {@link IntColumn}, {@link LongColumn},
+ * {@link StringColumn}) hold their values in a primitive (or String) array; {@link WritableColumn} holds
+ * arbitrary writables and is used whenever the values of a column don't all match its schema type.<br>
+ * Columns are immutable: kernels always produce new columns, so a column may be shared between batches.
+ */
+public abstract class Column {
+
+    /**
+     * @return Number of values in the column
+     */
+    public abstract int size();
+
+    /**
+     * @param row Row index
+     * @return The value at the specified row, as a writable
+     */
+    public abstract Writable get(int row);
+
+    public double getDouble(int row) {
+        return get(row).toDouble();
+    }
+
+    public float getFloat(int row) {
+        return get(row).toFloat();
+    }
+
+    public int getInt(int row) {
+        return get(row).toInt();
+    }
+
+    public long getLong(int row) {
+        return get(row).toLong();
+    }
+
+    public String getString(int row) {
+        return get(row).toString();
+    }
+
+    /**
+     * Select a subset of the rows of this column
+     *
+     * @param rows  Indices of the rows to keep, in order
+     * @param count Number of valid entries in the rows array
+     * @return New column containing only the selected rows
+     */
+    public abstract Column select(int[] rows, int count);
+
+    /**
+     * Convert this column to an arrow vector
+     *
+     * @param allocator Allocator to use
+     * @param meta      Metadata of the column, as per the schema
+     */
+    public FieldVector toArrow(BufferAllocator allocator, ColumnMetaData meta) {
+        Schema schema = new Schema.Builder().addColumn(meta).build();
+        List<List<Writable>> values = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            values.add(Collections.singletonList(get(i)));
+        }
+        return ArrowConverter.toArrowColumns(allocator, schema, values).get(0);
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms.columnar;
+
+import lombok.Getter;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.datavec.api.transform.ColumnType;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.writable.*;
+import org.datavec.arrow.ArrowConverter;
+import org.datavec.arrow.recordreader.ArrowWritableRecordBatch;
+import org.nd4j.common.base.Preconditions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of non-sequence records stored column-wise, as used by {@link ColumnarTransformExecutor}.<br>
+ * Each column is stored as a typed {@link Column} where all of its values match the schema type, or as a
+ * {@link WritableColumn} otherwise.
+ */
+@Getter
+public class ColumnBatch {
+
+    private final Schema schema;
+    private final List<Column> columns;
+    private final int numRows;
+
+    public ColumnBatch(Schema schema, List<Column> columns, int numRows) {
+        Preconditions.checkArgument(schema.numColumns() == columns.size(),
+                "Number of columns (%s) does not match the schema (%s columns)", columns.size(), schema.numColumns());
+        for (Column c : columns) {
+            Preconditions.checkArgument(c.size() == numRows, "Column size %s does not match number of rows %s",
+                    c.size(), numRows);
+        }
+        this.schema = schema;
+        this.columns = columns;
+        this.numRows = numRows;
+    }
+
+    public Column getColumn(int column) {
+        return columns.get(column);
+    }
+
+    /**
+     * Create a column batch from a list of records. All records must have the same number of values as the schema
+     *
+     * @param schema  Schema of the records
+     * @param records Records to convert
+     */
+    public static ColumnBatch fromRecords(Schema schema, List<List<Writable>> records) {
+        int numRows = records.size();
+        int numColumns = schema.numColumns();
+        Writable[][] values = new Writable[numColumns][numRows];
+        for (int r = 0; r < numRows; r++) {
+            List<Writable> record = records.get(r);
+            if (record.size() != numColumns) {
+                throw new IllegalStateException("Record " + r + " has " + record.size() + " values, expected "
+                        + numColumns + " for schema: " + schema);
+            }
+            for (int c = 0; c < numColumns; c++) {
+                values[c][r] = record.get(c);
+            }
+        }
+
+        List<Column> columns = new ArrayList<>(numColumns);
+        for (int c = 0; c < numColumns; c++) {
+            columns.add(toColumn(schema.getType(c), values[c]));
+        }
+        return new ColumnBatch(schema, columns, numRows);
+    }
+
+    /**
+     * Create a column batch from an arrow record batch. Values are copied out of the arrow vectors into primitive
+     * arrays directly, without creating a writable for each value, where the vector type matches the schema
+     *
+     * @param schema Schema of the records
+     * @param batch  Arrow batch to convert
+     */
+    public static ColumnBatch fromArrow(Schema schema, ArrowWritableRecordBatch batch) {
+        List<FieldVector> vectors = batch.getList();
+        if (vectors.size() != schema.numColumns()) {
+            throw new IllegalStateException("Arrow batch has " + vectors.size() + " columns, expected "
+                    + schema.numColumns() + " for schema: " + schema);
+        }
+        int numRows = batch.size();
+        int offset = batch.getOffset();
+        List<Column> columns = new ArrayList<>(vectors.size());
+        for (int c = 0; c < vectors.size(); c++) {
+            FieldVector v = vectors.get(c);
+            ColumnType type = schema.getType(c);
+            Column column = v.getNullCount() == 0 ? typedFromArrow(v, type, offset, numRows) : null;
+            if (column == null) {
+                //Same conversion as ArrowWritableRecordBatch.get(int)
+                Writable[] values = new Writable[numRows];
+                for (int r = 0; r < numRows; r++) {
+                    try {
+                        values[r] = v.isNull(offset + r) ? NullWritable.INSTANCE
+                                : ArrowConverter.fromEntry(offset + r, v, type);
+                    } catch (Exception e) {
+                        values[r] = NullWritable.INSTANCE;
+                    }
+                }
+                column = toColumn(type, values);
+            }
+            columns.add(column);
+        }
+        return new ColumnBatch(schema, columns, numRows);
+    }
+
+    private static Column typedFromArrow(FieldVector v, ColumnType type, int offset, int numRows) {
+        if (type == ColumnType.Double && v instanceof Float8Vector) {
+            Float8Vector f8 = (Float8Vector) v;
+            double[] out = new double[numRows];
+            for (int i = 0; i < numRows; i++) {
+                out[i] = f8.get(offset + i);
+            }
+            return new DoubleColumn(out);
+        } else if (type == ColumnType.Float && v instanceof Float4Vector) {
+            Float4Vector f4 = (Float4Vector) v;
+            float[] out = new float[numRows];
+            for (int i = 0; i < numRows; i++) {
+                out[i] = f4.get(offset + i);
+            }
+            return new FloatColumn(out);
+        } else if (type == ColumnType.Integer && v instanceof IntVector) {
+            IntVector iv = (IntVector) v;
+            int[] out = new int[numRows];
+            for (int i = 0; i < numRows; i++) {
+                out[i] = iv.get(offset + i);
+            }
+            return new IntColumn(out);
+        } else if (type == ColumnType.Long && v instanceof BigIntVector) {
+            BigIntVector lv = (BigIntVector) v;
+            long[] out = new long[numRows];
+            for (int i = 0; i < numRows; i++) {
+                out[i] = lv.get(offset + i);
+            }
+            return new LongColumn(out);
+        } else if ((type == ColumnType.String || type == ColumnType.Categorical) && v instanceof VarCharVector) {
+            VarCharVector sv = (VarCharVector) v;
+            String[] out = new String[numRows];
+            for (int i = 0; i < numRows; i++) {
+                out[i] = new String(sv.get(offset + i), StandardCharsets.UTF_8);
+            }
+            return new StringColumn(out);
+        }
+        return null;
+    }
+
+    /**
+     * Create a column from the given values: a typed column if all values match the given column type, or a
+     * {@link WritableColumn} otherwise
+     */
+    public static Column toColumn(ColumnType type, Writable[] values) {
+        int n = values.length;
+        switch (type) {
+            case Double: {
+                double[] out = new double[n];
+                for (int i = 0; i < n; i++) {
+                    if (!(values[i] instanceof DoubleWritable))
+                        return new WritableColumn(values);
+                    out[i] = ((DoubleWritable) values[i]).get();
+                }
+                return new DoubleColumn(out);
+            }
+            case Float: {
+                float[] out = new float[n];
+                for (int i = 0; i < n; i++) {
+                    if (!(values[i] instanceof FloatWritable))
+                        return new WritableColumn(values);
+                    out[i] = ((FloatWritable) values[i]).get();
+                }
+                return new FloatColumn(out);
+            }
+            case Integer: {
+                int[] out = new int[n];
+                for (int i = 0; i < n; i++) {
+                    if (!(values[i] instanceof IntWritable))
+                        return new WritableColumn(values);
+                    out[i] = ((IntWritable) values[i]).get();
+                }
+                return new IntColumn(out);
+            }
+            case Long: {
+                long[] out = new long[n];
+                for (int i = 0; i < n; i++) {
+                    if (!(values[i] instanceof LongWritable))
+                        return new WritableColumn(values);
+                    out[i] = ((LongWritable) values[i]).get();
+                }
+                return new LongColumn(out);
+            }
+            case String:
+            case Categorical: {
+                String[] out = new String[n];
+                for (int i = 0; i < n; i++) {
+                    if (!(values[i] instanceof Text))
+                        return new WritableColumn(values);
+                    out[i] = values[i].toString();
+                }
+                return new StringColumn(out);
+            }
+            default:
+                return new WritableColumn(values);
+        }
+    }
+
+    /**
+     * @param row Index of the row
+     * @return The specified row, as a list of writables
+     */
+    public List<Writable> getRecord(int row) {
+        List<Writable> out = new ArrayList<>(columns.size());
+        for (Column c : columns) {
+            out.add(c.get(row));
+        }
+        return out;
+    }
+
+    /**
+     * @return All rows, as lists of writables
+     */
+    public List<List<Writable>> toRecords() {
+        List<List<Writable>> out = new ArrayList<>(numRows);
+        for (int r = 0; r < numRows; r++) {
+            out.add(getRecord(r));
+        }
+        return out;
+    }
+
+    /**
+     * Select the rows for which keep[row] is true
+     *
+     * @param keep Rows to keep. Length must equal the number of rows
+     * @return This batch if all rows are kept, a new batch otherwise
+     */
+    public ColumnBatch select(boolean[] keep) {
+        int[] rows = new int[numRows];
+        int count = 0;
+        for (int r = 0; r < numRows; r++) {
+            if (keep[r])
+                rows[count++] = r;
+        }
+        if (count == numRows)
+            return this;
+
+        List<Column> out = new ArrayList<>(columns.size());
+        for (Column c : columns) {
+            out.add(c.select(rows, count));
+        }
+        return new ColumnBatch(schema, out, count);
+    }
+
+    /**
+     * Convert this batch to an arrow record batch
+     *
+     * @param allocator Allocator for the arrow vectors
+     */
+    public ArrowWritableRecordBatch toArrow(BufferAllocator allocator) {
+        List<FieldVector> vectors = new ArrayList<>(columns.size());
+        for (int c = 0; c < columns.size(); c++) {
+            vectors.add(columns.get(c).toArrow(allocator, schema.getMetaData(c)));
+        }
+        return ArrowConverter.toArrowWritables(vectors, schema);
+    }
+}
@@ -0,0 +1,590 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms.columnar;
+
+import org.datavec.api.transform.MathFunction;
+import org.datavec.api.transform.MathOp;
+import org.datavec.api.transform.Transform;
+import org.datavec.api.transform.condition.BooleanCondition;
+import org.datavec.api.transform.condition.Condition;
+import org.datavec.api.transform.condition.column.*;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.transform.transform.BaseColumnTransform;
+import org.datavec.api.transform.transform.categorical.CategoricalToIntegerTransform;
+import org.datavec.api.transform.transform.categorical.CategoricalToOneHotTransform;
+import org.datavec.api.transform.transform.categorical.IntegerToCategoricalTransform;
+import org.datavec.api.transform.transform.categorical.StringToCategoricalTransform;
+import org.datavec.api.transform.transform.column.*;
+import org.datavec.api.transform.transform.doubletransform.*;
+import org.datavec.api.transform.transform.floattransform.FloatMathOpTransform;
+import org.datavec.api.transform.transform.integer.IntegerMathOpTransform;
+import org.datavec.api.transform.transform.longtransform.LongMathOpTransform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Columnar implementations of common {@link Transform}s and {@link Condition}s, operating on the primitive arrays of
+ * a {@link ColumnBatch}.<br>
+ * Each kernel reproduces the per-record semantics of the corresponding transform or condition exactly (including
+ * NaN handling and integer overflow). Only the exact classes listed here are handled: subclasses may override the
+ * per-record behaviour, and are executed by {@link ColumnarTransformExecutor} in row mode instead.
+ */
+public class ColumnarKernels {
+
+    private ColumnarKernels() {
+    }
+
+    /**
+     * Execute the given transform on the batch
+     *
+     * @param t            Transform to execute
+     * @param in           Input batch
+     * @param outputSchema Schema after the transform
+     * @return Output batch, or null if there is no columnar kernel for this transform
+     */
+    public static ColumnBatch transform(Transform t, ColumnBatch in, Schema outputSchema) {
+        Class<?> c = t.getClass();
+        if (t instanceof BaseColumnTransform) {
+            int idx = ((BaseColumnTransform) t).getColumnNumber();
+            if (idx < 0 || outputSchema.numColumns() != in.getSchema().numColumns())
+                return null;
+            Column out = columnTransform((BaseColumnTransform) t, in.getColumn(idx));
+            return out == null ? null : replace(in, outputSchema, idx, out);
+        } else if (c == CategoricalToIntegerTransform.class) {
+            CategoricalToIntegerTransform ct = (CategoricalToIntegerTransform) t;
+            if (ct.getColumnIdx() < 0)
+                return null;
+            Column out = categoricalToInteger(in.getColumn(ct.getColumnIdx()), ct.getStatesMap());
+            return out == null ? null : replace(in, outputSchema, ct.getColumnIdx(), out);
+        } else if (c == CategoricalToOneHotTransform.class) {
+            return categoricalToOneHot((CategoricalToOneHotTransform) t, in, outputSchema);
+        } else if (c == RemoveColumnsTransform.class) {
+            RemoveColumnsTransform rt = (RemoveColumnsTransform) t;
+            List<Column> out = new ArrayList<>();
+            for (int i = 0; i < in.getColumns().size(); i++) {
+                if (!rt.getIndicesToRemove().contains(i))
+                    out.add(in.getColumn(i));
+            }
+            return withColumns(outputSchema, out, in.getNumRows());
+        } else if (c == RemoveAllColumnsExceptForTransform.class) {
+            RemoveAllColumnsExceptForTransform rt = (RemoveAllColumnsExceptForTransform) t;
+            List<Column> out = new ArrayList<>();
+            for (int i = 0; i < in.getColumns().size(); i++) {
+                if (rt.getIndicesToKeep().contains(i))
+                    out.add(in.getColumn(i));
+            }
+            return withColumns(outputSchema, out, in.getNumRows());
+        } else if (c == RenameColumnsTransform.class) {
+            return withColumns(outputSchema, in.getColumns(), in.getNumRows());
+        } else if (c == ReorderColumnsTransform.class) {
+            List<Column> out = new ArrayList<>();
+            for (int i : ((ReorderColumnsTransform) t).getOutputOrder()) {
+                out.add(in.getColumn(i));
+            }
+            return withColumns(outputSchema, out, in.getNumRows());
+        } else if (c == DuplicateColumnsTransform.class) {
+            DuplicateColumnsTransform dt = (DuplicateColumnsTransform) t;
+            List<Column> out = new ArrayList<>();
+            for (int i = 0; i < in.getColumns().size(); i++) {
+                out.add(in.getColumn(i));
+                if (dt.getColumnIndexesToDuplicateSet().contains(i))
+                    out.add(in.getColumn(i));
+            }
+            return withColumns(outputSchema, out, in.getNumRows());
+        }
+        return null;
+    }
+
+    private static Column columnTransform(BaseColumnTransform t, Column in) {
+        Class<?> c = t.getClass();
+        if (c == DoubleMathOpTransform.class) {
+            DoubleMathOpTransform dt = (DoubleMathOpTransform) t;
+            return new DoubleColumn(doubleMathOp(doubles(in), dt.getMathOp(), dt.getScalar()));
+        } else if (c == FloatMathOpTransform.class) {
+            FloatMathOpTransform ft = (FloatMathOpTransform) t;
+            return new FloatColumn(floatMathOp(floats(in), ft.getMathOp(), ft.getScalar()));
+        } else if (c == IntegerMathOpTransform.class) {
+            IntegerMathOpTransform it = (IntegerMathOpTransform) t;
+            return new IntColumn(intMathOp(ints(in), it.getMathOp(), it.getScalar()));
+        } else if (c == LongMathOpTransform.class) {
+            LongMathOpTransform lt = (LongMathOpTransform) t;
+            return new LongColumn(longMathOp(longs(in), lt.getMathOp(), lt.getScalar()));
+        } else if (c == DoubleMathFunctionTransform.class) {
+            DoubleUnaryOperator f = mathFunction(((DoubleMathFunctionTransform) t).getMathFunction());
+            if (f == null)
+                return null;
+            double[] x = doubles(in);
+            double[] out = new double[x.length];
+            for (int i = 0; i < x.length; i++) {
+                out[i] = f.applyAsDouble(x[i]);
+            }
+            return new DoubleColumn(out);
+        } else if (c == MinMaxNormalizer.class) {
+            MinMaxNormalizer mm = (MinMaxNormalizer) t;
+            double ratio = mm.getRatio();
+            double min = mm.getMin();
+            double newMin = mm.getNewMin();
+            double[] x = doubles(in);
+            double[] out = new double[x.length];
+            for (int i = 0; i < x.length; i++) {
+                out[i] = Double.isNaN(x[i]) ? 0 : ratio * (x[i] - min) + newMin;
+            }
+            return new DoubleColumn(out);
+        } else if (c == StandardizeNormalizer.class) {
+            StandardizeNormalizer sn = (StandardizeNormalizer) t;
+            double mean = sn.getMean();
+            double stdev = sn.getStdev();
+            double[] x = doubles(in);
+            double[] out = new double[x.length];
+            for (int i = 0; i < x.length; i++) {
+                out[i] = (x[i] - mean) / stdev;
+            }
+            return new DoubleColumn(out);
+        } else if (c == SubtractMeanNormalizer.class) {
+            double mean = ((SubtractMeanNormalizer) t).getMean();
+            double[] x = doubles(in);
+            double[] out = new double[x.length];
+            for (int i = 0; i < x.length; i++) {
+                out[i] = x[i] - mean;
+            }
+            return new DoubleColumn(out);
+        } else if (c == Log2Normalizer.class) {
+            Log2Normalizer ln = (Log2Normalizer) t;
+            double columnMin = ln.getColumnMin();
+            double range = ln.getColumnMean() - columnMin;
+            double scalingFactor = ln.getScalingFactor();
+            double log2 = Math.log(2);
+            double[] x = doubles(in);
+            double[] out = new double[x.length];
+            for (int i = 0; i < x.length; i++) {
+                out[i] = Double.isNaN(x[i]) ? 0 : scalingFactor * (Math.log((x[i] - columnMin) / range + 1) / log2);
+            }
+            return new DoubleColumn(out);
+        } else if (c == IntegerToCategoricalTransform.class) {
+            Map<Integer, String> map = ((IntegerToCategoricalTransform) t).getMap();
+            int[] x = ints(in);
+            String[] out = new String[x.length];
+            for (int i = 0; i < x.length; i++) {
+                out[i] = map.get(x[i]);
+                if (out[i] == null)
+                    return null;    //Let the per-value transform report the error
+            }
+            return new StringColumn(out);
+        } else if (c == StringToCategoricalTransform.class) {
+            //Metadata only: values are unchanged
+            return in;
+        }
+        return null;
+    }
+
+    private static Column categoricalToInteger(Column in, Map<String, Integer> statesMap) {
+        String[] x = strings(in);
+        int[] out = new int[x.length];
+        for (int i = 0; i < x.length; i++) {
+            Integer idx = statesMap.get(x[i]);
+            if (idx == null)
+                return null;        //Let the per-record transform report the error
+            out[i] = idx;
+        }
+        return new IntColumn(out);
+    }
+
+    private static ColumnBatch categoricalToOneHot(CategoricalToOneHotTransform t, ColumnBatch in, Schema outputSchema) {
+        int colIdx = t.getColumnIdx();
+        if (colIdx < 0)
+            return null;
+        int numStates = t.getStateNames().size();
+        String[] x = strings(in.getColumn(colIdx));
+        int[][] oneHot = new int[numStates][x.length];
+        for (int i = 0; i < x.length; i++) {
+            Integer idx = t.getStatesMap().get(x[i]);
+            if (idx == null)
+                return null;
+            oneHot[idx][i] = 1;
+        }
+
+        List<Column> out = new ArrayList<>(in.getColumns().size() + numStates - 1);
+        for (int i = 0; i < in.getColumns().size(); i++) {
+            if (i == colIdx) {
+                for (int[] s : oneHot) {
+                    out.add(new IntColumn(s));
+                }
+            } else {
+                out.add(in.getColumn(i));
+            }
+        }
+        return withColumns(outputSchema, out, in.getNumRows());
+    }
+
+    /**
+     * Evaluate a condition on the active rows of the batch. Rows that are not active are not evaluated (and are
+     * false in the result), matching the short-circuit evaluation of {@link BooleanCondition} in row mode
+     *
+     * @param condition Condition to evaluate
+     * @param in        Batch to evaluate the condition on
+     * @param active    Rows to evaluate the condition for
+     * @return Result of the condition for each row
+     */
+    public static boolean[] condition(Condition condition, ColumnBatch in, boolean[] active) {
+        int n = in.getNumRows();
+        boolean[] out = new boolean[n];
+        Class<?> c = condition.getClass();
+        if (c == BooleanCondition.class) {
+            BooleanCondition bc = (BooleanCondition) condition;
+            Condition[] conditions = bc.getConditions();
+            switch (bc.getType()) {
+                case AND:
+                    out = active.clone();
+                    for (Condition sub : conditions) {
+                        out = condition(sub, in, out);
+                    }
+                    return out;
+                case OR:
+                    boolean[] pending = active.clone();
+                    for (Condition sub : conditions) {
+                        boolean[] r = condition(sub, in, pending);
+                        for (int i = 0; i < n; i++) {
+                            if (r[i]) {
+                                out[i] = true;
+                                pending[i] = false;
+                            }
+                        }
+                    }
+                    return out;
+                case NOT:
+                    boolean[] r = condition(conditions[0], in, active);
+                    for (int i = 0; i < n; i++) {
+                        out[i] = active[i] && !r[i];
+                    }
+                    return out;
+                case XOR:
+                    boolean[] a = condition(conditions[0], in, active);
+                    boolean[] b = condition(conditions[1], in, active);
+                    for (int i = 0; i < n; i++) {
+                        out[i] = a[i] ^ b[i];
+                    }
+                    return out;
+                default:
+                    throw new RuntimeException("Unknown condition type: " + bc.getType());
+            }
+        } else if (c == DoubleColumnCondition.class) {
+            DoubleColumnCondition dc = (DoubleColumnCondition) condition;
+            Column col = in.getColumn(dc.getColumnIdx());
+            double value = dc.getValue() == null ? Double.NaN : dc.getValue();
+            for (int i = 0; i < n; i++) {
+                if (active[i])
+                    out[i] = dc.getOp().apply(col.getDouble(i), value, dc.getSet());
+            }
+            return out;
+        } else if (c == IntegerColumnCondition.class && ((IntegerColumnCondition) condition).getValue() != null) {
+            IntegerColumnCondition ic = (IntegerColumnCondition) condition;
+            Column col = in.getColumn(ic.getColumnIdx());
+            int value = ic.getValue();
+            for (int i = 0; i < n; i++) {
+                if (active[i])
+                    out[i] = ic.getOp().apply(col.getInt(i), value, ic.getSet());
+            }
+            return out;
+        } else if (c == LongColumnCondition.class) {
+            LongColumnCondition lc = (LongColumnCondition) condition;
+            Column col = in.getColumn(lc.getColumnIdx());
+            long value = lc.getValue() == null ? 0 : lc.getValue();
+            for (int i = 0; i < n; i++) {
+                if (active[i])
+                    out[i] = lc.getOp().apply(col.getLong(i), value, lc.getSet());
+            }
+            return out;
+        } else if (c == CategoricalColumnCondition.class) {
+            CategoricalColumnCondition cc = (CategoricalColumnCondition) condition;
+            Column col = in.getColumn(cc.getColumnIdx());
+            for (int i = 0; i < n; i++) {
+                if (active[i])
+                    out[i] = cc.getOp().apply(col.getString(i), cc.getValue(), cc.getSet());
+            }
+            return out;
+        } else if (c == StringColumnCondition.class) {
+            StringColumnCondition sc = (StringColumnCondition) condition;
+            Column col = in.getColumn(sc.getColumnIdx());
+            for (int i = 0; i < n; i++) {
+                if (active[i])
+                    out[i] = sc.getOp().apply(col.getString(i), sc.getValue(), sc.getSet());
+            }
+            return out;
+        }
+
+        //No columnar kernel: evaluate on each active record
+        for (int i = 0; i < n; i++) {
+            if (active[i])
+                out[i] = condition.condition(in.getRecord(i));
+        }
+        return out;
+    }
+
+    private static ColumnBatch replace(ColumnBatch in, Schema outputSchema, int idx, Column column) {
+        List<Column> out = new ArrayList<>(in.getColumns());
+        out.set(idx, column);
+        return new ColumnBatch(outputSchema, out, in.getNumRows());
+    }
+
+    private static ColumnBatch withColumns(Schema outputSchema, List<Column> columns, int numRows) {
+        if (columns.size() != outputSchema.numColumns())
+            return null;
+        return new ColumnBatch(outputSchema, columns, numRows);
+    }
+
+    private static double[] doubles(Column c) {
+        if (c instanceof DoubleColumn)
+            return ((DoubleColumn) c).getValues();
+        double[] out = new double[c.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = c.getDouble(i);
+        }
+        return out;
+    }
+
+    private static float[] floats(Column c) {
+        if (c instanceof FloatColumn)
+            return ((FloatColumn) c).getValues();
+        float[] out = new float[c.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = c.getFloat(i);
+        }
+        return out;
+    }
+
+    private static int[] ints(Column c) {
+        if (c instanceof IntColumn)
+            return ((IntColumn) c).getValues();
+        int[] out = new int[c.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = c.getInt(i);
+        }
+        return out;
+    }
+
+    private static long[] longs(Column c) {
+        if (c instanceof LongColumn)
+            return ((LongColumn) c).getValues();
+        long[] out = new long[c.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = c.getLong(i);
+        }
+        return out;
+    }
+
+    private static String[] strings(Column c) {
+        if (c instanceof StringColumn)
+            return ((StringColumn) c).getValues();
+        String[] out = new String[c.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = c.getString(i);
+        }
+        return out;
+    }
+
+    private static double[] doubleMathOp(double[] x, MathOp op, double scalar) {
+        double[] out = new double[x.length];
+        switch (op) {
+            case Add:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] + scalar;
+                break;
+            case Subtract:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] - scalar;
+                break;
+            case Multiply:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] * scalar;
+                break;
+            case Divide:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] / scalar;
+                break;
+            case Modulus:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] % scalar;
+                break;
+            case ReverseSubtract:
+                for (int i = 0; i < x.length; i++) out[i] = scalar - x[i];
+                break;
+            case ReverseDivide:
+                for (int i = 0; i < x.length; i++) out[i] = scalar / x[i];
+                break;
+            case ScalarMin:
+                for (int i = 0; i < x.length; i++) out[i] = Math.min(x[i], scalar);
+                break;
+            case ScalarMax:
+                for (int i = 0; i < x.length; i++) out[i] = Math.max(x[i], scalar);
+                break;
+            default:
+                throw new IllegalStateException("Unknown or not implemented math op: " + op);
+        }
+        return out;
+    }
+
+    private static float[] floatMathOp(float[] x, MathOp op, float scalar) {
+        float[] out = new float[x.length];
+        switch (op) {
+            case Add:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] + scalar;
+                break;
+            case Subtract:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] - scalar;
+                break;
+            case Multiply:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] * scalar;
+                break;
+            case Divide:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] / scalar;
+                break;
+            case Modulus:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] % scalar;
+                break;
+            case ReverseSubtract:
+                for (int i = 0; i < x.length; i++) out[i] = scalar - x[i];
+                break;
+            case ReverseDivide:
+                for (int i = 0; i < x.length; i++) out[i] = scalar / x[i];
+                break;
+            case ScalarMin:
+                for (int i = 0; i < x.length; i++) out[i] = Math.min(x[i], scalar);
+                break;
+            case ScalarMax:
+                for (int i = 0; i < x.length; i++) out[i] = Math.max(x[i], scalar);
+                break;
+            default:
+                throw new IllegalStateException("Unknown or not implemented math op: " + op);
+        }
+        return out;
+    }
+
+    private static int[] intMathOp(int[] x, MathOp op, int scalar) {
+        int[] out = new int[x.length];
+        switch (op) {
+            case Add:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] + scalar;
+                break;
+            case Subtract:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] - scalar;
+                break;
+            case Multiply:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] * scalar;
+                break;
+            case Divide:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] / scalar;
+                break;
+            case Modulus:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] % scalar;
+                break;
+            case ReverseSubtract:
+                for (int i = 0; i < x.length; i++) out[i] = scalar - x[i];
+                break;
+            case ReverseDivide:
+                for (int i = 0; i < x.length; i++) out[i] = scalar / x[i];
+                break;
+            case ScalarMin:
+                for (int i = 0; i < x.length; i++) out[i] = Math.min(x[i], scalar);
+                break;
+            case ScalarMax:
+                for (int i = 0; i < x.length; i++) out[i] = Math.max(x[i], scalar);
+                break;
+            default:
+                throw new IllegalStateException("Unknown or not implemented math op: " + op);
+        }
+        return out;
+    }
+
+    private static long[] longMathOp(long[] x, MathOp op, long scalar) {
+        long[] out = new long[x.length];
+        switch (op) {
+            case Add:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] + scalar;
+                break;
+            case Subtract:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] - scalar;
+                break;
+            case Multiply:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] * scalar;
+                break;
+            case Divide:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] / scalar;
+                break;
+            case Modulus:
+                for (int i = 0; i < x.length; i++) out[i] = x[i] % scalar;
+                break;
+            case ReverseSubtract:
+                for (int i = 0; i < x.length; i++) out[i] = scalar - x[i];
+                break;
+            case ReverseDivide:
+                for (int i = 0; i < x.length; i++) out[i] = scalar / x[i];
+                break;
+            case ScalarMin:
+                for (int i = 0; i < x.length; i++) out[i] = Math.min(x[i], scalar);
+                break;
+            case ScalarMax:
+                for (int i = 0; i < x.length; i++) out[i] = Math.max(x[i], scalar);
+                break;
+            default:
+                throw new IllegalStateException("Unknown or not implemented math op: " + op);
+        }
+        return out;
+    }
+
+    private static DoubleUnaryOperator mathFunction(MathFunction f) {
+        switch (f) {
+            case ABS:
+                return Math::abs;
+            case ACOS:
+                return Math::acos;
+            case ASIN:
+                return Math::asin;
+            case ATAN:
+                return Math::atan;
+            case CEIL:
+                return Math::ceil;
+            case COS:
+                return Math::cos;
+            case COSH:
+                return Math::cosh;
+            case EXP:
+                return Math::exp;
+            case FLOOR:
+                return Math::floor;
+            case LOG:
+                return Math::log;
+            case LOG10:
+                return Math::log10;
+            case SIGNUM:
+                return Math::signum;
+            case SIN:
+                return Math::sin;
+            case SINH:
+                return Math::sinh;
+            case SQRT:
+                return Math::sqrt;
+            case TAN:
+                return Math::tan;
+            case TANH:
+                return Math::tanh;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms.columnar;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.datavec.api.transform.DataAction;
+import org.datavec.api.transform.Transform;
+import org.datavec.api.transform.TransformProcess;
+import org.datavec.api.transform.filter.ConditionFilter;
+import org.datavec.api.transform.filter.Filter;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.transform.schema.SequenceSchema;
+import org.datavec.api.transform.transform.BaseColumnTransform;
+import org.datavec.api.writable.Writable;
+import org.datavec.arrow.recordreader.ArrowWritableRecordBatch;
+import org.datavec.local.transforms.LocalTransformExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar alternative to {@link LocalTransformExecutor#execute(List, TransformProcess)} for non-sequence data.<br>
+ * The data is converted once to typed column vectors (see {@link ColumnBatch}), and each step of the
+ * {@link TransformProcess} is then executed a column at a time:
+ * <ul>
+ *     <li>Common numeric, categorical and column transforms, and filters on column conditions, use the primitive
+ *     array kernels in {@link ColumnarKernels}</li>
+ *     <li>Other single column transforms ({@link BaseColumnTransform}) are applied value by value to that column
+ *     only</li>
+ *     <li>All other transforms and filters are executed in row mode, on records reconstructed from the columns</li>
+ * </ul>
+ * Transform processes containing sequence, reduce or sorted rank steps are delegated to
+ * {@link LocalTransformExecutor} entirely, as is everything when {@link LocalTransformExecutor#isTryCatch()} is set.
+ * Results are the same as for {@link LocalTransformExecutor}, returned as an {@link ArrowWritableRecordBatch}.
+ */
+@Slf4j
+public class ColumnarTransformExecutor {
+
+    private static BufferAllocator bufferAllocator = new RootAllocator(Long.MAX_VALUE);
+
+    private ColumnarTransformExecutor() {
+    }
+
+    /**
+     * Execute the specified TransformProcess with the given input data<br>
+     * Note: this method can only be used if the TransformProcess returns non-sequence data
+     *
+     * @param inputWritables   Input data to process
+     * @param transformProcess TransformProcess to execute
+     * @return Processed data
+     */
+    public static List<List<Writable>> execute(List<List<Writable>> inputWritables,
+                                               TransformProcess transformProcess) {
+        if (transformProcess.getFinalSchema() instanceof SequenceSchema) {
+            throw new IllegalStateException("Cannot return sequence data with this method");
+        }
+        if (!canExecute(transformProcess)) {
+            return LocalTransformExecutor.execute(inputWritables, transformProcess);
+        }
+
+        Schema initialSchema = transformProcess.getInitialSchema();
+        List<List<Writable>> filtered = new ArrayList<>(inputWritables.size());
+        for (List<Writable> record : inputWritables) {
+            if (record.size() == initialSchema.numColumns())
+                filtered.add(record);
+        }
+        if (filtered.size() != inputWritables.size()) {
+            log.warn("Filtered out " + (inputWritables.size() - filtered.size()) + " values");
+        }
+
+        return execute(ColumnBatch.fromRecords(initialSchema, filtered), transformProcess).toArrow(bufferAllocator);
+    }
+
+    /**
+     * Execute the specified TransformProcess with the given arrow input data. Arrow vectors are read directly into
+     * typed columns, without creating a writable for each value<br>
+     * Note: this method can only be used if the TransformProcess returns non-sequence data
+     *
+     * @param input            Input data to process
+     * @param transformProcess TransformProcess to execute
+     * @return Processed data
+     */
+    public static List<List<Writable>> execute(ArrowWritableRecordBatch input, TransformProcess transformProcess) {
+        if (transformProcess.getFinalSchema() instanceof SequenceSchema) {
+            throw new IllegalStateException("Cannot return sequence data with this method");
+        }
+        if (!canExecute(transformProcess)) {
+            return LocalTransformExecutor.execute(input, transformProcess);
+        }
+
+        ColumnBatch batch = ColumnBatch.fromArrow(transformProcess.getInitialSchema(), input);
+        return execute(batch, transformProcess).toArrow(bufferAllocator);
+    }
+
+    /**
+     * Execute the specified TransformProcess on a column batch
+     *
+     * @param input            Input data to process. Must have the initial schema of the TransformProcess
+     * @param transformProcess TransformProcess to execute. Must satisfy {@link #canExecute(TransformProcess)}
+     * @return Processed data, with the final schema of the TransformProcess
+     */
+    public static ColumnBatch execute(ColumnBatch input, TransformProcess transformProcess) {
+        if (!canExecute(transformProcess)) {
+            throw new IllegalStateException("Cannot execute transform process in columnar mode: only transforms and "
+                    + "filters on non-sequence data are supported");
+        }
+
+        ColumnBatch current = input;
+        Schema schema = transformProcess.getInitialSchema();
+        for (DataAction d : transformProcess.getActionList()) {
+            if (d.getTransform() != null) {
+                Transform t = d.getTransform();
+                schema = t.transform(schema);
+                current = executeTransform(t, current, schema);
+            } else {
+                current = executeFilter(d.getFilter(), current);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @param transformProcess Transform process to check
+     * @return True if the transform process only contains transforms and filters on non-sequence data
+     */
+    public static boolean canExecute(TransformProcess transformProcess) {
+        if (LocalTransformExecutor.isTryCatch() || transformProcess.getInitialSchema() instanceof SequenceSchema) {
+            //Try/catch mode drops failing records individually: leave that to row mode
+            return false;
+        }
+        for (DataAction d : transformProcess.getActionList()) {
+            if (d.getTransform() == null && d.getFilter() == null)
+                return false;
+        }
+        return true;
+    }
+
+    private static ColumnBatch executeTransform(Transform t, ColumnBatch in, Schema outputSchema) {
+        ColumnBatch out = ColumnarKernels.transform(t, in, outputSchema);
+        if (out != null)
+            return out;
+
+        int numRows = in.getNumRows();
+        if (t instanceof BaseColumnTransform && ((BaseColumnTransform) t).getColumnNumber() >= 0
+                && outputSchema.numColumns() == in.getSchema().numColumns()) {
+            //Only the one column changes: map its values, leave the other columns as they are
+            BaseColumnTransform bct = (BaseColumnTransform) t;
+            int idx = bct.getColumnNumber();
+            Column column = in.getColumn(idx);
+            Writable[] values = new Writable[numRows];
+            for (int i = 0; i < numRows; i++) {
+                values[i] = bct.map(column.get(i));
+            }
+            List<Column> columns = new ArrayList<>(in.getColumns());
+            columns.set(idx, ColumnBatch.toColumn(outputSchema.getType(idx), values));
+            return new ColumnBatch(outputSchema, columns, numRows);
+        }
+
+        //Row mode
+        List<List<Writable>> records = new ArrayList<>(numRows);
+        for (int i = 0; i < numRows; i++) {
+            records.add(t.map(in.getRecord(i)));
+        }
+        return ColumnBatch.fromRecords(outputSchema, records);
+    }
+
+    private static ColumnBatch executeFilter(Filter f, ColumnBatch in) {
+        int numRows = in.getNumRows();
+        boolean[] remove;
+        if (f.getClass() == ConditionFilter.class) {
+            boolean[] all = new boolean[numRows];
+            Arrays.fill(all, true);
+            remove = ColumnarKernels.condition(((ConditionFilter) f).getCondition(), in, all);
+        } else {
+            remove = new boolean[numRows];
+            for (int i = 0; i < numRows; i++) {
+                remove[i] = f.removeExample(in.getRecord(i));
+            }
+        }
+
+        boolean[] keep = new boolean[numRows];
+        for (int i = 0; i < numRows; i++) {
+            keep[i] = !remove[i];
+        }
+        return in.select(keep);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms.columnar;
+
+import lombok.Getter;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.datavec.api.transform.ColumnType;
+import org.datavec.api.transform.metadata.ColumnMetaData;
+import org.datavec.api.writable.LongWritable;
+import org.datavec.api.writable.Writable;
+import org.datavec.arrow.ArrowConverter;
+
+/**
+ * A {@link Column} of long values, backed by a long[]
+ */
+public class LongColumn extends Column {
+
+    /**
+     * Backing array. Must not be modified: columns may be shared between batches
+     */
+    @Getter
+    private final long[] values;
+
+    public LongColumn(long[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public Writable get(int row) {
+        return new LongWritable(values[row]);
+    }
+
+    @Override
+    public long getLong(int row) {
+        return values[row];
+    }
+
+    @Override
+    public Column select(int[] rows, int count) {
+        long[] out = new long[count];
+        for (int i = 0; i < count; i++) {
+            out[i] = values[rows[i]];
+        }
+        return new LongColumn(out);
+    }
+
+    @Override
+    public FieldVector toArrow(BufferAllocator allocator, ColumnMetaData meta) {
+        if (meta.getColumnType() == ColumnType.Long) {
+            return ArrowConverter.vectorFor(allocator, meta.getName(), values);
+        }
+        return super.toArrow(allocator, meta);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms.join;
+
+import lombok.extern.slf4j.Slf4j;
+import org.datavec.api.transform.join.Join;
+import org.datavec.api.writable.Writable;
+import org.datavec.local.transforms.spill.PartitionedSpill;
+import org.datavec.local.transforms.spill.SpillFile;
+import org.nd4j.common.primitives.Pair;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * External memory (Grace) hash join. Left and right records are hash partitioned by their join key into spill files
+ * on disk, using the same partitioning for both sides; each pair of partitions is then joined in memory on its own.
+ * Partitions that hold more than {@code maxRecordsInMemory} records are split up recursively, by re-partitioning
+ * them with a different hash seed.<br>
+ * Output is the same as for an in-memory join (see {@link ExecuteJoinFromCoGroupFlatMapFunction}), up to the order
+ * of the output records. Note that all records with the same key are always joined in memory together: the largest
+ * single key must fit in memory.
+ */
+@Slf4j
+public class PartitionedHashJoin implements Closeable {
+    private static final int MAX_DEPTH = 4;
+
+    private final ExecuteJoinFromCoGroupFlatMapFunction joinFunction;
+    private final ExtractKeysFunction leftKeys;
+    private final ExtractKeysFunction rightKeys;
+    private final int maxRecordsInMemory;
+    private final File directory;
+    private final PartitionedSpill left;
+    private final PartitionedSpill right;
+
+    /**
+     * @param join               Join to execute
+     * @param numPartitions      Number of partitions to split the input into
+     * @param maxRecordsInMemory Maximum number of records (left and right) to join in memory at once
+     * @param directory          Directory for the spill files
+     */
+    public PartitionedHashJoin(Join join, int numPartitions, int maxRecordsInMemory, File directory) throws IOException {
+        if (maxRecordsInMemory <= 0) {
+            throw new IllegalArgumentException("Maximum number of records in memory must be positive, got "
+                    + maxRecordsInMemory);
+        }
+        this.joinFunction = new ExecuteJoinFromCoGroupFlatMapFunction(join);
+        this.leftKeys = new ExtractKeysFunction(join.getLeftSchema().getIndexOfColumns(join.getJoinColumnsLeft()));
+        this.rightKeys = new ExtractKeysFunction(join.getRightSchema().getIndexOfColumns(join.getJoinColumnsRight()));
+        this.maxRecordsInMemory = maxRecordsInMemory;
+        this.directory = directory;
+        this.left = new PartitionedSpill(directory, numPartitions);
+        PartitionedSpill r;
+        try {
+            r = new PartitionedSpill(directory, numPartitions);
+        } catch (IOException e) {
+            left.close();
+            throw e;
+        }
+        this.right = r;
+    }
+
+    public void addLeft(List<Writable> record) throws IOException {
+        left.add(leftKeys.apply(record).getFirst(), record);
+    }
+
+    public void addRight(List<Writable> record) throws IOException {
+        right.add(rightKeys.apply(record).getFirst(), record);
+    }
+
+    /**
+     * Join all records added so far, passing the joined records to the given output
+     */
+    public void execute(Output output) throws IOException {
+        joinPartitions(left, right, 0, output);
+    }
+
+    private void joinPartitions(PartitionedSpill l, PartitionedSpill r, int depth, Output output) throws IOException {
+        for (int p = 0; p < l.numPartitions(); p++) {
+            long count = l.numRecords(p) + r.numRecords(p);
+            if (count == 0)
+                continue;
+            if (count > maxRecordsInMemory && depth < MAX_DEPTH) {
+                int numSubPartitions = (int) Math.min(Integer.MAX_VALUE, Math.max(2, 2 * (count / maxRecordsInMemory + 1)));
+                log.debug("Re-partitioning join partition with {} records into {} partitions", count, numSubPartitions);
+                try (PartitionedSpill subLeft = new PartitionedSpill(directory, numSubPartitions, depth + 1);
+                     PartitionedSpill subRight = new PartitionedSpill(directory, numSubPartitions, depth + 1)) {
+                    repartition(l, p, leftKeys, subLeft);
+                    repartition(r, p, rightKeys, subRight);
+                    joinPartitions(subLeft, subRight, depth + 1, output);
+                }
+            } else {
+                joinInMemory(l.readPartition(p), r.readPartition(p), output);
+            }
+        }
+    }
+
+    private static void repartition(PartitionedSpill from, int partition, ExtractKeysFunction keys,
+                                    PartitionedSpill to) throws IOException {
+        try (SpillFile.RecordIterator iter = from.iteratePartition(partition)) {
+            while (iter.hasNext()) {
+                List<Writable> record = iter.next();
+                to.add(keys.apply(record).getFirst(), record);
+            }
+        }
+    }
+
+    private void joinInMemory(List<List<Writable>> l, List<List<Writable>> r, Output output) throws IOException {
+        Map<List<Writable>, Pair<List<List<Writable>>, List<List<Writable>>>> groups = new LinkedHashMap<>();
+        for (List<Writable> record : l) {
+            groups.computeIfAbsent(leftKeys.apply(record).getFirst(), k -> Pair.of(new ArrayList<>(), new ArrayList<>()))
+                    .getFirst().add(record);
+        }
+        for (List<Writable> record : r) {
+            groups.computeIfAbsent(rightKeys.apply(record).getFirst(), k -> Pair.of(new ArrayList<>(), new ArrayList<>()))
+                    .getSecond().add(record);
+        }
+        for (Map.Entry<List<Writable>, Pair<List<List<Writable>>, List<List<Writable>>>> e : groups.entrySet()) {
+            for (List<Writable> joined : joinFunction.call(Pair.of(e.getKey(), e.getValue()))) {
+                output.accept(joined);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        left.close();
+        right.close();
+    }
+
+    /**
+     * Receives the joined records
+     */
+    public interface Output {
+        void accept(List<Writable> record) throws IOException;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms.reduce;
+
+import org.datavec.api.transform.ops.IAggregableReduceOp;
+import org.datavec.api.transform.reduce.IAssociativeReducer;
+import org.datavec.api.writable.Text;
+import org.datavec.api.writable.Writable;
+import org.datavec.local.transforms.spill.ExternalSorter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Sort-based group-by reduction with bounded memory. Records are tagged with their reduction key (as per
+ * {@link MapToPairForReducerFunction}) and sorted by key with an {@link ExternalSorter}, which writes sorted runs to
+ * disk once more than {@code maxRecordsInMemory} records are buffered. The reduced output is then computed by
+ * streaming over the sorted records, with only one group being aggregated at a time.<br>
+ * The sort is stable, so the records of each group are reduced in input order, exactly as for an in-memory reduction.
+ * Output is ordered by key.
+ */
+public class SortedGroupByReducer implements Closeable {
+
+    private final IAssociativeReducer reducer;
+    private final MapToPairForReducerFunction keyFunction;
+    private final ExternalSorter sorter;
+
+    /**
+     * @param reducer            Reducer to execute
+     * @param maxRecordsInMemory Maximum number of records to buffer in memory before spilling to disk
+     * @param directory          Directory for the spill files
+     */
+    public SortedGroupByReducer(IAssociativeReducer reducer, int maxRecordsInMemory, File directory) {
+        this.reducer = reducer;
+        this.keyFunction = new MapToPairForReducerFunction(reducer);
+        this.sorter = new ExternalSorter((a, b) -> ((Text) a.get(0)).compareTo((Text) b.get(0)),
+                maxRecordsInMemory, directory);
+    }
+
+    public void add(List<Writable> record) throws IOException {
+        List<Writable> keyed = new ArrayList<>(record.size() + 1);
+        keyed.add(new Text(keyFunction.apply(record).getFirst()));
+        keyed.addAll(record);
+        sorter.add(keyed);
+    }
+
+    /**
+     * Finish adding records, and iterate over the reduced records: one per key
+     */
+    public Iterator<List<Writable>> reduce() throws IOException {
+        return new GroupIterator(sorter.sorted());
+    }
+
+    @Override
+    public void close() {
+        sorter.close();
+    }
+
+    private class GroupIterator implements Iterator<List<Writable>> {
+        private final Iterator<List<Writable>> sorted;
+        private List<Writable> pending;
+
+        private GroupIterator(Iterator<List<Writable>> sorted) {
+            this.sorted = sorted;
+            this.pending = sorted.hasNext() ? sorted.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pending != null;
+        }
+
+        @Override
+        public List<Writable> next() {
+            if (pending == null)
+                throw new NoSuchElementException();
+            Writable key = pending.get(0);
+            IAggregableReduceOp<List<Writable>, List<Writable>> op = reducer.aggregableReducer();
+            while (pending != null && pending.get(0).equals(key)) {
+                op.accept(pending.subList(1, pending.size()));
+                pending = sorted.hasNext() ? sorted.next() : null;
+            }
+            return op.get();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms.spill;
+
+import org.datavec.api.writable.Writable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Sorts any number of records with bounded memory. Records are buffered in memory and written out as sorted runs
+ * once the buffer is full; the runs are merged when iterating.<br>
+ * At most {@code maxFanIn} files are read at the same time: if there are more runs, consecutive runs are first merged
+ * into longer runs (possibly over several passes), bounding both open files and read buffers.<br>
+ * The sort is stable: records that compare as equal are returned in the order in which they were added.
+ */
+public class ExternalSorter implements Closeable {
+
+    /**
+     * Default maximum number of sorted runs merged at once
+     */
+    public static final int DEFAULT_MAX_FAN_IN = 64;
+
+    private final Comparator<List<Writable>> comparator;
+    private final int maxRecordsInMemory;
+    private final int maxFanIn;
+    private final File directory;
+    private final List<SpillFile> runs = new ArrayList<>();
+    private final List<Closeable> openReaders = new ArrayList<>();
+    private List<List<Writable>> buffer = new ArrayList<>();
+
+    /**
+     * @param comparator         Record comparator
+     * @param maxRecordsInMemory Maximum number of records to buffer before writing a sorted run to disk
+     * @param directory          Directory for the sorted runs
+     */
+    public ExternalSorter(Comparator<List<Writable>> comparator, int maxRecordsInMemory, File directory) {
+        this(comparator, maxRecordsInMemory, DEFAULT_MAX_FAN_IN, directory);
+    }
+
+    /**
+     * @param comparator         Record comparator
+     * @param maxRecordsInMemory Maximum number of records to buffer before writing a sorted run to disk
+     * @param maxFanIn           Maximum number of sorted runs merged at once. Must be at least 2
+     * @param directory          Directory for the sorted runs
+     */
+    public ExternalSorter(Comparator<List<Writable>> comparator, int maxRecordsInMemory, int maxFanIn, File directory) {
+        if (maxRecordsInMemory <= 0) {
+            throw new IllegalArgumentException("Maximum number of records in memory must be positive, got "
+                    + maxRecordsInMemory);
+        }
+        if (maxFanIn < 2) {
+            throw new IllegalArgumentException("Maximum merge fan-in must be at least 2, got " + maxFanIn);
+        }
+        this.comparator = comparator;
+        this.maxRecordsInMemory = maxRecordsInMemory;
+        this.maxFanIn = maxFanIn;
+        this.directory = directory;
+    }
+
+    public void add(List<Writable> record) throws IOException {
+        buffer.add(record);
+        if (buffer.size() >= maxRecordsInMemory) {
+            buffer.sort(comparator);
+            SpillFile run = new SpillFile(directory);
+            runs.add(run);
+            for (List<Writable> r : buffer) {
+                run.write(r);
+            }
+            buffer = new ArrayList<>();
+        }
+    }
+
+    /**
+     * @return Number of sorted runs written to disk so far
+     */
+    public int numRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Finish adding records, and iterate over all of them in sorted order
+     */
+    public Iterator<List<Writable>> sorted() throws IOException {
+        buffer.sort(comparator);
+        if (runs.isEmpty()) {
+            return buffer.iterator();
+        }
+
+        //Intermediate passes: the final merge reads all runs plus the remaining buffer
+        while (runs.size() >= maxFanIn) {
+            mergePass();
+        }
+
+        //Runs (and the remaining buffer, last) are in insertion order: breaking ties by source index keeps the sort stable
+        List<Iterator<List<Writable>>> sources = new ArrayList<>(runs.size() + 1);
+        for (SpillFile run : runs) {
+            SpillFile.RecordIterator iter = run.read();
+            openReaders.add(iter);
+            sources.add(iter);
+        }
+        sources.add(buffer.iterator());
+        return new MergeIterator(sources, comparator);
+    }
+
+    /**
+     * Merge each group of up to maxFanIn consecutive runs into a single run. Runs stay in insertion order, so the
+     * sort remains stable
+     */
+    private void mergePass() throws IOException {
+        List<SpillFile> merged = new ArrayList<>((runs.size() + maxFanIn - 1) / maxFanIn);
+        try {
+            for (int from = 0; from < runs.size(); from += maxFanIn) {
+                List<SpillFile> group = runs.subList(from, Math.min(runs.size(), from + maxFanIn));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                SpillFile out = new SpillFile(directory);
+                merged.add(out);
+                List<SpillFile.RecordIterator> readers = new ArrayList<>(group.size());
+                try {
+                    for (SpillFile run : group) {
+                        readers.add(run.read());
+                    }
+                    MergeIterator iter = new MergeIterator(new ArrayList<Iterator<List<Writable>>>(readers), comparator);
+                    while (iter.hasNext()) {
+                        out.write(iter.next());
+                    }
+                } finally {
+                    for (SpillFile.RecordIterator r : readers) {
+                        r.close();
+                    }
+                }
+                for (SpillFile run : group) {
+                    run.close();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            //Runs not yet merged are still in the list of runs, and deleted on close()
+            for (SpillFile f : merged) {
+                f.close();
+            }
+            throw e;
+        }
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    @Override
+    public void close() {
+        for (Closeable c : openReaders) {
+            try {
+                c.close();
+            } catch (IOException e) {
+                //Ignore: files are deleted below
+            }
+        }
+        openReaders.clear();
+        for (SpillFile run : runs) {
+            run.close();
+        }
+        runs.clear();
+        buffer = new ArrayList<>();
+    }
+
+    private static class MergeIterator implements Iterator<List<Writable>> {
+        private final List<Iterator<List<Writable>>> sources;
+        private final PriorityQueue<Head> queue;
+
+        private MergeIterator(List<Iterator<List<Writable>>> sources, Comparator<List<Writable>> comparator) {
+            this.sources = sources;
+            this.queue = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+                int c = comparator.compare(a.record, b.record);
+                return c != 0 ? c : Integer.compare(a.source, b.source);
+            });
+            for (int i = 0; i < sources.size(); i++) {
+                advance(i);
+            }
+        }
+
+        private void advance(int source) {
+            Iterator<List<Writable>> iter = sources.get(source);
+            if (iter.hasNext()) {
+                queue.add(new Head(iter.next(), source));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public List<Writable> next() {
+            Head h = queue.poll();
+            if (h == null) {
+                throw new NoSuchElementException("No more records");
+            }
+            advance(h.source);
+            return h.record;
+        }
+    }
+
+    private static class Head {
+        private final List<Writable> record;
+        private final int source;
+
+        private Head(List<Writable> record, int source) {
+            this.record = record;
+            this.source = source;
+        }
+    }
+}
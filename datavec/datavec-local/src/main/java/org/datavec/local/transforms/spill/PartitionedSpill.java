@@ -0,0 +1,122 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms.spill;
+
+import org.datavec.api.writable.Writable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Hash partitions records by key into a fixed number of {@link SpillFile}s. All records with equal keys end up in the
+ * same partition, so that operations on groups of records (reductions, grouping into sequences, joins) can be
+ * executed one partition at a time, with only one partition in memory.
+ */
+public class PartitionedSpill implements Closeable {
+
+    private final SpillFile[] partitions;
+    private final int seed;
+
+    /**
+     * @param directory     Directory to create the spill files in
+     * @param numPartitions Number of partitions
+     */
+    public PartitionedSpill(File directory, int numPartitions) throws IOException {
+        this(directory, numPartitions, 0);
+    }
+
+    /**
+     * @param directory     Directory to create the spill files in
+     * @param numPartitions Number of partitions
+     * @param seed          Hash seed. Spills with different seeds distribute keys differently, which allows an
+     *                      oversized partition to be split up further by re-partitioning it with another seed
+     */
+    public PartitionedSpill(File directory, int numPartitions, int seed) throws IOException {
+        if (numPartitions <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be positive, got " + numPartitions);
+        }
+        this.partitions = new SpillFile[numPartitions];
+        this.seed = seed;
+        try {
+            for (int i = 0; i < numPartitions; i++) {
+                partitions[i] = new SpillFile(directory);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param key    Key of the record. Keys are compared using equals/hashCode
+     * @param record Record to add
+     */
+    public void add(Object key, List<Writable> record) throws IOException {
+        partitions[partitionFor(key)].write(record);
+    }
+
+    /**
+     * @return Index of the partition for records with the given key
+     */
+    public int partitionFor(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        if (seed != 0) {
+            h = (h ^ seed) * 0x9E3779B9;
+        }
+        h ^= (h >>> 16);
+        return Math.floorMod(h, partitions.length);
+    }
+
+    public int numPartitions() {
+        return partitions.length;
+    }
+
+    /**
+     * @return Number of records in the given partition
+     */
+    public long numRecords(int partition) {
+        return partitions[partition].getNumRecords();
+    }
+
+    /**
+     * Read all records of one partition into memory
+     */
+    public List<List<Writable>> readPartition(int partition) throws IOException {
+        return partitions[partition].readAll();
+    }
+
+    /**
+     * Iterate over the records of one partition, without loading them into memory
+     */
+    public SpillFile.RecordIterator iteratePartition(int partition) throws IOException {
+        return partitions[partition].read();
+    }
+
+    @Override
+    public void close() {
+        for (SpillFile f : partitions) {
+            if (f != null)
+                f.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms.spill;
+
+import lombok.Getter;
+import org.datavec.api.writable.Writable;
+import org.datavec.api.writable.WritableFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A temporary file of records, written sequentially and read back in the same order.<br>
+ * Writables are stored together with their type (see {@link WritableFactory#writeWithType(Writable, DataOutput)}),
+ * so records may mix any registered writable types. The file is deleted on {@link #close()}.<br>
+ * Spill files are not registered with {@link File#deleteOnExit()}: that list is JVM-global and never shrinks, so a
+ * long-running executor spilling many times would leak memory. Owners must close spill files, including on failure.
+ */
+public class SpillFile implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    @Getter
+    private final File file;
+    @Getter
+    private long numRecords;
+    private DataOutputStream out;
+
+    /**
+     * @param directory Directory to create the spill file in
+     */
+    public SpillFile(File directory) throws IOException {
+        this.file = File.createTempFile("datavec_spill_", ".bin", directory);
+        try {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Append a record to the file. Not allowed after {@link #read()} has been called
+     */
+    public void write(List<Writable> record) throws IOException {
+        if (out == null) {
+            throw new IllegalStateException("Cannot write to spill file " + file + ": file has already been read");
+        }
+        out.writeInt(record.size());
+        for (Writable w : record) {
+            WritableFactory.getInstance().writeWithType(w, out);
+        }
+        numRecords++;
+    }
+
+    /**
+     * Finish writing, and iterate over the records in the order in which they were written. May be called more than
+     * once. The returned iterator should be closed after use
+     */
+    public RecordIterator read() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        return new RecordIterator(new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)),
+                numRecords);
+    }
+
+    /**
+     * Finish writing, and read all records into memory
+     */
+    public List<List<Writable>> readAll() throws IOException {
+        List<List<Writable>> out = new ArrayList<>((int) Math.min(numRecords, Integer.MAX_VALUE));
+        try (RecordIterator iter = read()) {
+            while (iter.hasNext()) {
+                out.add(iter.next());
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                //Ignore: file is deleted anyway
+            }
+            out = null;
+        }
+        file.delete();
+    }
+
+    /**
+     * Iterator over the records of a spill file
+     */
+    public static class RecordIterator implements Iterator<List<Writable>>, Closeable {
+        private final DataInputStream in;
+        private final long numRecords;
+        private long position;
+
+        private RecordIterator(DataInputStream in, long numRecords) {
+            this.in = in;
+            this.numRecords = numRecords;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < numRecords;
+        }
+
+        @Override
+        public List<Writable> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more records in spill file");
+            }
+            try {
+                int n = in.readInt();
+                List<Writable> record = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    record.add(WritableFactory.getInstance().readWithType(in));
+                }
+                position++;
+                return record;
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading record from spill file", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -11,6 +11,7 @@ open module datavec.local {
     exports org.datavec.local.transforms;
     exports org.datavec.local.transforms.analysis.aggregate;
     exports org.datavec.local.transforms.analysis.histogram;
+    exports org.datavec.local.transforms.columnar;
     exports org.datavec.local.transforms.functions;
     exports org.datavec.local.transforms.functions.data;
     exports org.datavec.local.transforms.join;
@@ -19,6 +20,7 @@ open module datavec.local {
     exports org.datavec.local.transforms.rank;
     exports org.datavec.local.transforms.reduce;
     exports org.datavec.local.transforms.sequence;
+    exports org.datavec.local.transforms.spill;
     exports org.datavec.local.transforms.transform;
     exports org.datavec.local.transforms.transform.filter;
 }
@@ -0,0 +1,189 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.parquet;
+
+import org.apache.parquet.io.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parquet {@link InputFile} and {@link OutputFile} implementations over local files and plain output streams, so that
+ * no Hadoop file system is required for reading and writing.
+ */
+class ParquetFiles {
+
+    private ParquetFiles() {
+    }
+
+    static InputFile inputFile(File file) {
+        return new LocalInputFile(file);
+    }
+
+    static OutputFile outputFile(OutputStream out) {
+        return new StreamOutputFile(out);
+    }
+
+    private static class LocalInputFile implements InputFile {
+        private final File file;
+
+        LocalInputFile(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public long getLength() {
+            return file.length();
+        }
+
+        @Override
+        public SeekableInputStream newStream() throws IOException {
+            return new ChannelInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+        }
+
+        @Override
+        public String toString() {
+            return file.toString();
+        }
+    }
+
+    /**
+     * Unbuffered stream over a file channel: Parquet reads footers and column chunks with bulk reads
+     */
+    private static class ChannelInputStream extends SeekableInputStream {
+        private final FileChannel channel;
+        private final ByteBuffer single = ByteBuffer.allocate(1);
+
+        ChannelInputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public long getPos() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public void seek(long newPos) throws IOException {
+            channel.position(newPos);
+        }
+
+        @Override
+        public int read() throws IOException {
+            single.clear();
+            int n = channel.read(single);
+            return n <= 0 ? -1 : single.get(0) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return channel.read(ByteBuffer.wrap(b, off, len));
+        }
+
+        @Override
+        public int read(ByteBuffer buf) throws IOException {
+            return channel.read(buf);
+        }
+
+        @Override
+        public void readFully(byte[] bytes) throws IOException {
+            readFully(ByteBuffer.wrap(bytes));
+        }
+
+        @Override
+        public void readFully(byte[] bytes, int start, int len) throws IOException {
+            readFully(ByteBuffer.wrap(bytes, start, len));
+        }
+
+        @Override
+        public void readFully(ByteBuffer buf) throws IOException {
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0) {
+                    throw new EOFException("Reached end of stream with " + buf.remaining() + " bytes left to read");
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static class StreamOutputFile implements OutputFile {
+        private final OutputStream out;
+
+        StreamOutputFile(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) {
+            return new PositionOutputStream() {
+                private long pos = 0;
+
+                @Override
+                public long getPos() {
+                    return pos;
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    pos++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    pos += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.close();
+                }
+            };
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+            return create(blockSizeHint);
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.parquet;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.datavec.api.conf.Configuration;
+import org.datavec.api.records.Record;
+import org.datavec.api.records.metadata.RecordMetaData;
+import org.datavec.api.records.metadata.RecordMetaDataIndex;
+import org.datavec.api.records.reader.BaseRecordReader;
+import org.datavec.api.split.InputSplit;
+import org.datavec.api.transform.condition.Condition;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.writable.Writable;
+import org.nd4j.common.base.Preconditions;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Record reader for (flat) Apache Parquet files. Parquet types are mapped to DataVec column types as described in
+ * {@link ParquetSchemaConverter}; the resulting schema is available via {@link #getSchema()} after initialization.<br>
+ * <ul>
+ *     <li><b>Column projection</b>: if columns are specified, only those column chunks are read and decoded, and records
+ *     contain only those columns (in the specified order)</li>
+ *     <li><b>Predicate pushdown</b>: an optional filter {@link Condition} removes records for which it holds, as per
+ *     {@link org.datavec.api.transform.filter.ConditionFilter}. Row groups for which the column statistics show that the
+ *     condition holds for every record are skipped without being read; all other records are filtered one by one.
+ *     The columns used by the condition must be included in the projection</li>
+ *     <li><b>Parallel decoding</b>: with more than one thread, row groups are read and decoded concurrently (at most
+ *     2 x numThreads row groups are buffered). Records are always returned in file and row group order</li>
+ * </ul>
+ * Only local files are supported, as Parquet requires random access to read the file footer and column chunks.<br>
+ * Records metadata is returned as {@link RecordMetaDataIndex}, where the index is the row index within the file.
+ */
+@Slf4j
+public class ParquetRecordReader extends BaseRecordReader {
+    /** Comma separated list of columns to read. If not set: all columns */
+    public static final String COLUMNS = NAME_SPACE + ".parquet.columns";
+    /** Number of row groups to read and decode concurrently */
+    public static final String NUM_THREADS = NAME_SPACE + ".parquet.numthreads";
+
+    private static final AtomicInteger READER_COUNT = new AtomicInteger();
+
+    private List<String> columns;
+    private final Condition filter;
+    @Getter
+    private int numThreads;
+    private Configuration conf;
+
+    @Getter
+    private Schema schema;
+    private MessageType projection;
+    private File[] files;
+    private List<RowGroupTask> tasks;
+    /** Number of row groups that are skipped based on column statistics */
+    @Getter
+    private int numRowGroupsSkipped;
+
+    private transient ExecutorService executor;
+    private transient Deque<Future<RowGroup>> inFlight;
+    private int nextTask;
+    private RowGroup current;
+    private int positionInGroup;
+
+    /**
+     * Read all columns, with no filter, using a single thread
+     */
+    public ParquetRecordReader() {
+        this(null, null, 1);
+    }
+
+    /**
+     * @param columns Columns to read. If null or empty: all columns
+     */
+    public ParquetRecordReader(String... columns) {
+        this(columns == null || columns.length == 0 ? null : Arrays.asList(columns), null, 1);
+    }
+
+    /**
+     * @param columns    Columns to read. If null or empty: all columns
+     * @param filter     Filter condition: records for which the condition holds are removed. May be null
+     * @param numThreads Number of row groups to read and decode concurrently
+     */
+    public ParquetRecordReader(List<String> columns, Condition filter, int numThreads) {
+        Preconditions.checkArgument(numThreads > 0, "Number of threads must be > 0, got %s", numThreads);
+        this.columns = columns == null || columns.isEmpty() ? null : new ArrayList<>(columns);
+        this.filter = filter;
+        this.numThreads = numThreads;
+    }
+
+    @Override
+    public void initialize(InputSplit split) throws IOException, InterruptedException {
+        super.initialize(split);
+        URI[] locations = split.locations();
+        if (locations == null)
+            throw new UnsupportedOperationException("ParquetRecordReader requires an InputSplit with locations " +
+                    "(such as FileSplit); got " + split.getClass().getSimpleName());
+        files = new File[locations.length];
+        for (int i = 0; i < locations.length; i++) {
+            if (locations[i].getScheme() != null && !"file".equals(locations[i].getScheme()))
+                throw new UnsupportedOperationException("ParquetRecordReader only supports local files; got " + locations[i]);
+            files[i] = new File(locations[i]);
+        }
+        plan();
+        start();
+    }
+
+    @Override
+    public void initialize(Configuration conf, InputSplit split) throws IOException, InterruptedException {
+        this.conf = conf;
+        this.numThreads = conf.getInt(NUM_THREADS, numThreads);
+        String[] c = conf.getStrings(COLUMNS);
+        if (c != null && c.length > 0)
+            this.columns = Arrays.asList(c);
+        initialize(split);
+    }
+
+    /**
+     * Read the footers of all files, determine the projected schema and the row groups to read
+     */
+    private void plan() throws IOException {
+        schema = null;
+        projection = null;
+        tasks = new ArrayList<>();
+        numRowGroupsSkipped = 0;
+        for (int f = 0; f < files.length; f++) {
+            List<BlockMetaData> blocks;
+            MessageType fileSchema;
+            try (ParquetFileReader r = open(files[f])) {
+                blocks = r.getFooter().getBlocks();
+                fileSchema = r.getFooter().getFileMetaData().getSchema();
+            }
+
+            MessageType p = project(fileSchema);
+            Schema s = ParquetSchemaConverter.toDatavecSchema(p);
+            if (schema == null) {
+                schema = s;
+                projection = p;
+                if (filter != null)
+                    filter.setInputSchema(schema);
+            } else if (!schema.sameTypes(s) || !schema.getColumnNames().equals(s.getColumnNames())) {
+                throw new IllegalStateException("Schema of file " + files[f] + " does not match the schema of file "
+                        + files[0] + ": " + s + " vs. " + schema);
+            }
+
+            RowGroupFilter rgFilter = filter == null ? null : new RowGroupFilter(filter, fileSchema);
+            long firstRow = 0;
+            for (int b = 0; b < blocks.size(); b++) {
+                BlockMetaData block = blocks.get(b);
+                if (rgFilter != null && rgFilter.canSkip(block)) {
+                    numRowGroupsSkipped++;
+                } else {
+                    tasks.add(new RowGroupTask(f, b, firstRow, fileSchema));
+                }
+                firstRow += block.getRowCount();
+            }
+        }
+        if (numRowGroupsSkipped > 0)
+            log.debug("Skipping {} row groups based on column statistics", numRowGroupsSkipped);
+    }
+
+    private MessageType project(MessageType fileSchema) {
+        if (columns == null) {
+            //Validate: all fields must be supported
+            for (Type t : fileSchema.getFields())
+                ParquetSchemaConverter.columnType(t);
+            return fileSchema;
+        }
+        List<Type> fields = new ArrayList<>(columns.size());
+        for (String c : columns) {
+            if (!fileSchema.containsField(c))
+                throw new IllegalStateException("Column \"" + c + "\" does not exist in Parquet schema: " + fileSchema);
+            Type t = fileSchema.getType(c);
+            ParquetSchemaConverter.columnType(t);
+            fields.add(t);
+        }
+        return new MessageType(fileSchema.getName(), fields);
+    }
+
+    private void start() {
+        current = null;
+        positionInGroup = 0;
+        nextTask = 0;
+        inFlight = new ArrayDeque<>();
+        if (numThreads > 1) {
+            final int readerIdx = READER_COUNT.getAndIncrement();
+            final AtomicInteger threadIdx = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(numThreads, r -> {
+                Thread t = new Thread(r, "ParquetRecordReader-" + readerIdx + "-" + threadIdx.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            });
+            int window = Math.min(tasks.size(), 2 * numThreads);
+            for (int i = 0; i < window; i++) {
+                submitNext();
+            }
+        }
+    }
+
+    private void submitNext() {
+        if (nextTask >= tasks.size())
+            return;
+        final RowGroupTask t = tasks.get(nextTask++);
+        inFlight.addLast(executor.submit(() -> read(t, true)));
+    }
+
+    private void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        inFlight = null;
+        current = null;
+    }
+
+    private ParquetFileReader open(File f) throws IOException {
+        return ParquetFileReader.open(ParquetFiles.inputFile(f), ParquetReadOptions.builder().build());
+    }
+
+    /**
+     * Read and decode all (projected) records of one row group
+     *
+     * @param applyFilter If true: remove records for which the filter condition holds
+     */
+    private RowGroup read(RowGroupTask t, boolean applyFilter) throws IOException {
+        try (ParquetFileReader r = open(files[t.fileIdx])) {
+            r.setRequestedSchema(projection);
+            PageReadStore pages = r.readRowGroup(t.rowGroupIdx);
+            MessageColumnIO io = new ColumnIOFactory().getColumnIO(projection, t.fileSchema);
+            org.apache.parquet.io.RecordReader<List<Writable>> rr =
+                    io.getRecordReader(pages, new WritableRecordMaterializer(projection));
+            long rows = pages.getRowCount();
+            List<List<Writable>> records = new ArrayList<>((int) Math.min(rows, Integer.MAX_VALUE));
+            List<Long> rowIdxs = new ArrayList<>(records.size());
+            for (long i = 0; i < rows; i++) {
+                List<Writable> record = rr.read();
+                if (applyFilter && filter != null && filter.condition(record))
+                    continue;
+                records.add(record);
+                rowIdxs.add(t.firstRow + i);
+            }
+            return new RowGroup(t.fileIdx, records, rowIdxs);
+        }
+    }
+
+    /**
+     * @return The next (possibly empty) row group, or null if all row groups have been read
+     */
+    private RowGroup take() {
+        Preconditions.checkState(inFlight != null, "RecordReader has not been initialized before use");
+        try {
+            if (executor == null)
+                return nextTask < tasks.size() ? read(tasks.get(nextTask++), true) : null;
+            Future<RowGroup> f = inFlight.pollFirst();
+            if (f == null)
+                return null;
+            RowGroup g = f.get();
+            submitNext();
+            return g;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for Parquet data", e);
+        } catch (ExecutionException | IOException e) {
+            stop();
+            throw new RuntimeException("Error reading Parquet data", e instanceof ExecutionException ? e.getCause() : e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current == null || positionInGroup >= current.records.size()) {
+            current = take();
+            positionInGroup = 0;
+            if (current == null)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<Writable> next() {
+        if (!hasNext())
+            throw new NoSuchElementException("No next element found!");
+        List<Writable> ret = current.records.get(positionInGroup++);
+        invokeListeners(ret);
+        return ret;
+    }
+
+    @Override
+    public boolean batchesSupported() {
+        return true;
+    }
+
+    @Override
+    public List<List<Writable>> next(int num) {
+        List<List<Writable>> ret = new ArrayList<>(Math.min(num, 10000));
+        while (ret.size() < num && hasNext()) {
+            ret.add(next());
+        }
+        return ret;
+    }
+
+    @Override
+    public Record nextRecord() {
+        List<Writable> next = next();
+        RecordMetaData meta = new RecordMetaDataIndex(current.rowIdxs.get(positionInGroup - 1),
+                files[current.fileIdx].toURI(), ParquetRecordReader.class);
+        return new org.datavec.api.records.impl.Record(next, meta);
+    }
+
+    @Override
+    public Record loadFromMetaData(RecordMetaData recordMetaData) throws IOException {
+        return loadFromMetaData(Collections.singletonList(recordMetaData)).get(0);
+    }
+
+    @Override
+    public List<Record> loadFromMetaData(List<RecordMetaData> recordMetaDatas) throws IOException {
+        Preconditions.checkState(projection != null, "RecordReader has not been initialized before use");
+        Map<URI, Integer> fileIdxs = new HashMap<>();
+        for (int i = 0; i < files.length; i++) {
+            fileIdxs.put(files[i].toURI(), i);
+        }
+
+        Record[] out = new Record[recordMetaDatas.size()];
+        //Cache of decoded (unfiltered) row groups, so each row group is read at most once
+        Map<String, RowGroup> cache = new HashMap<>();
+        Map<Integer, List<BlockMetaData>> footers = new HashMap<>();
+        Map<Integer, MessageType> fileSchemas = new HashMap<>();
+        for (int i = 0; i < out.length; i++) {
+            RecordMetaData m = recordMetaDatas.get(i);
+            if (!(m instanceof RecordMetaDataIndex))
+                throw new IllegalArgumentException("Invalid metadata; expected RecordMetaDataIndex instance; got: " + m);
+            RecordMetaDataIndex rmd = (RecordMetaDataIndex) m;
+            Integer f = fileIdxs.get(rmd.getURI());
+            if (f == null)
+                throw new IllegalStateException("Unknown location for metadata: " + rmd.getURI());
+            if (!footers.containsKey(f)) {
+                try (ParquetFileReader r = open(files[f])) {
+                    footers.put(f, r.getFooter().getBlocks());
+                    fileSchemas.put(f, r.getFooter().getFileMetaData().getSchema());
+                }
+            }
+
+            List<BlockMetaData> blocks = footers.get(f);
+            long firstRow = 0;
+            int b = 0;
+            while (b < blocks.size() && firstRow + blocks.get(b).getRowCount() <= rmd.getIndex()) {
+                firstRow += blocks.get(b++).getRowCount();
+            }
+            if (b >= blocks.size())
+                throw new IllegalStateException("Row " + rmd.getIndex() + " does not exist in file " + files[f]);
+
+            String key = f + "_" + b;
+            RowGroup g = cache.get(key);
+            if (g == null) {
+                g = read(new RowGroupTask(f, b, firstRow, fileSchemas.get(f)), false);
+                cache.put(key, g);
+            }
+            List<Writable> record = new ArrayList<>(g.records.get((int) (rmd.getIndex() - firstRow)));
+            out[i] = new org.datavec.api.records.impl.Record(record, m);
+        }
+        return Arrays.asList(out);
+    }
+
+    @Override
+    public List<Writable> record(URI uri, DataInputStream dataInputStream) throws IOException {
+        throw new UnsupportedOperationException("Reading Parquet records from a stream is not supported: Parquet files "
+                + "require random access");
+    }
+
+    @Override
+    public List<String> getLabels() {
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        stop();
+        start();
+    }
+
+    @Override
+    public boolean resetSupported() {
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stop();
+    }
+
+    @Override
+    public void setConf(Configuration conf) {
+        this.conf = conf;
+    }
+
+    @Override
+    public Configuration getConf() {
+        return conf;
+    }
+
+    private static class RowGroupTask {
+        private final int fileIdx;
+        private final int rowGroupIdx;
+        private final long firstRow;
+        private final MessageType fileSchema;
+
+        private RowGroupTask(int fileIdx, int rowGroupIdx, long firstRow, MessageType fileSchema) {
+            this.fileIdx = fileIdx;
+            this.rowGroupIdx = rowGroupIdx;
+            this.firstRow = firstRow;
+            this.fileSchema = fileSchema;
+        }
+    }
+
+    private static class RowGroup {
+        private final int fileIdx;
+        private final List<List<Writable>> records;
+        private final List<Long> rowIdxs;
+
+        private RowGroup(int fileIdx, List<List<Writable>> records, List<Long> rowIdxs) {
+            this.fileIdx = fileIdx;
+            this.records = records;
+            this.rowIdxs = rowIdxs;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.parquet;
+
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.datavec.api.conf.Configuration;
+import org.datavec.api.records.writer.impl.FileRecordWriter;
+import org.datavec.api.split.InputSplit;
+import org.datavec.api.split.partition.PartitionMetaData;
+import org.datavec.api.split.partition.Partitioner;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.writable.Writable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Record writer for Apache Parquet files. Records are written according to the provided {@link Schema}, as described
+ * in {@link ParquetSchemaConverter}. When the {@link Partitioner} requires a new partition, the current file is
+ * completed (footer written) and a new file started.
+ */
+public class ParquetRecordWriter extends FileRecordWriter {
+    /** Compression codec name - one of {@link CompressionCodecName}, such as SNAPPY, GZIP, ZSTD or UNCOMPRESSED */
+    public static final String COMPRESSION = "org.datavec.parquet.compression";
+    /** Row group size in bytes */
+    public static final String ROW_GROUP_SIZE = "org.datavec.parquet.rowgroupsize";
+
+    public static final CompressionCodecName DEFAULT_COMPRESSION = CompressionCodecName.SNAPPY;
+
+    private final Schema schema;
+    private CompressionCodecName compression;
+    private int rowGroupSize;
+    private ParquetWriter<List<Writable>> writer;
+
+    /**
+     * @param schema Schema of the records to write
+     */
+    public ParquetRecordWriter(Schema schema) {
+        this(schema, DEFAULT_COMPRESSION, ParquetWriter.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param schema       Schema of the records to write
+     * @param compression  Compression codec
+     * @param rowGroupSize Row group size, in bytes
+     */
+    public ParquetRecordWriter(Schema schema, CompressionCodecName compression, int rowGroupSize) {
+        //Validate the schema early
+        ParquetSchemaConverter.toParquetSchema(schema);
+        this.schema = schema;
+        this.compression = compression;
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    @Override
+    public void initialize(InputSplit inputSplit, Partitioner partitioner) throws Exception {
+        this.partitioner = partitioner;
+        partitioner.init(inputSplit);
+        openWriter(partitioner.currentOutputStream());
+    }
+
+    @Override
+    public void initialize(Configuration configuration, InputSplit split, Partitioner partitioner) throws Exception {
+        setConf(configuration);
+        String c = configuration.get(COMPRESSION);
+        if (c != null)
+            this.compression = CompressionCodecName.valueOf(c.toUpperCase());
+        this.rowGroupSize = configuration.getInt(ROW_GROUP_SIZE, rowGroupSize);
+        this.partitioner = partitioner;
+        partitioner.init(configuration, split);
+        openWriter(partitioner.currentOutputStream());
+    }
+
+    private void openWriter(OutputStream out) throws IOException {
+        writer = new Builder(ParquetFiles.outputFile(out), schema)
+                .withCompressionCodec(compression)
+                .withRowGroupSize(rowGroupSize)
+                .build();
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return true;
+    }
+
+    @Override
+    public PartitionMetaData write(List<Writable> record) throws IOException {
+        writer.write(record);
+        if (partitioner.needsNewPartition()) {
+            writer.close();
+            openWriter(partitioner.openNewStream());
+        }
+        return PartitionMetaData.builder().numRecordsUpdated(1).build();
+    }
+
+    @Override
+    public PartitionMetaData writeBatch(List<List<Writable>> batch) throws IOException {
+        for (List<Writable> record : batch) {
+            write(record);
+        }
+        return PartitionMetaData.builder().numRecordsUpdated(batch.size()).build();
+    }
+
+    @Override
+    public void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            writer = null;
+        }
+    }
+
+    private static class Builder extends ParquetWriter.Builder<List<Writable>, Builder> {
+        private final Schema schema;
+
+        private Builder(OutputFile file, Schema schema) {
+            super(file);
+            this.schema = schema;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<List<Writable>> getWriteSupport(org.apache.hadoop.conf.Configuration conf) {
+            return new WritableWriteSupport(schema);
+        }
+    }
+}
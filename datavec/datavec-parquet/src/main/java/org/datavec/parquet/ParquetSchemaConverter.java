@@ -0,0 +1,208 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.parquet;
+
+import org.apache.parquet.schema.*;
+import org.apache.parquet.schema.LogicalTypeAnnotation.*;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.datavec.api.transform.ColumnType;
+import org.datavec.api.transform.metadata.BinaryMetaData;
+import org.datavec.api.transform.schema.Schema;
+
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Conversion between Parquet schemas and DataVec {@link Schema}s.<br>
+ * Only flat schemas are supported: each top level field must be a primitive, non-repeated field.
+ * Parquet types are mapped as follows:
+ * <ul>
+ *     <li>BOOLEAN: Boolean</li>
+ *     <li>INT32: Integer (unsigned: Long). Dates are returned as Integer days since epoch</li>
+ *     <li>INT64: Long, or Time for timestamps (converted to milliseconds since epoch)</li>
+ *     <li>INT96 (legacy timestamps): Time</li>
+ *     <li>FLOAT, DOUBLE: Float, Double</li>
+ *     <li>BINARY, FIXED_LEN_BYTE_ARRAY: String for strings, enums and JSON; Bytes otherwise</li>
+ *     <li>Decimals of any physical type: Double</li>
+ * </ul>
+ * DataVec columns are written as optional Parquet fields: Integer as INT32, Long as INT64, Time as INT64 timestamp
+ * (milliseconds, UTC), Float, Double and Boolean as the corresponding types, String and Categorical as UTF8
+ * strings, and Bytes as BINARY. NDArray columns are not supported.
+ */
+public class ParquetSchemaConverter {
+
+    private ParquetSchemaConverter() {
+    }
+
+    /**
+     * Convert a Parquet schema to a DataVec schema
+     */
+    public static Schema toDatavecSchema(MessageType messageType) {
+        Schema.Builder b = new Schema.Builder();
+        for (Type t : messageType.getFields()) {
+            String name = t.getName();
+            switch (columnType(t)) {
+                case Boolean:
+                    b.addColumnBoolean(name);
+                    break;
+                case Integer:
+                    b.addColumnInteger(name);
+                    break;
+                case Long:
+                    b.addColumnLong(name);
+                    break;
+                case Float:
+                    b.addColumnFloat(name);
+                    break;
+                case Double:
+                    b.addColumnDouble(name);
+                    break;
+                case Time:
+                    b.addColumnTime(name, TimeZone.getTimeZone("UTC"));
+                    break;
+                case String:
+                    b.addColumnString(name);
+                    break;
+                case Bytes:
+                    b.addColumn(new BinaryMetaData(name));
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported column type for field " + name);
+            }
+        }
+        return b.build();
+    }
+
+    /**
+     * Convert a DataVec schema to a Parquet schema, with all fields optional
+     */
+    public static MessageType toParquetSchema(Schema schema) {
+        return toParquetSchema(schema, "datavec_schema");
+    }
+
+    /**
+     * Convert a DataVec schema to a Parquet schema, with all fields optional
+     *
+     * @param schema DataVec schema
+     * @param name   Name of the Parquet message type
+     */
+    public static MessageType toParquetSchema(Schema schema, String name) {
+        Types.MessageTypeBuilder b = Types.buildMessage();
+        List<String> names = schema.getColumnNames();
+        for (int i = 0; i < names.size(); i++) {
+            String col = names.get(i);
+            switch (schema.getType(i)) {
+                case Integer:
+                    b.optional(PrimitiveTypeName.INT32).named(col);
+                    break;
+                case Long:
+                    b.optional(PrimitiveTypeName.INT64).named(col);
+                    break;
+                case Time:
+                    b.optional(PrimitiveTypeName.INT64).as(LogicalTypeAnnotation.timestampType(true, TimeUnit.MILLIS)).named(col);
+                    break;
+                case Float:
+                    b.optional(PrimitiveTypeName.FLOAT).named(col);
+                    break;
+                case Double:
+                    b.optional(PrimitiveTypeName.DOUBLE).named(col);
+                    break;
+                case Boolean:
+                    b.optional(PrimitiveTypeName.BOOLEAN).named(col);
+                    break;
+                case String:
+                case Categorical:
+                    b.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named(col);
+                    break;
+                case Bytes:
+                    b.optional(PrimitiveTypeName.BINARY).named(col);
+                    break;
+                default:
+                    throw new IllegalStateException("Column \"" + col + "\" of type " + schema.getType(i)
+                            + " cannot be written to Parquet");
+            }
+        }
+        return b.named(name);
+    }
+
+    /**
+     * @return DataVec column type for the given (flat) Parquet field
+     */
+    static ColumnType columnType(Type t) {
+        if (!t.isPrimitive() || t.isRepetition(Type.Repetition.REPEATED)) {
+            throw new IllegalStateException("Field \"" + t.getName() + "\" is not supported: only flat schemas "
+                    + "(non-repeated primitive fields) can be read");
+        }
+        PrimitiveType p = t.asPrimitiveType();
+        LogicalTypeAnnotation a = p.getLogicalTypeAnnotation();
+        if (a instanceof DecimalLogicalTypeAnnotation) {
+            return ColumnType.Double;
+        }
+        switch (p.getPrimitiveTypeName()) {
+            case BOOLEAN:
+                return ColumnType.Boolean;
+            case INT32:
+                return isUnsigned(a) ? ColumnType.Long : ColumnType.Integer;
+            case INT64:
+                return a instanceof TimestampLogicalTypeAnnotation ? ColumnType.Time : ColumnType.Long;
+            case INT96:
+                return ColumnType.Time;
+            case FLOAT:
+                return ColumnType.Float;
+            case DOUBLE:
+                return ColumnType.Double;
+            case BINARY:
+            case FIXED_LEN_BYTE_ARRAY:
+                return a instanceof StringLogicalTypeAnnotation || a instanceof EnumLogicalTypeAnnotation
+                        || a instanceof JsonLogicalTypeAnnotation ? ColumnType.String : ColumnType.Bytes;
+            default:
+                throw new IllegalStateException("Unsupported Parquet type " + p.getPrimitiveTypeName()
+                        + " for field \"" + t.getName() + "\"");
+        }
+    }
+
+    /**
+     * @return True if the values read for the field are the stored physical values, so that the column statistics
+     * (min/max) of the field apply to the values read
+     */
+    static boolean valuesMatchStatistics(PrimitiveType p) {
+        LogicalTypeAnnotation a = p.getLogicalTypeAnnotation();
+        switch (p.getPrimitiveTypeName()) {
+            case INT32:
+            case INT64:
+                if (a == null || a instanceof DateLogicalTypeAnnotation)
+                    return true;
+                if (a instanceof IntLogicalTypeAnnotation)
+                    return ((IntLogicalTypeAnnotation) a).isSigned();
+                return a instanceof TimestampLogicalTypeAnnotation
+                        && ((TimestampLogicalTypeAnnotation) a).getUnit() == TimeUnit.MILLIS;
+            case FLOAT:
+            case DOUBLE:
+                return a == null;
+            default:
+                return false;
+        }
+    }
+
+    static boolean isUnsigned(LogicalTypeAnnotation a) {
+        return a instanceof IntLogicalTypeAnnotation && !((IntLogicalTypeAnnotation) a).isSigned();
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.parquet;
+
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.datavec.api.transform.condition.BooleanCondition;
+import org.datavec.api.transform.condition.Condition;
+import org.datavec.api.transform.condition.ConditionOp;
+import org.datavec.api.transform.condition.column.DoubleColumnCondition;
+import org.datavec.api.transform.condition.column.FloatColumnCondition;
+import org.datavec.api.transform.condition.column.IntegerColumnCondition;
+import org.datavec.api.transform.condition.column.LongColumnCondition;
+
+import java.util.*;
+
+/**
+ * Uses Parquet row group statistics (min, max and null count) to determine whether a filter {@link Condition} holds
+ * for every record of a row group. As with {@link org.datavec.api.transform.filter.ConditionFilter}, records for which
+ * the condition holds are removed: such row groups can be skipped entirely without being read.<br>
+ * Only Integer, Long, Float and Double column conditions - and AND/OR/NOT combinations of them - are evaluated; any
+ * other condition is conservatively treated as "unknown", in which case the row group is read and records are
+ * filtered one by one.
+ */
+class RowGroupFilter {
+
+    /**
+     * Result of evaluating a condition against the statistics of a row group
+     */
+    enum Verdict {
+        /** Condition holds for all records */
+        ALL,
+        /** Condition holds for no records */
+        NONE,
+        UNKNOWN;
+
+        Verdict not() {
+            return this == ALL ? NONE : (this == NONE ? ALL : UNKNOWN);
+        }
+    }
+
+    private final Condition condition;
+    private final MessageType fileSchema;
+
+    RowGroupFilter(Condition condition, MessageType fileSchema) {
+        this.condition = condition;
+        this.fileSchema = fileSchema;
+    }
+
+    /**
+     * @return True if the filter condition holds for every record in the row group, which can then be skipped
+     */
+    boolean canSkip(BlockMetaData rowGroup) {
+        Map<String, ColumnChunkMetaData> columns = new HashMap<>();
+        for (ColumnChunkMetaData c : rowGroup.getColumns()) {
+            String[] path = c.getPath().toArray();
+            if (path.length == 1) {
+                columns.put(path[0], c);
+            }
+        }
+        return rowGroup.getRowCount() > 0 && evaluate(condition, columns) == Verdict.ALL;
+    }
+
+    Verdict evaluate(Condition c, Map<String, ColumnChunkMetaData> columns) {
+        if (c instanceof BooleanCondition) {
+            BooleanCondition bc = (BooleanCondition) c;
+            Condition[] conditions = bc.getConditions();
+            switch (bc.getType()) {
+                case AND: {
+                    boolean allTrue = true;
+                    for (Condition sub : conditions) {
+                        Verdict v = evaluate(sub, columns);
+                        if (v == Verdict.NONE)
+                            return Verdict.NONE;
+                        allTrue &= v == Verdict.ALL;
+                    }
+                    return allTrue ? Verdict.ALL : Verdict.UNKNOWN;
+                }
+                case OR: {
+                    boolean allFalse = true;
+                    for (Condition sub : conditions) {
+                        Verdict v = evaluate(sub, columns);
+                        if (v == Verdict.ALL)
+                            return Verdict.ALL;
+                        allFalse &= v == Verdict.NONE;
+                    }
+                    return allFalse ? Verdict.NONE : Verdict.UNKNOWN;
+                }
+                case NOT:
+                    return evaluate(conditions[0], columns).not();
+                default:
+                    return Verdict.UNKNOWN;
+            }
+        }
+
+        if (c instanceof IntegerColumnCondition) {
+            IntegerColumnCondition ic = (IntegerColumnCondition) c;
+            Statistics<?> s = statistics(ic.getColumnName(), columns, PrimitiveTypeName.INT32);
+            if (s == null)
+                return Verdict.UNKNOWN;
+            return evaluate(ic.getOp(), toLong(s.genericGetMin()), toLong(s.genericGetMax()),
+                    ic.getValue() == null ? null : ic.getValue().longValue(), toLongSet(ic.getSet()), false);
+        } else if (c instanceof LongColumnCondition) {
+            LongColumnCondition lc = (LongColumnCondition) c;
+            Statistics<?> s = statistics(lc.getColumnName(), columns, PrimitiveTypeName.INT32, PrimitiveTypeName.INT64);
+            if (s == null)
+                return Verdict.UNKNOWN;
+            return evaluate(lc.getOp(), toLong(s.genericGetMin()), toLong(s.genericGetMax()), lc.getValue(),
+                    lc.getSet(), false);
+        } else if (c instanceof DoubleColumnCondition) {
+            DoubleColumnCondition dc = (DoubleColumnCondition) c;
+            Statistics<?> s = numericStatistics(dc.getColumnName(), columns);
+            if (s == null)
+                return Verdict.UNKNOWN;
+            return evaluate(dc.getOp(), toDouble(s.genericGetMin(), false), toDouble(s.genericGetMax(), false),
+                    normalize(dc.getValue()), normalize(dc.getSet()), mayContainNaN(dc.getColumnName()));
+        } else if (c instanceof FloatColumnCondition) {
+            FloatColumnCondition fc = (FloatColumnCondition) c;
+            Statistics<?> s = numericStatistics(fc.getColumnName(), columns);
+            if (s == null)
+                return Verdict.UNKNOWN;
+            Set<Double> set = null;
+            if (fc.getSet() != null) {
+                set = new HashSet<>();
+                for (Float f : fc.getSet()) {
+                    set.add(normalize(f.doubleValue()));
+                }
+            }
+            return evaluate(fc.getOp(), toDouble(s.genericGetMin(), true), toDouble(s.genericGetMax(), true),
+                    fc.getValue() == null ? null : normalize(fc.getValue().doubleValue()), set,
+                    mayContainNaN(fc.getColumnName()));
+        }
+        return Verdict.UNKNOWN;
+    }
+
+    /**
+     * Evaluate a comparison given bounds on the values of a column. When the column may contain NaNs (which are not
+     * included in the statistics, and compare false against everything) ALL can only be concluded for NotEqual and
+     * NotInSet, and NONE only for the other operations.
+     */
+    static <T extends Comparable<T>> Verdict evaluate(ConditionOp op, T min, T max, T value, Set<T> set,
+                                                      boolean mayContainNaN) {
+        if (min == null || max == null || (value == null && set == null) || isNaN(value))
+            return Verdict.UNKNOWN;
+        if (set != null) {
+            for (T t : set) {
+                if (isNaN(t))
+                    return Verdict.UNKNOWN;
+            }
+        }
+        Verdict v;
+        switch (op) {
+            case LessThan:
+                v = max.compareTo(value) < 0 ? Verdict.ALL : (min.compareTo(value) >= 0 ? Verdict.NONE : Verdict.UNKNOWN);
+                break;
+            case LessOrEqual:
+                v = max.compareTo(value) <= 0 ? Verdict.ALL : (min.compareTo(value) > 0 ? Verdict.NONE : Verdict.UNKNOWN);
+                break;
+            case GreaterThan:
+                v = min.compareTo(value) > 0 ? Verdict.ALL : (max.compareTo(value) <= 0 ? Verdict.NONE : Verdict.UNKNOWN);
+                break;
+            case GreaterOrEqual:
+                v = min.compareTo(value) >= 0 ? Verdict.ALL : (max.compareTo(value) < 0 ? Verdict.NONE : Verdict.UNKNOWN);
+                break;
+            case Equal:
+            case NotEqual:
+                v = inRange(min, max, Collections.singleton(value));
+                if (op == ConditionOp.NotEqual)
+                    v = v.not();
+                break;
+            case InSet:
+            case NotInSet:
+                //Set conditions use boxed equality, for which -0.0 and 0.0 differ: zero bounds and set elements were
+                // normalized, so the sign of zero values is unknown here
+                if (isZero(min) || isZero(max) || containsZero(set))
+                    return Verdict.UNKNOWN;
+                v = inRange(min, max, set);
+                if (op == ConditionOp.NotInSet)
+                    v = v.not();
+                break;
+            default:
+                return Verdict.UNKNOWN;
+        }
+
+        if (mayContainNaN) {
+            boolean negated = op == ConditionOp.NotEqual || op == ConditionOp.NotInSet;
+            if ((v == Verdict.ALL && !negated) || (v == Verdict.NONE && negated))
+                return Verdict.UNKNOWN;
+        }
+        return v;
+    }
+
+    /**
+     * ALL if every value in [min, max] is in the set (i.e., min == max and the set contains it); NONE if no set element
+     * lies in [min, max]
+     */
+    private static <T extends Comparable<T>> Verdict inRange(T min, T max, Set<T> set) {
+        if (set == null)
+            return Verdict.UNKNOWN;
+        if (min.compareTo(max) == 0 && set.contains(min))
+            return Verdict.ALL;
+        for (T t : set) {
+            if (t != null && t.compareTo(min) >= 0 && t.compareTo(max) <= 0)
+                return Verdict.UNKNOWN;
+        }
+        return Verdict.NONE;
+    }
+
+    private static boolean isNaN(Object o) {
+        return o instanceof Double && ((Double) o).isNaN();
+    }
+
+    private static boolean isZero(Object o) {
+        return o instanceof Double && (Double) o == 0.0;
+    }
+
+    private static boolean containsZero(Set<?> set) {
+        for (Object o : set) {
+            if (isZero(o))
+                return true;
+        }
+        return false;
+    }
+
+    private Statistics<?> numericStatistics(String column, Map<String, ColumnChunkMetaData> columns) {
+        return statistics(column, columns, PrimitiveTypeName.INT32, PrimitiveTypeName.INT64, PrimitiveTypeName.FLOAT,
+                PrimitiveTypeName.DOUBLE);
+    }
+
+    /**
+     * @return Statistics for the column, or null if not usable: column absent, not of one of the specified types, with
+     * values converted on read, with missing statistics, or containing null values
+     */
+    private Statistics<?> statistics(String column, Map<String, ColumnChunkMetaData> columns,
+                                     PrimitiveTypeName... allowedTypes) {
+        ColumnChunkMetaData chunk = columns.get(column);
+        if (chunk == null || !fileSchema.containsField(column))
+            return null;
+        PrimitiveType type = fileSchema.getType(column).asPrimitiveType();
+        if (!Arrays.asList(allowedTypes).contains(type.getPrimitiveTypeName())
+                || !ParquetSchemaConverter.valuesMatchStatistics(type))
+            return null;
+        Statistics<?> s = chunk.getStatistics();
+        if (s == null || s.isEmpty() || !s.hasNonNullValue() || !s.isNumNullsSet() || s.getNumNulls() != 0)
+            return null;
+        return s;
+    }
+
+    private boolean mayContainNaN(String column) {
+        PrimitiveTypeName t = fileSchema.getType(column).asPrimitiveType().getPrimitiveTypeName();
+        return t == PrimitiveTypeName.FLOAT || t == PrimitiveTypeName.DOUBLE;
+    }
+
+    private static Long toLong(Object o) {
+        return ((Number) o).longValue();
+    }
+
+    /**
+     * Column bounds, as the condition will see the values. Conversions (int/long to double, double to float) are
+     * monotonic, so converted bounds remain valid bounds
+     */
+    private static Double toDouble(Object o, boolean asFloat) {
+        double d = asFloat ? ((Number) o).floatValue() : ((Number) o).doubleValue();
+        return Double.isNaN(d) ? null : normalize(d);
+    }
+
+    /**
+     * Map -0.0 to 0.0: primitive comparisons (as used by the conditions, except for sets) treat these as equal,
+     * Double.compareTo does not
+     */
+    private static Double normalize(Double d) {
+        return d == null ? null : d + 0.0;
+    }
+
+    private static Set<Double> normalize(Set<Double> set) {
+        if (set == null)
+            return null;
+        Set<Double> out = new HashSet<>();
+        for (Double d : set) {
+            out.add(normalize(d));
+        }
+        return out;
+    }
+
+    private static Set<Long> toLongSet(Set<Integer> set) {
+        if (set == null)
+            return null;
+        Set<Long> out = new HashSet<>();
+        for (Integer i : set) {
+            out.add(i.longValue());
+        }
+        return out;
+    }
+}
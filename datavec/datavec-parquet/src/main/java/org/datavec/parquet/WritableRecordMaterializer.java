@@ -0,0 +1,206 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.parquet;
+
+import org.apache.parquet.io.api.*;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.DecimalLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.TimestampLogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.datavec.api.transform.ColumnType;
+import org.datavec.api.writable.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Materializes Parquet records directly as DataVec writables, one writable per (projected) field.
+ * Missing (null) values are returned as {@link NullWritable}.
+ */
+class WritableRecordMaterializer extends RecordMaterializer<List<Writable>> {
+
+    private static final long JULIAN_DAY_OF_EPOCH = 2440588L;
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private final Writable[] current;
+    private final GroupConverter root;
+
+    WritableRecordMaterializer(MessageType schema) {
+        int n = schema.getFieldCount();
+        this.current = new Writable[n];
+        final Converter[] converters = new Converter[n];
+        for (int i = 0; i < n; i++) {
+            converters[i] = fieldConverter(schema.getType(i).asPrimitiveType(), i);
+        }
+        this.root = new GroupConverter() {
+            @Override
+            public Converter getConverter(int fieldIndex) {
+                return converters[fieldIndex];
+            }
+
+            @Override
+            public void start() {
+                Arrays.fill(current, NullWritable.INSTANCE);
+            }
+
+            @Override
+            public void end() {
+            }
+        };
+    }
+
+    @Override
+    public List<Writable> getCurrentRecord() {
+        return new ArrayList<>(Arrays.asList(current));
+    }
+
+    @Override
+    public GroupConverter getRootConverter() {
+        return root;
+    }
+
+    private PrimitiveConverter fieldConverter(PrimitiveType type, final int idx) {
+        ColumnType columnType = ParquetSchemaConverter.columnType(type);
+        LogicalTypeAnnotation a = type.getLogicalTypeAnnotation();
+        if (a instanceof DecimalLogicalTypeAnnotation) {
+            final int scale = ((DecimalLogicalTypeAnnotation) a).getScale();
+            return new PrimitiveConverter() {
+                @Override
+                public void addInt(int value) {
+                    current[idx] = new DoubleWritable(BigDecimal.valueOf(value, scale).doubleValue());
+                }
+
+                @Override
+                public void addLong(long value) {
+                    current[idx] = new DoubleWritable(BigDecimal.valueOf(value, scale).doubleValue());
+                }
+
+                @Override
+                public void addBinary(Binary value) {
+                    current[idx] = new DoubleWritable(new BigDecimal(new BigInteger(value.getBytes()), scale).doubleValue());
+                }
+            };
+        }
+
+        switch (type.getPrimitiveTypeName()) {
+            case INT96:
+                //Legacy timestamp: nanoseconds of day (8 bytes) followed by Julian day (4 bytes), little endian
+                return new PrimitiveConverter() {
+                    @Override
+                    public void addBinary(Binary value) {
+                        ByteBuffer bb = value.toByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+                        long nanosOfDay = bb.getLong();
+                        long julianDay = bb.getInt();
+                        current[idx] = new LongWritable((julianDay - JULIAN_DAY_OF_EPOCH) * MILLIS_PER_DAY + nanosOfDay / 1000000L);
+                    }
+                };
+            case INT64:
+                if (columnType == ColumnType.Time) {
+                    final long divisor;
+                    switch (((TimestampLogicalTypeAnnotation) a).getUnit()) {
+                        case MICROS:
+                            divisor = 1000L;
+                            break;
+                        case NANOS:
+                            divisor = 1000000L;
+                            break;
+                        default:
+                            divisor = 1L;
+                    }
+                    return new PrimitiveConverter() {
+                        @Override
+                        public void addLong(long value) {
+                            current[idx] = new LongWritable(Math.floorDiv(value, divisor));
+                        }
+                    };
+                }
+                break;
+            default:
+                break;
+        }
+
+        switch (columnType) {
+            case Boolean:
+                return new PrimitiveConverter() {
+                    @Override
+                    public void addBoolean(boolean value) {
+                        current[idx] = new BooleanWritable(value);
+                    }
+                };
+            case Integer:
+                return new PrimitiveConverter() {
+                    @Override
+                    public void addInt(int value) {
+                        current[idx] = new IntWritable(value);
+                    }
+                };
+            case Long:
+                final boolean unsignedInt = ParquetSchemaConverter.isUnsigned(a);
+                return new PrimitiveConverter() {
+                    @Override
+                    public void addInt(int value) {
+                        current[idx] = new LongWritable(unsignedInt ? (value & 0xFFFFFFFFL) : value);
+                    }
+
+                    @Override
+                    public void addLong(long value) {
+                        current[idx] = new LongWritable(value);
+                    }
+                };
+            case Float:
+                return new PrimitiveConverter() {
+                    @Override
+                    public void addFloat(float value) {
+                        current[idx] = new FloatWritable(value);
+                    }
+                };
+            case Double:
+                return new PrimitiveConverter() {
+                    @Override
+                    public void addDouble(double value) {
+                        current[idx] = new DoubleWritable(value);
+                    }
+                };
+            case String:
+                return new PrimitiveConverter() {
+                    @Override
+                    public void addBinary(Binary value) {
+                        current[idx] = new Text(value.getBytes());
+                    }
+                };
+            case Bytes:
+                return new PrimitiveConverter() {
+                    @Override
+                    public void addBinary(Binary value) {
+                        current[idx] = new BytesWritable(value.getBytes());
+                    }
+                };
+            default:
+                throw new IllegalStateException("Unsupported column type: " + columnType);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.parquet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.datavec.api.transform.ColumnType;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.writable.BooleanWritable;
+import org.datavec.api.writable.BytesWritable;
+import org.datavec.api.writable.NullWritable;
+import org.datavec.api.writable.Writable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes DataVec records (as defined by a {@link Schema}) to Parquet. {@link NullWritable} values are written as
+ * missing values.
+ */
+class WritableWriteSupport extends WriteSupport<List<Writable>> {
+
+    private final Schema schema;
+    private final MessageType messageType;
+    private final ColumnType[] types;
+    private RecordConsumer consumer;
+
+    WritableWriteSupport(Schema schema) {
+        this.schema = schema;
+        this.messageType = ParquetSchemaConverter.toParquetSchema(schema);
+        this.types = schema.getColumnTypes().toArray(new ColumnType[0]);
+    }
+
+    @Override
+    public WriteContext init(Configuration configuration) {
+        return new WriteContext(messageType, Collections.<String, String>emptyMap());
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.consumer = recordConsumer;
+    }
+
+    @Override
+    public void write(List<Writable> record) {
+        if (record.size() != types.length) {
+            throw new IllegalStateException("Invalid record: expected " + types.length + " values for schema, got "
+                    + record.size() + " - " + record);
+        }
+        consumer.startMessage();
+        for (int i = 0; i < types.length; i++) {
+            Writable w = record.get(i);
+            if (w == null || w instanceof NullWritable) {
+                continue;
+            }
+            String name = schema.getName(i);
+            consumer.startField(name, i);
+            switch (types[i]) {
+                case Integer:
+                    consumer.addInteger(w.toInt());
+                    break;
+                case Long:
+                case Time:
+                    consumer.addLong(w.toLong());
+                    break;
+                case Float:
+                    consumer.addFloat(w.toFloat());
+                    break;
+                case Double:
+                    consumer.addDouble(w.toDouble());
+                    break;
+                case Boolean:
+                    consumer.addBoolean(w instanceof BooleanWritable ? ((BooleanWritable) w).get()
+                            : Boolean.parseBoolean(w.toString()));
+                    break;
+                case String:
+                case Categorical:
+                    consumer.addBinary(Binary.fromString(w.toString()));
+                    break;
+                case Bytes:
+                    if (!(w instanceof BytesWritable)) {
+                        throw new IllegalStateException("Expected BytesWritable for column \"" + name + "\", got "
+                                + w.getClass().getSimpleName());
+                    }
+                    consumer.addBinary(Binary.fromConstantByteArray(((BytesWritable) w).getContent()));
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported column type: " + types[i]);
+            }
+            consumer.endField(name, i);
+        }
+        consumer.endMessage();
+    }
+}
@@ -41,6 +41,7 @@ import org.nd4j.common.primitives.Triple;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -75,6 +76,7 @@ public class BertIterator implements MultiDataSetIterator {
 
 
     protected List<String> vocabKeysAsList;
+    protected Boolean encodeDirectly;
 
     protected BertIterator(Builder b) {
         this.task = b.task;
@@ -119,7 +121,19 @@ public class BertIterator implements MultiDataSetIterator {
         int mbSize = 0;
         int outLength;
         long[] segIdOnesFrom = null;
-        if (sentenceProvider != null) {
+        Pair<INDArray[], INDArray[]> featuresAndMaskArraysPair = null;
+        if (sentenceProvider != null && task == Task.SEQ_CLASSIFICATION && canEncodeDirectly()) {
+            //Labels only need the class, so tokens are encoded straight into index arrays
+            List<String> sentences = new ArrayList<>(num);
+            tokensAndLabelList = new ArrayList<>(num);
+            while (sentenceProvider.hasNext() && mbSize++ < num) {
+                Pair<String, String> p = sentenceProvider.nextSentence();
+                sentences.add(p.getFirst());
+                tokensAndLabelList.add(new Pair<>(Collections.<String>emptyList(), p.getSecond()));
+            }
+            featuresAndMaskArraysPair = encodeMiniBatch(sentences);
+            outLength = (int) featuresAndMaskArraysPair.getFirst()[0].size(1);
+        } else if (sentenceProvider != null) {
             List<Pair<String, String>> list = new ArrayList<>(num);
             while (sentenceProvider.hasNext() && mbSize++ < num) {
                 list.add(sentenceProvider.nextSentence());
@@ -141,7 +155,8 @@ public class BertIterator implements MultiDataSetIterator {
             throw new UnsupportedOperationException("Labelled sentence provider is null and no other iterator types have yet been implemented");
         }
 
-        Pair<INDArray[], INDArray[]> featuresAndMaskArraysPair = convertMiniBatchFeatures(tokensAndLabelList, outLength, segIdOnesFrom);
+        if (featuresAndMaskArraysPair == null)
+            featuresAndMaskArraysPair = convertMiniBatchFeatures(tokensAndLabelList, outLength, segIdOnesFrom);
         INDArray[] featureArray = featuresAndMaskArraysPair.getFirst();
         INDArray[] featureMaskArray = featuresAndMaskArraysPair.getSecond();
 
@@ -165,6 +180,15 @@ public class BertIterator implements MultiDataSetIterator {
      * @return Pair of INDArrays[], first element is feature arrays and the second is the masks array
      */
     public Pair<INDArray[], INDArray[]> featurizeSentences(List<String> listOnlySentences) {
+        if (canEncodeDirectly()) {
+            Pair<INDArray[], INDArray[]> featureFeatureMasks = encodeMiniBatch(listOnlySentences);
+            if (preProcessor != null) {
+                MultiDataSet dummyMDS = new org.nd4j.linalg.dataset.MultiDataSet(featureFeatureMasks.getFirst(), null, featureFeatureMasks.getSecond(), null);
+                preProcessor.preProcess(dummyMDS);
+                return new Pair<>(dummyMDS.getFeatures(), dummyMDS.getFeaturesMaskArrays());
+            }
+            return featureFeatureMasks;
+        }
 
         List<Pair<String, String>> sentencesWithNullLabel = addDummyLabel(listOnlySentences);
         SentenceListProcessed sentenceListProcessed = tokenizeMiniBatch(sentencesWithNullLabel);
@@ -240,6 +264,61 @@ public class BertIterator implements MultiDataSetIterator {
         return new Pair<>(f, fm);
     }
 
+    /**
+     * Index arrays can be produced without intermediate token strings when the tokenizer is a
+     * {@link BertWordPieceTokenizerFactory} over the same vocabulary, and output length doesn't depend on the longest sequence
+     */
+    protected boolean canEncodeDirectly() {
+        if (encodeDirectly == null) {
+            boolean direct = false;
+            if (tokenizerFactory instanceof BertWordPieceTokenizerFactory && lengthHandling != LengthHandling.ANY_LENGTH && maxTokens > 0) {
+                direct = ((BertWordPieceTokenizerFactory) tokenizerFactory).getVocab().equals(vocabMap)
+                        && (prependToken == null || vocabMap.containsKey(prependToken))
+                        && (appendToken == null || vocabMap.containsKey(appendToken));
+            }
+            encodeDirectly = direct;
+        }
+        return encodeDirectly;
+    }
+
+    private Pair<INDArray[], INDArray[]> encodeMiniBatch(List<String> sentences) {
+        BertWordPieceTokenizerFactory tokenizer = (BertWordPieceTokenizerFactory) tokenizerFactory;
+        int mbPadded = padMinibatches ? minibatchSize : sentences.size();
+        int prependIdx = prependToken == null ? -1 : vocabMap.get(prependToken);
+        int appendIdx = appendToken == null ? -1 : vocabMap.get(appendToken);
+
+        int[] idxs = new int[mbPadded * maxTokens];
+        int[] mask = new int[mbPadded * maxTokens];
+        int[] lengths = tokenizer.encodeBatch(sentences, prependIdx, appendIdx, maxTokens, idxs, mask);
+
+        int outLength = maxTokens;
+        if (lengthHandling == LengthHandling.CLIP_ONLY) {
+            int longestSeq = 0;
+            for (int l : lengths)
+                longestSeq = Math.max(longestSeq, l);
+            outLength = Math.min(maxTokens, longestSeq);
+            if (outLength < maxTokens) {
+                //No row was truncated, just drop the padding columns
+                for (int i = 1; i < mbPadded; i++) {
+                    System.arraycopy(idxs, i * maxTokens, idxs, i * outLength, outLength);
+                    System.arraycopy(mask, i * maxTokens, mask, i * outLength, outLength);
+                }
+                idxs = Arrays.copyOf(idxs, mbPadded * outLength);
+                mask = Arrays.copyOf(mask, mbPadded * outLength);
+            }
+        }
+
+        long[] shape = {mbPadded, outLength};
+        INDArray outIdxsArr = Nd4j.create(idxs, shape, DataType.INT);
+        INDArray outMaskArr = Nd4j.create(mask, shape, DataType.INT);
+        if (featureArrays == FeatureArrays.INDICES_MASK_SEGMENTID) {
+            //Single segment: segment IDs are all 0
+            INDArray outSegmentIdArr = Nd4j.create(DataType.INT, mbPadded, outLength);
+            return new Pair<>(new INDArray[]{outIdxsArr, outSegmentIdArr}, new INDArray[]{outMaskArr, null});
+        }
+        return new Pair<>(new INDArray[]{outIdxsArr}, new INDArray[]{outMaskArr});
+    }
+
     private SentenceListProcessed tokenizeMiniBatch(List<Pair<String, String>> list) {
         //Get and tokenize the sentences for this minibatch
         SentenceListProcessed sentenceListProcessed = new SentenceListProcessed(list.size());
@@ -51,9 +51,9 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class CBOW<T extends SequenceElement> implements ElementsLearningAlgorithm<T> {
-    private VocabCache<T> vocabCache;
-    private WeightLookupTable<T> lookupTable;
-    private VectorsConfiguration configuration;
+    protected VocabCache<T> vocabCache;
+    protected WeightLookupTable<T> lookupTable;
+    protected VectorsConfiguration configuration;
 
     private static final Logger logger = LoggerFactory.getLogger(CBOW.class);
 
@@ -0,0 +1,354 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.embeddings.learning.impl.elements;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.apache.commons.lang3.RandomUtils;
+import org.deeplearning4j.models.embeddings.WeightLookupTable;
+import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
+import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.ops.impl.nlp.CbowRound;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CBOW counterpart of {@link HogwildSkipGram}: each thread packs (word, context window) rows into flat per-thread
+ * arrays and executes them as a single {@link CbowRound} against the shared weights, without any locking.
+ *
+ * Use via {@code elementsLearningAlgorithm(new HogwildCBOW<>())}; inference isn't affected.
+ */
+public class HogwildCBOW<T extends SequenceElement> extends CBOW<T> {
+    @Getter
+    protected final HogwildRounds rounds = new HogwildRounds("HogwildCBOW");
+
+    protected int roundSize;
+    protected int maxCodeLength;
+    protected int contextWidth;
+    protected int nativeWorkers;
+    protected int numWords;
+    protected boolean useHS;
+
+    protected ThreadLocal<Round> buffers = new ThreadLocal<>();
+
+    /**
+     * Dummy construction is required for reflection
+     */
+    public HogwildCBOW() {
+    }
+
+    @Override
+    public String getCodeName() {
+        return "HogwildCBOW";
+    }
+
+    @Override
+    public void configure(@NonNull VocabCache<T> vocabCache, @NonNull WeightLookupTable<T> lookupTable,
+                          @NonNull VectorsConfiguration configuration) {
+        super.configure(vocabCache, lookupTable, configuration);
+
+        int maxWindow = window;
+        if (variableWindows != null) {
+            for (int w : variableWindows)
+                maxWindow = Math.max(maxWindow, w);
+        }
+
+        this.useHS = configuration.isUseHierarchicSoftmax();
+        this.roundSize = HogwildRounds.roundSize(configuration);
+        this.maxCodeLength = useHS ? HogwildRounds.maxCodeLength(vocabCache) : 1;
+        this.contextWidth = maxWindow * 2;
+        this.nativeWorkers = HogwildRounds.nativeWorkers(configuration);
+        this.numWords = vocabCache.numWords();
+        this.buffers = new ThreadLocal<>();
+        rounds.reset();
+    }
+
+    protected Round getRound() {
+        Round round = buffers.get();
+        if (round == null) {
+            round = new Round(roundSize, maxCodeLength, contextWidth);
+            buffers.set(round);
+        }
+        return round;
+    }
+
+    @Override
+    public double learnSequence(Sequence<T> sequence, AtomicLong nextRandom, double learningRate) {
+        List<T> elements = sequence.getElements();
+        Round round = getRound();
+        long random = nextRandom.get();
+
+        int length = 0;
+        int[] positions = round.positions(elements.size());
+        boolean[] trainable = round.trainable;
+        double totalWords = vocabCache.totalWordOccurrences();
+        for (int i = 0; i < elements.size(); i++) {
+            T element = elements.get(i);
+            if (sampling > 0) {
+                random = HogwildRounds.nextRandom(random);
+                if (element != null && !HogwildRounds.keep(element, sampling, totalWords, random))
+                    continue;
+            }
+            positions[length] = i;
+            trainable[length] = HogwildRounds.trainable(element, configuration);
+            length++;
+        }
+
+        int currentWindow = window;
+        if (variableWindows != null && variableWindows.length != 0) {
+            currentWindow = variableWindows[RandomUtils.nextInt(0, variableWindows.length)];
+        }
+
+        for (int i = 0; i < length; i++) {
+            random = HogwildRounds.nextRandom(random);
+            if (!trainable[i])
+                continue;
+
+            T word = elements.get(positions[i]);
+            int base = round.size * contextWidth;
+            int contextSize = 0;
+            int b = (int) (random % currentWindow);
+            int end = currentWindow * 2 + 1 - b;
+            for (int a = b; a < end; a++) {
+                if (a == currentWindow)
+                    continue;
+
+                int c = i - currentWindow + a;
+                if (c < 0 || c >= length || !trainable[c])
+                    continue;
+
+                T lastWord = elements.get(positions[c]);
+                round.context[base + contextSize] = lastWord.getIndex();
+                round.locked[base + contextSize] = lastWord.isLocked() ? 1 : 0;
+                contextSize++;
+            }
+
+            if (contextSize == 0)
+                continue;
+
+            round.add(word, random, learningRate, useHS, numWords);
+            if (round.size == roundSize)
+                execute(round);
+        }
+
+        nextRandom.set(random);
+        rounds.recordWords(elements.size());
+        return 0.0;
+    }
+
+    /**
+     * Executes whatever is accumulated in the calling thread's buffer
+     */
+    public void flush() {
+        Round round = buffers.get();
+        if (round != null && round.size > 0)
+            execute(round);
+    }
+
+    @Override
+    public void finish() {
+        flush();
+        super.finish();
+    }
+
+    @Override
+    public void finish(INDArray inferenceVector) {
+        flush();
+        super.finish(inferenceVector);
+    }
+
+    protected void execute(Round round) {
+        try (MemoryWorkspace workspace = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+            boolean full = round.size == round.capacity;
+            INDArray targets, context, locked, alphas, randoms, indices, codes;
+            if (full) {
+                // steady state: refill preallocated arrays, no allocations on either side
+                targets = round.fill(round.targetsArray, round.targets);
+                context = round.fill(round.contextArray, round.context);
+                locked = round.fill(round.lockedArray, round.locked);
+                alphas = round.fill(round.alphasArray, round.alphas);
+                randoms = round.fill(round.randomsArray, round.randoms);
+                indices = useHS ? round.fill(round.indicesArray, round.indices) : null;
+                codes = useHS ? round.fill(round.codesArray, round.codes) : null;
+            } else {
+                int rows = round.size;
+                targets = Nd4j.createFromArray(Arrays.copyOf(round.targets, rows));
+                context = Nd4j.createFromArray(Arrays.copyOf(round.context, rows * contextWidth)).reshape(rows, contextWidth);
+                locked = Nd4j.createFromArray(Arrays.copyOf(round.locked, rows * contextWidth)).reshape(rows, contextWidth);
+                alphas = Nd4j.createFromArray(Arrays.copyOf(round.alphas, rows));
+                randoms = Nd4j.createFromArray(Arrays.copyOf(round.randoms, rows));
+                indices = useHS ? Nd4j.createFromArray(Arrays.copyOf(round.indices, rows * maxCodeLength)).reshape(rows, maxCodeLength) : null;
+                codes = useHS ? Nd4j.createFromArray(Arrays.copyOf(round.codes, rows * maxCodeLength)).reshape(rows, maxCodeLength) : null;
+            }
+
+            DataType dataType = syn0.get().dataType();
+            CbowRound cbow = CbowRound.builder()
+                    .target(targets)
+                    .context(context)
+                    .lockedWords(locked)
+                    .ngStarter(targets)
+                    .syn0(syn0.get())
+                    .syn1(useHS ? syn1.get() : Nd4j.empty(dataType))
+                    .syn1Neg(negative > 0 ? syn1Neg.get() : Nd4j.empty(dataType))
+                    .expTable(expTable.get())
+                    .negTable(negative > 0 ? table.get() : Nd4j.empty(dataType))
+                    .indices(useHS ? indices : Nd4j.empty(DataType.INT32))
+                    .codes(useHS ? codes : Nd4j.empty(DataType.INT8))
+                    .nsRounds((int) negative)
+                    .alpha(alphas)
+                    .nextRandom(randoms)
+                    .inferenceVector(Nd4j.empty(dataType))
+                    .numLabels(Nd4j.empty(DataType.INT32))
+                    .trainWords(configuration.isTrainElementsVectors())
+                    .numWorkers(nativeWorkers)
+                    .iterations(1)
+                    .build();
+
+            Nd4j.getExecutioner().exec(cbow);
+            cbow.inputArguments().clear();
+
+            if (!full)
+                Nd4j.close(targets, context, locked, alphas, randoms, indices, codes);
+        }
+
+        rounds.recordRows(round.size);
+        round.clear(useHS);
+    }
+
+    /**
+     * Per-thread flat buffers for a single native round. Context windows and codes are padded with -1.
+     */
+    protected static class Round {
+        protected final int capacity;
+        protected final int maxCodeLength;
+        protected final int contextWidth;
+        protected int size;
+
+        protected final int[] targets;
+        protected final int[] context;
+        protected final int[] locked;
+        protected final double[] alphas;
+        protected final long[] randoms;
+        protected final int[] indices;
+        protected final int[] codes;
+
+        protected final INDArray targetsArray;
+        protected final INDArray contextArray;
+        protected final INDArray lockedArray;
+        protected final INDArray alphasArray;
+        protected final INDArray randomsArray;
+        protected final INDArray indicesArray;
+        protected final INDArray codesArray;
+
+        protected int[] positions = new int[0];
+        protected boolean[] trainable = new boolean[0];
+
+        protected Round(int capacity, int maxCodeLength, int contextWidth) {
+            this.capacity = capacity;
+            this.maxCodeLength = maxCodeLength;
+            this.contextWidth = contextWidth;
+
+            targets = new int[capacity];
+            context = new int[capacity * contextWidth];
+            locked = new int[capacity * contextWidth];
+            alphas = new double[capacity];
+            randoms = new long[capacity];
+            indices = new int[capacity * maxCodeLength];
+            codes = new int[capacity * maxCodeLength];
+            Arrays.fill(context, -1);
+            Arrays.fill(locked, -1);
+            Arrays.fill(codes, -1);
+
+            try (MemoryWorkspace workspace = Nd4j.getWorkspaceManager().scopeOutOfWorkspaces()) {
+                targetsArray = Nd4j.create(DataType.INT32, capacity);
+                contextArray = Nd4j.create(DataType.INT32, capacity, contextWidth);
+                lockedArray = Nd4j.create(DataType.INT32, capacity, contextWidth);
+                alphasArray = Nd4j.create(DataType.DOUBLE, capacity);
+                randomsArray = Nd4j.create(DataType.INT64, capacity);
+                indicesArray = Nd4j.create(DataType.INT32, capacity, maxCodeLength);
+                codesArray = Nd4j.create(DataType.INT32, capacity, maxCodeLength);
+            }
+        }
+
+        /**
+         * Commits current row, context for it has to be written already
+         */
+        protected void add(SequenceElement word, long random, double alpha, boolean useHS, int numWords) {
+            targets[size] = word.getIndex();
+            randoms[size] = random;
+            alphas[size] = alpha;
+
+            if (useHS) {
+                int base = size * maxCodeLength;
+                int length = Math.min(word.getCodeLength(), maxCodeLength);
+                List<Byte> wordCodes = word.getCodes();
+                List<Integer> wordPoints = word.getPoints();
+                for (int i = 0; i < length; i++) {
+                    int point = wordPoints.get(i);
+                    if (point < 0 || point >= numWords)
+                        continue;
+                    codes[base + i] = wordCodes.get(i);
+                    indices[base + i] = point;
+                }
+            }
+            size++;
+        }
+
+        protected INDArray fill(INDArray array, int[] data) {
+            array.data().setData(data);
+            return array;
+        }
+
+        protected INDArray fill(INDArray array, long[] data) {
+            array.data().setData(data);
+            return array;
+        }
+
+        protected INDArray fill(INDArray array, double[] data) {
+            array.data().setData(data);
+            return array;
+        }
+
+        protected int[] positions(int length) {
+            if (positions.length < length) {
+                positions = new int[length];
+                trainable = new boolean[length];
+            }
+            return positions;
+        }
+
+        protected void clear(boolean useHS) {
+            Arrays.fill(context, 0, size * contextWidth, -1);
+            Arrays.fill(locked, 0, size * contextWidth, -1);
+            if (useHS)
+                Arrays.fill(codes, 0, size * maxCodeLength, -1);
+            size = 0;
+        }
+    }
+}
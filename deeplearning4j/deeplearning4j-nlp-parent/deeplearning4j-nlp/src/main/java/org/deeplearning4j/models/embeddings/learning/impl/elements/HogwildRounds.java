@@ -0,0 +1,149 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.embeddings.learning.impl.elements;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.config.DL4JSystemProperties;
+import org.deeplearning4j.models.embeddings.loader.VectorsConfiguration;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared bookkeeping for {@link HogwildSkipGram} and {@link HogwildCBOW}:
+ * round sizing, native thread split, element filtering and words/sec reporting.
+ */
+@Slf4j
+public class HogwildRounds {
+    public static final int DEFAULT_ROUND_SIZE = 65536;
+    public static final long REPORT_INTERVAL_MS = 10000L;
+
+    private final String codeName;
+    private final AtomicLong wordsProcessed = new AtomicLong(0);
+    private final AtomicLong rowsProcessed = new AtomicLong(0);
+    private final AtomicLong lastReport = new AtomicLong(0);
+    private volatile long startTime;
+
+    public HogwildRounds(String codeName) {
+        this.codeName = codeName;
+        reset();
+    }
+
+    /**
+     * Resets counters, called when the algorithm gets (re)configured
+     */
+    public void reset() {
+        wordsProcessed.set(0);
+        rowsProcessed.set(0);
+        startTime = System.currentTimeMillis();
+        lastReport.set(startTime);
+    }
+
+    /**
+     * Accounts for a processed sequence, and logs throughput once per {@link #REPORT_INTERVAL_MS}
+     *
+     * @param words number of elements in the sequence
+     */
+    public void recordWords(long words) {
+        long total = wordsProcessed.addAndGet(words);
+        long now = System.currentTimeMillis();
+        long last = lastReport.get();
+        if (now - last >= REPORT_INTERVAL_MS && lastReport.compareAndSet(last, now)) {
+            log.info("{}: words processed: [{}]; rows executed: [{}]; Words/sec: [{}]", codeName, total,
+                    rowsProcessed.get(), String.format("%.2f", wordsPerSecond()));
+        }
+    }
+
+    public void recordRows(long rows) {
+        rowsProcessed.addAndGet(rows);
+    }
+
+    public long getWordsProcessed() {
+        return wordsProcessed.get();
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed.get();
+    }
+
+    /**
+     * @return average number of elements processed per second since last reset
+     */
+    public double wordsPerSecond() {
+        long spent = Math.max(1, System.currentTimeMillis() - startTime);
+        return wordsProcessed.get() / (spent / 1000.0);
+    }
+
+    /**
+     * Rows per native round: the larger of configured batch size and {@link DL4JSystemProperties#NLP_HOGWILD_ROUND_SIZE}
+     */
+    public static int roundSize(VectorsConfiguration configuration) {
+        int roundSize = Integer.parseInt(System.getProperty(DL4JSystemProperties.NLP_HOGWILD_ROUND_SIZE,
+                String.valueOf(DEFAULT_ROUND_SIZE)));
+        Integer batchSize = configuration.getBatchSize();
+        return Math.max(1, Math.max(roundSize, batchSize == null ? 0 : batchSize));
+    }
+
+    /**
+     * Every vector calculation thread executes its own rounds, so native workers are split between them
+     * instead of each round spinning up a full pool.
+     */
+    public static int nativeWorkers(VectorsConfiguration configuration) {
+        Integer calcThreads = configuration.getVectorCalcThreads();
+        return Math.max(1, configuration.getWorkers() / Math.max(1, calcThreads == null ? 1 : calcThreads));
+    }
+
+    /**
+     * @return longest Huffman code in the vocabulary, at least 1
+     */
+    public static <T extends SequenceElement> int maxCodeLength(VocabCache<T> vocabCache) {
+        int max = 1;
+        for (T element : vocabCache.vocabWords()) {
+            max = Math.max(max, element.getCodeLength());
+        }
+        return max;
+    }
+
+    /**
+     * @return true if element has a syn0 row and isn't one of the special STOP/UNK labels
+     */
+    public static boolean trainable(SequenceElement element, VectorsConfiguration configuration) {
+        if (element == null || element.getIndex() < 0)
+            return false;
+        String label = element.getLabel();
+        return !label.equals(configuration.getSTOP()) && !label.equals(configuration.getUNK());
+    }
+
+    /**
+     * Subsampling decision for a single element, same formula as {@link SkipGram#applySubsampling}
+     * but without building a new sequence.
+     */
+    public static boolean keep(SequenceElement element, double sampling, double numWords, long random) {
+        double ran = (Math.sqrt(element.getElementFrequency() / (sampling * numWords)) + 1)
+                * (sampling * numWords) / element.getElementFrequency();
+        return ran >= (random & 0xFFFF) / (double) 65536;
+    }
+
+    public static long nextRandom(long random) {
+        return Math.abs(random * 25214903917L + 11);
+    }
+}
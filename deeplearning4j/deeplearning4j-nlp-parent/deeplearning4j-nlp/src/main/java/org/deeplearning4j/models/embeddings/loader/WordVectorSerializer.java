@@ -36,6 +36,8 @@ import org.deeplearning4j.exception.DL4JInvalidInputException;
 import org.deeplearning4j.models.embeddings.WeightLookupTable;
 import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
 import org.deeplearning4j.models.embeddings.learning.impl.elements.SkipGram;
+import org.deeplearning4j.models.embeddings.mmap.MappedWordVectors;
+import org.deeplearning4j.models.embeddings.mmap.MappedWordVectorsWriter;
 import org.deeplearning4j.models.embeddings.reader.impl.BasicModelUtils;
 import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
 import org.deeplearning4j.models.embeddings.wordvectors.WordVectorsImpl;
@@ -3090,6 +3092,138 @@ public class WordVectorSerializer {
     }
 
 
+    /**
+     * This method writes word vectors in the memory-mappable format, to be opened with
+     * {@link #readMappedWordVectors(File)}. Words are written in vocabulary index order.
+     *
+     * @param vectors word vectors to write
+     * @param file    output file
+     */
+    public static void writeMappedWordVectors(@NonNull WordVectors vectors, @NonNull File file) throws IOException {
+        VocabCache<? extends SequenceElement> vocab = vectors.vocab();
+        int numWords = vocab.numWords();
+        DataType dataType = DataType.FLOAT;
+        if (numWords > 0 && vectors.getWordVectorMatrix(vocab.wordAtIndex(0)).dataType() == DataType.DOUBLE)
+            dataType = DataType.DOUBLE;
+
+        MappedWordVectorsWriter writer = new MappedWordVectorsWriter(file, vectors.vectorSize(), dataType);
+        boolean success = false;
+        try {
+            for (int i = 0; i < numWords; i++) {
+                SequenceElement element = vocab.elementAtIndex(i);
+                if (element == null)
+                    throw new IllegalStateException("No vocabulary element found at index " + i);
+                INDArray vector = vectors.getWordVectorMatrix(element.getLabel());
+                writer.add(element.getLabel(), (long) element.getElementFrequency(), vector);
+            }
+            success = true;
+        } finally {
+            if (success)
+                writer.close();
+            else
+                writer.abort();
+        }
+    }
+
+    /**
+     * This method converts a word2vec model in text (CSV) or Google binary format, possibly compressed, to the
+     * memory-mappable format, to be opened with {@link #readMappedWordVectors(File)}.<br>
+     * Vectors are streamed from the input to the output file: unlike {@link #readWord2VecModel(File)}, the vectors are
+     * never loaded into memory, hence this can be used for models larger than the available memory.
+     *
+     * @param model  word2vec model file, in text or binary format
+     * @param output output file
+     */
+    public static void convertToMappedWordVectors(@NonNull File model, @NonNull File output) throws IOException {
+        try {
+            convertToMappedWordVectors(model, output, false);
+        } catch (Exception e) {
+            log.debug("Unable to convert {} as text format, trying binary format", model, e);
+            try {
+                convertToMappedWordVectors(model, output, true);
+            } catch (Exception e2) {
+                throw new IOException("Unable to convert " + model + ": model is not in word2vec text or binary format", e2);
+            }
+        }
+    }
+
+    /**
+     * This method converts a word2vec model to the memory-mappable format, to be opened with
+     * {@link #readMappedWordVectors(File)}. Vectors are streamed from the input to the output file.
+     *
+     * @param model  word2vec model file
+     * @param output output file
+     * @param binary if true: model is in Google binary format, otherwise in text (CSV) format
+     */
+    public static void convertToMappedWordVectors(@NonNull File model, @NonNull File output, boolean binary)
+            throws IOException {
+        MappedWordVectorsWriter writer = null;
+        boolean success = false;
+        try (InputStream is = fileStream(model)) {
+            if (binary) {
+                DataInputStream dis = new DataInputStream(is);
+                int numWords = Integer.parseInt(ReadHelper.readString(dis));
+                int size = Integer.parseInt(ReadHelper.readString(dis));
+                writer = new MappedWordVectorsWriter(output, size, DataType.FLOAT);
+                float[] vector = new float[size];
+                for (int i = 0; i < numWords; i++) {
+                    String word = ReadHelper.readString(dis);
+                    while (word.isEmpty()) {
+                        //Line break after the previous vector
+                        word = ReadHelper.readString(dis);
+                    }
+                    for (int j = 0; j < size; j++) {
+                        vector[j] = Float.intBitsToFloat(Integer.reverseBytes(dis.readInt()));
+                    }
+                    writer.add(word, 1, vector);
+                }
+            } else {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+                String line = reader.readLine();
+                if (line != null) {
+                    String[] split = line.trim().split(" ");
+                    if (split.length == 2 && StringUtils.isNumeric(split[0]) && StringUtils.isNumeric(split[1])) {
+                        //Header: number of words and vector size
+                        line = reader.readLine();
+                    }
+                }
+                for (; line != null; line = reader.readLine()) {
+                    if (line.isEmpty())
+                        continue;
+                    String[] split = line.trim().split(" ");
+                    float[] vector = new float[split.length - 1];
+                    for (int i = 1; i < split.length; i++) {
+                        vector[i - 1] = Float.parseFloat(split[i]);
+                    }
+                    if (writer == null)
+                        writer = new MappedWordVectorsWriter(output, vector.length, DataType.FLOAT);
+                    writer.add(ReadHelper.decodeB64(split[0]), 1, vector);
+                }
+                if (writer == null)
+                    throw new IllegalStateException("No word vectors found in " + model);
+            }
+            success = true;
+        } finally {
+            //Partially converted vocabulary must not be left behind as a valid file
+            if (writer != null && success)
+                writer.close();
+            else if (writer != null)
+                writer.abort();
+        }
+    }
+
+    /**
+     * This method opens (memory maps) word vectors previously written by {@link #writeMappedWordVectors(WordVectors, File)}
+     * or {@link #convertToMappedWordVectors(File, File)}. Only the file header is read: vectors and vocabulary are
+     * paged in on demand as words are looked up.
+     *
+     * @param file mapped word vectors file
+     * @return word vectors backed by the mapped file
+     */
+    public static MappedWordVectors readMappedWordVectors(@NonNull File file) throws IOException {
+        return MappedWordVectors.open(file);
+    }
+
     protected interface Reader extends AutoCloseable {
         boolean hasNext();
 
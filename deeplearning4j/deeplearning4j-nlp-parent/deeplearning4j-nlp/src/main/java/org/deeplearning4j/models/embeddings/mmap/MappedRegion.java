@@ -0,0 +1,70 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.embeddings.mmap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only, little endian view of a section of a file, mapped in segments so that sections larger than 2GB can be
+ * accessed. Segment sizes are a multiple of 8 bytes, hence aligned int and long reads never span two segments.
+ */
+class MappedRegion {
+    static final int SEGMENT_SIZE = 1 << 30;
+
+    private final ByteBuffer[] segments;
+    private final long length;
+
+    MappedRegion(FileChannel channel, long offset, long length) throws IOException {
+        this.length = length;
+        int n = (int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        segments = new ByteBuffer[n];
+        for (int i = 0; i < n; i++) {
+            long start = (long) i * SEGMENT_SIZE;
+            long size = Math.min(SEGMENT_SIZE, length - start);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    long length() {
+        return length;
+    }
+
+    byte get(long pos) {
+        return segments[(int) (pos / SEGMENT_SIZE)].get((int) (pos % SEGMENT_SIZE));
+    }
+
+    int getInt(long pos) {
+        return segments[(int) (pos / SEGMENT_SIZE)].getInt((int) (pos % SEGMENT_SIZE));
+    }
+
+    long getLong(long pos) {
+        return segments[(int) (pos / SEGMENT_SIZE)].getLong((int) (pos % SEGMENT_SIZE));
+    }
+
+    void get(long pos, byte[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = get(pos + i);
+        }
+    }
+}
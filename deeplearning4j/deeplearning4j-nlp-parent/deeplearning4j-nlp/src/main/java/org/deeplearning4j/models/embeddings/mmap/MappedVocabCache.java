@@ -0,0 +1,300 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.embeddings.mmap;
+
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read-only {@link VocabCache} backed by the memory-mapped vocabulary index of a {@link MappedWordVectors} file.<br>
+ * Words are looked up by hashing their UTF-8 bytes and comparing against the mapped string section, so no per-word
+ * objects are held on the heap: {@link VocabWord} instances are created on demand and are not cached. All methods
+ * that modify the vocabulary throw {@link UnsupportedOperationException}.
+ */
+public class MappedVocabCache implements VocabCache<VocabWord> {
+
+    private final transient MappedRegion counts;
+    private final transient MappedRegion wordOffsets;
+    private final transient MappedRegion hashTable;
+    private final transient MappedRegion strings;
+    private final long hashMask;
+    private final int numWords;
+    private final long totalCount;
+
+    MappedVocabCache(MappedRegion counts, MappedRegion wordOffsets, MappedRegion hashTable, long hashCapacity,
+                     MappedRegion strings, int numWords, long totalCount) {
+        this.counts = counts;
+        this.wordOffsets = wordOffsets;
+        this.hashTable = hashTable;
+        this.hashMask = hashCapacity - 1;
+        this.strings = strings;
+        this.numWords = numWords;
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * @return Index of the word, or -1 if the word is not in the vocabulary
+     */
+    @Override
+    public int indexOf(String word) {
+        if (word == null)
+            return -1;
+        byte[] utf8 = word.getBytes(StandardCharsets.UTF_8);
+        long slot = MappedWordVectorsWriter.hash(utf8) & hashMask;
+        while (true) {
+            int entry = hashTable.getInt(slot * 4);
+            if (entry == 0)
+                return -1;
+            if (matches(entry - 1, utf8))
+                return entry - 1;
+            slot = (slot + 1) & hashMask;
+        }
+    }
+
+    private boolean matches(int index, byte[] utf8) {
+        long start = wordOffsets.getLong(8L * index);
+        long end = wordOffsets.getLong(8L * (index + 1));
+        if (end - start != utf8.length)
+            return false;
+        for (int i = 0; i < utf8.length; i++) {
+            if (strings.get(start + i) != utf8[i])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String wordAtIndex(int index) {
+        if (index < 0 || index >= numWords)
+            return null;
+        long start = wordOffsets.getLong(8L * index);
+        long end = wordOffsets.getLong(8L * (index + 1));
+        byte[] utf8 = new byte[(int) (end - start)];
+        strings.get(start, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public VocabWord elementAtIndex(int index) {
+        String word = wordAtIndex(index);
+        if (word == null)
+            return null;
+        VocabWord vw = new VocabWord(counts.getLong(8L * index), word);
+        vw.setIndex(index);
+        return vw;
+    }
+
+    @Override
+    public boolean containsWord(String word) {
+        return indexOf(word) >= 0;
+    }
+
+    @Override
+    public int wordFrequency(String word) {
+        int idx = indexOf(word);
+        return idx < 0 ? 0 : (int) counts.getLong(8L * idx);
+    }
+
+    @Override
+    public VocabWord wordFor(String word) {
+        return elementAtIndex(indexOf(word));
+    }
+
+    @Override
+    public VocabWord tokenFor(String word) {
+        return wordFor(word);
+    }
+
+    @Override
+    public boolean hasToken(String token) {
+        return containsWord(token);
+    }
+
+    @Override
+    public int numWords() {
+        return numWords;
+    }
+
+    @Override
+    public long totalWordOccurrences() {
+        return totalCount;
+    }
+
+    /**
+     * @return Lazily decoded view of all words, in index order
+     */
+    @Override
+    public Collection<String> words() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return wordAtIndex(index);
+            }
+
+            @Override
+            public int size() {
+                return numWords;
+            }
+        };
+    }
+
+    /**
+     * @return Lazily created view of all vocabulary elements, in index order
+     */
+    @Override
+    public Collection<VocabWord> vocabWords() {
+        return elements();
+    }
+
+    @Override
+    public Collection<VocabWord> tokens() {
+        return elements();
+    }
+
+    private List<VocabWord> elements() {
+        return new AbstractList<VocabWord>() {
+            @Override
+            public VocabWord get(int index) {
+                return elementAtIndex(index);
+            }
+
+            @Override
+            public int size() {
+                return numWords;
+            }
+        };
+    }
+
+    @Override
+    public void loadVocab() {
+        //No op: vocabulary is loaded from the mapped file
+    }
+
+    @Override
+    public boolean vocabExists() {
+        return numWords > 0;
+    }
+
+    @Override
+    public void saveVocab() {
+        //No op: vocabulary is stored in the mapped file
+    }
+
+    @Override
+    public int docAppearedIn(String word) {
+        return -1;
+    }
+
+    @Override
+    public long totalNumberOfDocs() {
+        return 0;
+    }
+
+    @Override
+    public VocabWord wordFor(long id) {
+        throw new UnsupportedOperationException("Lookup by element id is not supported by MappedVocabCache");
+    }
+
+    @Override
+    public VocabWord tokenFor(long id) {
+        throw new UnsupportedOperationException("Lookup by element id is not supported by MappedVocabCache");
+    }
+
+    @Override
+    public void incrementWordCount(String word) {
+        throw readOnly();
+    }
+
+    @Override
+    public void incrementWordCount(String word, int increment) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addWordToIndex(int index, String word) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addWordToIndex(int index, long elementId) {
+        throw readOnly();
+    }
+
+    @Override
+    @Deprecated
+    public void putVocabWord(String word) {
+        throw readOnly();
+    }
+
+    @Override
+    public void incrementDocCount(String word, long howMuch) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCountForDoc(String word, long count) {
+        throw readOnly();
+    }
+
+    @Override
+    public void incrementTotalDocCount() {
+        throw readOnly();
+    }
+
+    @Override
+    public void incrementTotalDocCount(long by) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean addToken(VocabWord element) {
+        throw readOnly();
+    }
+
+    @Override
+    public void importVocabulary(VocabCache<VocabWord> vocabCache) {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateWordsOccurrences() {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeElement(String label) {
+        throw readOnly();
+    }
+
+    @Override
+    public void removeElement(VocabWord element) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("MappedVocabCache is read-only");
+    }
+}
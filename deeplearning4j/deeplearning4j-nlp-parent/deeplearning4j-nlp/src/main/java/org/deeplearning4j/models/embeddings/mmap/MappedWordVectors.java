@@ -0,0 +1,427 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.embeddings.mmap;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.bytedeco.javacpp.BytePointer;
+import org.deeplearning4j.models.embeddings.WeightLookupTable;
+import org.deeplearning4j.models.embeddings.reader.ModelUtils;
+import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
+import org.nd4j.common.util.MathUtils;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * {@link WordVectors} implementation that memory-maps a file written by {@link MappedWordVectorsWriter} (see
+ * {@link org.deeplearning4j.models.embeddings.loader.WordVectorSerializer#writeMappedWordVectors(WordVectors, File)}
+ * and {@link org.deeplearning4j.models.embeddings.loader.WordVectorSerializer#convertToMappedWordVectors(File, File)}).
+ * <br>
+ * Opening a model only reads the fixed size header: the vectors and the vocabulary index stay on disk and are paged in
+ * by the OS as words are queried, so start up time and heap use are independent of the vocabulary size, and the page
+ * cache is shared by all processes that map the same file.<br>
+ * The file is mapped read-only. Vectors returned by {@link #getWordVectorMatrix(String)} and the other query methods
+ * are copies, so they may be modified and remain valid after {@link #close()}; similarity and nearest neighbour
+ * methods work directly on the mapped vectors without copying them. Nearest neighbour methods scan all vectors.<br>
+ * Note that the vectors are stored little endian, and are used as-is: native byte order must be little endian.
+ */
+@Slf4j
+public class MappedWordVectors implements WordVectors, Closeable {
+
+    private final File file;
+    private final int numWords;
+    private final int vectorSize;
+    private final DataType dataType;
+    private final long rowBytes;
+    private final int rowsPerSegment;
+    private final transient ByteBuffer[] vectorSegments;
+    private final MappedVocabCache vocab;
+    private String unk;
+    private volatile boolean closed;
+
+    private MappedWordVectors(File file) throws IOException {
+        this.file = file;
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
+            throw new IllegalStateException("Memory mapped word vectors require a little endian platform");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MappedWordVectorsWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0)
+                    throw new IllegalStateException("Invalid mapped word vectors file " + file + ": file is too short");
+            }
+            header.flip();
+            byte[] magic = new byte[MappedWordVectorsWriter.MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MappedWordVectorsWriter.MAGIC)) {
+                throw new IllegalStateException("File " + file + " is not a mapped word vectors file (invalid header)");
+            }
+            int version = header.getInt();
+            if (version != MappedWordVectorsWriter.VERSION) {
+                throw new IllegalStateException("Unsupported mapped word vectors file version " + version + " for file " + file);
+            }
+            int dataTypeCode = header.getInt();
+            this.dataType = dataTypeCode == 0 ? DataType.FLOAT : DataType.DOUBLE;
+            long nWords = header.getLong();
+            if (nWords > Integer.MAX_VALUE)
+                throw new IllegalStateException("Too many words: " + nWords);
+            this.numWords = (int) nWords;
+            this.vectorSize = header.getInt();
+            header.getInt();
+            long totalCount = header.getLong();
+            long vectorsOffset = header.getLong();
+            long countsOffset = header.getLong();
+            long wordOffsetsOffset = header.getLong();
+            long hashOffset = header.getLong();
+            long hashCapacity = header.getLong();
+            long stringsOffset = header.getLong();
+            long stringsLength = header.getLong();
+
+            this.rowBytes = (long) vectorSize * dataType.width();
+            this.rowsPerSegment = (int) Math.max(1, MappedRegion.SEGMENT_SIZE / rowBytes);
+            int numSegments = (int) ((numWords + (long) rowsPerSegment - 1) / rowsPerSegment);
+            this.vectorSegments = new ByteBuffer[numSegments];
+            for (int i = 0; i < numSegments; i++) {
+                long firstRow = (long) i * rowsPerSegment;
+                long rows = Math.min(rowsPerSegment, numWords - firstRow);
+                //Read-only mapping: views of it are never handed out, see getWordVectorMatrix(String)
+                vectorSegments[i] = channel.map(FileChannel.MapMode.READ_ONLY, vectorsOffset + firstRow * rowBytes,
+                        rows * rowBytes);
+            }
+
+            this.vocab = new MappedVocabCache(
+                    new MappedRegion(channel, countsOffset, 8L * numWords),
+                    new MappedRegion(channel, wordOffsetsOffset, 8L * (numWords + 1)),
+                    new MappedRegion(channel, hashOffset, 4L * hashCapacity), hashCapacity,
+                    new MappedRegion(channel, stringsOffset, stringsLength),
+                    numWords, totalCount);
+        }
+        log.debug("Mapped {} word vectors of size {} from {}", numWords, vectorSize, file);
+    }
+
+    /**
+     * Open (memory map) a word vectors file written by {@link MappedWordVectorsWriter}
+     *
+     * @param file File to open
+     */
+    public static MappedWordVectors open(@NonNull File file) throws IOException {
+        return new MappedWordVectors(file);
+    }
+
+    /**
+     * @return Data type of the stored vectors
+     */
+    public DataType dataType() {
+        return dataType;
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("Word vectors file " + file + " has been closed");
+    }
+
+    /**
+     * @return Read-only view (no copy) of rows [firstRow, firstRow+numRows) of segment, as a [numRows, vectorSize] array
+     */
+    private INDArray view(int segment, int firstRow, int numRows) {
+        ByteBuffer b = vectorSegments[segment].duplicate();
+        b.position((int) (firstRow * rowBytes));
+        b.limit((int) ((firstRow + numRows) * rowBytes));
+        DataBuffer buffer = Nd4j.createBuffer(new BytePointer(b.slice()), (long) numRows * vectorSize, dataType);
+        return Nd4j.create(buffer, new long[]{numRows, vectorSize});
+    }
+
+    private INDArray row(int index) {
+        return view(index / rowsPerSegment, index % rowsPerSegment, 1).reshape(vectorSize);
+    }
+
+    private int segmentRows(int segment) {
+        return (int) Math.min(rowsPerSegment, numWords - (long) segment * rowsPerSegment);
+    }
+
+    @Override
+    public String getUNK() {
+        return unk;
+    }
+
+    @Override
+    public void setUNK(String newUNK) {
+        this.unk = newUNK;
+    }
+
+    @Override
+    public boolean hasWord(String word) {
+        return vocab.containsWord(word);
+    }
+
+    @Override
+    public int indexOf(String word) {
+        return vocab.indexOf(word);
+    }
+
+    /**
+     * Get the word vector for a word, as a copy of the mapped vector
+     *
+     * @param word the word to get the vector for
+     * @return the vector, or the UNK vector if the word is unknown and UNK is set, null otherwise
+     */
+    @Override
+    public INDArray getWordVectorMatrix(String word) {
+        INDArray v = rowView(word);
+        //Writes to a view of the read-only mapping would crash the JVM
+        return v == null ? null : v.dup();
+    }
+
+    /**
+     * @return Read-only view of the vector for the word (or UNK), or null if there is none
+     */
+    private INDArray rowView(String word) {
+        checkOpen();
+        int idx = vocab.indexOf(word);
+        if (idx < 0 && unk != null)
+            idx = vocab.indexOf(unk);
+        return idx < 0 ? null : row(idx);
+    }
+
+    @Override
+    public double[] getWordVector(String word) {
+        INDArray v = rowView(word);
+        return v == null ? null : v.toDoubleVector();
+    }
+
+    @Override
+    public INDArray getWordVectorMatrixNormalized(String word) {
+        INDArray v = getWordVectorMatrix(word);
+        return v == null ? null : Transforms.unitVec(v);
+    }
+
+    /**
+     * @return Matrix with one row per known word (or UNK), in the order of the labels
+     */
+    @Override
+    public INDArray getWordVectors(@NonNull Collection<String> labels) {
+        List<INDArray> rows = new ArrayList<>(labels.size());
+        for (String label : labels) {
+            INDArray v = rowView(label);
+            if (v != null)
+                rows.add(v.reshape(1, vectorSize));
+        }
+        if (rows.isEmpty())
+            return Nd4j.create(dataType, 0, vectorSize);
+        //vstack returns a single input unchanged, which would be a view of the read-only mapping
+        return rows.size() == 1 ? rows.get(0).dup() : Nd4j.vstack(rows);
+    }
+
+    @Override
+    public INDArray getWordVectorsMean(Collection<String> labels) {
+        return getWordVectors(labels).mean(0);
+    }
+
+    @Override
+    public double similarity(String word, String word2) {
+        INDArray v1 = rowView(word);
+        INDArray v2 = rowView(word2);
+        if (v1 == null || v2 == null)
+            return Double.NaN;
+        if (word.equals(word2))
+            return 1.0;
+        return Transforms.cosineSim(v1, v2);
+    }
+
+    /**
+     * Words nearest (by cosine similarity) to the given vector. Scans all vectors.
+     *
+     * @param words Query vector
+     * @param top   Number of words to return
+     * @return Nearest words, most similar first
+     */
+    @Override
+    public Collection<String> wordsNearest(@NonNull INDArray words, int top) {
+        checkOpen();
+        INDArray q = words.reshape(vectorSize, 1).castTo(dataType);
+        double qNorm = q.norm2Number().doubleValue();
+        if (top <= 0 || qNorm == 0.0)
+            return new ArrayList<>();
+
+        //Min-heap of (similarity, index): the smallest of the current top N is at the head
+        PriorityQueue<double[]> heap = new PriorityQueue<>(top + 1, (a, b) -> Double.compare(a[0], b[0]));
+        for (int s = 0; s < vectorSegments.length; s++) {
+            int rows = segmentRows(s);
+            INDArray segment = view(s, 0, rows);
+            double[] dots = segment.mmul(q).toDoubleVector();
+            double[] norms = segment.norm2(1).toDoubleVector();
+            long base = (long) s * rowsPerSegment;
+            for (int i = 0; i < rows; i++) {
+                double sim = dots[i] / (norms[i] * qNorm);
+                if (Double.isNaN(sim))
+                    continue;
+                if (heap.size() < top) {
+                    heap.add(new double[]{sim, base + i});
+                } else if (sim > heap.peek()[0]) {
+                    heap.poll();
+                    heap.add(new double[]{sim, base + i});
+                }
+            }
+        }
+
+        LinkedList<String> out = new LinkedList<>();
+        while (!heap.isEmpty()) {
+            out.addFirst(vocab.wordAtIndex((int) heap.poll()[1]));
+        }
+        return new ArrayList<>(out);
+    }
+
+    @Override
+    public Collection<String> wordsNearest(@NonNull Collection<String> positive, @NonNull Collection<String> negative,
+                                           int top) {
+        INDArray sum = Nd4j.create(dataType, vectorSize);
+        for (String p : positive) {
+            if (!hasWord(p))
+                return new ArrayList<>();
+            INDArray v = row(vocab.indexOf(p));
+            sum.addi(v);
+        }
+        for (String n : negative) {
+            if (!hasWord(n))
+                return new ArrayList<>();
+            INDArray v = row(vocab.indexOf(n));
+            sum.subi(v);
+        }
+        int count = positive.size() + negative.size();
+        if (count > 0)
+            sum.divi(count);
+
+        List<String> out = new ArrayList<>();
+        for (String w : wordsNearest(sum, top + count)) {
+            if (!positive.contains(w) && !negative.contains(w) && out.size() < top)
+                out.add(w);
+        }
+        return out;
+    }
+
+    @Override
+    public Collection<String> wordsNearest(String word, int n) {
+        return wordsNearest(Collections.singletonList(word), Collections.<String>emptyList(), n);
+    }
+
+    @Override
+    public List<String> similarWordsInVocabTo(String word, double accuracy) {
+        List<String> out = new ArrayList<>();
+        for (String s : vocab.words()) {
+            if (MathUtils.stringSimilarity(word, s) >= accuracy)
+                out.add(s);
+        }
+        return out;
+    }
+
+    @Override
+    public Collection<String> wordsNearestSum(INDArray words, int top) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use wordsNearest instead");
+    }
+
+    @Override
+    public Collection<String> wordsNearestSum(String word, int n) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use wordsNearest instead");
+    }
+
+    @Override
+    public Collection<String> wordsNearestSum(Collection<String> positive, Collection<String> negative, int top) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use wordsNearest instead");
+    }
+
+    @Override
+    public Map<String, Double> accuracy(List<String> questions) {
+        throw new UnsupportedOperationException("Method isn't implemented. Please use usual Word2Vec implementation");
+    }
+
+    @Override
+    public MappedVocabCache vocab() {
+        return vocab;
+    }
+
+    /**
+     * Not available: vectors are not held in a lookup table
+     */
+    @Override
+    public WeightLookupTable lookupTable() {
+        throw new UnsupportedOperationException("Mapped word vectors have no lookup table");
+    }
+
+    /**
+     * No effect: nearest neighbour search is implemented directly on the mapped vectors
+     */
+    @Override
+    public void setModelUtils(ModelUtils utils) {
+        // no-op
+    }
+
+    @Override
+    public boolean outOfVocabularySupported() {
+        return false;
+    }
+
+    @Override
+    public void loadWeightsInto(INDArray array) {
+        checkOpen();
+        for (int s = 0; s < vectorSegments.length; s++) {
+            long first = (long) s * rowsPerSegment;
+            int rows = segmentRows(s);
+            array.get(NDArrayIndex.interval(first, first + rows), NDArrayIndex.all()).assign(view(s, 0, rows));
+        }
+    }
+
+    @Override
+    public long vocabSize() {
+        return numWords;
+    }
+
+    @Override
+    public int vectorSize() {
+        return vectorSize;
+    }
+
+    @Override
+    public boolean jsonSerializable() {
+        return false;
+    }
+
+    /**
+     * Close this instance: subsequent lookups fail. The file is unmapped by the JVM once the mapped buffers are
+     * garbage collected, hence previously returned vector views must not be used after closing.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
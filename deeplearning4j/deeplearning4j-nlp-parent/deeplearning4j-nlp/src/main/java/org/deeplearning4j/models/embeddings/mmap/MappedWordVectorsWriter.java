@@ -0,0 +1,321 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.embeddings.mmap;
+
+import lombok.NonNull;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes word vectors in the memory-mappable format read by {@link MappedWordVectors}.<br>
+ * Vectors are streamed to disk as they are added, so only the vocabulary (not the vectors) is held in memory
+ * while writing. The file layout (all values little endian) is:
+ * <ul>
+ *     <li>Header ({@link #HEADER_SIZE} bytes): magic, version, data type, number of words, vector size, total word
+ *     occurrences, and the offsets of the sections below</li>
+ *     <li>Vectors: numWords x vectorSize row-major matrix, float or double</li>
+ *     <li>Counts: one long (word frequency) per word</li>
+ *     <li>Word offsets: numWords + 1 longs - start of each word in the string section</li>
+ *     <li>Hash index: open addressing table (linear probing) of ints, word index + 1 (0 = empty slot), with a
+ *     power of 2 capacity of at least twice the number of words</li>
+ *     <li>Strings: UTF-8 bytes of all words, concatenated</li>
+ * </ul>
+ * Sections are aligned to 64 bytes.
+ */
+public class MappedWordVectorsWriter implements Closeable {
+    public static final byte[] MAGIC = "DL4JWVEC".getBytes(StandardCharsets.US_ASCII);
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 128;
+
+    static final int ALIGNMENT = 64;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final File file;
+    private final FileChannel channel;
+    private final int vectorSize;
+    private final DataType dataType;
+    private final ByteBuffer buffer;
+
+    private final List<byte[]> words = new ArrayList<>();
+    private long[] counts = new long[1024];
+    private long totalCount;
+    private boolean closed;
+
+    /**
+     * @param file       Output file (overwritten if it exists)
+     * @param vectorSize Size of the word vectors
+     * @param dataType   Data type to store the vectors as: FLOAT or DOUBLE
+     */
+    public MappedWordVectorsWriter(@NonNull File file, int vectorSize, @NonNull DataType dataType) throws IOException {
+        Preconditions.checkArgument(vectorSize > 0, "Vector size must be > 0, got %s", vectorSize);
+        Preconditions.checkArgument(dataType == DataType.FLOAT || dataType == DataType.DOUBLE,
+                "Only FLOAT and DOUBLE vectors are supported, got %s", dataType);
+        this.file = file;
+        this.vectorSize = vectorSize;
+        this.dataType = dataType;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.channel.position(HEADER_SIZE);
+        int rowBytes = vectorSize * dataType.width();
+        this.buffer = ByteBuffer.allocate(Math.max(WRITE_BUFFER_SIZE, rowBytes)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Add the next word. Words are assigned consecutive indices in the order they are added
+     *
+     * @param word   Word to add. Must not have been added before
+     * @param count  Word frequency
+     * @param vector Word vector, of length vectorSize
+     */
+    public void add(@NonNull String word, long count, @NonNull float[] vector) throws IOException {
+        Preconditions.checkArgument(vector.length == vectorSize, "Expected vector of length %s, got length %s",
+                vectorSize, vector.length);
+        ensureSpace();
+        for (float f : vector) {
+            if (dataType == DataType.FLOAT) {
+                buffer.putFloat(f);
+            } else {
+                buffer.putDouble(f);
+            }
+        }
+        addWord(word, count);
+    }
+
+    /**
+     * Add the next word. Words are assigned consecutive indices in the order they are added
+     *
+     * @param word   Word to add. Must not have been added before
+     * @param count  Word frequency
+     * @param vector Word vector, of length vectorSize
+     */
+    public void add(@NonNull String word, long count, @NonNull INDArray vector) throws IOException {
+        Preconditions.checkArgument(vector.length() == vectorSize, "Expected vector of length %s, got length %s",
+                vectorSize, vector.length());
+        if (dataType == DataType.FLOAT) {
+            add(word, count, vector.toFloatVector());
+            return;
+        }
+        ensureSpace();
+        for (double d : vector.toDoubleVector()) {
+            buffer.putDouble(d);
+        }
+        addWord(word, count);
+    }
+
+    /**
+     * @return Number of words added so far
+     */
+    public int numWords() {
+        return words.size();
+    }
+
+    private void ensureSpace() throws IOException {
+        Preconditions.checkState(!closed, "Writer has already been closed");
+        if (buffer.remaining() < vectorSize * dataType.width()) {
+            flush();
+        }
+    }
+
+    private void addWord(String word, long count) {
+        if (words.size() == counts.length) {
+            counts = Arrays.copyOf(counts, counts.length * 2);
+        }
+        counts[words.size()] = count;
+        words.add(word.getBytes(StandardCharsets.UTF_8));
+        totalCount += count;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void align() throws IOException {
+        long pos = channel.position();
+        long aligned = (pos + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        for (long i = pos; i < aligned; i++) {
+            buffer.put((byte) 0);
+        }
+        flush();
+        channel.position(aligned);
+    }
+
+    private void putInt(int value) throws IOException {
+        if (buffer.remaining() < 4)
+            flush();
+        buffer.putInt(value);
+    }
+
+    private void putLong(long value) throws IOException {
+        if (buffer.remaining() < 8)
+            flush();
+        buffer.putLong(value);
+    }
+
+    /**
+     * Write the vocabulary sections and the header, and close the file. If writing fails, the file is deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        boolean committed = false;
+        try {
+            flush();
+            int numWords = words.size();
+
+            align();
+            long countsOffset = channel.position();
+            for (int i = 0; i < numWords; i++) {
+                putLong(counts[i]);
+            }
+            flush();
+
+            align();
+            long wordOffsetsOffset = channel.position();
+            long stringsLength = 0;
+            for (byte[] w : words) {
+                putLong(stringsLength);
+                stringsLength += w.length;
+            }
+            putLong(stringsLength);
+            flush();
+
+            align();
+            long hashOffset = channel.position();
+            int[] table = buildHashTable();
+            for (int t : table) {
+                putInt(t);
+            }
+            flush();
+
+            align();
+            long stringsOffset = channel.position();
+            for (byte[] w : words) {
+                if (buffer.remaining() < w.length)
+                    flush();
+                if (w.length > buffer.capacity()) {
+                    channel.write(ByteBuffer.wrap(w));
+                } else {
+                    buffer.put(w);
+                }
+            }
+            flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(dataType == DataType.FLOAT ? 0 : 1);
+            header.putLong(numWords);
+            header.putInt(vectorSize);
+            header.putInt(0);
+            header.putLong(totalCount);
+            header.putLong(HEADER_SIZE);
+            header.putLong(countsOffset);
+            header.putLong(wordOffsetsOffset);
+            header.putLong(hashOffset);
+            header.putLong(table.length);
+            header.putLong(stringsOffset);
+            header.putLong(stringsLength);
+            header.position(0);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            committed = true;
+        } finally {
+            closed = true;
+            channel.close();
+            if (!committed)
+                file.delete();
+        }
+    }
+
+    /**
+     * Discard the words added so far: close and delete the file, without writing the vocabulary and header.
+     * Use this instead of {@link #close()} when writing failed, so no valid file with a partial vocabulary is left
+     */
+    public void abort() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //File is deleted anyway
+        } finally {
+            file.delete();
+        }
+    }
+
+    private int[] buildHashTable() {
+        int n = words.size();
+        long capacity = 16;
+        while (capacity < 2L * n) {
+            capacity <<= 1;
+        }
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Too many words for hash index: " + n);
+        }
+        int[] table = new int[(int) capacity];
+        int mask = table.length - 1;
+        for (int i = 0; i < n; i++) {
+            byte[] w = words.get(i);
+            int slot = (int) (hash(w) & mask);
+            while (table[slot] != 0) {
+                if (Arrays.equals(words.get(table[slot] - 1), w)) {
+                    throw new IllegalStateException("Duplicate word at indices " + (table[slot] - 1) + " and " + i
+                            + ": \"" + new String(w, StandardCharsets.UTF_8) + "\" in file " + file);
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        return table;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the UTF-8 bytes of a word, with the high bits folded in
+     */
+    static long hash(byte[] utf8) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : utf8) {
+            h ^= (b & 0xFF);
+            h *= 0x100000001b3L;
+        }
+        return h ^ (h >>> 32);
+    }
+}
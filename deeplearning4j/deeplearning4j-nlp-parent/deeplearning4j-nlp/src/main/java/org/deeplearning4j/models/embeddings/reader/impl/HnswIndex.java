@@ -0,0 +1,686 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.embeddings.reader.impl;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hierarchical Navigable Small World (HNSW) graph index, for approximate nearest neighbour search by cosine
+ * similarity.<br>
+ * See Malkov and Yashunin, "Efficient and robust approximate nearest neighbor search using Hierarchical Navigable
+ * Small World graphs", 2016.<br>
+ * <br>
+ * Vectors are L2-normalized and kept in a single contiguous float array (row i = element i), so that similarity is a
+ * plain dot product over consecutive memory. Query time is roughly logarithmic in the number of elements; recall is
+ * controlled by the {@code ef} parameter (size of the dynamic candidate list at query time): higher values give better
+ * recall at the cost of latency.<br>
+ * The index can be persisted with {@link #save(File)} and restored with {@link #load(File)}.<br>
+ * Queries are thread safe.
+ */
+@Slf4j
+public class HnswIndex {
+    private static final int MAGIC = 0x484E5357;     //"HNSW"
+    private static final int VERSION = 1;
+    private static final int NUM_LOCKS = 4096;
+
+    @Getter
+    private final int dimension;
+    @Getter
+    private final int size;
+    @Getter
+    private final int m;
+    @Getter
+    private final int efConstruction;
+    @Getter
+    private volatile int ef;
+
+    //size x dimension, row major, L2-normalized
+    private final float[] vectors;
+    private final int[] levels;
+    //Neighbours per node: element 0 is the number of neighbours, followed by neighbour ids
+    private final int[][] links0;
+    private final int[][][] upperLinks;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private final Object[] locks;
+    private final Object entryLock = new Object();
+    private volatile boolean building;
+    private final ThreadLocal<VisitedList> visited;
+
+    private HnswIndex(int dimension, int size, int m, int efConstruction, int ef, float[] vectors, int[] levels) {
+        this.dimension = dimension;
+        this.size = size;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.ef = ef;
+        this.vectors = vectors;
+        this.levels = levels;
+        this.links0 = new int[size][];
+        this.upperLinks = new int[size][][];
+        this.locks = new Object[NUM_LOCKS];
+        for (int i = 0; i < NUM_LOCKS; i++) {
+            locks[i] = new Object();
+        }
+        this.visited = ThreadLocal.withInitial(() -> new VisitedList(size));
+    }
+
+    /**
+     * Build an index over the given vectors
+     *
+     * @param vectors        Row major vectors, {@code size x dimension}. Normalized in place, and owned by the index
+     *                       afterwards
+     * @param dimension      Vector length
+     * @param m              Maximum number of neighbours per node on the upper layers (2*m on the bottom layer).
+     *                       Typical values are 8 to 48
+     * @param efConstruction Size of the dynamic candidate list during construction. Higher values give a better
+     *                       graph, at the cost of build time
+     * @param ef             Default size of the dynamic candidate list for queries
+     * @param threads        Number of threads used for construction
+     * @param seed           Random seed, used for the assignment of nodes to layers
+     * @return Index
+     */
+    public static HnswIndex build(@NonNull float[] vectors, int dimension, int m, int efConstruction, int ef,
+                                  int threads, long seed) {
+        if (dimension <= 0 || vectors.length % dimension != 0)
+            throw new IllegalArgumentException("Vectors array length " + vectors.length
+                    + " is not a multiple of the dimension " + dimension);
+        if (m < 2)
+            throw new IllegalArgumentException("M must be at least 2, got " + m);
+        if (efConstruction < 1 || ef < 1)
+            throw new IllegalArgumentException("efConstruction and ef must be positive, got " + efConstruction
+                    + " and " + ef);
+
+        int size = vectors.length / dimension;
+        for (int i = 0; i < size; i++) {
+            normalize(vectors, i * dimension, dimension);
+        }
+
+        Random r = new Random(seed);
+        double mL = 1.0 / Math.log(m);
+        int[] levels = new int[size];
+        for (int i = 0; i < size; i++) {
+            levels[i] = (int) (-Math.log(1.0 - r.nextDouble()) * mL);
+        }
+
+        HnswIndex index = new HnswIndex(dimension, size, m, efConstruction, ef, vectors, levels);
+        for (int i = 0; i < size; i++) {
+            index.links0[i] = new int[2 * m + 1];
+            if (levels[i] > 0) {
+                index.upperLinks[i] = new int[levels[i]][m + 1];
+            }
+        }
+
+        if (size == 0)
+            return index;
+
+        long start = System.currentTimeMillis();
+        index.building = true;
+        index.insert(0);
+        if (threads <= 1 || size < 1000) {
+            for (int i = 1; i < size; i++) {
+                index.insert(i);
+            }
+        } else {
+            AtomicInteger next = new AtomicInteger(1);
+            ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread t = new Thread(runnable, "HnswIndex builder");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                List<Future<?>> futures = new ArrayList<>(threads);
+                for (int t = 0; t < threads; t++) {
+                    futures.add(executor.submit(() -> {
+                        int i;
+                        while ((i = next.getAndIncrement()) < size) {
+                            index.insert(i);
+                        }
+                    }));
+                }
+                for (Future<?> f : futures) {
+                    f.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        index.building = false;
+
+        log.info("Built HNSW index over {} vectors of dimension {} in {} ms", size, dimension,
+                System.currentTimeMillis() - start);
+        return index;
+    }
+
+    /**
+     * @param ef Size of the dynamic candidate list for queries. Must be positive
+     */
+    public void setEf(int ef) {
+        if (ef < 1)
+            throw new IllegalArgumentException("ef must be positive, got " + ef);
+        this.ef = ef;
+    }
+
+    /**
+     * Find the (approximate) k most similar elements to the query, using the default {@code ef}
+     *
+     * @param query Query vector. Need not be normalized
+     * @param k     Number of elements to return
+     * @return Element ids, most similar first
+     */
+    public int[] search(@NonNull float[] query, int k) {
+        return search(query, k, ef);
+    }
+
+    /**
+     * Find the (approximate) k most similar elements to the query
+     *
+     * @param query Query vector. Need not be normalized
+     * @param k     Number of elements to return
+     * @param ef    Size of the dynamic candidate list. Values below k are raised to k
+     * @return Element ids, most similar first
+     */
+    public int[] search(@NonNull float[] query, int k, int ef) {
+        if (query.length != dimension)
+            throw new IllegalArgumentException("Query length " + query.length + " does not match index dimension "
+                    + dimension);
+        if (size == 0 || k <= 0)
+            return new int[0];
+
+        float[] q = Arrays.copyOf(query, dimension);
+        normalize(q, 0, dimension);
+
+        int ep = entryPoint;
+        float epSim = dot(q, 0, vectors, ep * dimension, dimension);
+        for (int level = maxLevel; level > 0; level--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] nb = neighbours(ep, level);
+                for (int i = 1; i <= nb[0]; i++) {
+                    float s = dot(q, 0, vectors, nb[i] * dimension, dimension);
+                    if (s > epSim) {
+                        epSim = s;
+                        ep = nb[i];
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        FloatIntHeap results = searchLayer(q, 0, ep, epSim, Math.max(ef, k), 0);
+        while (results.size() > k) {
+            results.pop();
+        }
+        int[] out = new int[results.size()];
+        for (int i = out.length - 1; i >= 0; i--) {
+            out[i] = results.pop();
+        }
+        return out;
+    }
+
+    /**
+     * @return Copy of the (normalized) vector of the given element
+     */
+    public float[] vector(int id) {
+        return Arrays.copyOfRange(vectors, id * dimension, (id + 1) * dimension);
+    }
+
+    private void insert(int node) {
+        int level = levels[node];
+        int ep;
+        int topLevel;
+        synchronized (entryLock) {
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+            ep = entryPoint;
+            topLevel = maxLevel;
+        }
+
+        int qOff = node * dimension;
+        float epSim = dot(vectors, qOff, vectors, ep * dimension, dimension);
+        for (int lc = topLevel; lc > level; lc--) {
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] nb = neighbours(ep, lc);
+                for (int i = 1; i <= nb[0]; i++) {
+                    float s = dot(vectors, qOff, vectors, nb[i] * dimension, dimension);
+                    if (s > epSim) {
+                        epSim = s;
+                        ep = nb[i];
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        for (int lc = Math.min(level, topLevel); lc >= 0; lc--) {
+            FloatIntHeap candidates = searchLayer(vectors, qOff, ep, epSim, efConstruction, lc);
+            int n = candidates.size();
+            int[] ids = new int[n];
+            float[] sims = new float[n];
+            for (int i = n - 1; i >= 0; i--) {
+                sims[i] = candidates.peekKey();
+                ids[i] = candidates.pop();
+            }
+            //Closest candidate is the entry point for the next layer
+            ep = ids[0];
+            epSim = sims[0];
+
+            int[] selected = selectNeighbours(ids, sims, n, m);
+            int[] own = links(node, lc);
+            synchronized (lock(node)) {
+                own[0] = selected.length;
+                System.arraycopy(selected, 0, own, 1, selected.length);
+            }
+            int maxM = lc == 0 ? 2 * m : m;
+            for (int e : selected) {
+                addLink(e, node, lc, maxM);
+            }
+        }
+
+        if (level > topLevel) {
+            synchronized (entryLock) {
+                if (level > maxLevel) {
+                    entryPoint = node;
+                    maxLevel = level;
+                }
+            }
+        }
+    }
+
+    private void addLink(int from, int to, int level, int maxM) {
+        synchronized (lock(from)) {
+            int[] l = links(from, level);
+            int count = l[0];
+            if (count < maxM) {
+                l[count + 1] = to;
+                l[0] = count + 1;
+                return;
+            }
+
+            //Full: re-select the neighbours of 'from' among the existing ones plus the new one
+            int fOff = from * dimension;
+            int[] ids = new int[count + 1];
+            float[] sims = new float[count + 1];
+            for (int i = 0; i < count; i++) {
+                ids[i] = l[i + 1];
+            }
+            ids[count] = to;
+            for (int i = 0; i <= count; i++) {
+                sims[i] = dot(vectors, fOff, vectors, ids[i] * dimension, dimension);
+            }
+            sortDescending(ids, sims);
+            int[] selected = selectNeighbours(ids, sims, count + 1, maxM);
+            System.arraycopy(selected, 0, l, 1, selected.length);
+            l[0] = selected.length;
+        }
+    }
+
+    /**
+     * Neighbour selection heuristic: candidates (sorted by decreasing similarity to the query) are kept only if they
+     * are more similar to the query than to any already selected neighbour. This keeps links spread out in different
+     * directions, which matters for clustered data such as word vectors
+     */
+    private int[] selectNeighbours(int[] ids, float[] sims, int n, int maxM) {
+        if (n <= maxM)
+            return Arrays.copyOf(ids, n);
+
+        int[] selected = new int[maxM];
+        int count = 0;
+        for (int i = 0; i < n && count < maxM; i++) {
+            int c = ids[i];
+            int cOff = c * dimension;
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (dot(vectors, cOff, vectors, selected[j] * dimension, dimension) > sims[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep)
+                selected[count++] = c;
+        }
+        return count == maxM ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private FloatIntHeap searchLayer(float[] q, int qOff, int ep, float epSim, int ef, int level) {
+        VisitedList v = visited.get();
+        v.reset();
+        FloatIntHeap results = new FloatIntHeap(ef + 1);
+        FloatIntHeap candidates = new FloatIntHeap(ef + 1);     //Keyed by negative similarity: max heap
+
+        v.visit(ep);
+        results.push(epSim, ep);
+        candidates.push(-epSim, ep);
+        while (candidates.size() > 0) {
+            float cSim = -candidates.peekKey();
+            int c = candidates.pop();
+            if (results.size() >= ef && cSim < results.peekKey())
+                break;
+
+            int[] nb = neighbours(c, level);
+            for (int i = 1; i <= nb[0]; i++) {
+                int e = nb[i];
+                if (v.isVisited(e))
+                    continue;
+                v.visit(e);
+                float s = dot(q, qOff, vectors, e * dimension, dimension);
+                if (results.size() < ef || s > results.peekKey()) {
+                    candidates.push(-s, e);
+                    results.push(s, e);
+                    if (results.size() > ef)
+                        results.pop();
+                }
+            }
+        }
+        return results;
+    }
+
+    private int[] links(int node, int level) {
+        return level == 0 ? links0[node] : upperLinks[node][level - 1];
+    }
+
+    private int[] neighbours(int node, int level) {
+        int[] l = links(node, level);
+        if (!building)
+            return l;
+        synchronized (lock(node)) {
+            return Arrays.copyOf(l, l[0] + 1);
+        }
+    }
+
+    private Object lock(int node) {
+        return locks[node & (NUM_LOCKS - 1)];
+    }
+
+    private static void normalize(float[] v, int off, int len) {
+        double norm = Math.sqrt(dot(v, off, v, off, len));
+        if (norm > 0) {
+            float f = (float) (1.0 / norm);
+            for (int i = off; i < off + len; i++) {
+                v[i] *= f;
+            }
+        }
+    }
+
+    /**
+     * Dot product with independent accumulators, so that the JIT can keep several multiply-adds in flight
+     */
+    static float dot(float[] a, int aOff, float[] b, int bOff, int len) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < len; i += 4) {
+            s0 += a[aOff + i] * b[bOff + i];
+            s1 += a[aOff + i + 1] * b[bOff + i + 1];
+            s2 += a[aOff + i + 2] * b[bOff + i + 2];
+            s3 += a[aOff + i + 3] * b[bOff + i + 3];
+        }
+        for (; i < len; i++) {
+            s0 += a[aOff + i] * b[bOff + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static void sortDescending(int[] ids, float[] sims) {
+        //Insertion sort: arrays are at most 2*M+1 long
+        for (int i = 1; i < ids.length; i++) {
+            int id = ids[i];
+            float s = sims[i];
+            int j = i - 1;
+            while (j >= 0 && sims[j] < s) {
+                ids[j + 1] = ids[j];
+                sims[j + 1] = sims[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            sims[j + 1] = s;
+        }
+    }
+
+    /**
+     * Save the index to the given file
+     */
+    public void save(@NonNull File file) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+            save(os);
+        }
+    }
+
+    /**
+     * Save the index to the given stream. The stream is not closed
+     */
+    public void save(@NonNull OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(dimension);
+        out.writeInt(size);
+        out.writeInt(m);
+        out.writeInt(efConstruction);
+        out.writeInt(ef);
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+
+        ByteBuffer bb = ByteBuffer.allocate(1 << 16);
+        for (int i = 0; i < vectors.length; ) {
+            int n = Math.min(bb.capacity() / 4, vectors.length - i);
+            bb.clear();
+            bb.asFloatBuffer().put(vectors, i, n);
+            out.write(bb.array(), 0, n * 4);
+            i += n;
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeInt(levels[i]);
+            writeLinks(out, links0[i]);
+            for (int l = 0; l < levels[i]; l++) {
+                writeLinks(out, upperLinks[i][l]);
+            }
+        }
+        out.flush();
+    }
+
+    private static void writeLinks(DataOutputStream out, int[] links) throws IOException {
+        out.writeInt(links[0]);
+        for (int i = 1; i <= links[0]; i++) {
+            out.writeInt(links[i]);
+        }
+    }
+
+    /**
+     * Load an index saved with {@link #save(File)}
+     */
+    public static HnswIndex load(@NonNull File file) throws IOException {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+            return load(is);
+        }
+    }
+
+    /**
+     * Load an index saved with {@link #save(OutputStream)}. The stream is not closed
+     */
+    public static HnswIndex load(@NonNull InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC)
+            throw new IOException("Not an HNSW index");
+        int version = in.readInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported HNSW index version: " + version);
+
+        int dimension = in.readInt();
+        int size = in.readInt();
+        int m = in.readInt();
+        int efConstruction = in.readInt();
+        int ef = in.readInt();
+        int entryPoint = in.readInt();
+        int maxLevel = in.readInt();
+
+        float[] vectors = new float[size * dimension];
+        byte[] buffer = new byte[1 << 16];
+        for (int i = 0; i < vectors.length; ) {
+            int n = Math.min(buffer.length / 4, vectors.length - i);
+            in.readFully(buffer, 0, n * 4);
+            ByteBuffer.wrap(buffer, 0, n * 4).asFloatBuffer().get(vectors, i, n);
+            i += n;
+        }
+
+        int[] levels = new int[size];
+        HnswIndex index = new HnswIndex(dimension, size, m, efConstruction, ef, vectors, levels);
+        for (int i = 0; i < size; i++) {
+            levels[i] = in.readInt();
+            index.links0[i] = readLinks(in, 2 * m);
+            if (levels[i] > 0) {
+                index.upperLinks[i] = new int[levels[i]][];
+                for (int l = 0; l < levels[i]; l++) {
+                    index.upperLinks[i][l] = readLinks(in, m);
+                }
+            }
+        }
+        index.entryPoint = entryPoint;
+        index.maxLevel = maxLevel;
+        return index;
+    }
+
+    private static int[] readLinks(DataInputStream in, int capacity) throws IOException {
+        int count = in.readInt();
+        if (count > capacity)
+            throw new IOException("Invalid HNSW index: " + count + " links, maximum is " + capacity);
+        int[] links = new int[capacity + 1];
+        links[0] = count;
+        for (int i = 1; i <= count; i++) {
+            links[i] = in.readInt();
+        }
+        return links;
+    }
+
+    /**
+     * Visited marks, reset in O(1) by bumping the generation
+     */
+    private static class VisitedList {
+        private final int[] marks;
+        private int generation;
+
+        private VisitedList(int size) {
+            this.marks = new int[size];
+        }
+
+        private void reset() {
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        private boolean isVisited(int i) {
+            return marks[i] == generation;
+        }
+
+        private void visit(int i) {
+            marks[i] = generation;
+        }
+    }
+
+    /**
+     * Binary min heap of (float key, int value) pairs
+     */
+    private static class FloatIntHeap {
+        private float[] keys;
+        private int[] values;
+        private int size;
+
+        private FloatIntHeap(int capacity) {
+            keys = new float[capacity];
+            values = new int[capacity];
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private float peekKey() {
+            return keys[0];
+        }
+
+        private void push(float key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key)
+                    break;
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private int pop() {
+            int top = values[0];
+            size--;
+            float key = keys[size];
+            int value = values[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size)
+                    break;
+                if (child + 1 < size && keys[child + 1] < keys[child])
+                    child++;
+                if (keys[child] >= key)
+                    break;
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.embeddings.reader.impl;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.models.embeddings.WeightLookupTable;
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * ModelUtils implementation that answers {@code wordsNearest} queries with an approximate nearest neighbour
+ * {@link HnswIndex}, instead of a full scan over the vocabulary.<br>
+ * The index is built lazily on the first query (or explicitly via {@link #getIndex()}), and can be saved next to the
+ * model with {@link #saveIndex(File)} and restored with {@link #loadIndex(File)}, to skip the build.<br>
+ * Recall vs. latency is controlled with {@link #setEf(int)}.<br>
+ * <br>
+ * PLEASE NOTE: The index is a snapshot of the vectors at build time. Rebuild it (see {@link #resetIndex()}) if the
+ * model is trained further.
+ */
+@Slf4j
+public class HnswModelUtils<T extends SequenceElement> extends BasicModelUtils<T> {
+    public static final int DEFAULT_M = 16;
+    public static final int DEFAULT_EF_CONSTRUCTION = 200;
+    public static final int DEFAULT_EF = 100;
+
+    protected final int m;
+    protected final int efConstruction;
+    protected volatile int ef;
+    protected volatile HnswIndex index;
+
+    public HnswModelUtils() {
+        this(DEFAULT_M, DEFAULT_EF_CONSTRUCTION, DEFAULT_EF);
+    }
+
+    /**
+     * @param m              Maximum number of neighbours per node, see {@link HnswIndex#build(float[], int, int, int, int, int, long)}
+     * @param efConstruction Size of the candidate list during index construction
+     * @param ef             Size of the candidate list for queries
+     */
+    public HnswModelUtils(int m, int efConstruction, int ef) {
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.ef = ef;
+    }
+
+    /**
+     * @param index Prebuilt index, for example restored with {@link HnswIndex#load(File)}
+     */
+    public HnswModelUtils(@NonNull HnswIndex index) {
+        this(index.getM(), index.getEfConstruction(), index.getEf());
+        this.index = index;
+    }
+
+    @Override
+    public void init(@NonNull WeightLookupTable<T> lookupTable) {
+        super.init(lookupTable);
+        if (index != null && !matches(index)) {
+            log.warn("HNSW index ({} x {}) does not match the lookup table ({} x {}), it will be rebuilt",
+                    index.getSize(), index.getDimension(), vocabCache.numWords(), lookupTable.layerSize());
+            index = null;
+        }
+    }
+
+    /**
+     * @param ef Size of the candidate list for queries: higher values give better recall, at the cost of latency
+     */
+    public void setEf(int ef) {
+        if (ef < 1)
+            throw new IllegalArgumentException("ef must be positive, got " + ef);
+        this.ef = ef;
+    }
+
+    /**
+     * @return The index, built on first call
+     */
+    public HnswIndex getIndex() {
+        if (index == null) {
+            synchronized (this) {
+                if (index == null) {
+                    index = buildIndex(lookupTable, m, efConstruction, ef,
+                            Runtime.getRuntime().availableProcessors());
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Drop the current index: it will be rebuilt on the next query
+     */
+    public void resetIndex() {
+        index = null;
+    }
+
+    /**
+     * Save the index (building it first if necessary)
+     */
+    public void saveIndex(@NonNull File file) throws IOException {
+        getIndex().save(file);
+    }
+
+    /**
+     * Load an index saved with {@link #saveIndex(File)}. The index must match the current lookup table
+     */
+    public void loadIndex(@NonNull File file) throws IOException {
+        HnswIndex loaded = HnswIndex.load(file);
+        if (lookupTable != null && !matches(loaded))
+            throw new IllegalStateException("HNSW index (" + loaded.getSize() + " x " + loaded.getDimension()
+                    + ") does not match the lookup table (" + vocabCache.numWords() + " x "
+                    + lookupTable.layerSize() + ")");
+        index = loaded;
+    }
+
+    protected boolean matches(HnswIndex index) {
+        return index.getSize() == vocabCache.numWords() && index.getDimension() == lookupTable.layerSize();
+    }
+
+    /**
+     * Build an index over all vectors of the given lookup table. Element ids in the index are vocabulary indices
+     */
+    public static <T extends SequenceElement> HnswIndex buildIndex(@NonNull WeightLookupTable<T> lookupTable, int m,
+                                                                    int efConstruction, int ef, int threads) {
+        VocabCache<T> vocab = lookupTable.getVocabCache();
+        int numWords = vocab.numWords();
+        int dimension = lookupTable.layerSize();
+
+        float[] vectors;
+        if (lookupTable instanceof InMemoryLookupTable
+                && ((InMemoryLookupTable<T>) lookupTable).getSyn0().rows() == numWords) {
+            //Rows of syn0 are in vocabulary index order
+            INDArray syn0 = ((InMemoryLookupTable<T>) lookupTable).getSyn0().castTo(DataType.FLOAT);
+            if (syn0.ordering() != 'c' || syn0.isView())
+                syn0 = syn0.dup('c');
+            vectors = syn0.data().asFloat();
+        } else {
+            vectors = new float[numWords * dimension];
+            for (int i = 0; i < numWords; i++) {
+                String word = vocab.wordAtIndex(i);
+                INDArray v = word == null ? null : lookupTable.vector(word);
+                if (v != null)
+                    System.arraycopy(v.toFloatVector(), 0, vectors, i * dimension, dimension);
+            }
+        }
+
+        return HnswIndex.build(vectors, dimension, m, efConstruction, ef, threads, 12345);
+    }
+
+    @Override
+    public Collection<String> wordsNearest(INDArray words, int top) {
+        words = adjustRank(words);
+        if (words.rank() == 2 && words.rows() != 1)
+            throw new IllegalStateException("Expected a single query vector, got shape " + words.shapeInfoToString());
+
+        //Ask for a few more, in case UNK/STOP are among the results
+        int k = top + 2;
+        int[] ids = getIndex().search(words.toFloatVector(), k, Math.max(ef, k));
+        List<String> result = new ArrayList<>(top);
+        for (int id : ids) {
+            String word = vocabCache.wordAtIndex(id);
+            if (word != null && !word.equals("UNK") && !word.equals("STOP")) {
+                result.add(word);
+                if (result.size() == top)
+                    break;
+            }
+        }
+        return result;
+    }
+}
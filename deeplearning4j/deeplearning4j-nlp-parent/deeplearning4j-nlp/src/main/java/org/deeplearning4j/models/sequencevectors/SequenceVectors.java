@@ -673,7 +673,7 @@ public class SequenceVectors<T extends SequenceElement> extends WordVectorsImpl<
         public Builder<T> elementsLearningAlgorithm(ElementsLearningAlgorithm<T> algorithm) {
             //allow easier to use setup of configuration by allowing null
             //values
-            if(elementsLearningAlgorithm == null)
+            if(algorithm == null)
                 return this;
             this.elementsLearningAlgorithm = algorithm;
             return this;
@@ -0,0 +1,117 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.word2vec.wordstore;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.util.HashUtil;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Count-min sketch over string tokens: fixed-size approximate frequency table.
+ *
+ * Estimates never underestimate the true count, so tokens with estimate below a threshold can be safely
+ * dropped before they are ever inserted into a vocabulary. Memory usage is width * depth ints, regardless of corpus size.
+ *
+ * This class is thread-safe, so a single sketch can be shared by all counting threads.
+ */
+public class CountMinSketch {
+    public static final int DEFAULT_WIDTH = 1 << 22;
+    public static final int DEFAULT_DEPTH = 4;
+
+    @Getter
+    private final int width;
+    @Getter
+    private final int depth;
+    private final int mask;
+    private final AtomicIntegerArray table;
+
+    public CountMinSketch() {
+        this(DEFAULT_WIDTH, DEFAULT_DEPTH);
+    }
+
+    /**
+     * @param width number of counters per row, must be power of 2
+     * @param depth number of rows, i.e. independent hash functions
+     */
+    public CountMinSketch(int width, int depth) {
+        Preconditions.checkArgument(width > 0 && Integer.bitCount(width) == 1, "Width must be positive power of 2, got %s", width);
+        Preconditions.checkArgument(depth > 0, "Depth must be positive, got %s", depth);
+        Preconditions.checkArgument((long) width * depth <= Integer.MAX_VALUE - 8, "Sketch is too large: %s x %s", width, depth);
+
+        this.width = width;
+        this.depth = depth;
+        this.mask = width - 1;
+        this.table = new AtomicIntegerArray(width * depth);
+    }
+
+    /**
+     * Increments count of specified token by 1
+     */
+    public void add(@NonNull String token) {
+        add(token, 1);
+    }
+
+    /**
+     * Increments count of specified token. Counters saturate at Integer.MAX_VALUE
+     */
+    public void add(@NonNull String token, int count) {
+        long hash = HashUtil.getLongHash(token);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < depth; row++)
+            increment(row * width + ((h1 + row * h2) & mask), count);
+    }
+
+    /**
+     * Returns estimated count of specified token. Estimate is never lower than the true count
+     */
+    public int estimate(@NonNull String token) {
+        long hash = HashUtil.getLongHash(token);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int result = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++)
+            result = Math.min(result, table.get(row * width + ((h1 + row * h2) & mask)));
+        return result;
+    }
+
+    /**
+     * Adds counts of other sketch to this one. Both sketches must have the same dimensions
+     */
+    public void merge(@NonNull CountMinSketch other) {
+        Preconditions.checkArgument(other.width == width && other.depth == depth,
+                "Can't merge sketches of different shapes: [%s x %s] vs [%s x %s]", width, depth, other.width, other.depth);
+        for (int i = 0; i < table.length(); i++)
+            increment(i, other.table.get(i));
+    }
+
+    private void increment(int cell, int count) {
+        int current;
+        int updated;
+        do {
+            current = table.get(cell);
+            updated = (int) Math.min(Integer.MAX_VALUE, (long) current + count);
+        } while (current != updated && !table.compareAndSet(cell, current, updated));
+    }
+}
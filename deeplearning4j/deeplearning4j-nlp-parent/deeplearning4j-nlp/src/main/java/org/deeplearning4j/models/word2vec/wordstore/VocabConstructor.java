@@ -30,6 +30,7 @@ import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
 import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
 import org.deeplearning4j.models.word2vec.Huffman;
 import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.CompactVocabCache;
 import org.deeplearning4j.text.invertedindex.InvertedIndex;
 import org.nd4j.common.util.ThreadUtils;
 import org.slf4j.Logger;
@@ -40,6 +41,7 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class VocabConstructor<T extends SequenceElement> {
     private List<VocabSource<T>> sources = new ArrayList<>();
@@ -54,6 +56,10 @@ public class VocabConstructor<T extends SequenceElement> {
     private T unk;
     private boolean allowParallelBuilder = true;
     private boolean lockf = false;
+    private int numShards = 0;
+    private boolean countMinPrePruning = false;
+    private int countMinWidth = CountMinSketch.DEFAULT_WIDTH;
+    private int countMinDepth = CountMinSketch.DEFAULT_DEPTH;
 
     protected static final Logger log = LoggerFactory.getLogger(VocabConstructor.class);
 
@@ -190,13 +196,25 @@ public class VocabConstructor<T extends SequenceElement> {
         return result;
     }
 
-    public void processDocument(AbstractCache<T> targetVocab, Sequence<T> document,
+    public void processDocument(VocabCache<T> targetVocab, Sequence<T> document,
                                 AtomicLong finalCounter, AtomicLong loopCounter) {
+        processDocument(targetVocab, document, finalCounter, loopCounter, null, 0, -1);
+    }
+
+    /**
+     * Counts elements of the document into targetVocab.
+     * If sketch is provided, elements with estimated frequency below minWordFrequency are skipped without being inserted.
+     * If shard is not negative, only elements routed to that shard by {@link #shardOf(String)} are counted.
+     */
+    protected void processDocument(VocabCache<T> targetVocab, Sequence<T> document, AtomicLong finalCounter,
+                                   AtomicLong loopCounter, CountMinSketch sketch, int minWordFrequency, int shard) {
         try {
             Map<String, AtomicLong> seqMap = new HashMap<>();
 
             if (fetchLabels && document.getSequenceLabels() != null) {
                 for (T labelWord : document.getSequenceLabels()) {
+                    if (shard >= 0 && shardOf(labelWord.getLabel()) != shard)
+                        continue;
                     if (!targetVocab.hasToken(labelWord.getLabel())) {
                         labelWord.setSpecial(true);
                         labelWord.markAsLabel(true);
@@ -213,6 +231,10 @@ public class VocabConstructor<T extends SequenceElement> {
                     continue;
                 if (token == null || token.isEmpty())
                     continue;
+                if (shard >= 0 && shardOf(token) != shard)
+                    continue;
+                if (sketch != null && sketch.estimate(token) < minWordFrequency)
+                    continue;
 
                 if (!targetVocab.containsWord(token)) {
                     T element = document.getElementByLabel(token);
@@ -271,7 +293,7 @@ public class VocabConstructor<T extends SequenceElement> {
         log.debug("Target vocab size before building: [" + cache.numWords() + "]");
         final AtomicLong loopCounter = new AtomicLong(0);
 
-        AbstractCache<T> topHolder = new AbstractCache.Builder<T>().minElementFrequency(0).build();
+        VocabCache<T> topHolder = newHolder();
 
         int cnt = 0;
         int numProc = Runtime.getRuntime().availableProcessors();
@@ -288,71 +310,75 @@ public class VocabConstructor<T extends SequenceElement> {
             log.debug("Target vocab size before building: [" + cache.numWords() + "]");
             cnt++;
 
-            AbstractCache<T> tempHolder = new AbstractCache.Builder<T>().build();
+            VocabCache<T> tempHolder = newHolder();
 
-            int sequences = 0;
-            while (iterator.hasMoreSequences()) {
-                Sequence<T> document = iterator.nextSequence();
+            if (numShards > 0) {
+                countSharded(iterator, source.getMinWordFrequency(), tempHolder, parsedCount);
+            } else {
+                int sequences = 0;
+                while (iterator.hasMoreSequences()) {
+                    Sequence<T> document = iterator.nextSequence();
 
-                seqCount.incrementAndGet();
-                parsedCount.addAndGet(document.size());
-                tempHolder.incrementTotalDocCount();
-                execCounter.incrementAndGet();
+                    seqCount.incrementAndGet();
+                    parsedCount.addAndGet(document.size());
+                    tempHolder.incrementTotalDocCount();
+                    execCounter.incrementAndGet();
 
-                if (allowParallelBuilder) {
-                    executorService.execute(new VocabRunnable(tempHolder, document, finCounter, loopCounter));
-                    // as we see in profiler, this lock isn't really happen too often
-                    // we don't want too much left in tail
+                    if (allowParallelBuilder) {
+                        executorService.execute(new VocabRunnable(tempHolder, document, finCounter, loopCounter));
+                        // as we see in profiler, this lock isn't really happen too often
+                        // we don't want too much left in tail
 
-                    while (execCounter.get() - finCounter.get() > numProc) {
-                        ThreadUtils.uncheckedSleep(1);
+                        while (execCounter.get() - finCounter.get() > numProc) {
+                            ThreadUtils.uncheckedSleep(1);
+                        }
+                    }
+                    else  {
+                        processDocument(tempHolder, document, finCounter, loopCounter);
                     }
-                }
-                else  {
-                    processDocument(tempHolder, document, finCounter, loopCounter);
-                }
 
-                sequences++;
-                if (seqCount.get() % 100000 == 0) {
-                    long currentTime = System.currentTimeMillis();
-                    long currentSequences = seqCount.get();
-                    long currentElements = parsedCount.get();
+                    sequences++;
+                    if (seqCount.get() % 100000 == 0) {
+                        long currentTime = System.currentTimeMillis();
+                        long currentSequences = seqCount.get();
+                        long currentElements = parsedCount.get();
 
-                    double seconds = (currentTime - lastTime) / (double) 1000;
+                        double seconds = (currentTime - lastTime) / (double) 1000;
 
 
-                    double seqPerSec = (currentSequences - lastSequences) / seconds;
-                    double elPerSec = (currentElements - lastElements) / seconds;
-                    //                    log.info("Document time: {} us; hasNext time: {} us", timesNext.get(timesNext.size() / 2), timesHasNext.get(timesHasNext.size() / 2));
-                    log.info("Sequences checked: [{}]; Current vocabulary size: [{}]; Sequences/sec: {}; Words/sec: {};",
-                                    seqCount.get(), tempHolder.numWords(), String.format("%.2f", seqPerSec),
-                                    String.format("%.2f", elPerSec));
-                    lastTime = currentTime;
-                    lastElements = currentElements;
-                    lastSequences = currentSequences;
+                        double seqPerSec = (currentSequences - lastSequences) / seconds;
+                        double elPerSec = (currentElements - lastElements) / seconds;
+                        //                    log.info("Document time: {} us; hasNext time: {} us", timesNext.get(timesNext.size() / 2), timesHasNext.get(timesHasNext.size() / 2));
+                        log.info("Sequences checked: [{}]; Current vocabulary size: [{}]; Sequences/sec: {}; Words/sec: {};",
+                                        seqCount.get(), tempHolder.numWords(), String.format("%.2f", seqPerSec),
+                                        String.format("%.2f", elPerSec));
+                        lastTime = currentTime;
+                        lastElements = currentElements;
+                        lastSequences = currentSequences;
 
 
-                }
+                    }
+
+                    /**
+                     * Firing scavenger loop
+                     */
+                    if (enableScavenger && loopCounter.get() >= 2000000 && tempHolder.numWords() > 10000000) {
+                        log.info("Starting scavenger...");
+                        while (execCounter.get() != finCounter.get()) {
+                            ThreadUtils.uncheckedSleep(1);
+                        }
 
-                /**
-                 * Firing scavenger loop
-                 */
-                if (enableScavenger && loopCounter.get() >= 2000000 && tempHolder.numWords() > 10000000) {
-                    log.info("Starting scavenger...");
-                    while (execCounter.get() != finCounter.get()) {
-                        ThreadUtils.uncheckedSleep(1);
+                        filterVocab(tempHolder, Math.max(1, source.getMinWordFrequency() / 2));
+                        loopCounter.set(0);
                     }
 
-                    filterVocab(tempHolder, Math.max(1, source.getMinWordFrequency() / 2));
-                    loopCounter.set(0);
                 }
 
-            }
-
-            // block untill all threads are finished
-            log.debug("Waiting till all processes stop...");
-            while (execCounter.get() != finCounter.get()) {
-                ThreadUtils.uncheckedSleep(1);
+                // block untill all threads are finished
+                log.debug("Waiting till all processes stop...");
+                while (execCounter.get() != finCounter.get()) {
+                    ThreadUtils.uncheckedSleep(1);
+                }
             }
 
 
@@ -404,6 +430,8 @@ public class VocabConstructor<T extends SequenceElement> {
                     if (element.getIndex() > limit && !element.isSpecial() && !element.isLabel())
                         cache.removeElement(element.getLabel());
                 }
+                words.clear();
+                compact(cache);
             }
             // and now we're building Huffman tree
             val huffman = new Huffman(cache.vocabWords());
@@ -424,7 +452,186 @@ public class VocabConstructor<T extends SequenceElement> {
         return cache;
     }
 
-    protected void filterVocab(AbstractCache<T> cache, int minWordFrequency) {
+    /**
+     * Counts all sequences of the iterator using numShards threads. Every sequence is read by all threads, and
+     * elements are routed to threads by label hash, so each thread counts a disjoint part of the vocabulary into its
+     * own shard, without contention on a shared vocabulary and without holding copies of the same element.
+     * Shards are filtered by minWordFrequency and merged into targetVocab one by one at the end.
+     *
+     * If count-min pre-pruning is enabled and minWordFrequency > 1, iterator is scanned twice: first pass fills
+     * a fixed-size CountMinSketch, and second pass never inserts elements whose estimated frequency is below
+     * minWordFrequency. Since sketch never underestimates, counts of remaining elements are exact.
+     */
+    protected void countSharded(SequenceIterator<T> iterator, int minWordFrequency, VocabCache<T> targetVocab,
+                                AtomicLong parsedCount) {
+        final AtomicLong finCounter = new AtomicLong(0);
+        final AtomicLong loopCounter = new AtomicLong(0);
+
+        CountMinSketch sketch = null;
+        if (countMinPrePruning && minWordFrequency > 1) {
+            final CountMinSketch prePass = new CountMinSketch(countMinWidth, countMinDepth);
+            List<ShardWorker> workers = new ArrayList<>();
+            for (int i = 0; i < numShards; i++) {
+                final int shard = i;
+                workers.add(new ShardWorker() {
+                    @Override
+                    protected void process(Sequence<T> document) {
+                        for (String token : document.asLabels()) {
+                            if (token == null || token.isEmpty() || (stopWords != null && stopWords.contains(token)))
+                                continue;
+                            if (shardOf(token) == shard)
+                                prePass.add(token);
+                        }
+                    }
+                });
+            }
+
+            long sequences = runShards(iterator, workers, null, null);
+            log.info("Count-min pre-pass finished: [{}] sequences scanned", sequences);
+
+            iterator.reset();
+            sketch = prePass;
+        }
+
+        final CountMinSketch filter = sketch;
+        List<VocabCache<T>> shards = new ArrayList<>();
+        List<ShardWorker> workers = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            final int shard = i;
+            final VocabCache<T> holder = newHolder();
+            shards.add(holder);
+            workers.add(new ShardWorker() {
+                @Override
+                protected void process(Sequence<T> document) {
+                    processDocument(holder, document, finCounter, loopCounter, filter, minWordFrequency, shard);
+                }
+            });
+        }
+
+        runShards(iterator, workers, targetVocab, parsedCount);
+
+        // shards are disjoint, so counts are final, and each shard can be filtered before it's merged
+        for (int i = 0; i < shards.size(); i++) {
+            if (minWordFrequency > 0)
+                filterVocab(shards.get(i), minWordFrequency);
+            targetVocab.importVocabulary(shards.get(i));
+            shards.set(i, null);
+        }
+
+        log.debug("Shards merged: [{}] shards, [{}] elements", numShards, targetVocab.numWords());
+    }
+
+    /**
+     * Returns index of the shard counting specified element
+     */
+    protected int shardOf(String label) {
+        // String caches its hash code, so routing costs each shard just a few operations per token
+        int hash = label.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), numShards);
+    }
+
+    /**
+     * Feeds all sequences of the iterator to every worker, and blocks until all of them are processed
+     *
+     * @return number of sequences read
+     */
+    private long runShards(SequenceIterator<T> iterator, List<ShardWorker> workers, VocabCache<T> docCounter,
+                           AtomicLong parsedCount) {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Sequence<T> terminator = new Sequence<>();
+
+        List<BlockingQueue<Sequence<T>>> queues = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < workers.size(); i++) {
+            final ShardWorker worker = workers.get(i);
+            final BlockingQueue<Sequence<T>> queue = new ArrayBlockingQueue<>(64);
+            queues.add(queue);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            Sequence<T> document = queue.take();
+                            if (document == terminator)
+                                break;
+                            worker.process(document);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            }, "VocabConstructor shard " + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        long sequences = 0;
+        try {
+            while (iterator.hasMoreSequences() && failure.get() == null) {
+                Sequence<T> document = iterator.nextSequence();
+                if (docCounter != null) {
+                    seqCount.incrementAndGet();
+                    parsedCount.addAndGet(document.size());
+                    docCounter.incrementTotalDocCount();
+                }
+
+                for (BlockingQueue<Sequence<T>> queue : queues) {
+                    while (!queue.offer(document, 100, TimeUnit.MILLISECONDS)) {
+                        if (failure.get() != null)
+                            break;
+                    }
+                }
+
+                if (++sequences % 100000 == 0)
+                    log.info("Sequences checked: [{}]; Sharded counting in progress...", sequences);
+            }
+
+            for (BlockingQueue<Sequence<T>> queue : queues) {
+                while (!queue.offer(terminator, 100, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null)
+                        break;
+                }
+            }
+
+            for (Thread thread : threads) {
+                while (thread.isAlive() && failure.get() == null)
+                    thread.join(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        if (failure.get() != null) {
+            for (Thread thread : threads)
+                thread.interrupt();
+            throw new RuntimeException("Sharded vocabulary construction failed", failure.get());
+        }
+
+        return sequences;
+    }
+
+    /**
+     * Creates a vocabulary to count elements into, of the same kind as the target vocabulary: counting into a
+     * {@link CompactVocabCache} keeps the memory footprint of the counts as low as the one of the target
+     */
+    @SuppressWarnings("unchecked") // target is a CompactVocabCache only if T is VocabWord
+    protected VocabCache<T> newHolder() {
+        if (cache instanceof CompactVocabCache)
+            return (VocabCache<T>) (VocabCache<?>) new CompactVocabCache();
+        return new AbstractCache.Builder<T>().minElementFrequency(0).build();
+    }
+
+    /**
+     * Releases the memory of removed elements, for vocabularies that keep it until compaction
+     */
+    protected void compact(VocabCache<T> vocab) {
+        if (vocab instanceof CompactVocabCache)
+            ((CompactVocabCache) vocab).compact();
+    }
+
+    protected void filterVocab(VocabCache<T> cache, int minWordFrequency) {
         int numWords = cache.numWords();
         LinkedBlockingQueue<String> labelsToRemove = new LinkedBlockingQueue<>();
         for (T element : cache.vocabWords()) {
@@ -435,6 +642,7 @@ public class VocabConstructor<T extends SequenceElement> {
         for (String label : labelsToRemove) {
             cache.removeElement(label);
         }
+        compact(cache);
 
         log.debug("Scavenger: Words before: {}; Words after: {};", numWords, cache.numWords());
     }
@@ -451,6 +659,10 @@ public class VocabConstructor<T extends SequenceElement> {
         private T unk;
         private boolean allowParallelBuilder = true;
         private boolean lockf = false;
+        private int numShards = 0;
+        private boolean countMinPrePruning = false;
+        private int countMinWidth = CountMinSketch.DEFAULT_WIDTH;
+        private int countMinDepth = CountMinSketch.DEFAULT_DEPTH;
 
         public Builder() {
 
@@ -475,6 +687,53 @@ public class VocabConstructor<T extends SequenceElement> {
             return this;
         }
 
+        /**
+         * This method enables sharded counting: each of numShards threads reads every sequence, but counts only elements
+         * routed to it by label hash into its own vocabulary shard. Shards hold disjoint elements, so there's no
+         * contention on a single shared vocabulary, and counting takes about as much memory as unsharded counting.
+         * Shards are merged once source is exhausted.
+         *
+         * PLEASE NOTE: scavenger isn't used with sharded counting, use {@link #enableCountMinPrePruning(boolean)} instead.
+         *
+         * @param numShards number of counting threads, 0 disables sharded counting
+         * @return
+         */
+        public Builder<T> useShardedCounting(int numShards) {
+            if (numShards < 0)
+                throw new IllegalArgumentException("Number of shards can't be negative, got " + numShards);
+            this.numShards = numShards;
+            return this;
+        }
+
+        /**
+         * This method enables count-min sketch pre-pass for sources with minElementFrequency > 1: each source is scanned
+         * twice, and elements with estimated frequency below minElementFrequency are never inserted into vocabulary.
+         * This keeps memory used for vocabulary construction at the sketch size plus the memory of elements that pass
+         * the sketch: all frequent elements, and infrequent ones whose estimate is inflated by hash collisions.
+         *
+         * Implies sharded counting, with one shard per available processor, unless number of shards was set explicitly.
+         *
+         * @param reallyEnable
+         * @return
+         */
+        public Builder<T> enableCountMinPrePruning(boolean reallyEnable) {
+            this.countMinPrePruning = reallyEnable;
+            return this;
+        }
+
+        /**
+         * Sets dimensions of count-min sketch used for pre-pruning. Larger width gives lower overestimation of counts.
+         *
+         * @param width counters per row, must be power of 2
+         * @param depth number of rows
+         * @return
+         */
+        public Builder<T> setCountMinSketchSize(int width, int depth) {
+            this.countMinWidth = width;
+            this.countMinDepth = depth;
+            return this;
+        }
+
         /**
          * Defines, if adaptive gradients should be created during vocabulary mastering
          *
@@ -571,6 +830,11 @@ public class VocabConstructor<T extends SequenceElement> {
             constructor.unk = this.unk;
             constructor.allowParallelBuilder = this.allowParallelBuilder;
             constructor.lockf = this.lockf;
+            constructor.numShards = this.numShards > 0 || !this.countMinPrePruning ? this.numShards
+                            : Runtime.getRuntime().availableProcessors();
+            constructor.countMinPrePruning = this.countMinPrePruning;
+            constructor.countMinWidth = this.countMinWidth;
+            constructor.countMinDepth = this.countMinDepth;
 
             return constructor;
         }
@@ -590,14 +854,19 @@ public class VocabConstructor<T extends SequenceElement> {
     }
 
 
+    protected abstract class ShardWorker {
+        protected abstract void process(Sequence<T> document);
+    }
+
+
     protected class VocabRunnable implements Runnable {
         private final AtomicLong finalCounter;
         private final Sequence<T> document;
-        private final AbstractCache<T> targetVocab;
+        private final VocabCache<T> targetVocab;
         private final AtomicLong loopCounter;
         private AtomicBoolean done = new AtomicBoolean(false);
 
-        public VocabRunnable(@NonNull AbstractCache<T> targetVocab, @NonNull Sequence<T> sequence,
+        public VocabRunnable(@NonNull VocabCache<T> targetVocab, @NonNull Sequence<T> sequence,
                         @NonNull AtomicLong finalCounter, @NonNull AtomicLong loopCounter) {
             this.finalCounter = finalCounter;
             this.document = sequence;
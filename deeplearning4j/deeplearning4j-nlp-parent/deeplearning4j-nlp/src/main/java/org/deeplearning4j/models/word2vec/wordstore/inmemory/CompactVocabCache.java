@@ -0,0 +1,1484 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.word2vec.wordstore.inmemory;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.models.sequencevectors.sequence.SequenceElement;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * {@link VocabCache} implementation for very large vocabularies. Instead of keeping one {@link VocabWord}
+ * object (plus its counters and code lists) per element in several hash maps, like {@link AbstractCache} does,
+ * this cache stores everything in primitive arrays:
+ * <ul>
+ *     <li>labels are kept in a single UTF-8 string pool</li>
+ *     <li>label and storage id lookups go through open-addressing hash tables of slot numbers</li>
+ *     <li>frequencies, sequence counts, Huffman indexes, codes and points are parallel arrays indexed by slot</li>
+ * </ul>
+ *
+ * Elements returned by this cache are lightweight views over those arrays, created on demand and not retained.
+ * Changes made through them (frequencies, Huffman codes/points, indexes, flags) are written through to the cache,
+ * so the cache can be used wherever {@link AbstractCache} is used, i.e. with {@code VocabConstructor} and {@code Huffman}.
+ *
+ * Removing an element only marks its slot as removed: call {@link #compact()} after removing many elements (for
+ * example, after truncating the vocabulary) to release the memory of removed slots.
+ *
+ * Please note: Huffman codes are packed into a single long per element, so code length is limited to 64.
+ */
+@Slf4j
+public class CompactVocabCache implements VocabCache<VocabWord> {
+    public static final int MAX_CODE_LENGTH = 64;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    // hash table cells hold slot + 1, so 0 is always an empty cell
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+
+    private static final byte SPECIAL = 1;
+    private static final byte LABEL = 1 << 1;
+    private static final byte LOCKED = 1 << 2;
+    private static final byte INIT = 1 << 3;
+    private static final byte REMOVED = 1 << 4;
+
+    private final StampedLock lock = new StampedLock();
+
+    private byte[] pool;
+    private int poolSize;
+
+    private int[] labelOffsets;
+    private int[] labelLengths;
+    private int[] labelHashes;
+    private long[] storageIds;
+    private double[] frequencies;
+    private long[] sequenceCounts;
+    private int[] indices;
+    private long[] packedCodes;
+    private byte[] numCodes;
+    private short[] codeLengths;
+    private int[][] pointArrays;
+    private byte[] flags;
+
+    private int numSlots;
+    private int numWords;
+
+    private int[] labelTable;
+    private int[] idTable;
+    private int tableFill;
+
+    private int[] indexTable = new int[0];
+
+    private final AtomicLong documentsCounter = new AtomicLong(0);
+    private final AtomicLong totalWordCount = new AtomicLong(0);
+
+    public CompactVocabCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize expected number of elements, used to presize arrays and hash tables
+     */
+    public CompactVocabCache(int expectedSize) {
+        if (expectedSize < 1)
+            throw new IllegalArgumentException("Expected size must be positive, got " + expectedSize);
+
+        pool = new byte[(int) Math.min(MAX_ARRAY_SIZE, expectedSize * 8L)];
+        labelOffsets = new int[expectedSize];
+        labelLengths = new int[expectedSize];
+        labelHashes = new int[expectedSize];
+        storageIds = new long[expectedSize];
+        frequencies = new double[expectedSize];
+        sequenceCounts = new long[expectedSize];
+        indices = new int[expectedSize];
+        packedCodes = new long[expectedSize];
+        numCodes = new byte[expectedSize];
+        codeLengths = new short[expectedSize];
+        pointArrays = new int[expectedSize][];
+        flags = new byte[expectedSize];
+
+        labelTable = new int[tableCapacity(expectedSize)];
+        idTable = new int[labelTable.length];
+    }
+
+    @Override
+    public void loadVocab() {
+        // nothing to do here, same as AbstractCache
+    }
+
+    @Override
+    public boolean vocabExists() {
+        return numWords() > 0;
+    }
+
+    @Override
+    public void saveVocab() {
+        // nothing to do here, same as AbstractCache
+    }
+
+    /**
+     * Returns collection of labels available in this vocabulary. Labels are decoded from the string pool on iteration.
+     *
+     * @return
+     */
+    @Override
+    public Collection<String> words() {
+        return new AbstractCollection<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                final Iterator<VocabWord> iterator = new ElementIterator(false);
+                return new Iterator<String>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return iterator.next().getLabel();
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && containsWord((String) o);
+            }
+
+            @Override
+            public int size() {
+                return numWords();
+            }
+        };
+    }
+
+    @Override
+    public void incrementWordCount(String word) {
+        incrementWordCount(word, 1);
+    }
+
+    @Override
+    public void incrementWordCount(String word, int increment) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = findLabel(word);
+            if (slot >= 0) {
+                frequencies[slot] += increment;
+                totalWordCount.addAndGet(increment);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int wordFrequency(@NonNull String word) {
+        long stamp = lock.readLock();
+        try {
+            int slot = findLabel(word);
+            return slot >= 0 ? (int) frequencies[slot] : 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean containsWord(String word) {
+        return word != null && slotFor(word) >= 0;
+    }
+
+    @Override
+    public String wordAtIndex(int index) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slotAtIndex(index);
+            return slot >= 0 ? label(slot) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public VocabWord elementAtIndex(int index) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slotAtIndex(index);
+            return slot >= 0 ? new CompactWord(slot, label(slot)) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns Huffman index for specified label
+     *
+     * @param label the label to get index for
+     * @return >=0 if label exists, -1 if Huffman tree wasn't built yet, -2 if specified label wasn't found
+     */
+    @Override
+    public int indexOf(String label) {
+        long stamp = lock.readLock();
+        try {
+            int slot = findLabel(label);
+            return slot >= 0 ? indices[slot] : -2;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns a live view of the elements stored in this vocabulary. Iteration creates a new element view per slot,
+     * and {@link Iterator#remove()} removes the element from the vocabulary.
+     *
+     * @return
+     */
+    @Override
+    public Collection<VocabWord> vocabWords() {
+        return new AbstractCollection<VocabWord>() {
+            @Override
+            public Iterator<VocabWord> iterator() {
+                return new ElementIterator(true);
+            }
+
+            @Override
+            public int size() {
+                return numWords();
+            }
+        };
+    }
+
+    @Override
+    public long totalWordOccurrences() {
+        return totalWordCount.get();
+    }
+
+    public void setTotalWordOccurences(long value) {
+        totalWordCount.set(value);
+    }
+
+    @Override
+    public VocabWord wordFor(@NonNull String label) {
+        long stamp = lock.readLock();
+        try {
+            int slot = findLabel(label);
+            return slot >= 0 ? new CompactWord(slot, label) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public VocabWord wordFor(long id) {
+        long stamp = lock.readLock();
+        try {
+            int slot = findId(id);
+            return slot >= 0 ? new CompactWord(slot, label(slot)) : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void addWordToIndex(int index, String label) {
+        if (index < 0)
+            return;
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = findLabel(label);
+            if (slot >= 0) {
+                putIndex(index, slot);
+                indices[slot] = index;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void addWordToIndex(int index, long elementId) {
+        if (index < 0)
+            return;
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = findId(elementId);
+            if (slot >= 0)
+                putIndex(index, slot);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void putVocabWord(String word) {
+        if (!containsWord(word))
+            throw new IllegalStateException("Specified label is not present in vocabulary");
+    }
+
+    @Override
+    public int numWords() {
+        long stamp = lock.tryOptimisticRead();
+        int result = numWords;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = numWords;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int docAppearedIn(String word) {
+        long stamp = lock.readLock();
+        try {
+            int slot = findLabel(word);
+            return slot >= 0 ? (int) sequenceCounts[slot] : -1;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void incrementDocCount(String word, long howMuch) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = findLabel(word);
+            if (slot >= 0)
+                sequenceCounts[slot]++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void setCountForDoc(String word, long count) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = findLabel(word);
+            if (slot >= 0)
+                sequenceCounts[slot] = count;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long totalNumberOfDocs() {
+        return documentsCounter.get();
+    }
+
+    @Override
+    public void incrementTotalDocCount() {
+        documentsCounter.incrementAndGet();
+    }
+
+    @Override
+    public void incrementTotalDocCount(long by) {
+        documentsCounter.addAndGet(by);
+    }
+
+    public void setTotalDocCount(long by) {
+        documentsCounter.set(by);
+    }
+
+    @Override
+    public Collection<VocabWord> tokens() {
+        return vocabWords();
+    }
+
+    /**
+     * This method adds specified element to vocabulary. Element state is copied into the cache, so the element
+     * itself isn't retained. If an element with the same storage id already exists, its counters are merged,
+     * exactly as {@link AbstractCache#addToken(SequenceElement)} does.
+     *
+     * @param element the word to add
+     * @return true if element was added, false if it was merged into existing one
+     */
+    @Override
+    public boolean addToken(@NonNull VocabWord element) {
+        // all reads from the element happen before locking: it might be a view over this very cache
+        ElementState state = new ElementState(element);
+
+        long stamp = lock.writeLock();
+        try {
+            int slot = findId(state.storageId);
+            boolean added = slot < 0;
+            if (added) {
+                slot = insert(state);
+            } else {
+                sequenceCounts[slot] += state.sequencesCount;
+                frequencies[slot] += (int) state.frequency;
+            }
+            totalWordCount.addAndGet((long) frequencies[slot]);
+            return added;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public VocabWord tokenFor(String label) {
+        return wordFor(label);
+    }
+
+    @Override
+    public VocabWord tokenFor(long id) {
+        return wordFor(id);
+    }
+
+    @Override
+    public boolean hasToken(String label) {
+        return containsWord(label);
+    }
+
+    @Override
+    public void importVocabulary(@NonNull VocabCache<VocabWord> vocabCache) {
+        boolean added = false;
+        for (VocabWord element : vocabCache.vocabWords()) {
+            if (this.addToken(element))
+                added = true;
+        }
+
+        if (added)
+            this.documentsCounter.addAndGet(vocabCache.totalNumberOfDocs());
+    }
+
+    @Override
+    public void updateWordsOccurrences() {
+        long stamp = lock.readLock();
+        try {
+            long total = 0;
+            for (int slot = 0; slot < numSlots; slot++) {
+                long value = (long) frequencies[slot];
+                if ((flags[slot] & REMOVED) == 0 && value > 0)
+                    total += value;
+            }
+            totalWordCount.set(total);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        log.info("Updated counter: [" + totalWordCount.get() + "]");
+    }
+
+    @Override
+    public void removeElement(String label) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = label == null ? -1 : findLabel(label);
+            if (slot < 0)
+                throw new IllegalStateException("Can't get label: '" + label + "'");
+            remove(slot);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void removeElement(VocabWord element) {
+        removeElement(element.getLabel());
+    }
+
+    /**
+     * Releases the memory of removed elements: remaining elements are moved to consecutive slots (keeping their order),
+     * and the string pool, per-element arrays and hash tables are rebuilt with just enough room for them.
+     *
+     * PLEASE NOTE: elements and iterators obtained from this cache before compaction refer to slots, and become invalid.
+     * They must not be used after this call, nor while it runs.
+     */
+    public void compact() {
+        long stamp = lock.writeLock();
+        try {
+            if (numWords == numSlots && storageIds.length == numSlots && pool.length == poolSize)
+                return;
+
+            int capacity = numWords;
+            int[] newSlots = new int[numSlots];
+            int newPoolSize = 0;
+            for (int slot = 0; slot < numSlots; slot++) {
+                if ((flags[slot] & REMOVED) == 0)
+                    newPoolSize += labelLengths[slot];
+            }
+
+            byte[] newPool = new byte[newPoolSize];
+            int[] newLabelOffsets = new int[capacity];
+            int[] newLabelLengths = new int[capacity];
+            int[] newLabelHashes = new int[capacity];
+            long[] newStorageIds = new long[capacity];
+            double[] newFrequencies = new double[capacity];
+            long[] newSequenceCounts = new long[capacity];
+            int[] newIndices = new int[capacity];
+            long[] newPackedCodes = new long[capacity];
+            byte[] newNumCodes = new byte[capacity];
+            short[] newCodeLengths = new short[capacity];
+            int[][] newPointArrays = new int[capacity][];
+            byte[] newFlags = new byte[capacity];
+
+            int next = 0;
+            int offset = 0;
+            for (int slot = 0; slot < numSlots; slot++) {
+                if ((flags[slot] & REMOVED) != 0) {
+                    newSlots[slot] = -1;
+                    continue;
+                }
+                System.arraycopy(pool, labelOffsets[slot], newPool, offset, labelLengths[slot]);
+                newLabelOffsets[next] = offset;
+                newLabelLengths[next] = labelLengths[slot];
+                offset += labelLengths[slot];
+
+                newLabelHashes[next] = labelHashes[slot];
+                newStorageIds[next] = storageIds[slot];
+                newFrequencies[next] = frequencies[slot];
+                newSequenceCounts[next] = sequenceCounts[slot];
+                newIndices[next] = indices[slot];
+                newPackedCodes[next] = packedCodes[slot];
+                newNumCodes[next] = numCodes[slot];
+                newCodeLengths[next] = codeLengths[slot];
+                newPointArrays[next] = pointArrays[slot];
+                newFlags[next] = flags[slot];
+                newSlots[slot] = next++;
+            }
+
+            // cells still pointing to removed slots become EMPTY
+            int maxIndex = -1;
+            for (int index = 0; index < indexTable.length; index++) {
+                if (indexTable[index] != EMPTY) {
+                    indexTable[index] = newSlots[indexTable[index] - 1] + 1;
+                    maxIndex = index;
+                }
+            }
+            indexTable = Arrays.copyOf(indexTable, maxIndex + 1);
+
+            pool = newPool;
+            poolSize = newPoolSize;
+            labelOffsets = newLabelOffsets;
+            labelLengths = newLabelLengths;
+            labelHashes = newLabelHashes;
+            storageIds = newStorageIds;
+            frequencies = newFrequencies;
+            sequenceCounts = newSequenceCounts;
+            indices = newIndices;
+            packedCodes = newPackedCodes;
+            numCodes = newNumCodes;
+            codeLengths = newCodeLengths;
+            pointArrays = newPointArrays;
+            flags = newFlags;
+            numSlots = numWords;
+
+            // rebuilds both tables without DELETED cells
+            rehash(numWords);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns approximate number of bytes retained by this cache: arrays, string pool and hash tables.
+     *
+     * @return
+     */
+    public long memoryUsage() {
+        long stamp = lock.readLock();
+        try {
+            int capacity = storageIds.length;
+            long bytes = pool.length;
+            // 12 parallel arrays, counting points references as compressed oops
+            bytes += (long) capacity * (4 + 4 + 4 + 8 + 8 + 8 + 4 + 8 + 1 + 2 + 4 + 1);
+            bytes += (long) (labelTable.length + idTable.length + indexTable.length) * 4;
+            for (int slot = 0; slot < numSlots; slot++) {
+                if (pointArrays[slot] != null)
+                    bytes += 16 + (long) pointArrays[slot].length * 4;
+            }
+            return bytes;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompactVocabCache{" + "numWords=" + numWords() + ", documentsCounter=" + documentsCounter.get()
+                        + ", totalWordCount=" + totalWordCount.get() + '}';
+    }
+
+    private int slotFor(String label) {
+        long stamp = lock.readLock();
+        try {
+            return findLabel(label);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /*
+        Everything below expects the lock to be held by the caller
+     */
+
+    private int findLabel(String label) {
+        if (label == null)
+            return -1;
+
+        int hash = label.hashCode();
+        int mask = labelTable.length - 1;
+        int pos = mix(hash) & mask;
+        while (true) {
+            int cell = labelTable[pos];
+            if (cell == EMPTY)
+                return -1;
+            if (cell != DELETED) {
+                int slot = cell - 1;
+                if (labelHashes[slot] == hash && labelEquals(slot, label))
+                    return slot;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    private int findId(long id) {
+        int mask = idTable.length - 1;
+        int pos = mix(Long.hashCode(id)) & mask;
+        while (true) {
+            int cell = idTable[pos];
+            if (cell == EMPTY)
+                return -1;
+            if (cell != DELETED && storageIds[cell - 1] == id)
+                return cell - 1;
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    private boolean labelEquals(int slot, String label) {
+        int offset = labelOffsets[slot];
+        int length = labelLengths[slot];
+        int chars = label.length();
+        // UTF-8 never uses fewer bytes than chars, so we can compare ASCII in place
+        if (length < chars)
+            return false;
+
+        for (int i = 0; i < chars; i++) {
+            char c = label.charAt(i);
+            if (c >= 0x80) {
+                byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+                return Arrays.equals(pool, offset, offset + length, bytes, 0, bytes.length);
+            }
+            if (pool[offset + i] != c)
+                return false;
+        }
+        return length == chars;
+    }
+
+    private String label(int slot) {
+        return new String(pool, labelOffsets[slot], labelLengths[slot], StandardCharsets.UTF_8);
+    }
+
+    private int slotAtIndex(int index) {
+        if (index < 0 || index >= indexTable.length)
+            return -1;
+        return indexTable[index] - 1;
+    }
+
+    private void putIndex(int index, int slot) {
+        if (index >= indexTable.length)
+            indexTable = Arrays.copyOf(indexTable, (int) Math.min(MAX_ARRAY_SIZE, Math.max(index + 1L, indexTable.length * 3L / 2 + 16)));
+        indexTable[index] = slot + 1;
+    }
+
+    private int insert(ElementState state) {
+        byte[] bytes = state.label.getBytes(StandardCharsets.UTF_8);
+        if (numSlots == storageIds.length)
+            growSlots();
+        if ((tableFill + 1) * 2L > labelTable.length)
+            rehash(numWords + 1);
+
+        if ((long) poolSize + bytes.length > MAX_ARRAY_SIZE)
+            throw new IllegalStateException("String pool is full: can't store more than " + MAX_ARRAY_SIZE + " bytes of labels");
+        if (poolSize + bytes.length > pool.length)
+            pool = Arrays.copyOf(pool, (int) Math.min(MAX_ARRAY_SIZE, Math.max(poolSize + (long) bytes.length, pool.length * 3L / 2)));
+
+        int slot = numSlots++;
+        System.arraycopy(bytes, 0, pool, poolSize, bytes.length);
+        labelOffsets[slot] = poolSize;
+        labelLengths[slot] = bytes.length;
+        labelHashes[slot] = state.label.hashCode();
+        poolSize += bytes.length;
+
+        storageIds[slot] = state.storageId;
+        frequencies[slot] = state.frequency;
+        sequenceCounts[slot] = state.sequencesCount;
+        indices[slot] = state.index;
+        packedCodes[slot] = state.codes;
+        numCodes[slot] = state.numCodes;
+        codeLengths[slot] = state.codeLength;
+        pointArrays[slot] = state.points;
+        flags[slot] = state.flags;
+
+        tableInsert(labelTable, mix(labelHashes[slot]), slot);
+        tableInsert(idTable, mix(Long.hashCode(state.storageId)), slot);
+        tableFill++;
+        numWords++;
+        return slot;
+    }
+
+    private void remove(int slot) {
+        tableDelete(labelTable, mix(labelHashes[slot]), slot);
+        tableDelete(idTable, mix(Long.hashCode(storageIds[slot])), slot);
+
+        int index = indices[slot];
+        if (slotAtIndex(index) == slot)
+            indexTable[index] = EMPTY;
+
+        totalWordCount.addAndGet(-(long) frequencies[slot]);
+        flags[slot] |= REMOVED;
+        pointArrays[slot] = null;
+        numWords--;
+    }
+
+    private static void tableInsert(int[] table, int hash, int slot) {
+        int mask = table.length - 1;
+        int pos = hash & mask;
+        while (table[pos] != EMPTY)
+            pos = (pos + 1) & mask;
+        table[pos] = slot + 1;
+    }
+
+    private static void tableDelete(int[] table, int hash, int slot) {
+        int mask = table.length - 1;
+        int pos = hash & mask;
+        while (table[pos] != EMPTY) {
+            if (table[pos] == slot + 1) {
+                table[pos] = DELETED;
+                return;
+            }
+            pos = (pos + 1) & mask;
+        }
+    }
+
+    private void rehash(int minElements) {
+        int capacity = tableCapacity(minElements);
+        int[] newLabels = new int[capacity];
+        int[] newIds = new int[capacity];
+        for (int slot = 0; slot < numSlots; slot++) {
+            if ((flags[slot] & REMOVED) != 0)
+                continue;
+            tableInsert(newLabels, mix(labelHashes[slot]), slot);
+            tableInsert(newIds, mix(Long.hashCode(storageIds[slot])), slot);
+        }
+        labelTable = newLabels;
+        idTable = newIds;
+        tableFill = numWords;
+    }
+
+    private void growSlots() {
+        int capacity = (int) Math.min(MAX_ARRAY_SIZE, storageIds.length * 3L / 2 + 16);
+        if (capacity == storageIds.length)
+            throw new IllegalStateException("Vocabulary is full: can't store more than " + capacity + " elements");
+
+        labelOffsets = Arrays.copyOf(labelOffsets, capacity);
+        labelLengths = Arrays.copyOf(labelLengths, capacity);
+        labelHashes = Arrays.copyOf(labelHashes, capacity);
+        storageIds = Arrays.copyOf(storageIds, capacity);
+        frequencies = Arrays.copyOf(frequencies, capacity);
+        sequenceCounts = Arrays.copyOf(sequenceCounts, capacity);
+        indices = Arrays.copyOf(indices, capacity);
+        packedCodes = Arrays.copyOf(packedCodes, capacity);
+        numCodes = Arrays.copyOf(numCodes, capacity);
+        codeLengths = Arrays.copyOf(codeLengths, capacity);
+        pointArrays = Arrays.copyOf(pointArrays, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+
+    private static int tableCapacity(int elements) {
+        int capacity = 16;
+        while (capacity < elements * 2L && capacity < (1 << 30))
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long packCodes(List<Byte> list) {
+        if (list.size() > MAX_CODE_LENGTH)
+            throw new IllegalArgumentException("CompactVocabCache supports up to " + MAX_CODE_LENGTH + " codes, got " + list.size());
+
+        long packed = 0;
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) != 0)
+                packed |= 1L << i;
+        }
+        return packed;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = list.get(i);
+        return result;
+    }
+
+    /**
+     * Detached copy of element state, so foreign elements (including views over this cache) are never read under lock
+     */
+    private static class ElementState {
+        private final String label;
+        private final long storageId;
+        private final double frequency;
+        private final long sequencesCount;
+        private final int index;
+        private final long codes;
+        private final byte numCodes;
+        private final short codeLength;
+        private final int[] points;
+        private final byte flags;
+
+        private ElementState(VocabWord element) {
+            label = element.getLabel();
+            if (label == null)
+                throw new IllegalArgumentException("CompactVocabCache requires elements with non-null labels");
+
+            storageId = element.getStorageId();
+            frequency = element.getElementFrequency();
+            sequencesCount = element.getSequencesCount();
+            index = element.getIndex();
+
+            List<Byte> elementCodes = element.getCodes();
+            codes = packCodes(elementCodes);
+            numCodes = (byte) elementCodes.size();
+            codeLength = (short) element.getCodeLength();
+
+            List<Integer> elementPoints = element.getPoints();
+            points = elementPoints.isEmpty() ? null : toArray(elementPoints);
+
+            byte f = 0;
+            if (element.isSpecial())
+                f |= SPECIAL;
+            if (element.isLabel())
+                f |= LABEL;
+            if (element.isLocked())
+                f |= LOCKED;
+            if (element.isInit())
+                f |= INIT;
+            flags = f;
+        }
+    }
+
+    private class ElementIterator implements Iterator<VocabWord> {
+        private final boolean mutable;
+        private int next = -1;
+        private int last = -1;
+
+        private ElementIterator(boolean mutable) {
+            this.mutable = mutable;
+            advance();
+        }
+
+        private void advance() {
+            long stamp = lock.readLock();
+            try {
+                do {
+                    next++;
+                } while (next < numSlots && (flags[next] & REMOVED) != 0);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            long stamp = lock.readLock();
+            try {
+                return next < numSlots;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public VocabWord next() {
+            CompactWord element;
+            long stamp = lock.readLock();
+            try {
+                if (next >= numSlots)
+                    throw new NoSuchElementException();
+                element = new CompactWord(next, label(next));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            last = next;
+            advance();
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            if (!mutable)
+                throw new UnsupportedOperationException();
+            if (last < 0)
+                throw new IllegalStateException();
+
+            long stamp = lock.writeLock();
+            try {
+                if ((flags[last] & REMOVED) == 0)
+                    CompactVocabCache.this.remove(last);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            last = -1;
+        }
+    }
+
+    /**
+     * VocabWord view over a single slot of this cache. Getters use optimistic reads, setters take the write lock.
+     * Serialization replaces the view with a detached {@link VocabWord} copy.
+     */
+    private class CompactWord extends VocabWord {
+        private final int slot;
+
+        private CompactWord(int slot, String label) {
+            super();
+            this.slot = slot;
+            super.setWord(label);
+        }
+
+        @Override
+        public void setWord(String word) {
+            throw new UnsupportedOperationException("Labels of CompactVocabCache elements can't be changed");
+        }
+
+        @Override
+        public void setStorageId(Long storageId) {
+            throw new UnsupportedOperationException("Storage ids of CompactVocabCache elements can't be changed");
+        }
+
+        @Override
+        public Long getStorageId() {
+            long stamp = lock.tryOptimisticRead();
+            long result = storageIds[slot];
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    result = storageIds[slot];
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public double getElementFrequency() {
+            long stamp = lock.tryOptimisticRead();
+            double result = frequencies[slot];
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    result = frequencies[slot];
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void setElementFrequency(long value) {
+            long stamp = lock.writeLock();
+            try {
+                frequencies[slot] = value;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public void incrementElementFrequency() {
+            increaseElementFrequency(1);
+        }
+
+        @Override
+        public void increaseElementFrequency(int by) {
+            long stamp = lock.writeLock();
+            try {
+                frequencies[slot] += by;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public long getSequencesCount() {
+            long stamp = lock.tryOptimisticRead();
+            long result = sequenceCounts[slot];
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    result = sequenceCounts[slot];
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void setSequencesCount(long count) {
+            long stamp = lock.writeLock();
+            try {
+                sequenceCounts[slot] = count;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public void incrementSequencesCount() {
+            incrementSequencesCount(1);
+        }
+
+        @Override
+        public void incrementSequencesCount(long count) {
+            long stamp = lock.writeLock();
+            try {
+                sequenceCounts[slot] += count;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public int getIndex() {
+            long stamp = lock.tryOptimisticRead();
+            int result = indices[slot];
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    result = indices[slot];
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void setIndex(int index) {
+            long stamp = lock.writeLock();
+            try {
+                indices[slot] = index;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public List<Byte> getCodes() {
+            return new CodesList(slot);
+        }
+
+        @Override
+        public void setCodes(List<Byte> list) {
+            long packed = packCodes(list);
+            long stamp = lock.writeLock();
+            try {
+                packedCodes[slot] = packed;
+                numCodes[slot] = (byte) list.size();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public List<Integer> getPoints() {
+            return new PointsList(slot);
+        }
+
+        @Override
+        public void setPoints(List<Integer> list) {
+            int[] array = toArray(list);
+            long stamp = lock.writeLock();
+            try {
+                pointArrays[slot] = array;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public void setPoints(int[] array) {
+            int[] copy = array.clone();
+            long stamp = lock.writeLock();
+            try {
+                pointArrays[slot] = copy;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public int getCodeLength() {
+            long stamp = lock.tryOptimisticRead();
+            int result = codeLengths[slot];
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    result = codeLengths[slot];
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Same as {@link SequenceElement#setCodeLength(short)}: codes and points are padded with zeros when shorter than codeLength
+         */
+        @Override
+        public void setCodeLength(short codeLength) {
+            long stamp = lock.writeLock();
+            try {
+                if (codeLength > MAX_CODE_LENGTH)
+                    throw new IllegalArgumentException("CompactVocabCache supports up to " + MAX_CODE_LENGTH + " codes, got " + codeLength);
+                codeLengths[slot] = codeLength;
+
+                // unlike SequenceElement, codes and points are padded just up to codeLength: Huffman overwrites them anyway
+                if (numCodes[slot] < codeLength)
+                    numCodes[slot] = (byte) codeLength;
+
+                int[] current = pointArrays[slot] == null ? new int[0] : pointArrays[slot];
+                if (current.length < codeLength)
+                    pointArrays[slot] = Arrays.copyOf(current, codeLength);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public boolean isSpecial() {
+            return hasFlag(SPECIAL);
+        }
+
+        @Override
+        public void setSpecial(boolean special) {
+            setFlag(SPECIAL, special);
+        }
+
+        @Override
+        public boolean isLabel() {
+            return hasFlag(LABEL);
+        }
+
+        @Override
+        public void setLabel(boolean isLabel) {
+            setFlag(LABEL, isLabel);
+        }
+
+        @Override
+        public void markAsLabel(boolean isLabel) {
+            setFlag(LABEL, isLabel);
+        }
+
+        @Override
+        public boolean isLocked() {
+            return hasFlag(LOCKED);
+        }
+
+        @Override
+        public void setLocked(boolean isLocked) {
+            setFlag(LOCKED, isLocked);
+        }
+
+        @Override
+        public boolean isInit() {
+            return hasFlag(INIT);
+        }
+
+        @Override
+        public void setInit(boolean init) {
+            setFlag(INIT, init);
+        }
+
+        private boolean hasFlag(byte flag) {
+            long stamp = lock.tryOptimisticRead();
+            byte result = flags[slot];
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    result = flags[slot];
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return (result & flag) != 0;
+        }
+
+        private void setFlag(byte flag, boolean value) {
+            long stamp = lock.writeLock();
+            try {
+                flags[slot] = (byte) (value ? flags[slot] | flag : flags[slot] & ~flag);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public int compareTo(SequenceElement o) {
+            return Double.compare(getElementFrequency(), o.getElementFrequency());
+        }
+
+        /**
+         * Returns detached VocabWord with the same state as this element
+         */
+        private VocabWord detach() {
+            VocabWord word = new VocabWord(getElementFrequency(), getLabel(), getStorageId());
+            word.setSequencesCount(getSequencesCount());
+            word.setIndex(getIndex());
+            word.setCodes(new ArrayList<>(getCodes()));
+            word.setPoints(new ArrayList<>(getPoints()));
+            word.setCodeLength((short) getCodeLength());
+            word.setSpecial(isSpecial());
+            word.markAsLabel(isLabel());
+            word.setLocked(isLocked());
+            word.setInit(isInit());
+            word.setVocabId(getVocabId());
+            word.setAffinityId(getAffinityId());
+            return word;
+        }
+
+        private Object writeReplace() {
+            return detach();
+        }
+
+        @Override
+        public String toJSON() {
+            return detach().toJSON();
+        }
+
+        @Override
+        public String toString() {
+            return detach().toString();
+        }
+    }
+
+    /**
+     * Huffman codes of a single slot, packed as bits of one long
+     */
+    private class CodesList extends AbstractList<Byte> {
+        private final int slot;
+
+        private CodesList(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public Byte get(int i) {
+            long stamp = lock.tryOptimisticRead();
+            long packed = packedCodes[slot];
+            int size = numCodes[slot];
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    packed = packedCodes[slot];
+                    size = numCodes[slot];
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            if (i < 0 || i >= size)
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+            return (byte) ((packed >>> i) & 1L);
+        }
+
+        @Override
+        public int size() {
+            long stamp = lock.tryOptimisticRead();
+            int size = numCodes[slot];
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    size = numCodes[slot];
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public Byte set(int i, Byte value) {
+            long stamp = lock.writeLock();
+            try {
+                checkIndex(i, numCodes[slot]);
+                byte old = (byte) ((packedCodes[slot] >>> i) & 1L);
+                packedCodes[slot] = value != 0 ? packedCodes[slot] | (1L << i) : packedCodes[slot] & ~(1L << i);
+                return old;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public void add(int i, Byte value) {
+            long stamp = lock.writeLock();
+            try {
+                int size = numCodes[slot];
+                checkIndex(i, size + 1);
+                if (size == MAX_CODE_LENGTH)
+                    throw new IllegalArgumentException("CompactVocabCache supports up to " + MAX_CODE_LENGTH + " codes");
+
+                long packed = packedCodes[slot];
+                long low = packed & ((1L << i) - 1);
+                long high = (packed >>> i) << (i + 1);
+                packedCodes[slot] = low | high | (value != 0 ? 1L << i : 0L);
+                numCodes[slot] = (byte) (size + 1);
+                modCount++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public Byte remove(int i) {
+            long stamp = lock.writeLock();
+            try {
+                int size = numCodes[slot];
+                checkIndex(i, size);
+
+                long packed = packedCodes[slot];
+                byte old = (byte) ((packed >>> i) & 1L);
+                long low = packed & ((1L << i) - 1);
+                long high = i == MAX_CODE_LENGTH - 1 ? 0L : (packed >>> (i + 1)) << i;
+                packedCodes[slot] = low | high;
+                numCodes[slot] = (byte) (size - 1);
+                modCount++;
+                return old;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Huffman points of a single slot. Insertions and removals replace the underlying array
+     */
+    private class PointsList extends AbstractList<Integer> {
+        private final int slot;
+
+        private PointsList(int slot) {
+            this.slot = slot;
+        }
+
+        private int[] array() {
+            long stamp = lock.tryOptimisticRead();
+            int[] result = pointArrays[slot];
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    result = pointArrays[slot];
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Integer get(int i) {
+            int[] array = array();
+            checkIndex(i, array == null ? 0 : array.length);
+            return array[i];
+        }
+
+        @Override
+        public int size() {
+            int[] array = array();
+            return array == null ? 0 : array.length;
+        }
+
+        @Override
+        public Integer set(int i, Integer value) {
+            long stamp = lock.writeLock();
+            try {
+                int[] array = pointArrays[slot];
+                checkIndex(i, array == null ? 0 : array.length);
+                int old = array[i];
+                array[i] = value;
+                return old;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public void add(int i, Integer value) {
+            long stamp = lock.writeLock();
+            try {
+                int[] array = pointArrays[slot] == null ? new int[0] : pointArrays[slot];
+                checkIndex(i, array.length + 1);
+
+                int[] result = new int[array.length + 1];
+                System.arraycopy(array, 0, result, 0, i);
+                result[i] = value;
+                System.arraycopy(array, i, result, i + 1, array.length - i);
+                pointArrays[slot] = result;
+                modCount++;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public Integer remove(int i) {
+            long stamp = lock.writeLock();
+            try {
+                int[] array = pointArrays[slot];
+                checkIndex(i, array == null ? 0 : array.length);
+
+                int old = array[i];
+                int[] result = new int[array.length - 1];
+                System.arraycopy(array, 0, result, 0, i);
+                System.arraycopy(array, i + 1, result, i, array.length - i - 1);
+                pointArrays[slot] = result.length == 0 ? null : result;
+                modCount++;
+                return old;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private static void checkIndex(int i, int size) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+    }
+}
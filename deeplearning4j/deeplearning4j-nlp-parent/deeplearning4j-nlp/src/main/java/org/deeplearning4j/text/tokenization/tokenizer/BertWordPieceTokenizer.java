@@ -58,6 +58,24 @@ public class BertWordPieceTokenizer implements Tokenizer {
         this.tokens = tokenize(vocab, tokens);
     }
 
+    /**
+     * @param tokens                  String to tokenize
+     * @param trie                    Vocabulary trie, usually shared via {@link org.deeplearning4j.text.tokenization.tokenizerfactory.BertWordPieceTokenizerFactory}
+     * @param preTokenizePreProcessor The preprocessor that should be used on the raw strings, before splitting
+     * @param tokenPreProcess         The preprocessor applied to each resulting token
+     */
+    public BertWordPieceTokenizer(String tokens, WordPieceTrie trie, TokenPreProcess preTokenizePreProcessor,
+                                  TokenPreProcess tokenPreProcess) {
+        this.preTokenizePreProcessor = preTokenizePreProcessor;
+        this.tokenPreProcess = tokenPreProcess;
+
+        String fullString = tokens;
+        if(preTokenizePreProcessor != null){
+            fullString = preTokenizePreProcessor.preProcess(tokens);
+        }
+        this.tokens = trie.tokenize(fullString);
+    }
+
 
     @Override
     public boolean hasMoreTokens() {
@@ -0,0 +1,278 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.text.tokenization.tokenizer;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact char trie over a WordPiece vocabulary, used for greedy longest-match-first tokenization.<br>
+ * Nodes are laid out breadth first so the children of every node are contiguous and sorted by char,
+ * child lookup is a binary search over a single {@code char[]}. Continuation pieces ("##" prefixed) are
+ * matched from a separate root, so no "##" strings are ever built while tokenizing.
+ * <p>
+ * Basic token splitting follows {@link BertWordPieceTokenizer#splitPattern}: whitespace separates tokens,
+ * and every punctuation character is a token of its own.
+ * <p>
+ * Instances are immutable and thread safe.
+ */
+public class WordPieceTrie {
+    public static final String CONTINUATION_PREFIX = "##";
+
+    private final char[] labels;
+    private final int[] childStart;
+    private final int[] childCount;
+    private final int[] ids;
+    private final String[] tokens;
+    private final int continuationRoot;
+    private final int size;
+
+    public WordPieceTrie(@NonNull Map<String, Integer> vocab) {
+        String[] keys = vocab.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+
+        // build pass: keys are sorted, so a new child is always appended after the current last child
+        int capacity = 16;
+        for (String key : keys)
+            capacity += key.length();
+        char[] bLabels = new char[capacity];
+        int[] bFirstChild = new int[capacity];
+        int[] bLastChild = new int[capacity];
+        int[] bNextSibling = new int[capacity];
+        int[] bIds = new int[capacity];
+        String[] bTokens = new String[capacity];
+        Arrays.fill(bFirstChild, -1);
+        Arrays.fill(bLastChild, -1);
+        Arrays.fill(bNextSibling, -1);
+        Arrays.fill(bIds, -1);
+        int numNodes = 1;
+
+        for (String key : keys) {
+            int node = 0;
+            for (int i = 0; i < key.length(); i++) {
+                char c = key.charAt(i);
+                int last = bLastChild[node];
+                if (last >= 0 && bLabels[last] == c) {
+                    node = last;
+                    continue;
+                }
+                int child = numNodes++;
+                bLabels[child] = c;
+                if (last < 0)
+                    bFirstChild[node] = child;
+                else
+                    bNextSibling[last] = child;
+                bLastChild[node] = child;
+                node = child;
+            }
+            bIds[node] = vocab.get(key);
+            bTokens[node] = key;
+        }
+
+        // flatten breadth first, children of each node become a contiguous sorted range
+        labels = new char[numNodes];
+        childStart = new int[numNodes];
+        childCount = new int[numNodes];
+        ids = new int[numNodes];
+        tokens = new String[numNodes];
+        int[] order = new int[numNodes];
+        int[] newIndex = new int[numNodes];
+        order[0] = 0;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            int old = order[head];
+            newIndex[old] = head;
+            labels[head] = bLabels[old];
+            ids[head] = bIds[old];
+            tokens[head] = bTokens[old];
+            childStart[head] = tail;
+            for (int c = bFirstChild[old]; c >= 0; c = bNextSibling[c]) {
+                order[tail++] = c;
+                childCount[head]++;
+            }
+        }
+
+        int cont = 0;
+        for (int i = 0; i < CONTINUATION_PREFIX.length() && cont >= 0; i++)
+            cont = child(cont, CONTINUATION_PREFIX.charAt(i));
+        this.continuationRoot = cont;
+        this.size = keys.length;
+    }
+
+    /**
+     * @return number of entries in the vocabulary
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return token id, or -1 if the token isn't in the vocabulary
+     */
+    public int tokenId(@NonNull CharSequence token) {
+        int node = 0;
+        for (int i = 0; i < token.length() && node >= 0; i++)
+            node = child(node, token.charAt(i));
+        return node < 0 ? -1 : ids[node];
+    }
+
+    /**
+     * Splits the sentence into basic tokens and word-pieces each of them, writing token ids into
+     * {@code out[offset..offset+limit)}. Pieces beyond the limit are counted, but not written.
+     *
+     * @return total number of pieces in the sentence
+     */
+    public int encode(@NonNull CharSequence sentence, int[] out, int offset, int limit) {
+        return split(sentence, out, offset, limit, null);
+    }
+
+    /**
+     * Splits the sentence into basic tokens and word-pieces each of them, adding pieces to {@code tokens}
+     */
+    public void tokenize(@NonNull CharSequence sentence, @NonNull List<String> tokens) {
+        split(sentence, null, 0, 0, tokens);
+    }
+
+    /**
+     * Same as {@link #tokenize(CharSequence, List)}, returning a new list
+     */
+    public List<String> tokenize(@NonNull CharSequence sentence) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(sentence, tokens);
+        return tokens;
+    }
+
+    private int split(CharSequence sentence, int[] out, int offset, int limit, List<String> output) {
+        int count = 0;
+        int start = -1;
+        int length = sentence.length();
+        int i = 0;
+        while (i < length) {
+            int cp = Character.codePointAt(sentence, i);
+            int next = i + Character.charCount(cp);
+            if (Character.isWhitespace(cp)) {
+                if (start >= 0) {
+                    count += wordPiece(sentence, start, i, out, offset, limit, count, output);
+                    start = -1;
+                }
+            } else if (isPunctuation(cp)) {
+                if (start >= 0) {
+                    count += wordPiece(sentence, start, i, out, offset, limit, count, output);
+                    start = -1;
+                }
+                count += wordPiece(sentence, i, next, out, offset, limit, count, output);
+            } else if (start < 0) {
+                start = i;
+            }
+            i = next;
+        }
+        if (start >= 0)
+            count += wordPiece(sentence, start, length, out, offset, limit, count, output);
+        return count;
+    }
+
+    /**
+     * Greedy longest-match-first split of a single basic token
+     *
+     * @return number of pieces
+     */
+    private int wordPiece(CharSequence text, int start, int end, int[] out, int offset, int limit, int written,
+                          List<String> output) {
+        int pieces = 0;
+        int position = start;
+        int root = 0;
+        while (position < end) {
+            // walk as deep as the text allows, remembering the last terminal node
+            int node = root;
+            int matchNode = -1;
+            int matchEnd = -1;
+            for (int i = position; i < end; i++) {
+                node = child(node, text.charAt(i));
+                if (node < 0)
+                    break;
+                if (ids[node] >= 0) {
+                    matchNode = node;
+                    matchEnd = i + 1;
+                }
+            }
+
+            if (matchNode < 0) {
+                throw new IllegalStateException("Invalid token encountered: \"" + text.subSequence(start, end) + "\" likely contains characters that are not " +
+                        "present in the vocabulary. Invalid tokens may be cleaned in a preprocessing step using a TokenPreProcessor" +
+                        " (preTokenizePreProcessor)");
+            }
+
+            if (output != null) {
+                output.add(tokens[matchNode]);
+            } else if (written + pieces < limit) {
+                out[offset + written + pieces] = ids[matchNode];
+            }
+            pieces++;
+            position = matchEnd;
+            root = continuationRoot;
+            if (root < 0 && position < end) {
+                throw new IllegalStateException("Invalid token encountered: \"" + text.subSequence(start, end) + "\" can't be split, " +
+                        "vocabulary has no continuation (\"" + CONTINUATION_PREFIX + "\") pieces. Invalid tokens may be cleaned in a preprocessing step using a TokenPreProcessor");
+            }
+        }
+        return pieces;
+    }
+
+    private int child(int node, char c) {
+        int lo = childStart[node];
+        int hi = lo + childCount[node] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char l = labels[mid];
+            if (l < c)
+                lo = mid + 1;
+            else if (l > c)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Same character classes as the punctuation alternatives of {@link BertWordPieceTokenizer#splitPattern}
+     */
+    public static boolean isPunctuation(int cp) {
+        if ((cp >= 0x21 && cp <= 0x2F) || (cp >= 0x3A && cp <= 0x40) || (cp >= 0x5B && cp <= 0x60) || (cp >= 0x7B && cp <= 0x7E))
+            return true;
+        switch (Character.getType(cp)) {
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -27,11 +27,14 @@ import org.deeplearning4j.text.tokenization.tokenizer.BertWordPieceStreamTokeniz
 import org.deeplearning4j.text.tokenization.tokenizer.BertWordPieceTokenizer;
 import org.deeplearning4j.text.tokenization.tokenizer.TokenPreProcess;
 import org.deeplearning4j.text.tokenization.tokenizer.Tokenizer;
+import org.deeplearning4j.text.tokenization.tokenizer.WordPieceTrie;
 import org.deeplearning4j.text.tokenization.tokenizer.preprocessor.BertWordPiecePreProcessor;
 
 import java.io.*;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
@@ -39,6 +42,8 @@ import java.util.TreeMap;
 public class BertWordPieceTokenizerFactory implements TokenizerFactory {
 
     private final NavigableMap<String, Integer> vocab;
+    @Getter
+    private final WordPieceTrie trie;
     @Getter @Setter
     private TokenPreProcess preTokenizePreProcessor;
     @Getter @Setter
@@ -60,6 +65,7 @@ public class BertWordPieceTokenizerFactory implements TokenizerFactory {
      */
     public BertWordPieceTokenizerFactory(NavigableMap<String, Integer> vocab, TokenPreProcess preTokenizePreProcessor) {
         this.vocab = vocab;
+        this.trie = new WordPieceTrie(vocab);
         this.preTokenizePreProcessor = preTokenizePreProcessor;
     }
 
@@ -94,13 +100,13 @@ public class BertWordPieceTokenizerFactory implements TokenizerFactory {
 
     @Override
     public Tokenizer create(String toTokenize) {
-        Tokenizer t = new BertWordPieceTokenizer(toTokenize, vocab, preTokenizePreProcessor, tokenPreProcessor);
+        Tokenizer t = new BertWordPieceTokenizer(toTokenize, trie, preTokenizePreProcessor, tokenPreProcessor);
         return t;
     }
 
     @Override
     public Tokenizer create(InputStream toTokenize) {
-        Tokenizer t = new BertWordPieceStreamTokenizer(toTokenize, charset, vocab, preTokenizePreProcessor, tokenPreProcessor);
+        Tokenizer t = new BertWordPieceStreamTokenizer(toTokenize, charset, trie, preTokenizePreProcessor, tokenPreProcessor);
         return t;
     }
 
@@ -108,6 +114,93 @@ public class BertWordPieceTokenizerFactory implements TokenizerFactory {
         return Collections.unmodifiableMap(vocab);
     }
 
+    /**
+     * Tokenizes a single sentence straight into vocabulary indices, without creating token strings.<br>
+     * Indices are written into {@code out[offset..offset+limit)}; pieces beyond the limit are counted but not written.
+     *
+     * @param sentence Sentence to encode
+     * @param out      Output array for token indices
+     * @param offset   First position to write at
+     * @param limit    Maximum number of indices to write
+     * @return Total number of tokens in the sentence, may be larger than limit
+     */
+    public int encode(String sentence, int[] out, int offset, int limit) {
+        if (preTokenizePreProcessor != null)
+            sentence = preTokenizePreProcessor.preProcess(sentence);
+
+        if (tokenPreProcessor == null)
+            return trie.encode(sentence, out, offset, limit);
+
+        //Token preprocessor may change tokens after splitting, so indices have to come from the processed strings
+        List<String> tokens = trie.tokenize(sentence);
+        for (int i = 0; i < tokens.size() && i < limit; i++) {
+            String token = tokenPreProcessor.preProcess(tokens.get(i));
+            Integer idx = vocab.get(token);
+            if (idx == null)
+                throw new IllegalStateException("Unknown token encountered: token \"" + token + "\" is not in vocabulary");
+            out[offset + i] = idx;
+        }
+        return tokens.size();
+    }
+
+    /**
+     * Encodes a batch of sentences into row-major {@code [sentences.size(), maxLength]} index and mask arrays.<br>
+     * Rows are padded with 0 and truncated at maxLength.
+     *
+     * @param sentences Sentences to encode
+     * @param maxLength Row length
+     * @param ids       Output indices, at least {@code sentences.size() * maxLength} long
+     * @param mask      Output mask (1 for real tokens, 0 for padding), same size as ids. May be null
+     * @return Number of tokens per sentence before truncation
+     */
+    public int[] encodeBatch(List<String> sentences, int maxLength, int[] ids, int[] mask) {
+        return encodeBatch(sentences, -1, -1, maxLength, ids, mask);
+    }
+
+    /**
+     * As per {@link #encodeBatch(List, int, int[], int[])}, optionally surrounding every sentence with a
+     * prepend (usually [CLS]) and append (usually [SEP]) token index. Truncation keeps the prepend token,
+     * and drops the append token if the sentence doesn't fit.
+     *
+     * @param prependIdx Index to put before each sentence, or -1 for none
+     * @param appendIdx  Index to put after each sentence, or -1 for none
+     */
+    public int[] encodeBatch(List<String> sentences, int prependIdx, int appendIdx, int maxLength, int[] ids, int[] mask) {
+        int n = sentences.size();
+        if (ids.length < n * maxLength || (mask != null && mask.length < n * maxLength))
+            throw new IllegalArgumentException("Output arrays are too small: need " + n * maxLength + " elements, got ids="
+                    + ids.length + (mask == null ? "" : ", mask=" + mask.length));
+
+        int[] lengths = new int[n];
+        for (int i = 0; i < n; i++) {
+            int offset = i * maxLength;
+            int pos = 0;
+            int length = 0;
+            if (prependIdx >= 0) {
+                if (pos < maxLength)
+                    ids[offset + pos++] = prependIdx;
+                length++;
+            }
+
+            length += encode(sentences.get(i), ids, offset + pos, maxLength - pos);
+            pos = Math.min(length, maxLength);
+
+            if (appendIdx >= 0) {
+                length++;
+                if (length <= maxLength)
+                    ids[offset + pos++] = appendIdx;
+            }
+
+            Arrays.fill(ids, offset + pos, offset + maxLength, 0);
+            if (mask != null) {
+                Arrays.fill(mask, offset, offset + pos, 1);
+                Arrays.fill(mask, offset + pos, offset + maxLength, 0);
+            }
+            lengths[i] = length;
+        }
+        return lengths;
+    }
+
     /**
      * The expected format is a \n seperated list of tokens for vocab entries
      *
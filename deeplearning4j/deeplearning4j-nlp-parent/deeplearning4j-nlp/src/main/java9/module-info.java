@@ -30,6 +30,7 @@ open module deeplearning4j.nlp {
     exports org.deeplearning4j.models.embeddings.learning.impl.elements;
     exports org.deeplearning4j.models.embeddings.learning.impl.sequence;
     exports org.deeplearning4j.models.embeddings.loader;
+    exports org.deeplearning4j.models.embeddings.mmap;
     exports org.deeplearning4j.models.embeddings.reader;
     exports org.deeplearning4j.models.embeddings.reader.impl;
     exports org.deeplearning4j.models.embeddings.wordvectors;
@@ -49,6 +49,8 @@ public abstract class BaseBuilder {
     protected boolean validateTbpttConfig = true;
     protected DataType dataType;
     protected boolean overrideNinUponBuild = true;
+    protected List<int[]> checkpointSegments = new ArrayList<>();
+    protected int gradientAccumulationSteps = 1;
 
 
     /**
@@ -213,6 +215,37 @@ public abstract class BaseBuilder {
         return (T) this;
     }
 
+    /**
+     * Gradient checkpointing: mark layers fromLayer to toLayer (both inclusive) as a segment whose activations are
+     * discarded after the forward pass, and recomputed (from the input of fromLayer) during the backward pass.<br>
+     * This trades compute for memory: the inputs of layers fromLayer+1 to toLayer are not kept in memory until
+     * backprop, at the cost of one additional forward pass through layers fromLayer to toLayer-1.<br>
+     * Notes: segments may not overlap, and may not contain the output layer. Layers fromLayer+1 to toLayer may not use
+     * dropout or weight noise, as these would not be identical when recomputed. Checkpointing is only applied with
+     * training workspace mode {@link WorkspaceMode#ENABLED} and standard (not truncated) backprop.
+     *
+     * @param fromLayer First layer of the segment. The input of this layer is kept
+     * @param toLayer   Last layer of the segment. The output of this layer is kept
+     */
+    public <T extends BaseBuilder> T checkpointSegment(int fromLayer, int toLayer) {
+        this.checkpointSegments.add(new int[]{fromLayer, toLayer});
+        return (T) this;
+    }
+
+    /**
+     * Gradient accumulation: accumulate the gradients of this number of minibatches before the updater is applied and
+     * the parameters are updated. The update is then the same as for a single minibatch containing all of the examples,
+     * while only the activations of one (smaller) minibatch are in memory at any time.<br>
+     * Note that the iteration count (used for learning rate schedules, etc) is only incremented when the parameters are
+     * updated. Cannot be used with truncated backpropagation through time. Default: 1 (no accumulation)
+     *
+     * @param steps Number of minibatches to accumulate gradients over. Must be 1 or more
+     */
+    public <T extends BaseBuilder> T gradientAccumulationSteps(int steps) {
+        this.gradientAccumulationSteps = steps;
+        return (T) this;
+    }
+
     public abstract <T> T build();
 
 
@@ -112,6 +112,19 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
     protected int[] topologicalOrder;
     protected List<String> topologicalOrderStr;
 
+    /**
+     * Gradient checkpointing segments: each entry is a chain of vertex names. Activations inside each segment are
+     * discarded after the forward pass and recomputed during backprop. May be null. See
+     * {@link GraphBuilder#checkpointSegment(String...)}
+     */
+    protected String[][] checkpointSegments;
+
+    /**
+     * Number of minibatches to accumulate gradients over before the parameters are updated. See
+     * {@link GraphBuilder#gradientAccumulationSteps(int)}
+     */
+    protected int gradientAccumulationSteps = 1;
+
     private static ObjectMapper mapper = mapper();
     private static ObjectMapper mapperYaml = mapperYaml();
 
@@ -389,6 +402,13 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
         conf.defaultConfiguration.cacheMode = this.cacheMode;
         conf.validateOutputLayerConfig = this.validateOutputLayerConfig;
         conf.dataType = this.dataType;
+        conf.gradientAccumulationSteps = this.gradientAccumulationSteps;
+        if (this.checkpointSegments != null) {
+            conf.checkpointSegments = new String[this.checkpointSegments.length][];
+            for (int i = 0; i < this.checkpointSegments.length; i++) {
+                conf.checkpointSegments[i] = this.checkpointSegments[i].clone();
+            }
+        }
 
         return conf;
     }
@@ -791,6 +811,9 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
 
         protected String lastAdded = null;
 
+        protected List<String[]> checkpointSegments = new ArrayList<>();
+        protected int gradientAccumulationSteps = 1;
+
         public GraphBuilder(NeuralNetConfiguration.Builder globalConfiguration) {
             this.globalConfiguration = globalConfiguration;
         }
@@ -807,6 +830,7 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             this.backpropType = clonedConf.getBackpropType();
             this.tbpttFwdLength = clonedConf.getTbpttFwdLength();
             this.tbpttBackLength = clonedConf.getTbpttBackLength();
+            this.gradientAccumulationSteps = clonedConf.getGradientAccumulationSteps();
             this.globalConfiguration = globalConfiguration;
             //this.getGlobalConfiguration().setSeed(clonedConf.getDefaultConfiguration().getSeed());
         }
@@ -1198,6 +1222,36 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             return this;
         }
 
+        /**
+         * Gradient checkpointing: mark a chain of vertices as a segment whose activations are discarded after the
+         * forward pass, and recomputed (from the input of the first vertex) during the backward pass.<br>
+         * The vertices must form a simple chain: each vertex (other than the last) must have the next vertex as its
+         * only consumer, and each vertex (other than the first) must have only the previous vertex as input. None of the
+         * vertices may be a network input or output. Layers after the first vertex may not use dropout or weight noise,
+         * as these would not be identical when recomputed. Checkpointing is only applied with training workspace mode
+         * {@link WorkspaceMode#ENABLED} and standard (not truncated) backprop.
+         *
+         * @param vertexNames Names of the vertices in the segment, in forward order. At least 2 vertices are required
+         */
+        public GraphBuilder checkpointSegment(String... vertexNames) {
+            this.checkpointSegments.add(vertexNames);
+            return this;
+        }
+
+        /**
+         * Gradient accumulation: accumulate the gradients of this number of minibatches before the updater is applied
+         * and the parameters are updated. The update is then the same as for a single minibatch containing all of the
+         * examples, while only the activations of one (smaller) minibatch are in memory at any time.<br>
+         * Note that the iteration count (used for learning rate schedules, etc) is only incremented when the parameters
+         * are updated. Cannot be used with truncated backpropagation through time. Default: 1 (no accumulation)
+         *
+         * @param steps Number of minibatches to accumulate gradients over. Must be 1 or more
+         */
+        public GraphBuilder gradientAccumulationSteps(int steps) {
+            this.gradientAccumulationSteps = steps;
+            return this;
+        }
+
         /**
          * For the (perhaps partially constructed) network configuration, return a map of activation sizes for each
          * layer and vertex in the graph.<br>
@@ -1256,6 +1310,7 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             conf.cacheMode = globalConfiguration.cacheMode;
             conf.validateOutputLayerConfig = validateOutputConfig;
             conf.dataType = globalConfiguration.dataType;
+            conf.gradientAccumulationSteps = gradientAccumulationSteps;
 
             conf.defaultConfiguration = globalConfiguration.build();
 
@@ -1295,6 +1350,20 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
             ComputationGraphConfiguration conf = buildConfig();
             conf.validate(allowDisconnected, allowNoOutput); //throws exception for invalid configuration
 
+            if (gradientAccumulationSteps < 1) {
+                throw new IllegalStateException("Invalid network configuration: gradient accumulation steps must be 1 or" +
+                        " more, got " + gradientAccumulationSteps);
+            }
+            if (gradientAccumulationSteps > 1 && backpropType == BackpropType.TruncatedBPTT) {
+                throw new IllegalStateException("Invalid network configuration: gradient accumulation cannot be used with" +
+                        " truncated backpropagation through time (TBPTT)");
+            }
+
+            if (!checkpointSegments.isEmpty()) {
+                validateCheckpointSegments();
+                conf.checkpointSegments = checkpointSegments.toArray(new String[0][]);
+            }
+
             //Automatically add preprocessors, set nIns for CNN->dense transitions, etc
             if (!networkInputTypes.isEmpty()) {
                 conf.addPreProcessors(networkInputTypes.toArray(new InputType[networkInputs.size()]));
@@ -1328,5 +1397,64 @@ public class ComputationGraphConfiguration implements Serializable, Cloneable {
 
             return conf;
         }
+
+        private void validateCheckpointSegments() {
+            if (backpropType == BackpropType.TruncatedBPTT) {
+                throw new IllegalStateException("Invalid network configuration: gradient checkpointing segments cannot" +
+                        " be used with truncated backpropagation through time (TBPTT)");
+            }
+            Map<String, List<String>> consumers = new HashMap<>();
+            for (Map.Entry<String, List<String>> e : vertexInputs.entrySet()) {
+                for (String in : e.getValue()) {
+                    consumers.computeIfAbsent(in, k -> new ArrayList<>()).add(e.getKey());
+                }
+            }
+
+            Set<String> inSegment = new HashSet<>();
+            for (String[] segment : checkpointSegments) {
+                String s = Arrays.toString(segment);
+                if (segment == null || segment.length < 2) {
+                    throw new IllegalStateException("Invalid gradient checkpointing segment " + s + ": segments must contain" +
+                            " at least 2 vertices");
+                }
+                for (int i = 0; i < segment.length; i++) {
+                    String name = segment[i];
+                    if (!vertices.containsKey(name)) {
+                        throw new IllegalStateException("Invalid gradient checkpointing segment " + s + ": no vertex with name \"" +
+                                name + "\" exists");
+                    }
+                    if (networkInputs.contains(name) || networkOutputs.contains(name)) {
+                        throw new IllegalStateException("Invalid gradient checkpointing segment " + s + ": vertex \"" + name +
+                                "\" is a network input or output");
+                    }
+                    if (!inSegment.add(name)) {
+                        throw new IllegalStateException("Invalid gradient checkpointing segment " + s + ": vertex \"" + name +
+                                "\" is already part of another segment");
+                    }
+                    if (i < segment.length - 1) {
+                        List<String> c = consumers.get(name);
+                        if (c == null || c.size() != 1 || !c.get(0).equals(segment[i + 1])) {
+                            throw new IllegalStateException("Invalid gradient checkpointing segment " + s + ": vertex \"" + name +
+                                    "\" must have vertex \"" + segment[i + 1] + "\" as its only consumer, got " + c);
+                        }
+                    }
+                    if (i > 0) {
+                        List<String> in = vertexInputs.get(name);
+                        if (in == null || in.size() != 1) {
+                            throw new IllegalStateException("Invalid gradient checkpointing segment " + s + ": vertex \"" + name +
+                                    "\" must have vertex \"" + segment[i - 1] + "\" as its only input, got " + in);
+                        }
+                        GraphVertex gv = vertices.get(name);
+                        if (gv instanceof LayerVertex) {
+                            Layer l = ((LayerVertex) gv).getLayerConf().getLayer();
+                            if (l.getIDropout() != null || (l instanceof BaseLayer && ((BaseLayer) l).getWeightNoise() != null)) {
+                                throw new IllegalStateException("Invalid gradient checkpointing segment " + s + ": layer \"" + name +
+                                        "\" uses dropout or weight noise, which is not supported for recomputed activations");
+                            }
+                        }
+                    }
+                }
+            }
+        }
     }
 }
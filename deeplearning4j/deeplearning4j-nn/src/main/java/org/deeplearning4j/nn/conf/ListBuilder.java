@@ -111,6 +111,18 @@ public class ListBuilder extends BaseBuilder {
         return this;
     }
 
+    @Override
+    public ListBuilder gradientAccumulationSteps(int steps) {
+        super.gradientAccumulationSteps(steps);
+        return this;
+    }
+
+    @Override
+    public ListBuilder checkpointSegment(int fromLayer, int toLayer) {
+        super.checkpointSegment(fromLayer, toLayer);
+        return this;
+    }
+
     @Override
     public ListBuilder dataType(@NonNull DataType dataType) {
         super.dataType(dataType);
@@ -195,7 +207,11 @@ public class ListBuilder extends BaseBuilder {
                 .trainingWorkspaceMode(wsmTrain).cacheMode(globalConfig.cacheMode)
                 .inferenceWorkspaceMode(wsmTest).confs(list).validateOutputLayerConfig(validateOutputConfig)
                 .overrideNinUponBuild(overrideNinUponBuild)
+                .gradientAccumulationSteps(gradientAccumulationSteps)
                 .dataType(globalConfig.dataType);
+        for (int[] segment : checkpointSegments) {
+            builder.checkpointSegment(segment[0], segment[1]);
+        }
         return builder.build();
     }
 
@@ -93,6 +93,19 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
 
     //Counter for the number of epochs completed so far. Used for per-epoch schedules
     protected int epochCount = 0;
+
+    /**
+     * Gradient checkpointing segments: {fromLayer, toLayer} pairs (both inclusive). Activations inside each segment
+     * are discarded after the forward pass and recomputed during backprop. May be null. See
+     * {@link BaseBuilder#checkpointSegment(int, int)}
+     */
+    protected int[][] checkpointSegments;
+
+    /**
+     * Number of minibatches to accumulate gradients over before the parameters are updated. See
+     * {@link BaseBuilder#gradientAccumulationSteps(int)}
+     */
+    protected int gradientAccumulationSteps = 1;
     private static ObjectMapper mapper = mapper();
     private static ObjectMapper mapperYaml = mapperYaml();
 
@@ -444,6 +457,13 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             clone.cacheMode = this.cacheMode;
             clone.validateOutputLayerConfig = this.validateOutputLayerConfig;
             clone.dataType = this.dataType;
+            clone.gradientAccumulationSteps = this.gradientAccumulationSteps;
+            if (this.checkpointSegments != null) {
+                clone.checkpointSegments = new int[this.checkpointSegments.length][];
+                for (int i = 0; i < this.checkpointSegments.length; i++) {
+                    clone.checkpointSegments[i] = this.checkpointSegments[i].clone();
+                }
+            }
 
             return clone;
 
@@ -620,6 +640,19 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             conf.inferenceWorkspaceMode = inferenceWorkspaceMode;
             conf.cacheMode = cacheMode;
             conf.dataType = dataType;
+            if (gradientAccumulationSteps < 1) {
+                throw new IllegalStateException("Invalid network configuration: gradient accumulation steps must be 1 or" +
+                        " more, got " + gradientAccumulationSteps);
+            }
+            if (gradientAccumulationSteps > 1 && backpropType == BackpropType.TruncatedBPTT) {
+                throw new IllegalStateException("Invalid network configuration: gradient accumulation cannot be used with" +
+                        " truncated backpropagation through time (TBPTT)");
+            }
+            conf.gradientAccumulationSteps = gradientAccumulationSteps;
+            if (!checkpointSegments.isEmpty()) {
+                validateCheckpointSegments();
+                conf.checkpointSegments = checkpointSegments.toArray(new int[0][]);
+            }
 
             Nd4j.getRandom().setSeed(conf.getConf(0).getSeed());
 
@@ -635,5 +668,37 @@ public class MultiLayerConfiguration implements Serializable, Cloneable {
             return conf;
 
         }
+
+        private void validateCheckpointSegments() {
+            if (backpropType == BackpropType.TruncatedBPTT) {
+                throw new IllegalStateException("Invalid network configuration: gradient checkpointing segments cannot" +
+                        " be used with truncated backpropagation through time (TBPTT)");
+            }
+            boolean[] inSegment = new boolean[confs.size()];
+            for (int[] segment : checkpointSegments) {
+                int from = segment[0];
+                int to = segment[1];
+                if (from < 0 || to <= from || to >= confs.size() - 1) {
+                    throw new IllegalStateException("Invalid gradient checkpointing segment: layers " + from + " to " + to +
+                            ". Segments must contain at least 2 layers, and may not contain the output layer (number of" +
+                            " layers: " + confs.size() + ")");
+                }
+                for (int i = from; i <= to; i++) {
+                    if (inSegment[i]) {
+                        throw new IllegalStateException("Invalid gradient checkpointing segment: layers " + from + " to " +
+                                to + ". Layer " + i + " is already part of another segment");
+                    }
+                    inSegment[i] = true;
+
+                    Layer l = confs.get(i).getLayer();
+                    boolean random = l.getIDropout() != null || (l instanceof BaseLayer && ((BaseLayer) l).getWeightNoise() != null);
+                    if (i > from && random) {
+                        throw new IllegalStateException("Invalid gradient checkpointing segment: layers " + from + " to " +
+                                to + ". Layer " + i + " (" + l.getLayerName() + ") uses dropout or weight noise, which" +
+                                " is not supported for recomputed activations");
+                    }
+                }
+            }
+        }
     }
 }
@@ -124,6 +124,9 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
 
     private transient final AtomicLong occupiedBy = new AtomicLong(-1);
 
+    //True if the last forward pass discarded the activations of gradient checkpointing segments
+    protected transient boolean checkpointedForward;
+
     /**
      * Workspace for working memory for a single layer: forward pass and backward pass
      * Note that this is opened/closed once per op (activate/backpropGradient call)
@@ -144,6 +147,12 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
      */
     protected static final String WS_OUTPUT_MEM = "WS_OUTPUT_MEM";
 
+    /**
+     * Workspace for the activations of a gradient checkpointing segment: opened during the forward pass of the segment,
+     * and again during backprop of the segment, when the activations are recomputed
+     */
+    protected static final String WS_CHECKPOINT_ACT = "WS_CHECKPOINT_ACT";
+
     protected final WorkspaceConfiguration WS_LAYER_WORKING_MEM_CONFIG;
 
     protected static final WorkspaceConfiguration WS_ALL_LAYERS_ACT_CONFIG = WorkspaceConfiguration.builder()
@@ -1373,7 +1382,7 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         try(MemoryWorkspace wsAllActivations = workspaceMgr.notifyScopeEntered(ArrayType.ACTIVATIONS)) {
 
             Map<String, INDArray> activations = ffToLayerActivationsInWS(true, -1, getOutputLayerIndices(),
-                    fwdType, tbptt, inputs, inputMaskArrays, labelMaskArrays, false);
+                    fwdType, tbptt, inputs, inputMaskArrays, labelMaskArrays, false, !tbptt);
             if (!trainingListeners.isEmpty()) {
                 try (MemoryWorkspace workspace = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
                     for (TrainingListener tl : trainingListeners) {
@@ -2076,6 +2085,24 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
     protected  Map<String,INDArray> ffToLayerActivationsInWS(boolean train, int layerIndex, int[] excludeIdxs,
                                                              FwdPassType fwdPassType, boolean storeLastForTBPTT,
                                                              INDArray[] input, INDArray[] fMask, INDArray[] lMask, boolean clearInputs) {
+        return ffToLayerActivationsInWS(train, layerIndex, excludeIdxs, fwdPassType, storeLastForTBPTT, input, fMask,
+                lMask, clearInputs, false);
+    }
+
+    /**
+     * As per {@link #ffToLayerActivationsInWS(boolean, int, int[], FwdPassType, boolean, INDArray[], INDArray[], INDArray[], boolean)},
+     * optionally with gradient checkpointing.<br>
+     * If checkpointing is used, the activations inside the checkpointing segments (see
+     * {@link ComputationGraphConfiguration#getCheckpointSegments()}) are placed in the WS_CHECKPOINT_ACT workspace, which
+     * is closed at the end of each segment: these activations are not present in the returned map, and are recomputed
+     * during backprop by {@link #calcBackpropGradients(boolean, boolean, INDArray...)}
+     *
+     * @param checkpoint If true: use gradient checkpointing, if configured and training workspaces are enabled
+     */
+    protected  Map<String,INDArray> ffToLayerActivationsInWS(boolean train, int layerIndex, int[] excludeIdxs,
+                                                             FwdPassType fwdPassType, boolean storeLastForTBPTT,
+                                                             INDArray[] input, INDArray[] fMask, INDArray[] lMask,
+                                                             boolean clearInputs, boolean checkpoint) {
         if(layerIndex != -1 && (layerIndex < 0 || layerIndex >= topologicalOrder.length)){
             throw new IllegalArgumentException("Invalid input index - index must be >= 0 and < " + topologicalOrder.length
                     + ", got index " + layerIndex);
@@ -2090,30 +2117,19 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
             WorkspaceUtils.assertNoWorkspacesOpen("Expected no workspace active in ffToLayerActivationsDetached", true);
 
             workspaceMgr = LayerWorkspaceMgr.noWorkspaces();
+            checkpoint = false;
         } else {
             WorkspaceUtils.assertOpenAndActive(WS_ALL_LAYERS_ACT, "ffToLayerActivationsInWs method requires workspace WS_ALL_LAYERS_ACT to be open");
 
-            workspaceMgr = LayerWorkspaceMgr.builder()
-                    .with(ArrayType.ACTIVATIONS, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
-                    .with(ArrayType.INPUT, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
-                    .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
-                    .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
-                    .build();
-
-            if(input[0].isAttached()) {
-                //Don't leverage out of async DataMultiSetIterator workspaces
-                workspaceMgr.setNoLeverageOverride(input[0].data().getParentWorkspace().getId());
-            }
-
-            if(configuration.getCacheMode() != CacheMode.NONE) {
-                //For now: store cache mode activations in activations workspace
-                workspaceMgr.setWorkspace(ArrayType.FF_CACHE, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG);
-            }
+            workspaceMgr = ffWorkspaceMgr(input[0], false, false);
         }
         workspaceMgr.setHelperWorkspacePointers(helperWorkspaces);
+        checkpoint &= train && fwdPassType == FwdPassType.STANDARD && configuration.getCheckpointSegments() != null;
+        checkpointedForward = checkpoint;
 
         boolean traceLog = log.isTraceEnabled();
         Map<String, INDArray> activations = new HashMap<>();
+        MemoryWorkspace wsCheckpoint = null;
         //Do forward pass according to the topological ordering of the network
         int stopIndex;
         if (layerIndex > 0) {
@@ -2121,81 +2137,120 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         } else {
             stopIndex = topologicalOrder.length - 1;
         }
-        for (int i = 0; i <= stopIndex; i++) {
-            GraphVertex current = vertices[topologicalOrder[i]];
-            String vName = current.getVertexName();
-            int vIdx = current.getVertexIndex();
+        try {
+            for (int i = 0; i <= stopIndex; i++) {
+                GraphVertex current = vertices[topologicalOrder[i]];
+                String vName = current.getVertexName();
+                int vIdx = current.getVertexIndex();
 
-            if(traceLog) {
-                log.trace("About forward pass: {} (\"{}\") - {}", i, vName, current.getClass().getSimpleName());
-            }
+                if(traceLog) {
+                    log.trace("About forward pass: {} (\"{}\") - {}", i, vName, current.getClass().getSimpleName());
+                }
 
-            if(excludeIdxs != null && ArrayUtils.contains(excludeIdxs, vIdx)) {
-                continue;
-            }
+                if(excludeIdxs != null && ArrayUtils.contains(excludeIdxs, vIdx)) {
+                    continue;
+                }
 
+                //Gradient checkpointing: activations inside a segment go to the checkpoint workspace
+                LayerWorkspaceMgr vertexMgr = workspaceMgr;
+                LayerWorkspaceMgr outputMgr = workspaceMgr;
+                String[] segment = checkpoint ? checkpointSegmentFor(vName) : null;
+                int segmentPos = (segment == null ? -1 : ArrayUtils.indexOf(segment, vName));
+                if (segment != null) {
+                    boolean lastInSegment = segmentPos == segment.length - 1;
+                    vertexMgr = ffWorkspaceMgr(input[0], segmentPos > 0, !lastInSegment);
+                    if (!lastInSegment) {
+                        outputMgr = ffWorkspaceMgr(input[0], true, true);
+                    }
+                    if (segmentPos == 0) {
+                        //Other vertices may be executed between those of the segment: keep the checkpoint workspace out
+                        // of the "current workspace" chain
+                        MemoryWorkspace current0 = Nd4j.getMemoryManager().getCurrentWorkspace();
+                        wsCheckpoint = vertexMgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+                        Nd4j.getMemoryManager().setCurrentWorkspace(current0);
+                    }
+                }
 
-            VertexIndices[] inputsTo = current.getOutputVertices();
+                VertexIndices[] inputsTo = current.getOutputVertices();
 
-            try(MemoryWorkspace wsFFWorking = workspaceMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
+                try(MemoryWorkspace wsFFWorking = vertexMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
 
-                INDArray out;
-                if (current.isInputVertex()) {
-                    out = inputs[vIdx];
-                } else {
-                    if (fwdPassType == FwdPassType.STANDARD) {
-                        out = current.doForward(train, workspaceMgr);
-                    } else if (fwdPassType == FwdPassType.RNN_ACTIVATE_WITH_STORED_STATE) {
-                        if (current.hasLayer()) {
-                            Layer l = current.getLayer();
-                            if (l instanceof RecurrentLayer) {
-                                out = ((RecurrentLayer) l).rnnActivateUsingStoredState(
-                                        current.getInputs()[0], train,
-                                        storeLastForTBPTT, workspaceMgr);
-                            } else if (l instanceof org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer &&
-                                    ((org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer) l).getUnderlying() instanceof RecurrentLayer) {
-                                RecurrentLayer rl = (RecurrentLayer) ((org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer) l).getUnderlying();
-                                out = rl.rnnActivateUsingStoredState(current.getInputs()[0], train, storeLastForTBPTT, workspaceMgr);
-                            } else if (l instanceof MultiLayerNetwork) {
-                                List<INDArray> temp = ((MultiLayerNetwork) l).rnnActivateUsingStoredState(
-                                        current.getInputs()[0], train, storeLastForTBPTT);
-                                out = temp.get(temp.size() - 1);
+                    INDArray out;
+                    if (current.isInputVertex()) {
+                        out = inputs[vIdx];
+                    } else {
+                        if (fwdPassType == FwdPassType.STANDARD) {
+                            out = current.doForward(train, vertexMgr);
+                        } else if (fwdPassType == FwdPassType.RNN_ACTIVATE_WITH_STORED_STATE) {
+                            if (current.hasLayer()) {
+                                Layer l = current.getLayer();
+                                if (l instanceof RecurrentLayer) {
+                                    out = ((RecurrentLayer) l).rnnActivateUsingStoredState(
+                                            current.getInputs()[0], train,
+                                            storeLastForTBPTT, workspaceMgr);
+                                } else if (l instanceof org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer &&
+                                        ((org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer) l).getUnderlying() instanceof RecurrentLayer) {
+                                    RecurrentLayer rl = (RecurrentLayer) ((org.deeplearning4j.nn.layers.wrapper.BaseWrapperLayer) l).getUnderlying();
+                                    out = rl.rnnActivateUsingStoredState(current.getInputs()[0], train, storeLastForTBPTT, workspaceMgr);
+                                } else if (l instanceof MultiLayerNetwork) {
+                                    List<INDArray> temp = ((MultiLayerNetwork) l).rnnActivateUsingStoredState(
+                                            current.getInputs()[0], train, storeLastForTBPTT);
+                                    out = temp.get(temp.size() - 1);
+                                } else {
+                                    //non-recurrent layer
+                                    out = current.doForward(train, workspaceMgr);
+                                }
                             } else {
-                                //non-recurrent layer
                                 out = current.doForward(train, workspaceMgr);
                             }
                         } else {
-                            out = current.doForward(train, workspaceMgr);
+                            throw new IllegalStateException("FwdPassType not supported for this method: " + fwdPassType);
                         }
-                    } else {
-                        throw new IllegalStateException("FwdPassType not supported for this method: " + fwdPassType);
+
+                        if (segment != null && segmentPos == segment.length - 1) {
+                            out = vertexMgr.leverageTo(ArrayType.ACTIVATIONS, out);
+                        }
+
+                        validateArrayWorkspaces(vertexMgr, out, ArrayType.ACTIVATIONS, vName, false, "Feed forward (inference)");
                     }
 
-                    validateArrayWorkspaces(workspaceMgr, out, ArrayType.ACTIVATIONS, vName, false, "Feed forward (inference)");
-                }
+                    activations.put(current.getVertexName(), out);
 
-                activations.put(current.getVertexName(), out);
+                    if (inputsTo != null) {
+                        //Can be null for output layers
+                        for (VertexIndices v : inputsTo) {
+                            //Note that we don't have to do anything special here: the activations are always detached in
+                            // this method
+                            int inputToIndex = v.getVertexIndex();
+                            int vIdxEdge = v.getVertexEdgeNumber();
+                            vertices[inputToIndex].setInput(vIdxEdge, out, outputMgr);
+                        }
+                    }
 
-                if (inputsTo != null) {
-                    //Can be null for output layers
-                    for (VertexIndices v : inputsTo) {
-                        //Note that we don't have to do anything special here: the activations are always detached in
-                        // this method
-                        int inputToIndex = v.getVertexIndex();
-                        int vIdxEdge = v.getVertexEdgeNumber();
-                        vertices[inputToIndex].setInput(vIdxEdge, out, workspaceMgr);
+                    if (clearInputs) {
+                        current.clear();
                     }
-                }
 
-                if (clearInputs) {
-                    current.clear();
-                }
+                    if (segment != null && segmentPos == segment.length - 1) {
+                        //End of checkpointing segment: activations inside the segment are no longer needed until backprop
+                        wsCheckpoint.close();
+                        wsCheckpoint = null;
+                        for (int j = 0; j < segment.length - 1; j++) {
+                            activations.remove(segment[j]);
+                        }
+                    }
 
 
-                if (traceLog) {
-                    log.trace("Completed forward pass: {} (\"{}\") - {}", i, vName, current.getClass().getSimpleName());
+                    if (traceLog) {
+                        log.trace("Completed forward pass: {} (\"{}\") - {}", i, vName, current.getClass().getSimpleName());
+                    }
                 }
             }
+        } finally {
+            if (wsCheckpoint != null) {
+                //Only on exception, or if the forward pass stops inside a segment
+                wsCheckpoint.close();
+            }
         }
 
         Nd4j.getMemoryManager().setCurrentWorkspace(null);
@@ -2203,6 +2258,86 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         return activations;
     }
 
+    /**
+     * Workspace manager for the forward pass (when workspaces are used)
+     *
+     * @param input                   First network input
+     * @param inputInCheckpoint       If true: layer inputs are placed in the gradient checkpointing workspace
+     * @param activationsInCheckpoint If true: vertex activations are placed in the gradient checkpointing workspace
+     */
+    protected LayerWorkspaceMgr ffWorkspaceMgr(INDArray input, boolean inputInCheckpoint, boolean activationsInCheckpoint) {
+        LayerWorkspaceMgr workspaceMgr = LayerWorkspaceMgr.builder()
+                .with(ArrayType.ACTIVATIONS, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.INPUT, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                .build();
+
+        if(input != null && input.isAttached()) {
+            //Don't leverage out of async DataMultiSetIterator workspaces
+            workspaceMgr.setNoLeverageOverride(input.data().getParentWorkspace().getId());
+        }
+
+        if(configuration.getCacheMode() != CacheMode.NONE) {
+            //For now: store cache mode activations in activations workspace
+            workspaceMgr.setWorkspace(ArrayType.FF_CACHE, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG);
+        }
+
+        if (inputInCheckpoint) {
+            workspaceMgr.setWorkspace(ArrayType.INPUT, WS_CHECKPOINT_ACT, WS_LAYER_ACT_X_CONFIG);
+        }
+        if (activationsInCheckpoint) {
+            workspaceMgr.setWorkspace(ArrayType.ACTIVATIONS, WS_CHECKPOINT_ACT, WS_LAYER_ACT_X_CONFIG);
+        }
+        workspaceMgr.setHelperWorkspacePointers(helperWorkspaces);
+        return workspaceMgr;
+    }
+
+    /**
+     * @param vertexName Name of the vertex
+     * @return The gradient checkpointing segment (vertex names, in forward order) that contains the vertex, or null
+     */
+    protected String[] checkpointSegmentFor(String vertexName) {
+        String[][] segments = configuration.getCheckpointSegments();
+        if (segments != null) {
+            for (String[] segment : segments) {
+                if (ArrayUtils.contains(segment, vertexName)) {
+                    return segment;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Recompute the activations of a gradient checkpointing segment, that were discarded after the forward pass: the
+     * first vertex of the segment is executed again from its (kept) inputs, and the inputs of the remaining vertices of
+     * the segment are set. The activations are placed in the WS_CHECKPOINT_ACT workspace, which is returned open, and
+     * must be closed once backprop of the segment is complete
+     *
+     * @param segment          Vertex names of the segment, in forward order
+     * @param initialWorkspace Workspace to restore as the current workspace
+     * @return The open checkpoint workspace
+     */
+    protected MemoryWorkspace recomputeCheckpointSegment(String[] segment, MemoryWorkspace initialWorkspace) {
+        LayerWorkspaceMgr mgr = ffWorkspaceMgr(inputs[0], true, true);
+        MemoryWorkspace wsCheckpoint = mgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+        wsCheckpoint.setPreviousWorkspace(initialWorkspace);
+        try (MemoryWorkspace wsFFWorking = mgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
+            //Inputs of the first vertex are kept, with dropout (if any) already applied
+            INDArray act = verticesMap.get(segment[0]).doForward(true, mgr);
+            for (int i = 1; i < segment.length; i++) {
+                GraphVertex gv = verticesMap.get(segment[i]);
+                gv.setInput(0, act, mgr);
+                if (i < segment.length - 1) {
+                    act = gv.doForward(true, mgr);
+                }
+            }
+        }
+        Nd4j.getMemoryManager().setCurrentWorkspace(initialWorkspace);
+        return wsCheckpoint;
+    }
+
 
     /**
      * Provide the output of the specified layers, detached from any workspace. This is most commonly used at inference/test
@@ -2619,6 +2754,11 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         LinkedList<Triple<String, INDArray, Character>> gradients = new LinkedList<>();
         boolean[] setVertexEpsilon = new boolean[topologicalOrder.length]; //If true: already set epsilon for this vertex; later epsilons should be *added* to the existing one, not set
         MemoryWorkspace initialWorkspace = Nd4j.getMemoryManager().getCurrentWorkspace();
+        //Gradient checkpointing: activations of the current segment, recomputed for backprop
+        boolean checkpointing = checkpointedForward && !truncatedBPTT;
+        checkpointedForward = false;
+        String[] currSegment = null;
+        MemoryWorkspace wsCheckpoint = null;
 
         boolean traceLog = log.isTraceEnabled();
 
@@ -2634,6 +2774,14 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                     log.trace("About backprop: {} (\"{}\") - {}", i, vertexName, current.getClass().getSimpleName());
                 }
 
+                if (checkpointing && currSegment == null) {
+                    String[] segment = checkpointSegmentFor(vertexName);
+                    if (segment != null && vertexName.equals(segment[segment.length - 1])) {
+                        currSegment = segment;
+                        wsCheckpoint = recomputeCheckpointSegment(segment, initialWorkspace);
+                    }
+                }
+
                 //FIXME: make the frozen vertex feature extraction more flexible
                 if (current.hasLayer() && current.getLayer() instanceof FrozenLayer || current instanceof FrozenVertex) {
                     hitFrozen = true;
@@ -2773,6 +2921,13 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
                         gradients.addFirst(triple);
                 }
 
+                if (currSegment != null && vertexName.equals(currSegment[0])) {
+                    //All vertices of the segment are done: recomputed activations are no longer required
+                    wsCheckpoint.close();
+                    wsCheckpoint = null;
+                    currSegment = null;
+                }
+
 
                 if (traceLog) {
                     log.trace("Completed backprop: {} (\"{}\") - {}", i, vertexName, current.getClass().getSimpleName());
@@ -2781,6 +2936,10 @@ public class ComputationGraph implements Serializable, Model, NeuralNetwork {
         } catch (Throwable t2) {
             t = t2;
         } finally {
+            if (wsCheckpoint != null) {
+                //Only on exception
+                wsCheckpoint.close();
+            }
             Nd4j.getMemoryManager().setCurrentWorkspace(initialWorkspace);
 
             if(t != null){
@@ -130,6 +130,9 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
     @Getter
     protected transient Map<String,Pointer> helperWorkspaces = new HashMap<>();
 
+    //True if the last forward pass discarded the activations of gradient checkpointing segments
+    protected transient boolean checkpointedForward;
+
 
     /**
      * Workspace for working memory for a single layer: forward pass and backward pass
@@ -160,6 +163,12 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
      */
     protected static final String WS_RNN_LOOP_WORKING_MEM = "WS_RNN_LOOP_WORKING_MEM";
 
+    /**
+     * Workspace for the activations of a gradient checkpointing segment: opened during the forward pass of the segment,
+     * and again during backprop of the segment, when the activations are recomputed
+     */
+    protected static final String WS_CHECKPOINT_ACT = "WS_CHECKPOINT_ACT";
+
 
     protected WorkspaceConfiguration WS_LAYER_WORKING_MEM_CONFIG;
 
@@ -1092,6 +1101,22 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
      */
     protected  List<INDArray> ffToLayerActivationsInWs(int layerIndex, @NonNull FwdPassType fwdPassType, boolean storeLastForTBPTT,
                                                        @NonNull INDArray input, INDArray fMask, INDArray lMask) {
+        return ffToLayerActivationsInWs(layerIndex, fwdPassType, storeLastForTBPTT, input, fMask, lMask, false);
+    }
+
+    /**
+     * As per {@link #ffToLayerActivationsInWs(int, FwdPassType, boolean, INDArray, INDArray, INDArray)}, optionally
+     * with gradient checkpointing.<br>
+     * If checkpointing is used, the activations inside the checkpointing segments (see
+     * {@link MultiLayerConfiguration#getCheckpointSegments()}) are placed in the WS_CHECKPOINT_ACT workspace, which is
+     * closed at the end of each segment: these activations are null in the returned list, and are recomputed during
+     * backprop by {@link #calcBackpropGradients(INDArray, boolean, boolean, boolean)}
+     *
+     * @param checkpoint If true: use gradient checkpointing, if configured and training workspaces are enabled
+     */
+    protected  List<INDArray> ffToLayerActivationsInWs(int layerIndex, @NonNull FwdPassType fwdPassType, boolean storeLastForTBPTT,
+                                                       @NonNull INDArray input, INDArray fMask, INDArray lMask, boolean checkpoint) {
+        final INDArray networkInput = input;
         setInput(input);
         setLayerMaskArrays(fMask, lMask);
 
@@ -1099,39 +1124,37 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         if(layerWiseConfigurations.getTrainingWorkspaceMode() == WorkspaceMode.NONE) {
             WorkspaceUtils.assertNoWorkspacesOpen("Expected no workspace active in ffToLayerActivationsInWs when training workspace is set to NONE");
             workspaceMgr = LayerWorkspaceMgr.noWorkspaces();
+            checkpoint = false;
         } else {
-            workspaceMgr = LayerWorkspaceMgr.builder()
-                    .with(ArrayType.INPUT, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
-                    .with(ArrayType.ACTIVATIONS, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
-                    .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
-                    .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
-                    .build();
-
-            if(input.isAttached()) {
-                //Don't leverage out of async DataSetIterator workspaces
-                workspaceMgr.setNoLeverageOverride(input.data().getParentWorkspace().getId());
-            }
-
-            if(layerWiseConfigurations.getCacheMode() != CacheMode.NONE) {
-                //For now: store cache mode activations in activations workspace
-                workspaceMgr.setWorkspace(FF_CACHE, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG);
-                workspaceMgr.setWorkspace(ArrayType.BP_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG);
-            }
-
+            workspaceMgr = ffTrainingWorkspaceMgr(input, false, false);
             WorkspaceUtils.assertOpenAndActive(WS_ALL_LAYERS_ACT, "ffToLayerActivationsInWs method requires workspace WS_ALL_LAYERS_ACT to be open");
         }
         workspaceMgr.setHelperWorkspacePointers(helperWorkspaces);
+        checkpoint &= fwdPassType == FwdPassType.STANDARD && layerWiseConfigurations.getCheckpointSegments() != null;
+        checkpointedForward = checkpoint;
 
         List<INDArray> out = new ArrayList<>();
         out.add(workspaceMgr.leverageTo(ArrayType.INPUT, input));    //Probably unnecessary usually
 
         boolean traceLog = log.isTraceEnabled();
+        MemoryWorkspace wsCheckpoint = null;
         try(MemoryWorkspace wsFFWorking = workspaceMgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
             for( int i = 0; i <= layerIndex; i++) {
+                //Gradient checkpointing: activations inside a segment go to the checkpoint workspace
+                LayerWorkspaceMgr layerMgr = workspaceMgr;
+                int[] segment = checkpoint ? checkpointSegmentFor(i) : null;
+                if (segment != null) {
+                    layerMgr = ffTrainingWorkspaceMgr(networkInput, i > segment[0], i < segment[1]);
+                    if (i == segment[0]) {
+                        wsCheckpoint = layerMgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+                    }
+                }
+
                 if (getLayerWiseConfigurations().getInputPreProcess(i) != null) {
-                    input = workspaceMgr.dup(ArrayType.ACTIVATIONS, getLayerWiseConfigurations().getInputPreProcess(i).preProcess(input, getInputMiniBatchSize(), workspaceMgr));
+                    LayerWorkspaceMgr ppMgr = segment != null && i > segment[0] ? layerMgr : workspaceMgr;
+                    input = ppMgr.dup(ArrayType.ACTIVATIONS, getLayerWiseConfigurations().getInputPreProcess(i).preProcess(input, getInputMiniBatchSize(), ppMgr));
                     //Validation: Exception if invalid (bad preprocessor implementation)
-                    validateArrayWorkspaces(workspaceMgr, input, ArrayType.ACTIVATIONS, i, true, "Feed forward to layer (training)");
+                    validateArrayWorkspaces(ppMgr, input, ArrayType.ACTIVATIONS, i, true, "Feed forward to layer (training)");
                 }
 
                 if(traceLog){
@@ -1139,18 +1162,18 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                 }
 
                 if(fwdPassType == FwdPassType.STANDARD) {
-                    input = layers[i].activate(input, true, workspaceMgr);
+                    input = layers[i].activate(input, true, layerMgr);
                 } else if(fwdPassType == FwdPassType.RNN_ACTIVATE_WITH_STORED_STATE) {
                     if (layers[i] instanceof RecurrentLayer) {
-                        input = ((RecurrentLayer) layers[i]).rnnActivateUsingStoredState(input, true, storeLastForTBPTT, workspaceMgr);
+                        input = ((RecurrentLayer) layers[i]).rnnActivateUsingStoredState(input, true, storeLastForTBPTT, layerMgr);
                     }else if(layers[i] instanceof BaseWrapperLayer && ((BaseWrapperLayer)layers[i]).getUnderlying() instanceof RecurrentLayer) {
                         RecurrentLayer rl = (RecurrentLayer) ((BaseWrapperLayer)layers[i]).getUnderlying();
-                        input = rl.rnnActivateUsingStoredState(input, true, storeLastForTBPTT, workspaceMgr);
+                        input = rl.rnnActivateUsingStoredState(input, true, storeLastForTBPTT, layerMgr);
                     } else if (layers[i] instanceof MultiLayerNetwork) {
                         List<INDArray> temp = ((MultiLayerNetwork) layers[i]).rnnActivateUsingStoredState(input, true, storeLastForTBPTT);
                         input = temp.get(temp.size() - 1);
                     } else {
-                        input = layers[i].activate(input, true, workspaceMgr);
+                        input = layers[i].activate(input, true, layerMgr);
                     }
                 } else {
                     throw new IllegalStateException("FwdPassType not supported for this method: " + fwdPassType);
@@ -1160,16 +1183,34 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                     throw new IllegalStateException("Layer " + i + " returned null activations");
                 }
 
+                if (segment != null && i == segment[1]) {
+                    input = layerMgr.leverageTo(ArrayType.ACTIVATIONS, input);
+                }
+
                 //Validation: Exception if invalid (bad layer implementation)
-                validateArrayWorkspaces(workspaceMgr, input, ArrayType.ACTIVATIONS, i, false, "Feed forward to layer (training)");
-                validateArrayWorkspaces(workspaceMgr, layers[i].input(), ArrayType.INPUT, i, false, "Feed forward to layer (training)");
+                validateArrayWorkspaces(layerMgr, input, ArrayType.ACTIVATIONS, i, false, "Feed forward to layer (training)");
+                validateArrayWorkspaces(layerMgr, layers[i].input(), ArrayType.INPUT, i, false, "Feed forward to layer (training)");
 
                 out.add(input);
 
+                if (segment != null && i == segment[1]) {
+                    //End of checkpointing segment: activations inside the segment are no longer needed until backprop
+                    wsCheckpoint.close();
+                    wsCheckpoint = null;
+                    for (int j = segment[0] + 1; j <= segment[1]; j++) {
+                        out.set(j, null);
+                    }
+                }
+
                 if(traceLog) {
                     log.trace("Completed forward pass: {} - {}", i, layers[i].getClass().getSimpleName());
                 }
             }
+        } finally {
+            if (wsCheckpoint != null) {
+                //Only on exception, or if the forward pass stops inside a segment
+                wsCheckpoint.close();
+            }
         }
 
         ArrayType[] toClose = {
@@ -1186,6 +1227,90 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         return out;
     }
 
+    /**
+     * Workspace manager for the forward pass at training time
+     *
+     * @param input              Network input
+     * @param inputInCheckpoint  If true: layer inputs are placed in the gradient checkpointing workspace
+     * @param activationsInCheckpoint If true: layer activations are placed in the gradient checkpointing workspace
+     */
+    protected LayerWorkspaceMgr ffTrainingWorkspaceMgr(INDArray input, boolean inputInCheckpoint, boolean activationsInCheckpoint) {
+        LayerWorkspaceMgr workspaceMgr = LayerWorkspaceMgr.builder()
+                .with(ArrayType.INPUT, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.ACTIVATIONS, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG)
+                .with(ArrayType.FF_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG)
+                .with(ArrayType.RNN_FF_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM, WS_RNN_LOOP_WORKING_MEM_CONFIG)
+                .build();
+
+        if(input != null && input.isAttached()) {
+            //Don't leverage out of async DataSetIterator workspaces
+            workspaceMgr.setNoLeverageOverride(input.data().getParentWorkspace().getId());
+        }
+
+        if(layerWiseConfigurations.getCacheMode() != CacheMode.NONE) {
+            //For now: store cache mode activations in activations workspace
+            workspaceMgr.setWorkspace(FF_CACHE, WS_ALL_LAYERS_ACT, WS_ALL_LAYERS_ACT_CONFIG);
+            workspaceMgr.setWorkspace(ArrayType.BP_WORKING_MEM, WS_LAYER_WORKING_MEM, WS_LAYER_WORKING_MEM_CONFIG);
+        }
+
+        if (inputInCheckpoint) {
+            workspaceMgr.setWorkspace(ArrayType.INPUT, WS_CHECKPOINT_ACT, WS_LAYER_ACT_X_CONFIG);
+        }
+        if (activationsInCheckpoint) {
+            workspaceMgr.setWorkspace(ArrayType.ACTIVATIONS, WS_CHECKPOINT_ACT, WS_LAYER_ACT_X_CONFIG);
+        }
+        workspaceMgr.setHelperWorkspacePointers(helperWorkspaces);
+        return workspaceMgr;
+    }
+
+    /**
+     * @param layerIdx Index of the layer
+     * @return The gradient checkpointing segment ({fromLayer, toLayer}) that contains the layer, or null
+     */
+    protected int[] checkpointSegmentFor(int layerIdx) {
+        int[][] segments = layerWiseConfigurations.getCheckpointSegments();
+        if (segments != null) {
+            for (int[] segment : segments) {
+                if (layerIdx >= segment[0] && layerIdx <= segment[1]) {
+                    return segment;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Recompute the activations of a gradient checkpointing segment, that were discarded after the forward pass: layers
+     * fromLayer to toLayer-1 are activated again from the (kept) input of fromLayer, setting the inputs of layers
+     * fromLayer+1 to toLayer. The activations are placed in the WS_CHECKPOINT_ACT workspace, which is returned open,
+     * and must be closed once backprop of the segment is complete
+     *
+     * @param segment          {fromLayer, toLayer}
+     * @param initialWorkspace Workspace to restore as the current workspace
+     * @return The open checkpoint workspace
+     */
+    protected MemoryWorkspace recomputeCheckpointSegment(int[] segment, MemoryWorkspace initialWorkspace) {
+        LayerWorkspaceMgr mgr = ffTrainingWorkspaceMgr(input, true, true);
+        MemoryWorkspace wsCheckpoint = mgr.notifyScopeEntered(ArrayType.ACTIVATIONS);
+        wsCheckpoint.setPreviousWorkspace(initialWorkspace);
+        try (MemoryWorkspace wsFFWorking = mgr.notifyScopeEntered(ArrayType.FF_WORKING_MEM)) {
+            //Input of the first layer is kept, with dropout (if any) already applied
+            INDArray act = layers[segment[0]].activate(true, mgr);
+            for (int i = segment[0] + 1; i <= segment[1]; i++) {
+                if (layerWiseConfigurations.getInputPreProcess(i) != null) {
+                    act = mgr.dup(ArrayType.ACTIVATIONS, layerWiseConfigurations.getInputPreProcess(i).preProcess(act, getInputMiniBatchSize(), mgr));
+                }
+                if (i < segment[1]) {
+                    act = layers[i].activate(act, true, mgr);
+                } else {
+                    layers[i].setInput(act, mgr);
+                }
+            }
+        }
+        Nd4j.getMemoryManager().setCurrentWorkspace(initialWorkspace);
+        return wsCheckpoint;
+    }
+
     /**
      * Provide the output of the specified layer, detached from any workspace. This is most commonly used at inference/test
      * time, and is more memory efficient than {@link #ffToLayerActivationsDetached(boolean, FwdPassType, boolean, int, INDArray, INDArray, INDArray, boolean)}
@@ -1962,6 +2087,11 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         MemoryWorkspace wsActGradCloseNext = null;
         MemoryWorkspace wsActGradTemp = null;
         MemoryWorkspace initialWorkspace = Nd4j.getMemoryManager().getCurrentWorkspace();
+        //Gradient checkpointing: activations of the current segment, recomputed for backprop
+        boolean checkpointing = checkpointedForward && !tbptt && epsilon == null;
+        checkpointedForward = false;
+        int[] currSegment = null;
+        MemoryWorkspace wsCheckpoint = null;
 
         boolean traceLog = log.isTraceEnabled();
 
@@ -1978,6 +2108,14 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
 
                 LayerWorkspaceMgr workspaceMgr = (i % 2 == 0 ? mgrEven : mgrOdd);
 
+                if (checkpointing && currSegment == null) {
+                    int[] segment = checkpointSegmentFor(i);
+                    if (segment != null && i == segment[1]) {
+                        currSegment = segment;
+                        wsCheckpoint = recomputeCheckpointSegment(segment, initialWorkspace);
+                    }
+                }
+
                 if (withOutputLayer && i == layers.length - 1) {
                     if (!(getOutputLayer() instanceof IOutputLayer)) {
                         log.warn("Warning: final layer isn't output layer. You cannot use backprop without an output layer.");
@@ -2052,6 +2190,13 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
                     wsActGradTemp = null;
                 }
 
+                if (currSegment != null && i == currSegment[0]) {
+                    //All layers of the segment are done: recomputed activations are no longer required
+                    wsCheckpoint.close();
+                    wsCheckpoint = null;
+                    currSegment = null;
+                }
+
                 if (traceLog) {
                     log.trace("Completed backprop: {} - {}", i, layers[i].getClass().getSimpleName());
                 }
@@ -2059,6 +2204,10 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         } catch (Throwable thr) {
             t = thr;
         } finally {
+            if (wsCheckpoint != null) {
+                //Only on exception, or if backprop stops inside a segment (frozen layers)
+                wsCheckpoint.close();
+            }
             if(wsActGradCloseNext != null) {
                 try {
                     wsActGradCloseNext.close();
@@ -2789,7 +2938,7 @@ public class MultiLayerNetwork implements Serializable, Classifier, Layer, Neura
         // need the input to the output layer to be set (such that backprop can be done)
         try(MemoryWorkspace ws = mgr.notifyScopeEntered(ArrayType.ACTIVATIONS)) {
 
-            List<INDArray> activations = ffToLayerActivationsInWs(layers.length - 2, fwdType, tbptt, input, mask, null);
+            List<INDArray> activations = ffToLayerActivationsInWs(layers.length - 2, fwdType, tbptt, input, mask, null, !tbptt);
             if (!trainingListeners.isEmpty()) {
                 //TODO: We possibly do want output layer activations in some cases here...
                 for (TrainingListener tl : trainingListeners) {
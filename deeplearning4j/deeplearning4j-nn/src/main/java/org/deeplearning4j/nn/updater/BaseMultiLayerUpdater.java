@@ -321,6 +321,25 @@ public abstract class BaseMultiLayerUpdater<T extends Model> implements Updater
         }
     }
 
+    /**
+     * Prepare a gradient that is the sum of the gradients of multiple minibatches (gradient accumulation) for
+     * {@link #update(Gradient, int, int, int, LayerWorkspaceMgr)} with the total number of examples: gradients that are
+     * divided by the minibatch size remain summed, whereas the 'gradients' that are actually updates (such as BatchNorm
+     * mean/variance estimates) are averaged over the minibatches
+     *
+     * @param summedGradient Flattened gradients, summed over the minibatches. Modified in-place
+     * @param numMinibatches Number of minibatches the gradients were summed over
+     */
+    public void averageNonMinibatchGradients(INDArray summedGradient, int numMinibatches) {
+        if (numMinibatches <= 1) {
+            return;
+        }
+        summedGradient.divi(numMinibatches);
+        for (INDArray arr : getMinibatchDivisionSubsets(summedGradient)) {
+            arr.muli(numMinibatches);
+        }
+    }
+
     protected void divideByMinibatch(boolean isExternal, Gradient gradient, int batchSize){
         //Challenge here: most gradients are actual gradients, and should be divided by the minibatch to get the average
         //However, some 'gradients' are actually updates - an example being BatchNorm mean/variance estimates... these
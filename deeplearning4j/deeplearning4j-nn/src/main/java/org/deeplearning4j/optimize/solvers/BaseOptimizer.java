@@ -27,6 +27,7 @@ import org.deeplearning4j.nn.api.Updater;
 import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
 import org.deeplearning4j.nn.gradient.Gradient;
 import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.updater.BaseMultiLayerUpdater;
 import org.deeplearning4j.nn.updater.graph.ComputationGraphUpdater;
 import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
 import org.deeplearning4j.optimize.api.ConvexOptimizer;
@@ -69,6 +70,10 @@ public abstract class BaseOptimizer implements ConvexOptimizer {
     public final static String PARAMS_KEY = "params";
     public final static String SEARCH_DIR = "searchDirection";
     protected Map<String, Object> searchState = new ConcurrentHashMap<>();
+    //Gradient accumulation: sum of the gradients (and the number of minibatches/examples) since the last update
+    protected INDArray accumulatedGradient;
+    protected int accumulatedMinibatches;
+    protected int accumulatedExamples;
 
 
     /**
@@ -144,6 +149,82 @@ public abstract class BaseOptimizer implements ConvexOptimizer {
         return pair;
     }
 
+    /**
+     * Gradient accumulation: compute the gradient and score for the current minibatch, and add the gradient to the
+     * gradients accumulated so far. Once gradients for the specified number of minibatches have been accumulated, the
+     * summed gradients are placed in the model's gradient, and the updater is applied as for a single minibatch
+     * containing all of the examples.
+     *
+     * @param accumulationSteps Number of minibatches to accumulate gradients over
+     * @return The gradient (after the updater has been applied) and score, or null if the parameters should not be
+     * updated yet
+     */
+    public Pair<Gradient, Double> accumulateGradientAndScore(LayerWorkspaceMgr workspaceMgr, int accumulationSteps) {
+        oldScore = score;
+        model.computeGradientAndScore(workspaceMgr);
+
+        if (trainingListeners != null && !trainingListeners.isEmpty()) {
+            try (MemoryWorkspace workspace = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                for (TrainingListener l : trainingListeners) {
+                    l.onGradientCalculation(model);
+                }
+            }
+        }
+
+        Pair<Gradient, Double> pair = model.gradientAndScore();
+        score = pair.getSecond();
+
+        INDArray gradient = pair.getFirst().gradient();
+        if (accumulatedGradient == null || accumulatedGradient.length() != gradient.length()
+                || accumulatedGradient.dataType() != gradient.dataType()) {
+            try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                accumulatedGradient = Nd4j.zeros(gradient.dataType(), gradient.length());
+            }
+            accumulatedMinibatches = 0;
+            accumulatedExamples = 0;
+        }
+        accumulatedGradient.addi(gradient.reshape(gradient.length()));
+        accumulatedMinibatches++;
+        accumulatedExamples += model.batchSize();
+
+        if (accumulatedMinibatches < accumulationSteps) {
+            return null;
+        }
+
+        gradient.assign(accumulatedGradient.reshape(gradient.shape()));
+        BaseMultiLayerUpdater<?> u = getMultiLayerUpdater();
+        if (u != null) {
+            u.averageNonMinibatchGradients(gradient, accumulatedMinibatches);
+        }
+        int examples = accumulatedExamples;
+        accumulatedGradient.assign(0);
+        accumulatedMinibatches = 0;
+        accumulatedExamples = 0;
+
+        updateGradientAccordingToParams(pair.getFirst(), model, examples, workspaceMgr);
+        return pair;
+    }
+
+    /**
+     * @return The updater for the model (created if required), or null if it is not a BaseMultiLayerUpdater
+     */
+    protected BaseMultiLayerUpdater<?> getMultiLayerUpdater() {
+        if (model instanceof ComputationGraph) {
+            if (computationGraphUpdater == null) {
+                try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                    computationGraphUpdater = new ComputationGraphUpdater((ComputationGraph) model);
+                }
+            }
+            return computationGraphUpdater;
+        }
+        if (updater == null) {
+            try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                updater = model.createUpdater();
+            }
+        }
+        return updater instanceof BaseMultiLayerUpdater ? (BaseMultiLayerUpdater<?>) updater : null;
+    }
+
     /**
      * Optimize call. This runs the optimizer.
      * @return whether it converged or not
@@ -47,7 +47,17 @@ public class StochasticGradientDescent extends BaseOptimizer {
 
     @Override
     public boolean optimize(LayerWorkspaceMgr workspaceMgr) {
-        Pair<Gradient, Double> pair = gradientAndScore(workspaceMgr);
+        int accumulationSteps = NetworkUtils.getGradientAccumulationSteps(model);
+        Pair<Gradient, Double> pair;
+        if (accumulationSteps > 1) {
+            pair = accumulateGradientAndScore(workspaceMgr, accumulationSteps);
+            if (pair == null) {
+                //Gradients not yet accumulated for all minibatches: no parameter update (or iteration) this time
+                return true;
+            }
+        } else {
+            pair = gradientAndScore(workspaceMgr);
+        }
 
         Gradient gradient = pair.getFirst();
 
@@ -0,0 +1,116 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.optimize.solvers.accumulation;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.optimize.listeners.SharedGradient;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.ResidualPostProcessor;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.ThresholdAlgorithm;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.compression.ThresholdCompression;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * Threshold encoding of updates with residual accumulation, for a single replica.<br>
+ * Each call to {@link #encodeUpdates(int, int, INDArray)} adds the updates to the residual vector, picks a threshold
+ * using the {@link ThresholdAlgorithm}, and encodes all residual elements at or above the threshold (see
+ * {@link ThresholdCompression}). Everything that was not transmitted stays in the residual for the next steps,
+ * so no part of the updates is lost - only delayed.<br>
+ * Not thread safe: use one instance per replica.
+ */
+@Slf4j
+public class EncodingHandler {
+
+    protected final ThresholdAlgorithm thresholdAlgorithm;
+    protected final ResidualPostProcessor residualPostProcessor;
+
+    @Getter
+    protected INDArray residual;
+    @Getter
+    protected Double lastThreshold;
+    @Getter
+    protected Double lastSparsityRatio;
+
+    /**
+     * @param thresholdAlgorithm    Threshold algorithm. Cloned, as algorithms may be stateful
+     * @param residualPostProcessor Residual post processor. May be null
+     */
+    public EncodingHandler(@NonNull ThresholdAlgorithm thresholdAlgorithm, ResidualPostProcessor residualPostProcessor) {
+        this.thresholdAlgorithm = thresholdAlgorithm.clone();
+        this.residualPostProcessor = residualPostProcessor == null ? null : residualPostProcessor.clone();
+    }
+
+    /**
+     * Encode the updates (plus the residual of the previous steps)
+     *
+     * @param iteration Current iteration
+     * @param epoch     Current epoch
+     * @param updates   Updates to encode. Not modified
+     * @return Encoded updates
+     */
+    public INDArray encodeUpdates(int iteration, int epoch, @NonNull INDArray updates) {
+        try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            if (residual == null || residual.length() != updates.length()) {
+                residual = updates.reshape(updates.length()).dup('c');
+            } else {
+                residual.addi(updates.reshape(updates.length()));
+            }
+
+            double threshold = thresholdAlgorithm.calculateThreshold(iteration, epoch, lastThreshold,
+                    lastSparsityRatio, residual);
+            INDArray encoded = ThresholdCompression.encode(residual, threshold);
+
+            lastThreshold = threshold;
+            lastSparsityRatio = ThresholdCompression.numEncoded(encoded) / (double) residual.length();
+            if (residualPostProcessor != null)
+                residualPostProcessor.processResidual(iteration, epoch, threshold, residual);
+
+            if (log.isTraceEnabled()) {
+                log.trace("Iteration {}: threshold {}, encoded {} of {} elements", iteration, threshold,
+                        ThresholdCompression.numEncoded(encoded), residual.length());
+            }
+            return encoded;
+        }
+    }
+
+    /**
+     * Encode the updates, see {@link #encodeUpdates(int, int, INDArray)}
+     *
+     * @param id Id of the replica the updates come from
+     * @return Encoded updates, wrapped with the replica id
+     */
+    public SharedGradient encodeUpdates(String id, int iteration, int epoch, @NonNull INDArray updates) {
+        return new SharedGradient(id, encodeUpdates(iteration, epoch, updates));
+    }
+
+    /**
+     * Decode encoded updates, adding them to the target array
+     *
+     * @param encoded Encoded updates
+     * @param target  Contiguous array to add the decoded updates to
+     */
+    public static void decodeUpdates(@NonNull SharedGradient encoded, @NonNull INDArray target) {
+        ThresholdCompression.decode(encoded.getGradient(), target);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.optimize.solvers.accumulation.encoding;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.Serializable;
+
+/**
+ * ThresholdAlgorithm is used to determine the threshold used for threshold encoding of updates, at each step.
+ * Implementations may be stateful, hence each replica should use its own instance (see {@link #clone()})
+ */
+public interface ThresholdAlgorithm extends Serializable {
+
+    /**
+     * @param iteration           Current iteration
+     * @param epoch               Current epoch
+     * @param lastThreshold       Threshold used for the previous step, or null for the first step
+     * @param lastSparsityRatio   Fraction of elements encoded in the previous step, or null for the first step
+     * @param updatesPlusResidual Updates plus residual, that are about to be encoded. Must not be modified
+     * @return Threshold to use for this step
+     */
+    double calculateThreshold(int iteration, int epoch, Double lastThreshold, Double lastSparsityRatio,
+                              INDArray updatesPlusResidual);
+
+    ThresholdAlgorithm clone();
+}
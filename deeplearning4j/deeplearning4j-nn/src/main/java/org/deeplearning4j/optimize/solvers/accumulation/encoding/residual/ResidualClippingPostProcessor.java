@@ -0,0 +1,69 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.optimize.solvers.accumulation.encoding.residual;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.ResidualPostProcessor;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.ops.transforms.Transforms;
+
+/**
+ * Clips the residual vector to the range [-thresholdMultipleClipValue * threshold, thresholdMultipleClipValue * threshold]
+ * every {@code frequency} iterations. This stops the residual from growing without bound, which can happen when
+ * the threshold is much smaller than the updates
+ */
+@EqualsAndHashCode
+@Getter
+public class ResidualClippingPostProcessor implements ResidualPostProcessor {
+
+    private final double thresholdMultipleClipValue;
+    private final int frequency;
+
+    /**
+     * @param thresholdMultipleClipValue Clip value, as a multiple of the current threshold. Must be >= 1
+     * @param frequency                  Frequency (in iterations) with which to clip the residual
+     */
+    public ResidualClippingPostProcessor(double thresholdMultipleClipValue, int frequency) {
+        if (thresholdMultipleClipValue < 1.0)
+            throw new IllegalArgumentException("Threshold multiple clip value must be >= 1.0, got "
+                    + thresholdMultipleClipValue);
+        if (frequency <= 0)
+            throw new IllegalArgumentException("Frequency must be positive, got " + frequency);
+
+        this.thresholdMultipleClipValue = thresholdMultipleClipValue;
+        this.frequency = frequency;
+    }
+
+    @Override
+    public void processResidual(int iteration, int epoch, double lastThreshold, INDArray residualVector) {
+        if (iteration > 0 && iteration % frequency == 0) {
+            double clipValue = thresholdMultipleClipValue * lastThreshold;
+            Transforms.max(residualVector, -clipValue, false);
+            Transforms.min(residualVector, clipValue, false);
+        }
+    }
+
+    @Override
+    public ResidualClippingPostProcessor clone() {
+        return new ResidualClippingPostProcessor(thresholdMultipleClipValue, frequency);
+    }
+}
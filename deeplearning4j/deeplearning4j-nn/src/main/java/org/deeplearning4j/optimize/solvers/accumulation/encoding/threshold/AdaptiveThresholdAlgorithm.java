@@ -0,0 +1,103 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.optimize.solvers.accumulation.encoding.threshold;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.ThresholdAlgorithm;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * An adaptive threshold algorithm: the threshold is adjusted at each step to keep the fraction of encoded elements
+ * (the sparsity ratio) between {@code minTargetSparsity} and {@code maxTargetSparsity}.<br>
+ * If the last sparsity ratio was below the minimum, the threshold is multiplied by {@code decayRate} (i.e., lowered);
+ * if it was above the maximum, the threshold is divided by {@code decayRate}.
+ */
+@EqualsAndHashCode
+@Getter
+public class AdaptiveThresholdAlgorithm implements ThresholdAlgorithm {
+    public static final double DEFAULT_INITIAL_THRESHOLD = 1e-3;
+    public static final double DEFAULT_MIN_SPARSITY_TARGET = 1e-3;
+    public static final double DEFAULT_MAX_SPARSITY_TARGET = 1e-2;
+    public static final double DEFAULT_DECAY_RATE = Math.pow(0.5, (1 / 20.0));     //Halve (or double) every 20 steps
+
+    private final double initialThreshold;
+    private final double minTargetSparsity;
+    private final double maxTargetSparsity;
+    private final double decayRate;
+
+    public AdaptiveThresholdAlgorithm() {
+        this(DEFAULT_INITIAL_THRESHOLD);
+    }
+
+    public AdaptiveThresholdAlgorithm(double initialThreshold) {
+        this(initialThreshold, DEFAULT_MIN_SPARSITY_TARGET, DEFAULT_MAX_SPARSITY_TARGET, DEFAULT_DECAY_RATE);
+    }
+
+    /**
+     * @param initialThreshold  Threshold for the first step
+     * @param minTargetSparsity Minimum target fraction of encoded elements, in range (0, maxTargetSparsity)
+     * @param maxTargetSparsity Maximum target fraction of encoded elements, in range (minTargetSparsity, 1]
+     * @param decayRate         Multiplicative threshold adjustment per step, in range (0, 1)
+     */
+    public AdaptiveThresholdAlgorithm(double initialThreshold, double minTargetSparsity, double maxTargetSparsity,
+                                      double decayRate) {
+        if (initialThreshold <= 0)
+            throw new IllegalArgumentException("Initial threshold must be positive, got " + initialThreshold);
+        if (minTargetSparsity <= 0 || minTargetSparsity >= maxTargetSparsity || maxTargetSparsity > 1)
+            throw new IllegalArgumentException("Invalid target sparsity range: must satisfy 0 < min < max <= 1, got min="
+                    + minTargetSparsity + ", max=" + maxTargetSparsity);
+        if (decayRate <= 0 || decayRate >= 1)
+            throw new IllegalArgumentException("Decay rate must be in range (0, 1), got " + decayRate);
+
+        this.initialThreshold = initialThreshold;
+        this.minTargetSparsity = minTargetSparsity;
+        this.maxTargetSparsity = maxTargetSparsity;
+        this.decayRate = decayRate;
+    }
+
+    @Override
+    public double calculateThreshold(int iteration, int epoch, Double lastThreshold, Double lastSparsityRatio,
+                                     INDArray updatesPlusResidual) {
+        if (lastThreshold == null || lastSparsityRatio == null)
+            return initialThreshold;
+
+        if (lastSparsityRatio < minTargetSparsity) {
+            //Too few values encoded: lower the threshold
+            return lastThreshold * decayRate;
+        } else if (lastSparsityRatio > maxTargetSparsity) {
+            //Too many values encoded: raise the threshold
+            return lastThreshold / decayRate;
+        }
+        return lastThreshold;
+    }
+
+    @Override
+    public AdaptiveThresholdAlgorithm clone() {
+        return new AdaptiveThresholdAlgorithm(initialThreshold, minTargetSparsity, maxTargetSparsity, decayRate);
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveThresholdAlgorithm(initialThreshold=" + initialThreshold + ", minTargetSparsity="
+                + minTargetSparsity + ", maxTargetSparsity=" + maxTargetSparsity + ", decayRate=" + decayRate + ")";
+    }
+}
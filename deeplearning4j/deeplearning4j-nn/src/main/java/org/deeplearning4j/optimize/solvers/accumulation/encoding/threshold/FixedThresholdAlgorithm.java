@@ -0,0 +1,58 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.optimize.solvers.accumulation.encoding.threshold;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.ThresholdAlgorithm;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * A simple fixed threshold algorithm: the same threshold is used for all steps
+ */
+@EqualsAndHashCode
+public class FixedThresholdAlgorithm implements ThresholdAlgorithm {
+
+    @Getter
+    private final double threshold;
+
+    public FixedThresholdAlgorithm(double threshold) {
+        if (threshold <= 0)
+            throw new IllegalArgumentException("Threshold must be positive, got " + threshold);
+        this.threshold = threshold;
+    }
+
+    @Override
+    public double calculateThreshold(int iteration, int epoch, Double lastThreshold, Double lastSparsityRatio,
+                                     INDArray updatesPlusResidual) {
+        return threshold;
+    }
+
+    @Override
+    public FixedThresholdAlgorithm clone() {
+        return new FixedThresholdAlgorithm(threshold);
+    }
+
+    @Override
+    public String toString() {
+        return "FixedThresholdAlgorithm(threshold=" + threshold + ")";
+    }
+}
@@ -537,6 +537,20 @@ public class NetworkUtils {
         }
     }
 
+    /**
+     * @return The number of minibatches to accumulate gradients over before updating the parameters (1 for no
+     * accumulation, and for models other than MultiLayerNetwork and ComputationGraph)
+     */
+    public static int getGradientAccumulationSteps(Model model) {
+        if (model instanceof MultiLayerNetwork) {
+            return ((MultiLayerNetwork) model).getLayerWiseConfigurations().getGradientAccumulationSteps();
+        } else if (model instanceof ComputationGraph) {
+            return ((ComputationGraph) model).getConfiguration().getGradientAccumulationSteps();
+        } else {
+            return 1;
+        }
+    }
+
     public static int getEpochCount(Model model) {
         if (model instanceof MultiLayerNetwork) {
             return ((MultiLayerNetwork) model).getLayerWiseConfigurations().getEpochCount();
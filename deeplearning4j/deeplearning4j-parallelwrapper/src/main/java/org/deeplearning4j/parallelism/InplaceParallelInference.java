@@ -37,6 +37,7 @@ import org.nd4j.linalg.factory.Nd4j;
 
 import java.util.*;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
@@ -96,6 +97,44 @@ public class InplaceParallelInference extends ParallelInference {
         return selector.output(input, inputMasks);
     }
 
+    /**
+     * PLEASE NOTE: In INPLACE mode inference is always applied in the calling thread, so returned future is already completed
+     *
+     * @param input
+     * @param inputMasks
+     * @return
+     */
+    @Override
+    public CompletableFuture<INDArray[]> outputAsync(INDArray[] input, INDArray[] inputMasks) {
+        try {
+            return CompletableFuture.completedFuture(output(input, inputMasks));
+        } catch (Exception e) {
+            val future = new CompletableFuture<INDArray[]>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * PLEASE NOTE: In INPLACE mode inference is always applied in the calling thread, so returned future is already completed
+     *
+     * @param adapter
+     * @param input
+     * @param inputMasks
+     * @param <T>
+     * @return
+     */
+    @Override
+    public <T> CompletableFuture<T> outputAsync(@NonNull ModelAdapter<T> adapter, INDArray[] input, INDArray[] inputMasks) {
+        try {
+            return CompletableFuture.completedFuture(output(adapter, input, inputMasks, null));
+        } catch (Exception e) {
+            val future = new CompletableFuture<T>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
     /**
      * This method does forward pass and returns output provided by OutputAdapter
      *
@@ -31,12 +31,14 @@ import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
 import org.deeplearning4j.parallelism.inference.InferenceMode;
 import org.deeplearning4j.parallelism.inference.InferenceObservable;
 import org.deeplearning4j.parallelism.inference.LoadBalanceMode;
+import org.deeplearning4j.parallelism.inference.observers.AdaptedInferenceObservable;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObservable;
 import org.deeplearning4j.parallelism.inference.observers.BasicInferenceObserver;
 import org.deeplearning4j.parallelism.inference.observers.BatchedInferenceObservable;
+import org.deeplearning4j.parallelism.inference.observers.DeadlineInferenceObservable;
+import org.deeplearning4j.parallelism.inference.observers.FutureInferenceObserver;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.DataSet;
-import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.common.primitives.Pair;
 
@@ -45,9 +47,13 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Observer;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @Slf4j
@@ -58,6 +64,7 @@ public class ParallelInference {
     protected int batchLimit;
     protected InferenceMode inferenceMode;
     protected int queueLimit;
+    protected long maxLatencyNanos;
     protected LoadBalanceMode loadBalanceMode = LoadBalanceMode.FIFO;
 
     // this queue holds data for inference
@@ -67,6 +74,7 @@ public class ParallelInference {
 
     private InferenceWorker[] zoo;
     private ObservablesProvider provider;
+    private AdaptiveObservablesProvider adaptiveProvider;
 
     protected String[] layersToOutputTo;
     protected int[] layerIndicesOutputTo;
@@ -76,6 +84,7 @@ public class ParallelInference {
     public final static int DEFAULT_BATCH_LIMIT = 32;
     public final static InferenceMode DEFAULT_INFERENCE_MODE = InferenceMode.BATCHED;
     public final static int DEFAULT_QUEUE_LIMIT = 64;
+    public final static long DEFAULT_MAX_LATENCY_MS = 50;
 
 
 
@@ -145,6 +154,10 @@ public class ParallelInference {
         if (inferenceMode == InferenceMode.BATCHED) {
             log.info("Initializing ObservablesProvider...");
             provider = new ObservablesProvider(nanos, batchLimit, observables);
+        } else if (inferenceMode == InferenceMode.ADAPTIVE) {
+            log.info("Initializing AdaptiveObservablesProvider...");
+            adaptiveProvider = new AdaptiveObservablesProvider(maxLatencyNanos, batchLimit, workers, observables);
+            adaptiveProvider.start();
         }
     }
 
@@ -159,6 +172,11 @@ public class ParallelInference {
         if (zoo == null)
             return;
 
+        if (adaptiveProvider != null) {
+            adaptiveProvider.shutdown();
+            adaptiveProvider = null;
+        }
+
         for (int e = 0; e < zoo.length; e++) {
             if (zoo[e] == null)
                 continue;
@@ -233,12 +251,80 @@ public class ParallelInference {
      * @return Output from the network
      */
     public INDArray[] output(INDArray[] input, INDArray[] inputMasks){
-        Nd4j.getExecutioner().commit(); //Commit before passing input to other thread
+        return output(input, inputMasks, maxLatencyNanos, TimeUnit.NANOSECONDS);
+    }
 
+    /**
+     * Generate predictions/outputs from the network, within given latency budget.
+     *
+     * PLEASE NOTE: latency budget is used only in ADAPTIVE inference mode, and ignored otherwise
+     *
+     * @param input      Input to the network
+     * @param inputMasks Input masks for the network. May be null.
+     * @param maxLatency Max latency for this request
+     * @param timeUnit   TimeUnit for maxLatency value
+     * @return Output from the network
+     */
+    public INDArray[] output(INDArray[] input, INDArray[] inputMasks, long maxLatency, @NonNull TimeUnit timeUnit) {
         // basically, depending on model type we either throw stuff to specific model, or wait for batch
         BasicInferenceObserver observer = new BasicInferenceObserver();
-        InferenceObservable observable;
+        InferenceObservable observable = submit(observer, input, inputMasks, timeUnit.toNanos(maxLatency));
+
+        try {
+            // submit query to processing
+            // and block until Observable returns
+            //observer.wait();
+
+            observer.waitTillDone();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        return observable.getOutput(observer);
+    }
+
+    /**
+     * Generate predictions/output from the network, without blocking the calling thread
+     *
+     * @param input Input to the network
+     * @return Future that will be completed with output from the network
+     */
+    public CompletableFuture<INDArray[]> outputAsync(INDArray... input) {
+        return outputAsync(input, null);
+    }
+
+    /**
+     * Generate predictions/outputs from the network, optionally using input masks for predictions, without blocking the calling thread.
+     * Returned future is completed by the worker thread, so dependent stages should not do heavy work unless async variants are used.
+     *
+     * @param input      Input to the network
+     * @param inputMasks Input masks for the network. May be null.
+     * @return Future that will be completed with output from the network, or exceptionally if inference fails
+     */
+    public CompletableFuture<INDArray[]> outputAsync(INDArray[] input, INDArray[] inputMasks) {
+        FutureInferenceObserver observer = new FutureInferenceObserver();
+        try {
+            submit(observer, input, inputMasks, maxLatencyNanos);
+        } catch (Exception e) {
+            observer.getFuture().completeExceptionally(e);
+        }
+
+        return observer.getFuture();
+    }
+
+    /**
+     * This method passes input to the workers, with respect to inference mode
+     *
+     * @param observer     Observer that will be notified once output is available
+     * @param input        Input to the network
+     * @param inputMasks   Input masks for the network. May be null.
+     * @param latencyNanos Max latency for this request. Used only in ADAPTIVE mode
+     * @return Observable that will hold output for this request
+     */
+    protected InferenceObservable submit(@NonNull Observer observer, INDArray[] input, INDArray[] inputMasks, long latencyNanos) {
+        Nd4j.getExecutioner().commit(); //Commit before passing input to other thread
 
+        InferenceObservable observable;
         if (inferenceMode == InferenceMode.SEQUENTIAL) {
             if(layersToOutputTo != null)
                 observable = new BasicInferenceObservable(layersToOutputTo,input, inputMasks);
@@ -254,21 +340,13 @@ public class ParallelInference {
                 Thread.currentThread().interrupt();
                 throw new RuntimeException(e);
             }
+        } else if (inferenceMode == InferenceMode.ADAPTIVE) {
+            observable = adaptiveProvider.setInput(observer, input, inputMasks, latencyNanos);
         } else {
             observable = provider.setInput(observer, input, inputMasks);
         }
 
-        try {
-            // submit query to processing
-            // and block until Observable returns
-            //observer.wait();
-
-            observer.waitTillDone();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-
-        return observable.getOutput();
+        return observable;
     }
 
     /**
@@ -292,7 +370,53 @@ public class ParallelInference {
      * @return
      */
     public <T> T output(@NonNull ModelAdapter<T> adapter,INDArray[] input, INDArray[] inputMasks) {
-        throw new ND4JIllegalStateException("Adapted mode requires Inplace inference mode");
+        try {
+            return outputAsync(adapter, input, inputMasks).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            throw new RuntimeException("Exception encountered while getting output: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * This method does forward pass without blocking the calling thread, and returns future for output provided by ModelAdapter
+     *
+     * @param adapter
+     * @param inputs
+     * @param <T>
+     * @return
+     */
+    public <T> CompletableFuture<T> outputAsync(@NonNull ModelAdapter<T> adapter, INDArray... inputs) {
+        return outputAsync(adapter, inputs, null);
+    }
+
+    /**
+     * This method does forward pass without blocking the calling thread, and returns future for output provided by ModelAdapter.
+     * Adapter is applied by the worker thread to its own model replica, so such requests are never batched.
+     *
+     * @param adapter
+     * @param input
+     * @param inputMasks
+     * @param <T>
+     * @return
+     */
+    public <T> CompletableFuture<T> outputAsync(@NonNull ModelAdapter<T> adapter, INDArray[] input, INDArray[] inputMasks) {
+        Nd4j.getExecutioner().commit(); //Commit before passing input to other thread
+
+        AdaptedInferenceObservable<T> observable = new AdaptedInferenceObservable<>(adapter, input, inputMasks);
+        try {
+            observables.put(observable);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            observable.setOutputException(e);
+        }
+
+        return observable.getFuture();
     }
 
 
@@ -302,6 +426,7 @@ public class ParallelInference {
         private int batchLimit = DEFAULT_BATCH_LIMIT;
         private InferenceMode inferenceMode = DEFAULT_INFERENCE_MODE;
         private int queueLimit = DEFAULT_QUEUE_LIMIT;
+        private long maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_LATENCY_MS);
         private String[] layersToOutputTo;
         private int[] layerIndicesOutputTo;
 
@@ -339,6 +464,8 @@ public class ParallelInference {
          * SEQUENTIAL: Input will be sent to last-used worker unmodified.
          * BATCHED: Multiple inputs will be packed into single batch, and
          * sent to last-used device.
+         * ADAPTIVE: Multiple inputs will be packed into batches of dynamic size,
+         * which are sent to workers before the oldest request runs out of its latency budget.
          *
          * @param inferenceMode
          * @return
@@ -396,6 +523,27 @@ public class ParallelInference {
             return this;
         }
 
+        /**
+         * This method defines default max latency for a single request.
+         * Batches will be flushed to workers early enough to fit into this budget,
+         * with respect to execution time observed for previous batches.
+         *
+         * PLEASE NOTE: This value has effect only in ADAPTIVE inference mode
+         *
+         * Default value: 50 ms
+         *
+         * @param maxLatency
+         * @param timeUnit
+         * @return
+         */
+        public Builder maxLatency(long maxLatency, @NonNull TimeUnit timeUnit) {
+            if (maxLatency < 1)
+                throw new IllegalStateException("Max latency should be positive value");
+
+            this.maxLatencyNanos = timeUnit.toNanos(maxLatency);
+            return this;
+        }
+
         /**
          * This method defines buffer queue size.
          *
@@ -433,6 +581,7 @@ public class ParallelInference {
                 ParallelInference inference = new ParallelInference();
                 inference.batchLimit = this.batchLimit;
                 inference.queueLimit = this.queueLimit;
+                inference.maxLatencyNanos = this.maxLatencyNanos;
                 inference.inferenceMode = this.inferenceMode;
                 inference.model = this.model;
                 inference.workers = this.workers;
@@ -560,9 +709,18 @@ public class ParallelInference {
 
                     if (request != null) {
                         counter.incrementAndGet();
+                        long timeStart = System.nanoTime();
 
                         // FIXME: get rid of instanceof here, model won't change during runtime anyway
-                        if (isCG) {
+                        if (request instanceof AdaptedInferenceObservable) {
+                            try {
+                                modelLock.readLock().lock();
+                                ((AdaptedInferenceObservable<?>) request).applyAdapter(replicatedModel);
+                            } finally {
+                                Nd4j.getExecutioner().commit();
+                                modelLock.readLock().unlock();
+                            }
+                        } else if (isCG) {
                             List<Pair<INDArray[],INDArray[]>> batches = request.getInputBatches();
                             List<INDArray[]> out = new ArrayList<>(batches.size());
                             try {
@@ -584,6 +742,7 @@ public class ParallelInference {
                                     }
 
                                 }
+                                reportExecution(request, timeStart);
                                 request.setOutputBatches(out);
                             } catch (Exception e){
                                 request.setOutputException(e);
@@ -611,13 +770,12 @@ public class ParallelInference {
                                         modelLock.readLock().unlock();
                                     }
                                 }
+                                reportExecution(request, timeStart);
                                 request.setOutputBatches(out);
                             } catch (Exception e){
                                 request.setOutputException(e);
                             }
                         }
-
-
                     } else {
                         // just do nothing, i guess and hope for next round?
                     }
@@ -632,6 +790,15 @@ public class ParallelInference {
             }
         }
 
+        /**
+         * Feeds execution time back, so adaptive batch size could follow actual model performance.
+         * Called before observers are notified, so callback time isn't counted, and only for successful runs.
+         */
+        private void reportExecution(InferenceObservable request, long timeStart) {
+            if (adaptiveProvider != null && request instanceof DeadlineInferenceObservable)
+                adaptiveProvider.reportExecution(((DeadlineInferenceObservable) request).getNumExamples(), System.nanoTime() - timeStart);
+        }
+
         protected void shutdown() {
             shouldWork.set(false);
             while (!isStopped.get()) {
@@ -672,8 +839,7 @@ public class ParallelInference {
                     currentObservable = new BatchedInferenceObservable();
                 }
 
-                currentObservable.addInput(input, inputMask);
-                currentObservable.addObserver(observer);
+                currentObservable.addInput(input, inputMask, observer);
 
                 try {
                     if (isNew)
@@ -687,4 +853,164 @@ public class ParallelInference {
             }
         }
     }
+
+
+    /**
+     * This class packs inputs into batches of dynamic size for ADAPTIVE inference mode.
+     *
+     * Batch is sent to workers once it reaches size that can be executed within half of the latency budget,
+     * or once its oldest request would miss the deadline otherwise. Both decisions are based on execution time
+     * reported by workers for previous batches.
+     */
+    protected static class AdaptiveObservablesProvider extends Thread {
+        // smoothing factor for execution time estimates
+        private static final double ALPHA = 0.2;
+        // lower bound for time between deadline checks
+        private static final long MIN_PARK_NANOS = 20_000L;
+
+        private BlockingQueue<InferenceObservable> targetQueue;
+        private long maxLatencyNanos;
+        private int batchLimit;
+        private int workers;
+
+        private DeadlineInferenceObservable currentObservable;
+        private final Object locker = new Object();
+        private final Object statsLocker = new Object();
+        private final AtomicBoolean shouldWork = new AtomicBoolean(true);
+
+        // estimated execution time of a single example, and of a single batch, in nanoseconds
+        private volatile double nanosPerExample = 0.0;
+        private volatile double nanosPerBatch = 0.0;
+
+        protected AdaptiveObservablesProvider(long maxLatencyNanos, int batchLimit, int workers, @NonNull BlockingQueue<InferenceObservable> queue) {
+            this.targetQueue = queue;
+            this.maxLatencyNanos = maxLatencyNanos;
+            this.batchLimit = batchLimit;
+            this.workers = workers;
+
+            this.setDaemon(true);
+            this.setName("AdaptiveBatchingThread");
+        }
+
+        protected InferenceObservable setInput(@NonNull Observer observer, INDArray[] input, INDArray[] inputMask, long latencyNanos) {
+            long deadline = System.nanoTime() + latencyNanos;
+            synchronized (locker) {
+                if (!shouldWork.get())
+                    throw new IllegalStateException("ParallelInference was shut down");
+
+                if (currentObservable == null)
+                    currentObservable = new DeadlineInferenceObservable();
+
+                DeadlineInferenceObservable observable = currentObservable;
+                observable.addInput(input, inputMask, observer, deadline);
+
+                try {
+                    if (observable.getNumExamples() >= getDynamicBatchLimit() || System.nanoTime() >= getFlushTime(observable))
+                        flush();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+
+                // deadline might have changed, so flusher should re-evaluate it
+                LockSupport.unpark(this);
+                return observable;
+            }
+        }
+
+        /**
+         * This method updates execution time estimates with the time spent by worker on the given batch
+         *
+         * @param numExamples number of examples in the batch
+         * @param nanos       time spent on the batch, in nanoseconds
+         */
+        protected void reportExecution(long numExamples, long nanos) {
+            if (numExamples < 1)
+                return;
+
+            synchronized (statsLocker) {
+                double perExample = (double) nanos / numExamples;
+                nanosPerExample = nanosPerExample <= 0.0 ? perExample : ALPHA * perExample + (1.0 - ALPHA) * nanosPerExample;
+                nanosPerBatch = nanosPerBatch <= 0.0 ? nanos : ALPHA * nanos + (1.0 - ALPHA) * nanosPerBatch;
+            }
+        }
+
+        /**
+         * This method returns current batch size limit: largest number of examples that can be executed within half of the
+         * latency budget, while the other half is reserved for queueing
+         *
+         * @return
+         */
+        protected int getDynamicBatchLimit() {
+            double perExample = nanosPerExample;
+            if (perExample <= 0.0)
+                return batchLimit;
+
+            long limit = (long) ((maxLatencyNanos / 2) / perExample);
+            return (int) Math.max(1, Math.min(batchLimit, limit));
+        }
+
+        /**
+         * This method returns the latest time (as {@link System#nanoTime()} value) when given batch can be sent to workers,
+         * so its earliest deadline is still met: i.e. deadline minus expected queueing time minus expected execution time
+         *
+         * @param observable
+         * @return
+         */
+        protected long getFlushTime(@NonNull DeadlineInferenceObservable observable) {
+            long executionNanos = (long) (nanosPerExample * observable.getNumExamples());
+            long queueNanos = (long) (nanosPerBatch * targetQueue.size() / workers);
+            return observable.getEarliestDeadline() - executionNanos - queueNanos;
+        }
+
+        private void flush() throws InterruptedException {
+            DeadlineInferenceObservable observable = currentObservable;
+            currentObservable = null;
+            targetQueue.put(observable);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (shouldWork.get()) {
+                    long parkNanos;
+                    synchronized (locker) {
+                        if (currentObservable == null) {
+                            parkNanos = maxLatencyNanos;
+                        } else {
+                            long remaining = getFlushTime(currentObservable) - System.nanoTime();
+                            if (remaining <= 0) {
+                                flush();
+                                continue;
+                            }
+
+                            // queue length might change meanwhile, so we don't sleep for too long
+                            parkNanos = Math.max(MIN_PARK_NANOS, Math.min(remaining, maxLatencyNanos / 10));
+                        }
+                    }
+
+                    LockSupport.parkNanos(parkNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // do nothing
+            }
+        }
+
+        /**
+         * This method stops batching thread. Requests that weren't sent to workers yet are failed, so callers
+         * waiting for them don't block forever
+         */
+        protected void shutdown() {
+            synchronized (locker) {
+                shouldWork.set(false);
+                if (currentObservable != null) {
+                    currentObservable.setOutputException(
+                            new IllegalStateException("ParallelInference was shut down before request was executed"));
+                    currentObservable = null;
+                }
+            }
+            this.interrupt();
+        }
+    }
 }
@@ -0,0 +1,665 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Layer;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.Updater;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.gradient.Gradient;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.nn.workspace.LayerWorkspaceMgr;
+import org.deeplearning4j.optimize.api.TrainingListener;
+import org.deeplearning4j.optimize.listeners.SharedGradient;
+import org.deeplearning4j.optimize.solvers.accumulation.EncodingHandler;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.ResidualPostProcessor;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.ThresholdAlgorithm;
+import org.deeplearning4j.parallelism.factory.DefaultTrainerContext;
+import org.deeplearning4j.parallelism.factory.TrainerContext;
+import org.deeplearning4j.parallelism.trainer.Trainer;
+import org.deeplearning4j.util.NetworkUtils;
+import org.nd4j.linalg.api.memory.MemoryWorkspace;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.AsyncDataSetIterator;
+import org.nd4j.linalg.dataset.AsyncMultiDataSetIterator;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Data-parallel training for {@link MultiLayerNetwork} and {@link ComputationGraph} models.<br>
+ * Each worker thread owns one model replica (worker 0 trains the original model). Minibatches from the iterator are
+ * handed out to the workers in rounds of one minibatch per worker, and the replicas are synchronized according to the
+ * {@link TrainingMode}:
+ * <ul>
+ *     <li>{@link TrainingMode#SHARED_GRADIENTS}: synchronous data-parallel SGD. Every round, each worker computes the
+ *     gradient for its minibatch, the gradients are summed and the updater is applied once to the original model,
+ *     with the total number of examples of the round. The new parameters are then copied to all replicas. This is
+ *     equivalent to training the original model with minibatches that are {@code workers} times larger.<br>
+ *     If a {@link ThresholdAlgorithm} is set, each worker threshold-encodes its gradient (with residual accumulation,
+ *     see {@link EncodingHandler}) and only the encoded gradients are summed, which reduces the exchanged volume to a
+ *     few percent of the dense gradients</li>
+ *     <li>{@link TrainingMode#AVERAGING}: each worker fits its replica locally, and the parameters (and optionally the
+ *     updater state) of all replicas are averaged every {@code averagingFrequency} rounds</li>
+ * </ul>
+ * Listeners of the original model are notified as usual (worker 0 for AVERAGING mode, once per round for
+ * SHARED_GRADIENTS mode). Replicas have no listeners.
+ */
+@Slf4j
+public class ParallelWrapper implements AutoCloseable {
+
+    public enum TrainingMode {
+        /**
+         * Local training on each replica, with periodic parameter averaging
+         */
+        AVERAGING,
+        /**
+         * Synchronous training: gradients of all workers are summed and applied once per round
+         */
+        SHARED_GRADIENTS,
+    }
+
+    public static final int DEFAULT_PREFETCH_BUFFER = 16;
+    public static final int DEFAULT_AVERAGING_FREQUENCY = 1;
+
+    @Getter
+    protected Model model;
+    @Getter
+    protected int workers;
+    protected int prefetchSize;
+    protected int averagingFrequency;
+    protected boolean averageUpdaters;
+    @Getter
+    protected TrainingMode trainingMode;
+    protected WorkspaceMode workspaceMode;
+    protected TrainerContext trainerContext;
+    protected ThresholdAlgorithm thresholdAlgorithm;
+    protected ResidualPostProcessor residualPostProcessor;
+
+    protected Trainer[] zoo;
+    protected ExecutorService[] executors;
+    protected EncodingHandler[] encodingHandlers;
+    protected INDArray decodedGradient;
+    /**
+     * Size of the encoded gradients exchanged in the last round, as a fraction of the dense gradients size.
+     * Only set when gradients are threshold encoded
+     */
+    @Getter
+    protected double lastEncodedRatio = Double.NaN;
+    protected final AtomicLong roundsCounter = new AtomicLong(0);
+    //Number of replicas that trained since the last averaging
+    protected int trainedReplicas = 0;
+    protected final Object initLock = new Object();
+
+    protected ParallelWrapper(@NonNull Model model) {
+        if (!(model instanceof MultiLayerNetwork) && !(model instanceof ComputationGraph))
+            throw new IllegalStateException("Only MultiLayerNetwork and ComputationGraph models are supported, got "
+                    + model.getClass().getName());
+
+        this.model = model;
+    }
+
+    protected void init() {
+        synchronized (initLock) {
+            if (zoo != null)
+                return;
+
+            //Make sure the updater of the original model is initialized: replicas copy its state
+            if (model instanceof MultiLayerNetwork) {
+                ((MultiLayerNetwork) model).getUpdater();
+            } else {
+                ((ComputationGraph) model).getUpdater();
+            }
+
+            int numDevices = Nd4j.getAffinityManager().getNumberOfDevices();
+            zoo = new Trainer[workers];
+            executors = new ExecutorService[workers];
+            List<Future<Trainer>> created = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                final int threadId = i;
+                final int deviceId = i % numDevices;
+                executors[i] = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "ParallelWrapper trainer thread " + threadId);
+                    t.setDaemon(true);
+                    return t;
+                });
+                created.add(executors[i].submit(() -> {
+                    Nd4j.getAffinityManager().unsafeSetDevice(deviceId);
+                    return trainerContext.create(threadId, model, this, workspaceMode);
+                }));
+            }
+            for (int i = 0; i < workers; i++) {
+                zoo[i] = await(created.get(i));
+            }
+
+            if (thresholdAlgorithm != null) {
+                encodingHandlers = new EncodingHandler[workers];
+                for (int i = 0; i < workers; i++) {
+                    encodingHandlers[i] = new EncodingHandler(thresholdAlgorithm, residualPostProcessor);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Models trained by the workers. The model of worker 0 is the original model
+     */
+    public Model[] getCurrentModelsFromWorkers() {
+        if (zoo == null)
+            return new Model[0];
+
+        Model[] models = new Model[zoo.length];
+        for (int i = 0; i < zoo.length; i++) {
+            models[i] = zoo[i].getModel();
+        }
+        return models;
+    }
+
+    /**
+     * Train the model for one epoch on the given iterator. On return, the original model holds the trained
+     * parameters
+     *
+     * @param source Training data
+     */
+    public void fit(@NonNull DataSetIterator source) {
+        init();
+        if (source.resetSupported())
+            source.reset();
+
+        DataSetIterator iterator = source;
+        if (prefetchSize > 0 && source.asyncSupported())
+            iterator = new AsyncDataSetIterator(source, prefetchSize);
+
+        try {
+            fitRounds(iterator, (t, ds) -> t.fit(ds), (t, ds) -> t.computeGradient(ds));
+        } finally {
+            if (iterator instanceof AsyncDataSetIterator)
+                ((AsyncDataSetIterator) iterator).shutdown();
+        }
+    }
+
+    /**
+     * Train the model for one epoch on the given iterator. On return, the original model holds the trained
+     * parameters
+     *
+     * @param source Training data
+     */
+    public void fit(@NonNull MultiDataSetIterator source) {
+        init();
+        if (source.resetSupported())
+            source.reset();
+
+        MultiDataSetIterator iterator = source;
+        if (prefetchSize > 0 && source.asyncSupported())
+            iterator = new AsyncMultiDataSetIterator(source, prefetchSize);
+
+        try {
+            fitRounds(iterator, (t, ds) -> t.fit(ds), (t, ds) -> t.computeGradient(ds));
+        } finally {
+            if (iterator instanceof AsyncMultiDataSetIterator)
+                ((AsyncMultiDataSetIterator) iterator).shutdown();
+        }
+    }
+
+    protected interface FitFunction<T> {
+        void fit(Trainer trainer, T data);
+    }
+
+    protected interface GradientFunction<T> {
+        double computeGradient(Trainer trainer, T data);
+    }
+
+    protected <T> void fitRounds(Iterator<T> iterator, FitFunction<T> fitFn, GradientFunction<T> gradientFn) {
+        List<T> round = new ArrayList<>(workers);
+        while (iterator.hasNext()) {
+            round.add(iterator.next());
+            if (round.size() == workers || !iterator.hasNext()) {
+                if (trainingMode == TrainingMode.SHARED_GRADIENTS) {
+                    sharedGradientsRound(round, gradientFn);
+                } else {
+                    averagingRound(round, fitFn);
+                }
+                round.clear();
+            }
+        }
+
+        if (trainingMode == TrainingMode.AVERAGING && roundsCounter.get() % averagingFrequency != 0) {
+            //Make sure the original model holds the final parameters
+            averageModels(trainedReplicas);
+            trainedReplicas = 0;
+        }
+
+        incrementEpochCount();
+    }
+
+    protected <T> void averagingRound(List<T> round, FitFunction<T> fitFn) {
+        List<Future<?>> futures = new ArrayList<>(round.size());
+        for (int i = 0; i < round.size(); i++) {
+            final Trainer trainer = zoo[i];
+            final T data = round.get(i);
+            futures.add(executors[i].submit(() -> fitFn.fit(trainer, data)));
+        }
+        for (Future<?> f : futures) {
+            await(f);
+        }
+
+        //Rounds always start at worker 0, so only a short final round leaves replicas idle
+        trainedReplicas = Math.max(trainedReplicas, round.size());
+        if (roundsCounter.incrementAndGet() % averagingFrequency == 0) {
+            averageModels(trainedReplicas);
+            trainedReplicas = 0;
+        }
+    }
+
+    /**
+     * Average the parameters (and, if enabled, the updater states) of the first numReplicas replicas, and copy them
+     * to all replicas. Replicas that didn't train since the last averaging still hold the averaged parameters, and
+     * would shrink the update if they were averaged in
+     *
+     * @param numReplicas Number of replicas that trained since the last averaging
+     */
+    protected void averageModels(int numReplicas) {
+        if (workers == 1 || numReplicas == 0)
+            return;
+
+        INDArray params = model.params();
+        try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            for (int i = 1; i < numReplicas; i++) {
+                params.addi(zoo[i].getModel().params());
+            }
+            params.divi(numReplicas);
+
+            if (averageUpdaters) {
+                INDArray state = updaterOf(model).getStateViewArray();
+                if (state != null) {
+                    for (int i = 1; i < numReplicas; i++) {
+                        state.addi(updaterOf(zoo[i].getModel()).getStateViewArray());
+                    }
+                    state.divi(numReplicas);
+                }
+            }
+        }
+
+        syncReplicas(averageUpdaters);
+        if (log.isDebugEnabled()) {
+            log.debug("Averaged {} replicas after {} rounds; score: {}", numReplicas, roundsCounter.get(), model.score());
+        }
+    }
+
+    protected <T> void sharedGradientsRound(List<T> round, GradientFunction<T> gradientFn) {
+        int iteration = NetworkUtils.getIterationCount(model);
+        int epoch = NetworkUtils.getEpochCount(model);
+
+        final double[] scores = new double[round.size()];
+        List<Future<SharedGradient>> futures = new ArrayList<>(round.size());
+        for (int i = 0; i < round.size(); i++) {
+            final Trainer trainer = zoo[i];
+            final T data = round.get(i);
+            final EncodingHandler handler = encodingHandlers == null ? null : encodingHandlers[i];
+            final String id = String.valueOf(i);
+            final int worker = i;
+            futures.add(executors[i].submit(() -> {
+                scores[worker] = gradientFn.computeGradient(trainer, data);
+                if (handler == null)
+                    return null;
+                return handler.encodeUpdates(id, iteration, epoch, trainer.getGradient());
+            }));
+        }
+        List<SharedGradient> encoded = new ArrayList<>(round.size());
+        for (Future<SharedGradient> f : futures) {
+            encoded.add(await(f));
+        }
+
+        //Worker 0 computed its gradient on the original model: add the gradients of the other workers
+        Gradient gradient = model.gradient();
+        INDArray grad = gradient.gradient();
+        int batchSize = model.batchSize();
+        double score = scores[0] * model.batchSize();
+        for (int i = 1; i < round.size(); i++) {
+            batchSize += zoo[i].getModel().batchSize();
+            score += scores[i] * zoo[i].getModel().batchSize();
+        }
+
+        if (encodingHandlers == null) {
+            for (int i = 1; i < round.size(); i++) {
+                grad.addi(zoo[i].getGradient());
+            }
+        } else {
+            //Only the encoded gradients are exchanged; whatever was not transmitted stays in the workers' residuals
+            try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+                if (decodedGradient == null || decodedGradient.length() != grad.length())
+                    decodedGradient = Nd4j.create(grad.dataType(), grad.length());
+                else
+                    decodedGradient.assign(0);
+
+                long encodedBytes = 0;
+                for (SharedGradient sg : encoded) {
+                    EncodingHandler.decodeUpdates(sg, decodedGradient);
+                    encodedBytes += sg.getGradient().length() * 4;
+                }
+                grad.assign(decodedGradient.reshape(grad.shape()));
+
+                long denseBytes = grad.length() * grad.dataType().width() * encoded.size();
+                lastEncodedRatio = encodedBytes / (double) denseBytes;
+                if (log.isDebugEnabled()) {
+                    log.debug("Round {}: exchanged {} encoded bytes, {}% of dense gradients", roundsCounter.get(),
+                            encodedBytes, String.format("%.3f", 100.0 * lastEncodedRatio));
+                }
+            }
+        }
+
+        try (MemoryWorkspace ws = Nd4j.getMemoryManager().scopeOutOfWorkspaces()) {
+            if (model instanceof MultiLayerNetwork) {
+                ((MultiLayerNetwork) model).getUpdater().update((Layer) model, gradient, iteration, epoch, batchSize,
+                        LayerWorkspaceMgr.noWorkspaces());
+            } else {
+                ((ComputationGraph) model).getUpdater().update(gradient, iteration, epoch, batchSize,
+                        LayerWorkspaceMgr.noWorkspaces());
+            }
+            model.params().subi(grad);
+        }
+
+        roundsCounter.incrementAndGet();
+        //Listeners see the score of the whole round, as for a single fit on all of its examples
+        setScore(model, score / batchSize);
+        for (TrainingListener l : listenersOf(model)) {
+            l.iterationDone(model, iteration, epoch);
+        }
+        NetworkUtils.incrementIterationCount(model, 1);
+        NetworkUtils.applyConstraints(model);
+
+        syncReplicas(false);
+    }
+
+    protected void syncReplicas(boolean copyUpdater) {
+        if (workers == 1)
+            return;
+
+        List<Future<?>> futures = new ArrayList<>(workers - 1);
+        for (int i = 1; i < workers; i++) {
+            final Trainer trainer = zoo[i];
+            futures.add(executors[i].submit(() -> trainer.updateModel(model, copyUpdater)));
+        }
+        for (Future<?> f : futures) {
+            await(f);
+        }
+    }
+
+    protected void incrementEpochCount() {
+        if (model instanceof MultiLayerNetwork) {
+            ((MultiLayerNetwork) model).incrementEpochCount();
+        } else {
+            ((ComputationGraph) model).incrementEpochCount();
+        }
+        for (TrainingListener l : listenersOf(model)) {
+            l.onEpochEnd(model);
+        }
+        syncReplicas(false);
+    }
+
+    protected static void setScore(Model model, double score) {
+        if (model instanceof MultiLayerNetwork) {
+            ((MultiLayerNetwork) model).setScore(score);
+        } else {
+            ((ComputationGraph) model).setScore(score);
+        }
+    }
+
+    protected static Collection<TrainingListener> listenersOf(Model model) {
+        if (model instanceof MultiLayerNetwork) {
+            return ((MultiLayerNetwork) model).getListeners();
+        } else {
+            return ((ComputationGraph) model).getListeners();
+        }
+    }
+
+    protected static Updater updaterOf(Model model) {
+        if (model instanceof MultiLayerNetwork) {
+            return ((MultiLayerNetwork) model).getUpdater();
+        } else {
+            return ((ComputationGraph) model).getUpdater();
+        }
+    }
+
+    protected static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * This method stops the worker threads. The original model is left as-is
+     */
+    public void shutdown() {
+        synchronized (initLock) {
+            if (executors != null) {
+                for (ExecutorService e : executors) {
+                    e.shutdownNow();
+                }
+            }
+            executors = null;
+            zoo = null;
+            encodingHandlers = null;
+            decodedGradient = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+
+    public static class Builder {
+        private final Model model;
+        private int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private int prefetchSize = DEFAULT_PREFETCH_BUFFER;
+        private int averagingFrequency = DEFAULT_AVERAGING_FREQUENCY;
+        private boolean averageUpdaters = true;
+        private TrainingMode trainingMode = TrainingMode.SHARED_GRADIENTS;
+        private WorkspaceMode workspaceMode;
+        private TrainerContext trainerContext = new DefaultTrainerContext();
+        private ThresholdAlgorithm thresholdAlgorithm;
+        private ResidualPostProcessor residualPostProcessor;
+
+        public Builder(@NonNull Model model) {
+            this.model = model;
+        }
+
+        /**
+         * This method defines, how many model replicas will be trained in parallel
+         *
+         * Default value: half of the available processors
+         *
+         * @param workers
+         * @return
+         */
+        public Builder workers(int workers) {
+            if (workers < 1)
+                throw new IllegalStateException("Workers should be positive value");
+
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * This method defines the number of minibatches prefetched asynchronously from the iterator.
+         * 0 disables asynchronous prefetch
+         *
+         * Default value: 16
+         *
+         * @param size
+         * @return
+         */
+        public Builder prefetchBuffer(int size) {
+            if (size < 0)
+                throw new IllegalStateException("Prefetch buffer size should be non-negative value");
+
+            this.prefetchSize = size;
+            return this;
+        }
+
+        /**
+         * This method defines, every how many rounds (one minibatch per worker) the replicas are averaged.
+         *
+         * PLEASE NOTE: This value has effect only in AVERAGING training mode
+         *
+         * Default value: 1
+         *
+         * @param frequency
+         * @return
+         */
+        public Builder averagingFrequency(int frequency) {
+            if (frequency < 1)
+                throw new IllegalStateException("Averaging frequency should be positive value");
+
+            this.averagingFrequency = frequency;
+            return this;
+        }
+
+        /**
+         * This method defines whether the updater state is averaged together with the parameters.
+         *
+         * PLEASE NOTE: This value has effect only in AVERAGING training mode
+         *
+         * Default value: true
+         *
+         * @param reallyAverage
+         * @return
+         */
+        public Builder averageUpdaters(boolean reallyAverage) {
+            this.averageUpdaters = reallyAverage;
+            return this;
+        }
+
+        /**
+         * This method defines how the replicas are synchronized: shared (summed) gradients each round,
+         * or periodic parameter averaging
+         *
+         * Default value: SHARED_GRADIENTS
+         *
+         * @param mode
+         * @return
+         */
+        public Builder trainingMode(@NonNull TrainingMode mode) {
+            this.trainingMode = mode;
+            return this;
+        }
+
+        /**
+         * This method overrides the training workspace mode of the model and its replicas
+         *
+         * @param mode
+         * @return
+         */
+        public Builder workspaceMode(@NonNull WorkspaceMode mode) {
+            this.workspaceMode = mode;
+            return this;
+        }
+
+        /**
+         * This method allows to use a custom {@link TrainerContext}, which creates the per-worker trainers
+         *
+         * @param context
+         * @return
+         */
+        public Builder trainerFactory(@NonNull TrainerContext context) {
+            this.trainerContext = context;
+            return this;
+        }
+
+        /**
+         * This method enables threshold encoding of the gradients exchanged between workers, using the given
+         * algorithm to pick the threshold at each step. See {@link EncodingHandler}.
+         *
+         * PLEASE NOTE: This option is only supported in SHARED_GRADIENTS training mode
+         *
+         * Default value: null (dense gradients)
+         *
+         * @param algorithm
+         * @return
+         */
+        public Builder thresholdAlgorithm(ThresholdAlgorithm algorithm) {
+            this.thresholdAlgorithm = algorithm;
+            return this;
+        }
+
+        /**
+         * This method defines the post processor applied to the residuals of threshold encoding, for example
+         * {@link org.deeplearning4j.optimize.solvers.accumulation.encoding.residual.ResidualClippingPostProcessor}
+         *
+         * Default value: null
+         *
+         * @param postProcessor
+         * @return
+         */
+        public Builder residualPostProcessor(ResidualPostProcessor postProcessor) {
+            this.residualPostProcessor = postProcessor;
+            return this;
+        }
+
+        /**
+         * This method builds new ParallelWrapper instance
+         *
+         * @return
+         */
+        public ParallelWrapper build() {
+            if (thresholdAlgorithm != null && trainingMode != TrainingMode.SHARED_GRADIENTS)
+                throw new IllegalStateException("Threshold encoding is only supported in SHARED_GRADIENTS training mode");
+
+            ParallelWrapper wrapper = new ParallelWrapper(model);
+            wrapper.workers = this.workers;
+            wrapper.prefetchSize = this.prefetchSize;
+            wrapper.averagingFrequency = this.averagingFrequency;
+            wrapper.averageUpdaters = this.averageUpdaters;
+            wrapper.trainingMode = this.trainingMode;
+            wrapper.workspaceMode = this.workspaceMode;
+            wrapper.trainerContext = this.trainerContext;
+            wrapper.thresholdAlgorithm = this.thresholdAlgorithm;
+            wrapper.residualPostProcessor = this.residualPostProcessor;
+            return wrapper;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.factory;
+
+import lombok.NonNull;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.parallelism.ParallelWrapper;
+import org.deeplearning4j.parallelism.trainer.DefaultTrainer;
+import org.deeplearning4j.parallelism.trainer.Trainer;
+
+import java.util.Collections;
+
+/**
+ * Default {@link TrainerContext}: worker 0 trains the original model, all other workers train a clone of it
+ * (parameters and updater state included), without any listeners
+ */
+public class DefaultTrainerContext implements TrainerContext {
+
+    @Override
+    public Trainer create(int threadId, @NonNull Model model, @NonNull ParallelWrapper wrapper, WorkspaceMode workspaceMode) {
+        Model replica;
+        if (threadId == 0) {
+            replica = model;
+        } else if (model instanceof MultiLayerNetwork) {
+            replica = ((MultiLayerNetwork) model).clone();
+            replica.setListeners(Collections.emptyList());
+        } else if (model instanceof ComputationGraph) {
+            replica = ((ComputationGraph) model).clone();
+            replica.setListeners(Collections.emptyList());
+        } else {
+            throw new IllegalStateException("Only MultiLayerNetwork and ComputationGraph models are supported, got "
+                    + model.getClass().getName());
+        }
+
+        if (workspaceMode != null) {
+            if (replica instanceof MultiLayerNetwork) {
+                ((MultiLayerNetwork) replica).getLayerWiseConfigurations().setTrainingWorkspaceMode(workspaceMode);
+            } else {
+                ((ComputationGraph) replica).getConfiguration().setTrainingWorkspaceMode(workspaceMode);
+            }
+        }
+
+        return new DefaultTrainer(threadId, replica);
+    }
+}
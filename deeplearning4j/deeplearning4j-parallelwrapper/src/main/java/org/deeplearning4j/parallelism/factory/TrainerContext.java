@@ -0,0 +1,44 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.factory;
+
+import lombok.NonNull;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.parallelism.ParallelWrapper;
+import org.deeplearning4j.parallelism.trainer.Trainer;
+
+/**
+ * Creates the {@link Trainer} instances used by {@link ParallelWrapper}
+ */
+public interface TrainerContext {
+
+    /**
+     * Create a trainer for the given worker. This method is called from the worker thread that will own the trainer
+     *
+     * @param threadId      Index of the worker
+     * @param model         Model to train. Worker 0 may use this model directly, other workers must use a replica
+     * @param wrapper       ParallelWrapper the trainer belongs to
+     * @param workspaceMode Training workspace mode for the replica. If null: the mode of the model is kept
+     * @return Trainer for the worker
+     */
+    Trainer create(int threadId, @NonNull Model model, @NonNull ParallelWrapper wrapper, WorkspaceMode workspaceMode);
+}
@@ -35,4 +35,10 @@ public enum InferenceMode {
      * Inference will applied in the calling thread instead of workers. Worker models will be using shared parameters on per-device basis.
      */
     INPLACE,
+
+    /**
+     * inputs will be packed into batches of dynamic size. Each request carries max latency budget, and batch size is derived from observed execution time,
+     * so batch is sent to workers either once it's large enough, or once the oldest request in it is close to its deadline
+     */
+    ADAPTIVE,
 }
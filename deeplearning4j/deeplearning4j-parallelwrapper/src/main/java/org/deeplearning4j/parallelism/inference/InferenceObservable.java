@@ -49,4 +49,13 @@ public interface InferenceObservable {
     void addObserver(Observer observer);
 
     INDArray[] getOutput();
+
+    /**
+     * Get output for the request that was submitted along with the given observer.
+     * Unlike {@link #getOutput()}, this method can be called from any thread, i.e. from the observer callback itself
+     *
+     * @param observer Observer that was registered along with the input
+     * @return Output for the given request
+     */
+    INDArray[] getOutput(Observer observer);
 }
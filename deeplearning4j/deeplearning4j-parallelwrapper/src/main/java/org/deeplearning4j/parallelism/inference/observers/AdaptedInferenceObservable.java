@@ -0,0 +1,75 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.inference.observers;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.ModelAdapter;
+import org.deeplearning4j.parallelism.inference.InferenceObservable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Observable for requests that have {@link ModelAdapter} attached. Adapter is applied by the worker thread
+ * to its own model replica, and result is passed to the {@link CompletableFuture} right away.
+ *
+ * PLEASE NOTE: such requests are never batched
+ *
+ * @param <T> adapter output type
+ */
+@Slf4j
+public class AdaptedInferenceObservable<T> extends BasicInferenceObservable implements InferenceObservable {
+    private final ModelAdapter<T> adapter;
+    private final INDArray[] input;
+    private final INDArray[] inputMasks;
+
+    @Getter
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    public AdaptedInferenceObservable(@NonNull ModelAdapter<T> adapter, INDArray[] inputs, INDArray[] inputMasks) {
+        super(inputs, inputMasks);
+        this.adapter = adapter;
+        this.input = inputs;
+        this.inputMasks = inputMasks;
+    }
+
+    /**
+     * This method applies adapter to the given model, and completes future with its result
+     *
+     * @param model model replica owned by the calling worker
+     */
+    public void applyAdapter(@NonNull Model model) {
+        try {
+            future.complete(adapter.apply(model, input, inputMasks, null));
+        } catch (Exception e) {
+            setOutputException(e);
+        }
+    }
+
+    @Override
+    public void setOutputException(Exception exception) {
+        future.completeExceptionally(exception);
+        super.setOutputException(exception);
+    }
+}
@@ -31,6 +31,7 @@ import org.nd4j.common.primitives.Pair;
 import java.util.Collections;
 import java.util.List;
 import java.util.Observable;
+import java.util.Observer;
 
 @Slf4j
 public class BasicInferenceObservable extends Observable implements InferenceObservable {
@@ -113,6 +114,11 @@ public class BasicInferenceObservable extends Observable implements InferenceObs
         return output;
     }
 
+    @Override
+    public INDArray[] getOutput(Observer observer) {
+        return getOutput();
+    }
+
     protected void checkOutputException() {
         if(exception != null) {
             if(exception instanceof RuntimeException) {
@@ -32,6 +32,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Observer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -44,6 +47,7 @@ public class BatchedInferenceObservable extends BasicInferenceObservable impleme
     private AtomicInteger counter = new AtomicInteger(0);
     private ThreadLocal<Integer> position = new ThreadLocal<>();
     private List<int[]> outputBatchInputArrays = new ArrayList<>();
+    private Map<Observer, Integer> observerPositions = new ConcurrentHashMap<>();
 
     private final Object locker = new Object();
 
@@ -57,10 +61,28 @@ public class BatchedInferenceObservable extends BasicInferenceObservable impleme
 
     @Override
     public void addInput(INDArray[] input, INDArray[] inputMasks) {
+        addInput(input, inputMasks, null);
+    }
+
+    /**
+     * This method adds input to the batch, and registers given observer for it.
+     * Observer is registered before batch is unlocked, so it can't miss notification.
+     *
+     * @param input
+     * @param inputMasks
+     * @param observer Observer for this input. May be null.
+     */
+    public void addInput(INDArray[] input, INDArray[] inputMasks, Observer observer) {
         synchronized (locker) {
             inputs.add(input);
             this.inputMasks.add(inputMasks);
-            position.set(counter.getAndIncrement());
+            int pos = counter.getAndIncrement();
+            position.set(pos);
+
+            if (observer != null) {
+                observerPositions.put(observer, pos);
+                addObserver(observer);
+            }
 
             if (isReadLocked.get())
                 realLocker.readLock().unlock();
@@ -236,4 +258,14 @@ public class BatchedInferenceObservable extends BasicInferenceObservable impleme
         checkOutputException();
         return outputs.get(position.get());
     }
+
+    @Override
+    public INDArray[] getOutput(Observer observer) {
+        Integer pos = observerPositions.get(observer);
+        if (pos == null)
+            return getOutput();
+
+        checkOutputException();
+        return outputs.get(pos);
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.inference.observers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.parallelism.inference.InferenceObservable;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.util.Observer;
+
+/**
+ * Batched observable used by {@link org.deeplearning4j.parallelism.inference.InferenceMode#ADAPTIVE} mode.
+ * In addition to the batched inputs it tracks the earliest deadline among all queued requests
+ * and the total number of examples, so that the provider can decide when the batch has to be flushed.
+ */
+@Slf4j
+public class DeadlineInferenceObservable extends BatchedInferenceObservable implements InferenceObservable {
+    private volatile long earliestDeadline = Long.MAX_VALUE;
+    private volatile long numExamples = 0;
+
+    public DeadlineInferenceObservable() {
+        super();
+    }
+
+    /**
+     * This method adds input to the batch, along with absolute deadline (as {@link System#nanoTime()}) for this request
+     *
+     * @param input
+     * @param inputMasks
+     * @param observer Observer for this input. May be null.
+     * @param deadlineNanos
+     */
+    public void addInput(INDArray[] input, INDArray[] inputMasks, Observer observer, long deadlineNanos) {
+        addInput(input, inputMasks, observer);
+        earliestDeadline = Math.min(earliestDeadline, deadlineNanos);
+        numExamples += input[0].size(0);
+    }
+
+    /**
+     * @return earliest deadline of all requests within this batch, as {@link System#nanoTime()} value
+     */
+    public long getEarliestDeadline() {
+        return earliestDeadline;
+    }
+
+    /**
+     * @return total number of examples within this batch
+     */
+    public long getNumExamples() {
+        return numExamples;
+    }
+}
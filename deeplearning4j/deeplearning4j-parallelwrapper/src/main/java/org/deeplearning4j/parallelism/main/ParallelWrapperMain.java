@@ -0,0 +1,96 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.main;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.core.util.ModelGuesser;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.parallelism.ParallelWrapper;
+import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIterator;
+import org.nd4j.linalg.dataset.api.iterator.DataSetIteratorFactory;
+
+/**
+ * Command line entry point for {@link ParallelWrapper}: loads a model, trains it on the iterator created by a
+ * {@link DataSetIteratorFactory} and saves the trained model
+ */
+@Slf4j
+@Data
+public class ParallelWrapperMain {
+    @Parameter(names = {"--modelPath"}, description = "Path to the model to train", arity = 1, required = true)
+    private String modelPath = null;
+    @Parameter(names = {"--dataSetIteratorFactoryClazz"}, description = "DataSetIteratorFactory class name",
+            arity = 1, required = true)
+    private String dataSetIteratorFactoryClazz = null;
+    @Parameter(names = {"--modelOutputPath"}, description = "Path to save the trained model to", arity = 1,
+            required = true)
+    private String modelOutputPath = null;
+    @Parameter(names = {"--workers"}, description = "Number of workers", arity = 1)
+    private int workers = 2;
+    @Parameter(names = {"--prefetchSize"}, description = "Number of minibatches to prefetch", arity = 1)
+    private int prefetchSize = ParallelWrapper.DEFAULT_PREFETCH_BUFFER;
+    @Parameter(names = {"--averagingFrequency"}, description = "Averaging frequency (AVERAGING mode only)", arity = 1)
+    private int averagingFrequency = ParallelWrapper.DEFAULT_AVERAGING_FREQUENCY;
+    @Parameter(names = {"--trainingMode"}, description = "Training mode: SHARED_GRADIENTS or AVERAGING", arity = 1)
+    private String trainingMode = ParallelWrapper.TrainingMode.SHARED_GRADIENTS.name();
+    @Parameter(names = {"--epochs"}, description = "Number of epochs", arity = 1)
+    private int epochs = 1;
+
+    public static void main(String[] args) throws Exception {
+        new ParallelWrapperMain().runMain(args);
+    }
+
+    public void runMain(String... args) throws Exception {
+        JCommander jcmdr = new JCommander(this);
+        try {
+            jcmdr.parse(args);
+        } catch (ParameterException e) {
+            //User provides invalid input -> print the usage info
+            jcmdr.usage();
+            throw e;
+        }
+
+        Model model = ModelGuesser.loadModelGuess(modelPath);
+        DataSetIteratorFactory factory = (DataSetIteratorFactory) Class.forName(dataSetIteratorFactoryClazz)
+                .getDeclaredConstructor().newInstance();
+        DataSetIterator iterator = factory.create();
+
+        try (ParallelWrapper wrapper = new ParallelWrapper.Builder(model)
+                .workers(workers)
+                .prefetchBuffer(prefetchSize)
+                .averagingFrequency(averagingFrequency)
+                .trainingMode(ParallelWrapper.TrainingMode.valueOf(trainingMode))
+                .build()) {
+            for (int i = 0; i < epochs; i++) {
+                long time = System.currentTimeMillis();
+                wrapper.fit(iterator);
+                log.info("Epoch {} finished in {} ms", i, System.currentTimeMillis() - time);
+            }
+        }
+
+        ModelSerializer.writeModel(model, modelOutputPath, true);
+        log.info("Saved trained model to {}", modelOutputPath);
+    }
+}
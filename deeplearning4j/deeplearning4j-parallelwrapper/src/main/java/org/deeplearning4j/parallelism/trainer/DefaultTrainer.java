@@ -0,0 +1,147 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.trainer;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.Updater;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.graph.util.ComputationGraphUtil;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+
+/**
+ * Default {@link Trainer} implementation, for {@link MultiLayerNetwork} and {@link ComputationGraph} replicas
+ */
+@Slf4j
+public class DefaultTrainer implements Trainer {
+    @Getter
+    protected final int threadId;
+    @Getter
+    protected final Model model;
+
+    public DefaultTrainer(int threadId, @NonNull Model model) {
+        if (!(model instanceof MultiLayerNetwork) && !(model instanceof ComputationGraph))
+            throw new IllegalStateException("Only MultiLayerNetwork and ComputationGraph models are supported, got "
+                    + model.getClass().getName());
+
+        this.threadId = threadId;
+        this.model = model;
+    }
+
+    @Override
+    public void fit(@NonNull DataSet dataSet) {
+        if (model instanceof MultiLayerNetwork) {
+            ((MultiLayerNetwork) model).fit(dataSet);
+        } else {
+            ((ComputationGraph) model).fit(dataSet);
+        }
+    }
+
+    @Override
+    public void fit(@NonNull MultiDataSet dataSet) {
+        if (model instanceof MultiLayerNetwork) {
+            ((MultiLayerNetwork) model).fit(dataSet);
+        } else {
+            ((ComputationGraph) model).fit(dataSet);
+        }
+    }
+
+    @Override
+    public double computeGradient(@NonNull DataSet dataSet) {
+        if (model instanceof MultiLayerNetwork) {
+            MultiLayerNetwork net = (MultiLayerNetwork) model;
+            net.setInput(dataSet.getFeatures());
+            net.setLabels(dataSet.getLabels());
+            net.setLayerMaskArrays(dataSet.getFeaturesMaskArray(), dataSet.getLabelsMaskArray());
+            net.computeGradientAndScore();
+            net.clearLayersStates();
+            return net.score();
+        } else {
+            return computeGradient(ComputationGraphUtil.toMultiDataSet(dataSet));
+        }
+    }
+
+    @Override
+    public double computeGradient(@NonNull MultiDataSet dataSet) {
+        if (model instanceof MultiLayerNetwork) {
+            if (dataSet.numFeatureArrays() != 1 || dataSet.numLabelsArrays() != 1)
+                throw new IllegalStateException("MultiLayerNetwork can't handle MultiDataSet with more than 1 features" +
+                        " or labels array");
+
+            INDArray fMask = dataSet.getFeaturesMaskArrays() == null ? null : dataSet.getFeaturesMaskArrays()[0];
+            INDArray lMask = dataSet.getLabelsMaskArrays() == null ? null : dataSet.getLabelsMaskArrays()[0];
+            return computeGradient(new org.nd4j.linalg.dataset.DataSet(dataSet.getFeatures(0), dataSet.getLabels(0),
+                    fMask, lMask));
+        } else {
+            ComputationGraph graph = (ComputationGraph) model;
+            graph.setInputs(dataSet.getFeatures());
+            graph.setLabels(dataSet.getLabels());
+            graph.setLayerMaskArrays(dataSet.getFeaturesMaskArrays(), dataSet.getLabelsMaskArrays());
+            graph.computeGradientAndScore();
+            graph.clearLayersStates();
+            return graph.score();
+        }
+    }
+
+    @Override
+    public INDArray getGradient() {
+        return model.gradient().gradient();
+    }
+
+    @Override
+    public void updateModel(@NonNull Model source, boolean copyUpdater) {
+        if (source == model)
+            return;
+
+        model.params().assign(source.params());
+
+        if (model instanceof MultiLayerNetwork) {
+            MultiLayerNetwork src = (MultiLayerNetwork) source;
+            MultiLayerNetwork net = (MultiLayerNetwork) model;
+            net.setIterationCount(src.getIterationCount());
+            net.setEpochCount(src.getEpochCount());
+            if (copyUpdater) {
+                copyState(src.getUpdater(), net.getUpdater());
+            }
+        } else {
+            ComputationGraph src = (ComputationGraph) source;
+            ComputationGraph graph = (ComputationGraph) model;
+            graph.getConfiguration().setIterationCount(src.getIterationCount());
+            graph.getConfiguration().setEpochCount(src.getEpochCount());
+            if (copyUpdater) {
+                copyState(src.getUpdater(), graph.getUpdater());
+            }
+        }
+    }
+
+    protected static void copyState(Updater from, Updater to) {
+        INDArray fromState = from == null ? null : from.getStateViewArray();
+        INDArray toState = to == null ? null : to.getStateViewArray();
+        if (fromState != null && toState != null) {
+            toState.assign(fromState);
+        }
+    }
+}
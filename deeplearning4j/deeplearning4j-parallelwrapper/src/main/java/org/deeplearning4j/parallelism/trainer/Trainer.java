@@ -0,0 +1,89 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism.trainer;
+
+import lombok.NonNull;
+import org.deeplearning4j.nn.api.Model;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.DataSet;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+
+/**
+ * A Trainer holds one model replica used by {@link org.deeplearning4j.parallelism.ParallelWrapper}.<br>
+ * All methods are called from the worker thread that owns the trainer
+ */
+public interface Trainer {
+
+    /**
+     * @return Index of the worker this trainer belongs to
+     */
+    int getThreadId();
+
+    /**
+     * @return The model replica of this trainer
+     */
+    Model getModel();
+
+    /**
+     * Fit the replica on the given minibatch, updating its parameters locally
+     *
+     * @param dataSet Minibatch
+     */
+    void fit(@NonNull DataSet dataSet);
+
+    /**
+     * Fit the replica on the given minibatch, updating its parameters locally
+     *
+     * @param dataSet Minibatch
+     */
+    void fit(@NonNull MultiDataSet dataSet);
+
+    /**
+     * Compute the gradient and score of the replica for the given minibatch, without updating the parameters.
+     * The (not yet minibatch-normalized) gradients are available via {@link #getGradient()} afterwards
+     *
+     * @param dataSet Minibatch
+     * @return Score for the minibatch
+     */
+    double computeGradient(@NonNull DataSet dataSet);
+
+    /**
+     * Compute the gradient and score of the replica for the given minibatch, without updating the parameters.
+     * The (not yet minibatch-normalized) gradients are available via {@link #getGradient()} afterwards
+     *
+     * @param dataSet Minibatch
+     * @return Score for the minibatch
+     */
+    double computeGradient(@NonNull MultiDataSet dataSet);
+
+    /**
+     * @return Flattened gradients of the last {@link #computeGradient(DataSet)} call
+     */
+    INDArray getGradient();
+
+    /**
+     * Copy the parameters (and optionally the updater state) of the given model into the replica
+     *
+     * @param model          Model to copy the state from
+     * @param copyUpdater    If true: also copy the updater state
+     */
+    void updateModel(@NonNull Model model, boolean copyUpdater);
+}
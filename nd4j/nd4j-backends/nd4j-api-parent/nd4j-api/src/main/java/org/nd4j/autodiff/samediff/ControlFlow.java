@@ -159,6 +159,7 @@ public class ControlFlow {
                 }
                 sameDiff.getOps().remove(op.getName());
             }
+            sameDiff.incrementStructureVersion();
 
 
             throw new IllegalStateException("Can not use " + pred.name()
@@ -98,6 +98,7 @@ import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -122,6 +123,8 @@ public class SameDiff extends SDBaseOps {
     private final Map<String, SameDiffOp> ops = new LinkedHashMap<>();
     @Getter
     private final Map<Long, InferenceSession> sessions = new ConcurrentHashMap<>();      //Key: thread ID
+    //Incremented on every structural change of the graph - see getStructureVersion()
+    private final AtomicLong structureVersion = new AtomicLong();
 
     @Getter
     @Setter
@@ -159,6 +162,90 @@ public class SameDiff extends SDBaseOps {
     @Setter
     private boolean enableCache = true;
 
+    /**
+     * Number of threads used to execute ops that don't depend on each other (for example, parallel branches of the graph)
+     * during inference. With the default value of 1, ops are executed one by one in the calling thread.
+     * Note that ops are never grouped when listeners are active or debug mode is enabled.
+     */
+    @Getter
+    @Setter
+    private int opExecutionThreads = 1;
+
+    /**
+     * If true: the execution plan (the subgraph to execute, the order of execution and the resolved op inputs) is
+     * cached after the first call of the output methods, and reused for subsequent calls with the same requested
+     * outputs and placeholder shapes/data types. This avoids the graph analysis and dependency tracking overhead of
+     * each call, which is significant for small graphs and low latency inference.<br>
+     * Graphs with control flow ops (loops, conditions) are always analyzed for each call.
+     */
+    @Getter
+    @Setter
+    private boolean executionPlanCaching = false;
+
+    /**
+     * If true: inference sessions use a {@link org.nd4j.autodiff.samediff.internal.memory.PlannedMemoryMgr}, which
+     * computes the lifetimes of all intermediate arrays during the first execution for a given set of outputs and
+     * placeholder shapes, and then places these arrays in a single pre-allocated arena (per data type) for subsequent
+     * executions. The planned peak memory is available via {@link #getPlannedPeakMemory(Map, String...)} once a
+     * plan has been created.<br>
+     * Use {@link #setMemoryPlanning(boolean)} to change this; existing sessions are closed (releasing their arenas) and
+     * discarded when this is changed.
+     */
+    @Getter
+    private boolean memoryPlanning = false;
+
+    /**
+     * See {@link #isMemoryPlanning()}
+     */
+    public void setMemoryPlanning(boolean memoryPlanning) {
+        if (this.memoryPlanning != memoryPlanning) {
+            this.memoryPlanning = memoryPlanning;
+            clearSessions();
+        }
+    }
+
+    /**
+     * Planned peak memory for computing the given outputs with placeholders of the given shapes and data types, on
+     * the current thread. A plan is created by the first execution of these outputs with such placeholders, when
+     * {@link #isMemoryPlanning()} is enabled; this method can then be used before the next executions
+     *
+     * @param placeholders Placeholder values, as they would be passed to {@link #output(Map, String...)}. May be null
+     * @param outputs      Requested outputs
+     * @return Planned peak memory in bytes, or -1 if no memory plan exists for these outputs and placeholders
+     */
+    public long getPlannedPeakMemory(Map<String, INDArray> placeholders, @NonNull String... outputs) {
+        InferenceSession is = sessions.get(Thread.currentThread().getId());
+        return is == null ? -1 : is.getPlannedPeakBytes(Arrays.asList(outputs), placeholders);
+    }
+
+    /**
+     * Discard all inference sessions, releasing the resources (such as op executor threads) held by each of them
+     */
+    private void clearSessions() {
+        for (InferenceSession s : sessions.values()) {
+            s.close();
+        }
+        sessions.clear();
+    }
+
+    /**
+     * Structural version of the graph: incremented whenever ops or variables are added, removed, renamed or
+     * rewired. Cached execution plans (see {@link #isExecutionPlanCaching()}) are only reused for the version they
+     * were recorded with
+     */
+    public long getStructureVersion() {
+        return structureVersion.get();
+    }
+
+    /**
+     * Increment the structural version of the graph - see {@link #getStructureVersion()}. Called by all methods
+     * that modify the graph structure; must also be called after modifying {@link #getOps()} or
+     * {@link #getVariables()} directly
+     */
+    public void incrementStructureVersion() {
+        structureVersion.incrementAndGet();
+    }
+
     ///////////////////////////////////////
     //Fields related to training
     @Getter
@@ -863,6 +950,7 @@ public class SameDiff extends SDBaseOps {
 
         if (!ops.containsKey(id)) {
             ops.put(id, SameDiffOp.builder().name(id).op(function).build());
+            incrementStructureVersion();
         }
     }
 
@@ -1288,6 +1376,7 @@ public class SameDiff extends SDBaseOps {
         for (String resultName : varNames) {
             variables.get(resultName).setOutputOfOp(function.getOwnName());
         }
+        incrementStructureVersion();
     }
 
     /**
@@ -1406,6 +1495,7 @@ public class SameDiff extends SDBaseOps {
 
         //Update variable 'inputs to op' accounting for repeated inputs (like y = x+x)
         ops.get(function.getOwnName()).setInputsToOp(Arrays.asList(variables));     //Duplicate variables OK/required here
+        incrementStructureVersion();
 
         for (String variableName : variables) {
             if(this.variables.containsKey(variableName)) {
@@ -1473,6 +1563,7 @@ public class SameDiff extends SDBaseOps {
         oldArgs = new ArrayList<>(oldArgs);
         oldArgs.set(i, newName);
         ops.get(function.getOwnName()).setInputsToOp(oldArgs);
+        incrementStructureVersion();
 
         List<String> funcs = this.variables.get(newName).getInputsForOp();
 
@@ -3264,6 +3355,7 @@ public class SameDiff extends SDBaseOps {
         SDVariable v = new SDVariable(name, VariableType.CONSTANT, this, constant.shape(), constant.dataType());
         name = v.name();
         variables.put(name, Variable.builder().name(name).variable(v).build());
+        incrementStructureVersion();
         constantArrays.setArray(name, constant);
         return v;
     }
@@ -3282,6 +3374,7 @@ public class SameDiff extends SDBaseOps {
     public SDVariable placeHolder(@NonNull String name, DataType dataType, long... shape) {
         SDVariable ret = new SDVariable(name, VariableType.PLACEHOLDER, this, shape, dataType);
         variables.put(name, Variable.builder().name(name).variable(ret).build());
+        incrementStructureVersion();
         return ret;
     }
 
@@ -3554,6 +3647,7 @@ public class SameDiff extends SDBaseOps {
         } else {
             variables.remove(varName);
             sequences.remove(varName);
+            incrementStructureVersion();
         }
     }
 
@@ -3855,7 +3949,8 @@ public class SameDiff extends SDBaseOps {
         }
 
         //Remove all sessions in case they have any cached arrays/state
-        sessions.clear();
+        clearSessions();
+        incrementStructureVersion();
 
         //If gradient function has been defined, remove it (so it will be recreated later)
         if(recreateGradFunction)
@@ -3955,7 +4050,8 @@ public class SameDiff extends SDBaseOps {
         }
 
         //Remove all sessions in case they have any cached arrays/state
-        sessions.clear();
+        clearSessions();
+        incrementStructureVersion();
 
         //If gradient function has been defined, remove it (so it will be recreated later)
         sameDiffFunctionInstances.remove(GRAD_FN_KEY);
@@ -4067,7 +4163,8 @@ public class SameDiff extends SDBaseOps {
         }
 
         if (anyChanged) {
-            sessions.clear();
+            clearSessions();
+            incrementStructureVersion();
 
             //Recalculate datatypes of outputs, and dynamically update them
             Set<String> allSeenOps = new HashSet<>();
@@ -4196,6 +4293,7 @@ public class SameDiff extends SDBaseOps {
 
         variables.remove(from);
         variables.put(to, v);
+        incrementStructureVersion();
 
         if(v.getVariable().getVariableType() == VariableType.CONSTANT && constantArrays.hasArray(from)) {
             constantArrays.rename(from, to);
@@ -4313,6 +4411,7 @@ public class SameDiff extends SDBaseOps {
         }
 
         variables.get(varName).getInputsForOp().remove(function.getOwnName());
+        incrementStructureVersion();
     }
 
     /**
@@ -4676,6 +4775,7 @@ public class SameDiff extends SDBaseOps {
 
         Preconditions.checkState(variable.getSameDiff() == this, "Same diff instance for variable must be the same!");
         variables.put(variable.name(), Variable.builder().name(variable.name()).variable(variable).build());
+        incrementStructureVersion();
         return variable;
     }
 
@@ -5850,6 +5950,7 @@ public class SameDiff extends SDBaseOps {
         // 7. Update the main variable map
         this.variables.remove(fromName);
         this.variables.put(finalName, varMeta);
+        incrementStructureVersion();
 
         // 8. Update array holders
         if (varToUpdate.getVariableType() == VariableType.CONSTANT && this.constantArrays.hasArray(fromName)) {
@@ -457,4 +457,26 @@ public abstract class AbstractDependencyTracker<T, D> {
 
         return null; // None match predicate
     }
+
+    /**
+     * As per {@link #getFirstNewAllSatisfiedMatching(Predicate)} but returns (and removes) all values matching the
+     * provided predicate, in queue order. If no value matches the predicate, an empty list is returned
+     *
+     * @param predicate Predicate for checking
+     * @return All values matching the predicate
+     */
+    public List<T> getAllNewAllSatisfiedMatching(@NonNull Predicate<T> predicate) {
+        List<T> ret = new ArrayList<>();
+        Iterator<T> iter = allSatisfiedQueue.iterator();
+        while (iter.hasNext()) {
+            T t = iter.next();
+            if (predicate.test(t)) {
+                iter.remove();
+                allSatisfied.remove(t);
+                ret.add(t);
+            }
+        }
+
+        return ret;
+    }
 }
@@ -52,6 +52,11 @@ public abstract class AbstractSession<T, O> {
      */
     public static final String OUTER_FRAME = "main";
 
+    /**
+     * Maximum number of execution plans cached per session - see {@link SameDiff#isExecutionPlanCaching()}
+     */
+    public static final int MAX_CACHED_PLANS = 16;
+
     protected final SameDiff sameDiff;
     @Getter
     protected final Map<VarId, SDValue> nodeValueOutputs = new LinkedHashMap<>(); // Key: variable (at a given frame +
@@ -100,6 +105,38 @@ public abstract class AbstractSession<T, O> {
      */
     protected final Set<String> zeroInputOpsInSubgraph = new HashSet<>();
 
+    /**
+     * Ops that were resolved and parameterized as part of a group of independent ops (see
+     * {@link #prepareIndependentOps(ExecStep, Map, Set, Map)}), but not yet processed by the main execution loop.
+     * The queue keeps the order in which these ops are processed
+     */
+    protected final Map<ExecStep, PreparedOp<O>> preparedOps = new HashMap<>();
+    protected final Queue<ExecStep> preparedQueue = new ArrayDeque<>();
+
+    /**
+     * Execution plans recorded by previous calls of {@link #output(List, Map, Map, MultiDataSet, Collection, List, At)},
+     * keyed on the requested outputs and the placeholder shapes/types. Least recently used plans are evicted first.
+     * Only used when {@link SameDiff#isExecutionPlanCaching()} is enabled
+     */
+    protected final Map<PlanKey, ExecutionPlan> executionPlans = new LinkedHashMap<PlanKey, ExecutionPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PlanKey, ExecutionPlan> eldest) {
+            return size() > MAX_CACHED_PLANS;
+        }
+    };
+    /**
+     * Plan being replayed by the current execution, if any. When set, the dependency tracker is not used
+     */
+    protected ExecutionPlan activePlan;
+    /**
+     * Plan being recorded by the current execution, if any
+     */
+    protected ExecutionPlan recordingPlan;
+    /**
+     * Structural version of the graph the cached plans were recorded for - see {@link SameDiff#getStructureVersion()}
+     */
+    protected long planStructureVersion = -1;
+
     public AbstractSession(@NonNull SameDiff sameDiff) {
         this.sameDiff = sameDiff;
     }
@@ -232,100 +269,132 @@ public abstract class AbstractSession<T, O> {
         dt.clear();
         subgraph.clear();
         subgraphOps.clear();
+        preparedOps.clear();
+        preparedQueue.clear();
 
-        // Step 1: determine subgraph structure we actually need to execute
-        // Basic plan: work backwards from the variables we want, based on the graph
-        // structure, to work out what
-        // we actually need to execute
-        // TODO we'll optimize this and cache the results, only recalculating if the
-        // graph structure changes
         Set<String> userRequestedUnique = new LinkedHashSet<>(variables);
         Set<String> allRequired = new LinkedHashSet<>(requiredActivations);
         allRequired.addAll(variables);
-        initSubgraph(allRequired);
-
-        // Step 2: Check that we have required placeholders
-        List<String> phNames = sameDiff.inputs();
-        Set<String> presentPlaceholders = new HashSet<>();
-        // add all placeholder values together
-        if (placeholderValues != null && !placeholderValues.isEmpty())
-            presentPlaceholders.addAll(placeholderValues.keySet());
-        if (otherPlaceHolderValues != null && !otherPlaceHolderValues.isEmpty())
-            presentPlaceholders.addAll(otherPlaceHolderValues.keySet());
-
-        if (presentPlaceholders.isEmpty() || !presentPlaceholders.containsAll(phNames)) {
-            /*
-             * We only have a subset of all placeholders
-             * Validate that we have all *required* placeholder values. Some might not be
-             * needed to calculate the requested outputs
-             * A placeholder is required if:
-             * (a) It's one of the requested outputs
-             * (b) It's required to calculate any of the ops in the subgraph
-             * For example, we might have a label placeholder, and we're doing inference not
-             * training
-             */
-            for (String s : phNames) {
-                boolean required = false;
-                if (variables.contains(s)) {
-                    required = true;
-                }
-                if (!required) {
-                    Variable v = sameDiff.getVariables().get(s);
-                    if (v.getInputsForOp() != null) {
-                        for (String s2 : v.getInputsForOp()) {
-                            if (subgraph.contains(s2)) {
-                                // Placeholder is required
-                                required = true;
-                                break;
+
+        // If possible, reuse the execution plan of a previous call with the same outputs and placeholder shapes:
+        // this skips the subgraph and dependency analysis below, and executes the ops in the recorded order
+        activePlan = null;
+        recordingPlan = null;
+        long structureVersion = sameDiff.getStructureVersion();
+        if (structureVersion != planStructureVersion) {
+            //Plans recorded for an older version of the graph can never be used again
+            executionPlans.clear();
+            structureChanged();
+            planStructureVersion = structureVersion;
+        }
+        PlanKey planKey = null;
+        if (sameDiff.isExecutionPlanCaching()) {
+            planKey = planKey(allRequired, otherPlaceHolderValues);
+            ExecutionPlan plan = executionPlans.get(planKey);
+            if (plan != null && plan.isValidFor(sameDiff)) {
+                activePlan = plan;
+                subgraph.addAll(plan.getSubgraph());
+                subgraphOps.addAll(plan.getSubgraphOps());
+            } else if (plan != null) {
+                executionPlans.remove(planKey);
+            }
+        }
+
+        if (activePlan == null) {
+            // Step 1: determine subgraph structure we actually need to execute
+            // Basic plan: work backwards from the variables we want, based on the graph
+            // structure, to work out what
+            // we actually need to execute
+            // The results (and the order of execution) are cached when execution plan caching is enabled - see below
+            initSubgraph(allRequired);
+
+            // Step 2: Check that we have required placeholders
+            List<String> phNames = sameDiff.inputs();
+            Set<String> presentPlaceholders = new HashSet<>();
+            // add all placeholder values together
+            if (placeholderValues != null && !placeholderValues.isEmpty())
+                presentPlaceholders.addAll(placeholderValues.keySet());
+            if (otherPlaceHolderValues != null && !otherPlaceHolderValues.isEmpty())
+                presentPlaceholders.addAll(otherPlaceHolderValues.keySet());
+
+            if (presentPlaceholders.isEmpty() || !presentPlaceholders.containsAll(phNames)) {
+                /*
+                 * We only have a subset of all placeholders
+                 * Validate that we have all *required* placeholder values. Some might not be
+                 * needed to calculate the requested outputs
+                 * A placeholder is required if:
+                 * (a) It's one of the requested outputs
+                 * (b) It's required to calculate any of the ops in the subgraph
+                 * For example, we might have a label placeholder, and we're doing inference not
+                 * training
+                 */
+                for (String s : phNames) {
+                    boolean required = false;
+                    if (variables.contains(s)) {
+                        required = true;
+                    }
+                    if (!required) {
+                        Variable v = sameDiff.getVariables().get(s);
+                        if (v.getInputsForOp() != null) {
+                            for (String s2 : v.getInputsForOp()) {
+                                if (subgraph.contains(s2)) {
+                                    // Placeholder is required
+                                    required = true;
+                                    break;
+                                }
                             }
                         }
                     }
+
+                    if (required && (presentPlaceholders.isEmpty() || !presentPlaceholders.contains(s))) {
+                        throw new IllegalStateException(
+                                "An input placeholder \"" + s + "\" is required to calculate the requested outputs," +
+                                        " but a placeholder value was not provided");
+                    }
                 }
+            }
 
-                if (required && (presentPlaceholders.isEmpty() || !presentPlaceholders.contains(s))) {
-                    throw new IllegalStateException(
-                            "An input placeholder \"" + s + "\" is required to calculate the requested outputs," +
-                                    " but a placeholder value was not provided");
+            // Step 3: Mark the (required) variables, constants and placeholders as
+            // available via dependency tracker
+            // And also any "zero dependency" ops - i.e., those without any inputs
+            ExecStep start = new ExecStep(ExecType.EXEC_START, "", null); // Dummy dependency to trigger the variables and
+                                                                          // constants
+            for (SDVariable v : sameDiff.variables()) {
+                VariableType vt = v.getVariableType();
+                if (vt == VariableType.VARIABLE || vt == VariableType.CONSTANT) {
+                    ExecType et = vt == VariableType.VARIABLE ? ExecType.VARIABLE : ExecType.CONSTANT;
+                    ExecStep es = new ExecStep(et, v.name(), new FrameIter(OUTER_FRAME, 0, null));
+                    dt.addDependency(es, start);
+
+                    Variable var = sameDiff.getVariables().get(v.name());
+                    if (var.getControlDeps() != null) {
+                        addVarControlDeps(es, var); // Before this variable can be considered available for use, we need
+                                                    // specified op to be executed
+                    }
                 }
             }
-        }
 
-        // Step 3: Mark the (required) variables, constants and placeholders as
-        // available via dependency tracker
-        // And also any "zero dependency" ops - i.e., those without any inputs
-        ExecStep start = new ExecStep(ExecType.EXEC_START, "", null); // Dummy dependency to trigger the variables and
-                                                                      // constants
-        for (SDVariable v : sameDiff.variables()) {
-            VariableType vt = v.getVariableType();
-            if (vt == VariableType.VARIABLE || vt == VariableType.CONSTANT) {
-                ExecType et = vt == VariableType.VARIABLE ? ExecType.VARIABLE : ExecType.CONSTANT;
-                ExecStep es = new ExecStep(et, v.name(), new FrameIter(OUTER_FRAME, 0, null));
+            for (String s : phNames) {
+                ExecStep es = new ExecStep(ExecType.PLACEHOLDER, s, new FrameIter(OUTER_FRAME, 0, null));
                 dt.addDependency(es, start);
 
-                Variable var = sameDiff.getVariables().get(v.name());
+                Variable var = sameDiff.getVariables().get(s);
                 if (var.getControlDeps() != null) {
                     addVarControlDeps(es, var); // Before this variable can be considered available for use, we need
                                                 // specified op to be executed
                 }
             }
-        }
 
-        for (String s : phNames) {
-            ExecStep es = new ExecStep(ExecType.PLACEHOLDER, s, new FrameIter(OUTER_FRAME, 0, null));
-            dt.addDependency(es, start);
-
-            Variable var = sameDiff.getVariables().get(s);
-            if (var.getControlDeps() != null) {
-                addVarControlDeps(es, var); // Before this variable can be considered available for use, we need
-                                            // specified op to be executed
+            for (String s : zeroInputOpsInSubgraph) {
+                ExecStep es = new ExecStep(ExecType.OP, s, new FrameIter(OUTER_FRAME, 0, null));
+                dt.addDependency(es, start);
             }
-        }
+            dt.markSatisfied(start, true);
 
-        for (String s : zeroInputOpsInSubgraph) {
-            ExecStep es = new ExecStep(ExecType.OP, s, new FrameIter(OUTER_FRAME, 0, null));
-            dt.addDependency(es, start);
+            if (sameDiff.isExecutionPlanCaching() && !containsControlFlow(subgraphOps)) {
+                recordingPlan = new ExecutionPlan(new LinkedHashSet<>(subgraph), new LinkedHashSet<>(subgraphOps));
+            }
         }
-        dt.markSatisfied(start, true);
 
         // Step 4: execute in any order, but not switching to new frame/iteration until
         // all from current frame/iter ops
@@ -354,6 +423,9 @@ public abstract class AbstractSession<T, O> {
          * switch ops may cause entire branches of the graph to be skipped.
          */
 
+        if (planKey == null && needsPlanKey())
+            planKey = planKey(allRequired, otherPlaceHolderValues);
+        beginExecution(planKey);
         Map<String, SDValue> outValues = new LinkedHashMap<>();
         Set<String> allExecuted = new LinkedHashSet<>();
         int step = 0; // Number of execution steps
@@ -362,33 +434,69 @@ public abstract class AbstractSession<T, O> {
         int currentFrameIter = 0;
         FrameIter currParentFrame = null;
         ExecStepPredicate predicate = new ExecStepPredicate();
+        boolean independentExecution = isIndependentExecutionEnabled(listeners);
+        Iterator<ExecStep> planSteps = activePlan == null ? null : activePlan.getSteps().iterator();
+        boolean failed = false;
         while (allExecuted.size() < allRequired.size()) {
-            if (!dt.hasNewAllSatisfied()) {
-                execFailed(userRequestedUnique, outValues, allRequired, allExecuted, step);
-                // note execFailed will not always throw an exception if a user required all
-                // variables from
-                // outputAll. A common case is conditional paths not being executed. This will
-                // just ensure that
-                // no other exceptions are thrown.
-                break;
+            ExecStep es;
+            if (!preparedQueue.isEmpty()) {
+                // Remaining ops of a group of independent ops: already parameterized and executed, process the outputs
+                es = preparedQueue.remove();
+            } else if (planSteps != null) {
+                if (!planSteps.hasNext()) {
+                    execFailed(userRequestedUnique, outValues, allRequired, allExecuted, step);
+                    failed = true;
+                    break;
+                }
 
-            }
+                es = planSteps.next();
+                List<ExecStep> group = activePlan.getIndependentGroups().get(es);
+                if (group != null) {
+                    if (independentExecution) {
+                        prepareOps(group, placeholderValues, reqOutputVariablesSet, otherPlaceHolderValues);
+                    } else {
+                        preparedQueue.addAll(group);
+                    }
+                    es = preparedQueue.remove();
+                }
+            } else {
+                if (!dt.hasNewAllSatisfied()) {
+                    execFailed(userRequestedUnique, outValues, allRequired, allExecuted, step);
+                    // note execFailed will not always throw an exception if a user required all
+                    // variables from
+                    // outputAll. A common case is conditional paths not being executed. This will
+                    // just ensure that
+                    // no other exceptions are thrown.
+                    failed = true;
+                    break;
+
+                }
 
-            // Get variable in the current frame/iteration and execute it's corresponding op
-            // If no more ops exist for the current frame/iter, we'll switch to the next
-            // frame/iter
-            // The idea is to not mix the order of execution of ops in different
-            // frames/iters - i.e., finish the current
-            // frame/iter before starting the next one
-            predicate.setCurrentFrame(currentFrame);
-            predicate.setCurrentFrameIter(currentFrameIter);
-            predicate.setCurrParentFrame(currParentFrame);
-
-            ExecStep es = dt.getFirstNewAllSatisfiedMatching(predicate);
-            if (es == null) {
-                // We must have finished the current frame/iter, and are switching to the next
-                // one
-                es = dt.getNewAllSatisfied();
+                // Get variable in the current frame/iteration and execute it's corresponding op
+                // If no more ops exist for the current frame/iter, we'll switch to the next
+                // frame/iter
+                // The idea is to not mix the order of execution of ops in different
+                // frames/iters - i.e., finish the current
+                // frame/iter before starting the next one
+                predicate.setCurrentFrame(currentFrame);
+                predicate.setCurrentFrameIter(currentFrameIter);
+                predicate.setCurrParentFrame(currParentFrame);
+
+                es = dt.getFirstNewAllSatisfiedMatching(predicate);
+                if (es == null) {
+                    // We must have finished the current frame/iter, and are switching to the next
+                    // one
+                    es = dt.getNewAllSatisfied();
+                }
+                if (recordingPlan != null) {
+                    recordingPlan.getSteps().add(es);
+                }
+
+                // Other ops available at this point don't depend on this one: optionally execute them all together
+                if (independentExecution && es.getType() == ExecType.OP && canExecuteIndependently(es)
+                        && prepareIndependentOps(es, placeholderValues, reqOutputVariablesSet, otherPlaceHolderValues)) {
+                    es = preparedQueue.remove();
+                }
             }
 
             currentFrame = es.getFrameIter().getFrame();
@@ -478,58 +586,21 @@ public abstract class AbstractSession<T, O> {
                 }
 
                 // Resolve the inputs to this execution step (op) to actual arrays
-                Set<VarId> inputs = null;
-                Set<VarId> allIterInputs = null;
-                Set<String> constAndPhInputs = null;
-                DependencyList<ExecStep, ExecStep> dl = dt.getDependencies(es);
-
+                // Ops prepared as part of a group of independent ops are already resolved and parameterized
                 List<String> inputNames = op.getInputsToOp();
-                if (inputNames != null && !inputNames.isEmpty()) {
-                    inputs = new LinkedHashSet<>();
-                    allIterInputs = new LinkedHashSet<>();
-                    constAndPhInputs = new LinkedHashSet<>();
-                    Iterable<ExecStep> deps = dl.getDependencies();
-                    if (deps != null) {
-                        for (ExecStep dep : deps) {
-                            switch (dep.getType()) {
-                                case OP:
-                                case SWITCH_L:
-                                case SWITCH_R:
-                                    // The current execution step depends on one output of the op "dep"
-                                    SameDiffOp toExecOp = sameDiff.getOps().get(es.getName());
-                                    List<String> inputsToExecOp = toExecOp.getInputsToOp();
-                                    SameDiffOp inputOp = sameDiff.getOps().get(dep.getName());
-                                    List<String> inputOpOutNames = inputOp.getOutputsOfOp();
-                                    for (String s : inputsToExecOp) {
-                                        if (inputOpOutNames.contains(s)) {
-                                            VarId vid = new VarId(s, dep.getFrameIter().getFrame(),
-                                                    dep.getFrameIter().getIteration(),
-                                                    dep.getFrameIter().getParentFrame());
-                                            inputs.add(vid);
-                                        }
-                                    }
-                                    break;
-                                case VARIABLE:
-                                    inputs.add(new VarId(dep.getName(), dep.getFrameIter().getFrame(),
-                                            dep.getFrameIter().getIteration(), dep.getFrameIter().getParentFrame()));
-                                    break;
-                                case CONSTANT:
-                                case PLACEHOLDER:
-                                    constAndPhInputs.add(dep.getName());
-                                    break;
-                                default:
-                                    throw new UnsupportedOperationException("Not yet implemented: " + dep.getType());
-                            }
-                        }
-                    }
-                }
+                PreparedOp<O> prepared = preparedOps.remove(es);
+                OpInputs opInputs = prepared != null ? prepared.getInputs() : resolveOpInputs(es, op);
+                Set<VarId> inputs = opInputs.getInputs();
+                Set<VarId> allIterInputs = opInputs.getAllIterInputs();
+                Set<String> constAndPhInputs = opInputs.getConstAndPhInputs();
 
                 // Do execution of the op, in 2 steps
                 // (a) "Parameterize" the op - i.e., find and set the arrays on the op, allocate
                 // outputs, etc ready for execution
                 // (b) actually execute the operation
-                O parameterizedOp = getAndParameterizeOp(opName, outFrameIter, inputs, allIterInputs, constAndPhInputs,
-                        placeholderValues, reqOutputVariablesSet, otherPlaceHolderValues);
+                O parameterizedOp = prepared != null ? prepared.getOp()
+                        : getAndParameterizeOp(opName, outFrameIter, inputs, allIterInputs, constAndPhInputs,
+                                placeholderValues, reqOutputVariablesSet, otherPlaceHolderValues);
                 ExecutionResult opOutputValues = getOutputs(parameterizedOp, outFrameIter, inputs, allIterInputs,
                         constAndPhInputs, listeners, at, batch, reqOutputVariablesSet, otherPlaceHolderValues);
                 List<String> opOutVarNames = op.getOutputsOfOp();
@@ -686,7 +757,7 @@ public abstract class AbstractSession<T, O> {
                  * some rare cases that rely on the constant/variable not being available
                  */
                 List<String> cdFor = op.getControlDepFor();
-                if (cdFor != null) {
+                if (cdFor != null && activePlan == null) {
                     ExecStep cdEs = new ExecStep(ExecType.CONTROL_DEP, opName, null);
                     if (!dt.isSatisfied(cdEs)) {
                         dt.markSatisfied(cdEs, true);
@@ -698,11 +769,11 @@ public abstract class AbstractSession<T, O> {
                 throw new RuntimeException("Unknown ExecStep: " + es);
             }
 
-            // Standard ops
-            if (!skipDepUpdate) {
+            // Standard ops. Not required when replaying a plan, as the order of execution is already known
+            if (!skipDepUpdate && activePlan == null) {
                 updateDescendantDeps(es, outFrameIter);
             }
-            if (!skipMarkSatisfied) {
+            if (!skipMarkSatisfied && activePlan == null) {
                 dt.markSatisfied(es, true);
             }
 
@@ -713,10 +784,251 @@ public abstract class AbstractSession<T, O> {
         // out of workspace, etc) arrays
 
         outValues = postProcessOutputValues(outValues);
+        endExecution(planKey, !failed);
+
+        if (recordingPlan != null && !failed) {
+            executionPlans.put(planKey, recordingPlan);
+        }
+        activePlan = null;
+        recordingPlan = null;
         return ExecutionResult.builder()
                 .valueOutputs(outValues).build();
     }
 
+    /**
+     * @param required          Required variables: the additional required activations, followed by the requested
+     *                          outputs
+     * @param placeholderValues Placeholder values, before any preprocessing
+     * @return Key of an execution of the current version of the graph, with the given outputs and placeholders
+     */
+    protected PlanKey planKey(Collection<String> required, Map<String, SDValue> placeholderValues) {
+        return new PlanKey(required, placeholderValues, sameDiff.getStructureVersion(), sameDiff.getOps().size(),
+                sameDiff.getVariables().size());
+    }
+
+    /**
+     * @return True if {@link #beginExecution(PlanKey)} and {@link #endExecution(PlanKey, boolean)} need the key of the
+     * execution even when execution plan caching is disabled. Building the key costs a pass over the placeholders,
+     * so it's skipped otherwise
+     */
+    protected boolean needsPlanKey() {
+        return false;
+    }
+
+    /**
+     * Called before the execution of the ops starts
+     *
+     * @param key Key of the execution: requested outputs, placeholder shapes and graph version. Executions with the
+     *            same key are expected to execute the same steps. Null if execution plan caching is disabled and
+     *            {@link #needsPlanKey()} is false
+     */
+    protected void beginExecution(PlanKey key) {
+        //No op by default
+    }
+
+    /**
+     * Called before an execution when the structure of the graph changed since the previous execution: all keys
+     * passed to {@link #beginExecution(PlanKey)} so far are obsolete
+     */
+    protected void structureChanged() {
+        //No op by default
+    }
+
+    /**
+     * Called after the execution, once the output values were post processed
+     *
+     * @param key       Key of the execution, as per {@link #beginExecution(PlanKey)}
+     * @param completed True if all required outputs were calculated
+     */
+    protected void endExecution(PlanKey key, boolean completed) {
+        //No op by default
+    }
+
+    /**
+     * Get (and remove) the steps that became available for execution, but were not executed because all required
+     * outputs had already been calculated. When replaying an execution plan, these are the steps recorded for the plan
+     *
+     * @return Steps that were not executed
+     */
+    protected List<ExecStep> getUnexecutedSteps() {
+        if (activePlan != null)
+            return activePlan.getUnexecutedSteps();
+
+        List<ExecStep> out = dt.hasNewAllSatisfied() ? dt.getNewAllSatisfiedList() : Collections.<ExecStep>emptyList();
+        if (recordingPlan != null) {
+            recordingPlan.getUnexecutedSteps().addAll(out);
+        }
+        return out;
+    }
+
+    /**
+     * Resolve the inputs of the given op execution step to the variable ids (frame/iteration specific) and
+     * the names of constant/placeholder inputs, based on the dependencies recorded in the dependency tracker
+     *
+     * @param es Execution step for the op
+     * @param op Op to resolve the inputs for
+     * @return Resolved inputs
+     */
+    protected OpInputs resolveOpInputs(ExecStep es, SameDiffOp op) {
+        if (activePlan != null) {
+            OpInputs planned = activePlan.getOpInputs().get(es);
+            if (planned != null)
+                return planned;
+        }
+
+        OpInputs resolved = resolveOpInputsFromDependencies(es, op);
+        if (recordingPlan != null) {
+            recordingPlan.getOpInputs().put(es, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * As per {@link #resolveOpInputs(ExecStep, SameDiffOp)}, but always based on the dependency tracker
+     */
+    protected OpInputs resolveOpInputsFromDependencies(ExecStep es, SameDiffOp op) {
+        Set<VarId> inputs = null;
+        Set<VarId> allIterInputs = null;
+        Set<String> constAndPhInputs = null;
+        DependencyList<ExecStep, ExecStep> dl = dt.getDependencies(es);
+
+        List<String> inputNames = op.getInputsToOp();
+        if (inputNames != null && !inputNames.isEmpty()) {
+            inputs = new LinkedHashSet<>();
+            allIterInputs = new LinkedHashSet<>();
+            constAndPhInputs = new LinkedHashSet<>();
+            Iterable<ExecStep> deps = dl.getDependencies();
+            if (deps != null) {
+                for (ExecStep dep : deps) {
+                    switch (dep.getType()) {
+                        case OP:
+                        case SWITCH_L:
+                        case SWITCH_R:
+                            // The current execution step depends on one output of the op "dep"
+                            SameDiffOp toExecOp = sameDiff.getOps().get(es.getName());
+                            List<String> inputsToExecOp = toExecOp.getInputsToOp();
+                            SameDiffOp inputOp = sameDiff.getOps().get(dep.getName());
+                            List<String> inputOpOutNames = inputOp.getOutputsOfOp();
+                            for (String s : inputsToExecOp) {
+                                if (inputOpOutNames.contains(s)) {
+                                    VarId vid = new VarId(s, dep.getFrameIter().getFrame(),
+                                            dep.getFrameIter().getIteration(),
+                                            dep.getFrameIter().getParentFrame());
+                                    inputs.add(vid);
+                                }
+                            }
+                            break;
+                        case VARIABLE:
+                            inputs.add(new VarId(dep.getName(), dep.getFrameIter().getFrame(),
+                                    dep.getFrameIter().getIteration(), dep.getFrameIter().getParentFrame()));
+                            break;
+                        case CONSTANT:
+                        case PLACEHOLDER:
+                            constAndPhInputs.add(dep.getName());
+                            break;
+                        default:
+                            throw new UnsupportedOperationException("Not yet implemented: " + dep.getType());
+                    }
+                }
+            }
+        }
+
+        return new OpInputs(inputs, allIterInputs, constAndPhInputs);
+    }
+
+    /**
+     * Remove all other ops that can be executed right now, in the same frame/iteration as the given op execution step,
+     * resolve and parameterize them together with that step, and execute them via {@link #executeIndependentOps(List)}.
+     * None of the ops in the group depend on each other, as all their dependencies are already satisfied.
+     * The main execution loop then processes the outputs of these ops one by one, as usual.
+     *
+     * @param es First op of the group, already removed from the dependency tracker
+     * @return True if a group with more than one op was prepared, false otherwise
+     */
+    protected boolean prepareIndependentOps(final ExecStep es, Map<String, T> placeholderValues,
+            Set<String> reqOutputVariablesSet, Map<String, SDValue> otherPlaceHolderValues) {
+        if (!dt.hasNewAllSatisfied())
+            return false;
+
+        List<ExecStep> group = dt.getAllNewAllSatisfiedMatching(step -> step.getType() == ExecType.OP
+                && es.getFrameIter().equals(step.getFrameIter()) && canExecuteIndependently(step));
+        if (group.isEmpty())
+            return false;
+
+        group.add(0, es);
+        if (recordingPlan != null) {
+            recordingPlan.getIndependentGroups().put(es, new ArrayList<>(group));
+        }
+        prepareOps(group, placeholderValues, reqOutputVariablesSet, otherPlaceHolderValues);
+        return true;
+    }
+
+    /**
+     * Resolve and parameterize the given group of independent ops, add them to the queue of prepared ops and execute
+     * them via {@link #executeIndependentOps(List)}
+     */
+    protected void prepareOps(List<ExecStep> group, Map<String, T> placeholderValues,
+            Set<String> reqOutputVariablesSet, Map<String, SDValue> otherPlaceHolderValues) {
+        List<O> ops = new ArrayList<>(group.size());
+        for (ExecStep step : group) {
+            OpInputs opInputs = resolveOpInputs(step, sameDiff.getOps().get(step.getName()));
+            O parameterizedOp = getAndParameterizeOp(step.getName(), step.getFrameIter(), opInputs.getInputs(),
+                    opInputs.getAllIterInputs(), opInputs.getConstAndPhInputs(), placeholderValues,
+                    reqOutputVariablesSet, otherPlaceHolderValues);
+            preparedOps.put(step, new PreparedOp<>(opInputs, parameterizedOp));
+            preparedQueue.add(step);
+            ops.add(parameterizedOp);
+        }
+
+        executeIndependentOps(ops);
+    }
+
+    /**
+     * @param listeners Listeners for the current execution
+     * @return True if ops without dependencies on each other may be executed together, via
+     *         {@link #executeIndependentOps(List)}
+     */
+    protected boolean isIndependentExecutionEnabled(List<Listener> listeners) {
+        return false;
+    }
+
+    /**
+     * @param es Execution step for the op
+     * @return True if the op can be executed together with other independent ops. Control flow ops and other ops
+     *         that access the session state during execution should return false
+     */
+    protected boolean canExecuteIndependently(ExecStep es) {
+        return false;
+    }
+
+    /**
+     * Execute a group of parameterized ops that don't depend on each other. Results must be made available to the
+     * subsequent {@link #getOutputs(Object, FrameIter, Set, Set, Set, List, At, MultiDataSet, Set, Map)} calls for
+     * these ops. Default implementation does nothing, i.e., ops are executed one by one in getOutputs
+     *
+     * @param ops Parameterized ops
+     */
+    protected void executeIndependentOps(List<O> ops) {
+        //No op by default
+    }
+
+    /**
+     * @param ops Names of the ops to check
+     * @return True if any of the ops is a control flow op. The order of execution of graphs with control flow
+     *         (loops, conditions) depends on the values being processed, hence such graphs can't use a fixed
+     *         execution plan
+     */
+    protected boolean containsControlFlow(Collection<String> ops) {
+        for (String s : ops) {
+            DifferentialFunction o = sameDiff.getOps().get(s).getOp();
+            if (o instanceof Enter || o instanceof Exit || o instanceof NextIteration || o instanceof Merge
+                    || o instanceof Switch || o instanceof LoopCond) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private FrameIter getExitIter(ExecStep es) {
         FrameIter outFrameIter;
         // Exit node forwards input to parent frame
@@ -1426,6 +1738,97 @@ public abstract class AbstractSession<T, O> {
 
     }
 
+    /**
+     * Resolved inputs for a single op execution step - see {@link #resolveOpInputs(ExecStep, SameDiffOp)}
+     */
+    @Getter
+    @AllArgsConstructor
+    protected static class OpInputs {
+        protected final Set<VarId> inputs;
+        protected final Set<VarId> allIterInputs;
+        protected final Set<String> constAndPhInputs;
+    }
+
+    /**
+     * Op execution step that was resolved and parameterized (and possibly executed) ahead of the main execution loop
+     */
+    @Getter
+    @AllArgsConstructor
+    protected static class PreparedOp<O> {
+        protected final OpInputs inputs;
+        protected final O op;
+    }
+
+    /**
+     * Key for cached execution plans: the required outputs, the placeholders provided (with their shapes and data
+     * types), the structural version of the graph (see {@link SameDiff#getStructureVersion()}) and the size of the
+     * graph, which also catches direct edits of the ops/variables maps
+     */
+    @EqualsAndHashCode
+    protected static class PlanKey {
+        protected final List<String> required;
+        protected final Map<String, String> placeholders;
+        protected final long structureVersion;
+        protected final int numOps;
+        protected final int numVariables;
+
+        protected PlanKey(Collection<String> required, Map<String, SDValue> placeholderValues, long structureVersion,
+                int numOps, int numVariables) {
+            this.required = new ArrayList<>(required);
+            this.placeholders = new HashMap<>();
+            for (Map.Entry<String, SDValue> e : placeholderValues.entrySet()) {
+                SDValue v = e.getValue();
+                if (v == null) {
+                    placeholders.put(e.getKey(), "null");
+                } else if (v.getSdValueType() == SDValueType.TENSOR && v.getTensorValue() != null) {
+                    INDArray arr = v.getTensorValue();
+                    placeholders.put(e.getKey(), arr.dataType() + Arrays.toString(arr.shape()));
+                } else {
+                    placeholders.put(e.getKey(), v.getSdValueType().toString());
+                }
+            }
+            this.structureVersion = structureVersion;
+            this.numOps = numOps;
+            this.numVariables = numVariables;
+        }
+    }
+
+    /**
+     * Ahead-of-time execution plan for a graph without control flow: the subgraph to execute, the order in which
+     * the steps were executed, the resolved inputs of each op and the groups of independent ops.
+     * Replaying a plan skips the subgraph analysis and dependency tracking done for every call otherwise.
+     * Recorded during the first execution for a given {@link PlanKey}
+     */
+    @Getter
+    protected static class ExecutionPlan {
+        protected final Set<String> subgraph;
+        protected final Set<String> subgraphOps;
+        protected final List<ExecStep> steps = new ArrayList<>();
+        protected final Map<ExecStep, OpInputs> opInputs = new HashMap<>();
+        protected final Map<ExecStep, List<ExecStep>> independentGroups = new HashMap<>();
+        protected final List<ExecStep> unexecutedSteps = new ArrayList<>();
+
+        protected ExecutionPlan(Set<String> subgraph, Set<String> subgraphOps) {
+            this.subgraph = subgraph;
+            this.subgraphOps = subgraphOps;
+        }
+
+        /**
+         * @return False if any of the variables or ops of the plan no longer exist - for example, after being renamed
+         */
+        protected boolean isValidFor(SameDiff sameDiff) {
+            for (String s : subgraphOps) {
+                if (!sameDiff.getOps().containsKey(s))
+                    return false;
+            }
+            for (String s : subgraph) {
+                if (!sameDiff.getVariables().containsKey(s))
+                    return false;
+            }
+            return true;
+        }
+    }
+
     /**
      * Used in getting the next ExecStep that matches the specified (current)
      * frame/iteration
@@ -33,6 +33,7 @@ import org.nd4j.autodiff.samediff.config.SDValue;
 import org.nd4j.autodiff.samediff.config.SDValueType;
 import org.nd4j.autodiff.samediff.internal.memory.ArrayCacheMemoryMgr;
 import org.nd4j.autodiff.samediff.internal.memory.HashDependencyTracker;
+import org.nd4j.autodiff.samediff.internal.memory.PlannedMemoryMgr;
 import org.nd4j.common.base.Preconditions;
 import org.nd4j.common.primitives.Pair;
 import org.nd4j.common.util.ArrayUtil;
@@ -64,6 +65,12 @@ import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.shade.wstx.util.StringUtil;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -91,9 +98,62 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
     @Getter
     private Map<String,OpContext> opContexts = new LinkedHashMap<>();
 
+    //Results of ops executed as a group of independent ops, not yet consumed by getOutputs. Key: op name
+    private final Map<String, ExecutionResult> independentOpResults = new HashMap<>();
+    //Pool for executing independent ops, created lazily. See SameDiff.setOpExecutionThreads(int)
+    private ExecutorService opExecutor;
+    private int opExecutorThreads;
+
     public InferenceSession(@NonNull SameDiff sameDiff) {
         super(sameDiff);
-        mmgr = new ArrayCacheMemoryMgr();
+        mmgr = sameDiff.isMemoryPlanning() ? new PlannedMemoryMgr() : new ArrayCacheMemoryMgr();
+    }
+
+    @Override
+    protected boolean needsPlanKey() {
+        return mmgr instanceof PlannedMemoryMgr;
+    }
+
+    @Override
+    protected void beginExecution(PlanKey key) {
+        if (mmgr instanceof PlannedMemoryMgr) {
+            ((PlannedMemoryMgr) mmgr).beginExecution(key);
+        }
+    }
+
+    @Override
+    protected void endExecution(PlanKey key, boolean completed) {
+        if (mmgr instanceof PlannedMemoryMgr) {
+            ((PlannedMemoryMgr) mmgr).endExecution(completed);
+        }
+    }
+
+    @Override
+    protected void structureChanged() {
+        if (mmgr instanceof PlannedMemoryMgr) {
+            ((PlannedMemoryMgr) mmgr).clearPlans();
+        }
+    }
+
+    /**
+     * Planned peak memory of an execution, available once an execution with the same outputs and placeholder
+     * shapes/types has been recorded (see {@link SameDiff#isMemoryPlanning()}), and before the next one runs
+     *
+     * @param outputs      Requested outputs
+     * @param placeholders Placeholder values, as they would be passed for the execution. May be null
+     * @return Peak memory of the plan in bytes (total size of the arenas), or -1 if this session does not plan its
+     * memory or no plan exists yet for these outputs and placeholders
+     */
+    public long getPlannedPeakBytes(@NonNull Collection<String> outputs, Map<String, INDArray> placeholders) {
+        if (!(mmgr instanceof PlannedMemoryMgr))
+            return -1;
+        Map<String, SDValue> values = new LinkedHashMap<>();
+        if (placeholders != null) {
+            for (Map.Entry<String, INDArray> e : placeholders.entrySet()) {
+                values.put(e.getKey(), SDValue.create(e.getValue()));
+            }
+        }
+        return ((PlannedMemoryMgr) mmgr).getPlannedPeakBytes(planKey(new LinkedHashSet<>(outputs), values));
     }
 
     @Override
@@ -188,13 +248,10 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
     protected Map<String, SDValue> postProcessOutputValues(Map<String, SDValue> output) {
         //For any queued (not yet processed) ops - mark them as satisfied, so we can deallocate any arrays
         // that are waiting on them
-        if (dt.hasNewAllSatisfied()) {
-            List<ExecStep> execSteps = dt.getNewAllSatisfiedList();
-            for (ExecStep es : execSteps) {
-                if (es.getType() == ExecType.OP) {
-                    OpDep od = new OpDep(es.getName(), es.getFrameIter().getFrame(), es.getFrameIter().getIteration(), es.getFrameIter().getParentFrame());
-                    arrayUseTracker.markSatisfied(od, true);
-                }
+        for (ExecStep es : getUnexecutedSteps()) {
+            if (es.getType() == ExecType.OP) {
+                OpDep od = new OpDep(es.getName(), es.getFrameIter().getFrame(), es.getFrameIter().getIteration(), es.getFrameIter().getParentFrame());
+                arrayUseTracker.markSatisfied(od, true);
             }
         }
 
@@ -254,13 +311,17 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
             log.info("Executing samediff op: " + op.getName());
         }
 
-        ExecutionResult out = doExec(
-                op.getOp(),
-                opPair.getRight(),
-                outputFrameIter, opInputs,
-                allIterInputs,
-                constAndPhInputs,
-                otherPlaceHolders);
+        //Op may have been executed already, as part of a group of independent ops
+        ExecutionResult out = independentOpResults.remove(op.getName());
+        if (out == null) {
+            out = doExec(
+                    op.getOp(),
+                    opPair.getRight(),
+                    outputFrameIter, opInputs,
+                    allIterInputs,
+                    constAndPhInputs,
+                    otherPlaceHolders);
+        }
         List<String> opOutNames = op.getOutputsOfOp();
 
         if (log.isTraceEnabled()) {
@@ -461,6 +522,94 @@ public class InferenceSession extends AbstractSession<INDArray, Pair<SameDiffOp,
         }
     }
 
+    @Override
+    protected boolean isIndependentExecutionEnabled(List<Listener> listeners) {
+        //Listeners expect preOpExecution and opExecution calls around each single op execution, so ops aren't grouped with listeners
+        return sameDiff.getOpExecutionThreads() > 1 && (listeners == null || listeners.isEmpty()) && !sameDiff.isDebugMode();
+    }
+
+    @Override
+    protected boolean canExecuteIndependently(ExecStep es) {
+        DifferentialFunction df = sameDiff.getOps().get(es.getName()).getOp();
+        if (!(df instanceof CustomOp) && !(df instanceof Op))
+            return false;
+
+        //Control flow, tensor array ops and other special cases in doExec access session state during execution
+        return !(df instanceof LoopCond || df instanceof Enter || df instanceof Exit || df instanceof NextIteration ||
+                df instanceof Merge || df instanceof Switch || df instanceof BaseTensorOp || df instanceof Invoke ||
+                df instanceof Identity || df instanceof Assign || df instanceof CreateView || df instanceof Assert ||
+                df instanceof GradientBackwardsMarker || df instanceof ExternalErrorsFunction);
+    }
+
+    @Override
+    protected void executeIndependentOps(List<Pair<SameDiffOp, OpContext>> ops) {
+        //All arrays were allocated by this thread during parameterization, so worker threads only execute the ops
+        ExecutorService executor = getOpExecutor();
+        int deviceId = Nd4j.getAffinityManager().getDeviceForCurrentThread();
+        List<Future<ExecutionResult>> futures = new ArrayList<>(ops.size());
+        for (Pair<SameDiffOp, OpContext> p : ops) {
+            futures.add(executor.submit(() -> {
+                Nd4j.getAffinityManager().unsafeSetDevice(deviceId);
+                DifferentialFunction df = p.getFirst().getOp();
+                if (df instanceof CustomOp) {
+                    Nd4j.exec((CustomOp) df, p.getSecond());
+                } else {
+                    Nd4j.exec((Op) df, p.getSecond());
+                }
+                return ExecutionResult.createFrom(df, p.getSecond());
+            }));
+        }
+
+        try {
+            for (int i = 0; i < ops.size(); i++) {
+                independentOpResults.put(ops.get(i).getFirst().getName(), futures.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            independentOpResults.clear();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            independentOpResults.clear();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    protected synchronized ExecutorService getOpExecutor() {
+        int numThreads = sameDiff.getOpExecutionThreads();
+        if (opExecutor == null || opExecutorThreads != numThreads) {
+            if (opExecutor != null)
+                opExecutor.shutdown();
+
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "SameDiff-OpExecutor");
+                t.setDaemon(true);
+                return t;
+            });
+            //Idle threads exit even if this session is never closed
+            pool.allowCoreThreadTimeOut(true);
+            opExecutor = pool;
+            opExecutorThreads = numThreads;
+        }
+
+        return opExecutor;
+    }
+
+    /**
+     * Release the resources held by this session: shuts down the pool used to execute independent ops, and closes
+     * the memory manager (releasing, for example, the arenas of a planned memory manager).
+     * Called by SameDiff whenever the session is discarded
+     */
+    public synchronized void close() {
+        if (opExecutor != null) {
+            opExecutor.shutdown();
+            opExecutor = null;
+        }
+        mmgr.close();
+    }
+
     public ExecutionResult doExec(DifferentialFunction op,
                                   OpContext opContext,
                                   FrameIter outputFrameIter,
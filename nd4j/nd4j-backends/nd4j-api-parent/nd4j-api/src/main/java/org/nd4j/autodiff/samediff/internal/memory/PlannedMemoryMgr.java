@@ -0,0 +1,446 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+
+package org.nd4j.autodiff.samediff.internal.memory;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.nd4j.autodiff.samediff.internal.AbstractSession;
+import org.nd4j.autodiff.samediff.internal.SessionMemMgr;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.api.shape.LongShapeDescriptor;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.*;
+
+/**
+ * A {@link SessionMemMgr} that plans the memory of a graph execution ahead of time.<br>
+ * The first execution for a given key (requested outputs + placeholder shapes) is delegated to another memory manager,
+ * while the sequence of allocations and releases is recorded. This gives the lifetime of each intermediate array.
+ * From these lifetimes, every array that is released during the execution is assigned an offset inside one
+ * pre-allocated arena per data type, such that arrays with overlapping lifetimes never share memory (greedy
+ * placement, largest arrays first). Subsequent executions with the same key then get these arrays as views of the
+ * arena, without any allocation.<br>
+ * Arrays that are not released during the execution (for example, arrays returned to the user) and detached arrays
+ * are always allocated by the delegate memory manager.<br>
+ * The planned peak memory (the total arena size) is available via {@link #getPlannedPeakBytes(Object)} once a plan
+ * exists, before the next execution.<br>
+ * At most {@link AbstractSession#MAX_CACHED_PLANS} plans are kept: when a new plan is created, the least recently
+ * used plan is removed and its arenas are released.<br>
+ * If an execution deviates from the recorded sequence, the remaining allocations of that execution use the
+ * delegate, and the plan is recorded again on the next execution.
+ *
+ * @see ArrayCacheMemoryMgr
+ */
+@Slf4j
+public class PlannedMemoryMgr extends AbstractMemoryMgr {
+
+    /**
+     * Alignment of array offsets in the arena, in bytes
+     */
+    public static final int ALIGNMENT_BYTES = 64;
+
+    @Getter
+    private final SessionMemMgr delegate;
+    private final Map<Object, MemoryPlan> plans = new LinkedHashMap<Object, MemoryPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, MemoryPlan> eldest) {
+            if (size() > AbstractSession.MAX_CACHED_PLANS) {
+                //Only called when a plan is added at the end of an execution: no array uses the evicted arenas
+                eldest.getValue().closeArenas();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    //Current execution
+    private Object currentKey;
+    private MemoryPlan currentPlan;
+    private List<Allocation> recording;
+    private Map<Long, Allocation> recordingLive;
+    private boolean diverged;
+    private int allocationIdx;
+    private int event;
+    private final Map<Long, Integer> arenaArrays = new HashMap<>();       //Key: array ID, value: slot index
+    private final Set<Integer> liveSlots = new HashSet<>();
+
+    public PlannedMemoryMgr() {
+        this(new ArrayCacheMemoryMgr());
+    }
+
+    /**
+     * @param delegate Memory manager used for the recording executions, and all arrays that are not planned
+     */
+    public PlannedMemoryMgr(@NonNull SessionMemMgr delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Start an execution. Allocations up to the next {@link #endExecution(boolean)} call are planned (or recorded)
+     * for the given key
+     *
+     * @param key Key for the execution - executions with the same key must perform the same sequence of allocations
+     */
+    public void beginExecution(@NonNull Object key) {
+        currentKey = key;
+        currentPlan = plans.get(key);
+        diverged = false;
+        allocationIdx = 0;
+        event = 0;
+        arenaArrays.clear();
+        liveSlots.clear();
+        if (currentPlan == null) {
+            recording = new ArrayList<>();
+            recordingLive = new HashMap<>();
+        } else {
+            currentPlan.allocateArenas();
+        }
+    }
+
+    /**
+     * End the current execution. If the execution was recorded, the memory plan for its key is created
+     *
+     * @param completed False if the execution did not complete, in which case nothing is recorded
+     */
+    public void endExecution(boolean completed) {
+        if (currentKey == null)
+            return;
+
+        if (currentPlan == null && completed) {
+            MemoryPlan plan = new MemoryPlan(recording);
+            plans.put(currentKey, plan);
+            log.debug("Created memory plan: {} of {} allocations planned, peak {} bytes vs. {} bytes without reuse",
+                    plan.getNumPlanned(), recording.size(), plan.getPeakBytes(), plan.getTotalBytes());
+        } else if (currentPlan != null && diverged) {
+            log.debug("Execution deviated from the memory plan at allocation {}, plan will be recorded again", allocationIdx);
+            plans.remove(currentKey);
+        }
+
+        currentKey = null;
+        currentPlan = null;
+        recording = null;
+        recordingLive = null;
+    }
+
+    /**
+     * @return Number of memory plans created so far
+     */
+    public int numPlans() {
+        return plans.size();
+    }
+
+    /**
+     * @return Total size (in bytes) of the arenas currently allocated, over all plans
+     */
+    public long getAllocatedArenaBytes() {
+        long bytes = 0;
+        for (MemoryPlan p : plans.values()) {
+            for (INDArray arena : p.arenas.values())
+                bytes += arena.length() * arena.dataType().width();
+        }
+        return bytes;
+    }
+
+    /**
+     * @param key Execution key, as passed to {@link #beginExecution(Object)}
+     * @return Peak memory (total size of the arenas, in bytes) of the plan for the given key, or -1 if no plan exists yet
+     */
+    public long getPlannedPeakBytes(Object key) {
+        MemoryPlan p = plans.get(key);
+        return p == null ? -1 : p.getPeakBytes();
+    }
+
+    /**
+     * @param key Execution key, as passed to {@link #beginExecution(Object)}
+     * @return Total size (in bytes) of the planned arrays, if no memory was reused, or -1 if no plan exists yet
+     */
+    public long getUnplannedBytes(Object key) {
+        MemoryPlan p = plans.get(key);
+        return p == null ? -1 : p.getTotalBytes();
+    }
+
+    @Override
+    public INDArray allocate(boolean detached, DataType dataType, long... shape) {
+        INDArray planned = allocatePlanned(detached, dataType, shape);
+        if (planned != null)
+            return planned;
+        INDArray out = delegate.allocate(detached, dataType, shape);
+        record(detached, out);
+        return out;
+    }
+
+    @Override
+    public INDArray allocate(boolean detached, LongShapeDescriptor descriptor) {
+        INDArray planned = null;
+        if (!descriptor.isEmpty() && descriptor.getOrder() == 'c' && descriptor.getOffset() == 0 && Arrays.equals(descriptor.getStride(),
+                Nd4j.getStrides(descriptor.getShape(), 'c'))) {
+            planned = allocatePlanned(detached, descriptor.dataType(), descriptor.getShape());
+        } else {
+            nextSlot(detached, descriptor.dataType(), -1);
+        }
+        if (planned != null)
+            return planned;
+        INDArray out = delegate.allocate(detached, descriptor);
+        record(detached, out);
+        return out;
+    }
+
+    @Override
+    public INDArray allocateFromDescriptor(boolean detached, DataBuffer dataBuffer) {
+        INDArray out = delegate.allocateFromDescriptor(detached, dataBuffer);
+        if (currentPlan != null) {
+            nextSlot(detached, out.dataType(), -1);
+        } else {
+            record(detached, out);
+        }
+        return out;
+    }
+
+    @Override
+    public void release(@NonNull INDArray array) {
+        Integer slot = arenaArrays.remove(array.getId());
+        if (slot != null) {
+            //Arena memory: nothing to deallocate, memory will be reused by arrays allocated later
+            liveSlots.remove(slot);
+            event++;
+            return;
+        }
+
+        if (recordingLive != null) {
+            Allocation a = recordingLive.remove(array.getId());
+            if (a != null) {
+                a.releaseEvent = event;
+            }
+        }
+        event++;
+        delegate.release(array);
+    }
+
+    /**
+     * Remove all memory plans, releasing their arenas. Must not be called during an execution
+     */
+    public void clearPlans() {
+        for (MemoryPlan p : plans.values()) {
+            p.closeArenas();
+        }
+        plans.clear();
+    }
+
+    @Override
+    public void close() {
+        clearPlans();
+        delegate.close();
+    }
+
+    /**
+     * @return The array for the next allocation as a view of the arena, or null if the allocation is not planned
+     */
+    private INDArray allocatePlanned(boolean detached, DataType dataType, long[] shape) {
+        long length = 1;
+        for (long l : shape)
+            length *= l;
+        Slot slot = nextSlot(detached, dataType, length);
+        if (slot == null)
+            return null;
+
+        //Memory of this slot is shared with other slots: all of them must have been released by now
+        for (int other : slot.conflicts) {
+            if (liveSlots.contains(other))
+                return null;
+        }
+
+        INDArray arena = currentPlan.arenas.get(dataType);
+        INDArray out = Nd4j.create(arena.data(), shape, Nd4j.getStrides(shape, 'c'), slot.offset, 'c');
+        arenaArrays.put(out.getId(), slot.index);
+        liveSlots.add(slot.index);
+        event++;
+        return out;
+    }
+
+    /**
+     * Advance to the next allocation of the current plan, if any
+     *
+     * @return Slot for the allocation, or null if the allocation should use the delegate memory manager
+     */
+    private Slot nextSlot(boolean detached, DataType dataType, long length) {
+        if (currentPlan == null)
+            return null;
+
+        int idx = allocationIdx++;
+        if (diverged)
+            return null;
+        if (idx >= currentPlan.allocations.size()) {
+            diverged = true;
+            return null;
+        }
+
+        Allocation a = currentPlan.allocations.get(idx);
+        if (a.detached != detached || a.dataType != dataType || (length >= 0 && a.length != length)) {
+            diverged = true;
+            return null;
+        }
+        return currentPlan.slots.get(idx);
+    }
+
+    private void record(boolean detached, INDArray arr) {
+        if (recording == null)
+            return;
+        Allocation a = new Allocation(detached, arr.dataType(), arr.isEmpty() ? 0 : arr.length(), event++);
+        recording.add(a);
+        recordingLive.put(arr.getId(), a);
+    }
+
+    private static class Allocation {
+        private final boolean detached;
+        private final DataType dataType;
+        private final long length;
+        private final int allocEvent;
+        private int releaseEvent = -1;
+
+        private Allocation(boolean detached, DataType dataType, long length, int allocEvent) {
+            this.detached = detached;
+            this.dataType = dataType;
+            this.length = length;
+            this.allocEvent = allocEvent;
+        }
+
+        private boolean planned() {
+            return !detached && releaseEvent >= 0 && length > 0;
+        }
+
+        private boolean overlapsInTime(Allocation other) {
+            return allocEvent < other.releaseEvent && other.allocEvent < releaseEvent;
+        }
+    }
+
+    private static class Slot {
+        private final int index;
+        private final long offset;       //In elements
+        private int[] conflicts;         //Other slots sharing (part of) the memory of this slot, allocated before it
+
+        private Slot(int index, long offset) {
+            this.index = index;
+            this.offset = offset;
+        }
+    }
+
+    @Getter
+    private static class MemoryPlan {
+        private final List<Allocation> allocations;
+        private final List<Slot> slots;
+        private final Map<DataType, Long> arenaLengths = new HashMap<>();
+        private final Map<DataType, INDArray> arenas = new HashMap<>();
+        private int numPlanned;
+        private long peakBytes;
+        private long totalBytes;
+
+        private MemoryPlan(List<Allocation> allocations) {
+            this.allocations = allocations;
+            this.slots = new ArrayList<>(Collections.<Slot>nCopies(allocations.size(), null));
+
+            //Greedy placement, largest arrays first: each array goes to the lowest offset that doesn't overlap with
+            // any already placed array that is alive at the same time
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < allocations.size(); i++) {
+                if (allocations.get(i).planned())
+                    order.add(i);
+            }
+            order.sort((a, b) -> Long.compare(allocations.get(b).length, allocations.get(a).length));
+
+            Map<DataType, List<Integer>> placed = new HashMap<>();
+            for (int i : order) {
+                Allocation a = allocations.get(i);
+                long align = Math.max(1, ALIGNMENT_BYTES / a.dataType.width());
+                List<Integer> sameType = placed.computeIfAbsent(a.dataType, k -> new ArrayList<>());
+
+                List<long[]> used = new ArrayList<>();
+                for (int j : sameType) {
+                    if (a.overlapsInTime(allocations.get(j))) {
+                        used.add(new long[]{slots.get(j).offset, slots.get(j).offset + allocations.get(j).length});
+                    }
+                }
+                used.sort(Comparator.comparingLong(r -> r[0]));
+                long offset = 0;
+                for (long[] r : used) {
+                    if (offset + a.length <= r[0])
+                        break;
+                    offset = Math.max(offset, alignUp(r[1], align));
+                }
+
+                slots.set(i, new Slot(i, offset));
+                sameType.add(i);
+                arenaLengths.merge(a.dataType, offset + a.length, Math::max);
+                numPlanned++;
+                totalBytes += a.length * a.dataType.width();
+            }
+
+            //Conflicts: slots sharing memory, allocated earlier (hence expected to be released by the time this
+            // slot is allocated)
+            for (List<Integer> sameType : placed.values()) {
+                for (int i : sameType) {
+                    Slot s = slots.get(i);
+                    Allocation a = allocations.get(i);
+                    List<Integer> conflicts = new ArrayList<>();
+                    for (int j : sameType) {
+                        Allocation b = allocations.get(j);
+                        Slot o = slots.get(j);
+                        if (j != i && b.allocEvent < a.allocEvent && o.offset < s.offset + a.length
+                                && s.offset < o.offset + b.length) {
+                            conflicts.add(j);
+                        }
+                    }
+                    s.conflicts = new int[conflicts.size()];
+                    for (int k = 0; k < s.conflicts.length; k++)
+                        s.conflicts[k] = conflicts.get(k);
+                }
+            }
+
+            for (Map.Entry<DataType, Long> e : arenaLengths.entrySet()) {
+                peakBytes += e.getValue() * e.getKey().width();
+            }
+        }
+
+        private void allocateArenas() {
+            for (Map.Entry<DataType, Long> e : arenaLengths.entrySet()) {
+                if (!arenas.containsKey(e.getKey())) {
+                    arenas.put(e.getKey(), Nd4j.createUninitializedDetached(e.getKey(), e.getValue()));
+                }
+            }
+        }
+
+        private void closeArenas() {
+            //Only called between executions, when all arrays allocated from the arenas have been released
+            for (INDArray arena : arenas.values()) {
+                if (arena.closeable())
+                    arena.close();
+            }
+            arenas.clear();
+        }
+
+        private static long alignUp(long value, long align) {
+            return (value + align - 1) / align * align;
+        }
+    }
+}
@@ -53,6 +53,7 @@ public class OptimizationUtils {
         //NOTE: this only works if we carefully control the order in which replaceOpInputsWith is called!
         v2.setInputsForOp(v.getInputsForOp());
         v.setInputsForOp(new ArrayList<String>());
+        sd.incrementStructureVersion();
     }
 
     public static void removeOp(@NonNull SameDiff sd, @NonNull String opToRemove){
@@ -61,10 +62,12 @@ public class OptimizationUtils {
             Variable v = sd.getVariables().get(s);
             v.getInputsForOp().remove(op.getName());
         }
+        sd.incrementStructureVersion();
     }
 
     public static void removeVariable(@NonNull SameDiff sd, @NonNull String varToRemove){
         sd.getVariables().remove(varToRemove);
+        sd.incrementStructureVersion();
     }
 
 }
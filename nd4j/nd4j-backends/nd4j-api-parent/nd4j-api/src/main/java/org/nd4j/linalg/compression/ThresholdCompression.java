@@ -20,7 +20,115 @@
 
 package org.nd4j.linalg.compression;
 
+import lombok.NonNull;
+import org.nd4j.common.base.Preconditions;
+import org.nd4j.linalg.api.buffer.DataBuffer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.util.Arrays;
+
+/**
+ * Threshold encoding of (gradient) updates.<br>
+ * Elements with absolute value of at least {@code threshold} are transmitted as a single signed index each, and
+ * {@code threshold} is subtracted from them in the source array. Everything below the threshold stays in the source
+ * array (the residual) and is accumulated into subsequent updates.<br>
+ * Encoded arrays are INT vectors: a header of {@link #HEADER_LENGTH} elements
+ * ({@code [numEncoded, originalLength, floatBits(threshold), encodingType]}) followed by one element per encoded value:
+ * {@code index + 1} for positive and {@code -(index + 1)} for negative values.
+ */
 public class ThresholdCompression {
     public static final int FLEXIBLE_ENCODING = 0;
     public static final int BITMAP_ENCODING = 1;
+
+    public static final int HEADER_LENGTH = 4;
+
+    private ThresholdCompression() {
+    }
+
+    /**
+     * Encode the given array in place: encoded elements are reduced by {@code threshold}, the remainder is left in
+     * {@code residual}
+     *
+     * @param residual  Contiguous array to encode. Modified in place
+     * @param threshold Threshold, must be positive
+     * @return Encoded INT array, with {@link #FLEXIBLE_ENCODING}
+     */
+    public static INDArray encode(@NonNull INDArray residual, double threshold) {
+        Preconditions.checkArgument(threshold > 0, "Threshold must be positive, got %s", threshold);
+        Preconditions.checkArgument(residual.length() < Integer.MAX_VALUE, "Arrays with more than Integer.MAX_VALUE " +
+                "elements can't be encoded, got length %s", residual.length());
+        Preconditions.checkArgument(residual.length() <= 1 || residual.elementWiseStride() == 1, "Only contiguous " +
+                "arrays can be encoded");
+
+        //Threshold is transmitted as float: use the same value for the residual, so decoded + residual is exact
+        threshold = (float) threshold;
+        int length = (int) residual.length();
+        DataBuffer buffer = residual.data();
+        long offset = residual.offset();
+
+        int[] encoded = new int[HEADER_LENGTH + Math.max(16, length / 64)];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            double v = buffer.getDouble(offset + i);
+            int e;
+            if (v >= threshold) {
+                e = i + 1;
+                buffer.put(offset + i, v - threshold);
+            } else if (v <= -threshold) {
+                e = -(i + 1);
+                buffer.put(offset + i, v + threshold);
+            } else {
+                continue;
+            }
+
+            if (HEADER_LENGTH + count == encoded.length)
+                encoded = Arrays.copyOf(encoded, encoded.length * 2);
+            encoded[HEADER_LENGTH + count++] = e;
+        }
+
+        encoded[0] = count;
+        encoded[1] = length;
+        encoded[2] = Float.floatToIntBits((float) threshold);
+        encoded[3] = FLEXIBLE_ENCODING;
+        return Nd4j.createFromArray(Arrays.copyOf(encoded, HEADER_LENGTH + count));
+    }
+
+    /**
+     * Decode the given encoded array, adding the decoded values to {@code target}
+     *
+     * @param encoded Array produced by {@link #encode(INDArray, double)}
+     * @param target  Contiguous array to add the decoded values to. Must have the original length
+     */
+    public static void decode(@NonNull INDArray encoded, @NonNull INDArray target) {
+        Preconditions.checkArgument(encoded.length() >= HEADER_LENGTH && encoded.elementWiseStride() == 1,
+                "Invalid encoded array");
+        DataBuffer in = encoded.data();
+        long inOffset = encoded.offset();
+        int encodingType = in.getInt(inOffset + 3);
+        Preconditions.checkArgument(encodingType == FLEXIBLE_ENCODING, "Unsupported encoding type: %s", encodingType);
+        Preconditions.checkArgument(in.getInt(inOffset + 1) == target.length(), "Encoded length %s does not match " +
+                "target length %s", in.getInt(inOffset + 1), target.length());
+        Preconditions.checkArgument(target.length() <= 1 || target.elementWiseStride() == 1, "Only contiguous " +
+                "arrays can be decoded into");
+
+        int count = in.getInt(inOffset);
+        double threshold = Float.intBitsToFloat(in.getInt(inOffset + 2));
+        inOffset += HEADER_LENGTH;
+        DataBuffer out = target.data();
+        long outOffset = target.offset();
+        for (int i = 0; i < count; i++) {
+            int e = in.getInt(inOffset + i);
+            long idx = outOffset + Math.abs(e) - 1;
+            out.put(idx, out.getDouble(idx) + (e > 0 ? threshold : -threshold));
+        }
+    }
+
+    /**
+     * @param encoded Array produced by {@link #encode(INDArray, double)}
+     * @return Number of encoded elements
+     */
+    public static int numEncoded(@NonNull INDArray encoded) {
+        return encoded.getInt(0);
+    }
 }
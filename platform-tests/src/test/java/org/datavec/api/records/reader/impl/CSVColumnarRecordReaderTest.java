@@ -0,0 +1,128 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.records.reader.impl;
+
+import org.apache.commons.io.FileUtils;
+import org.datavec.api.records.reader.RecordReader;
+import org.datavec.api.records.reader.impl.csv.CSVColumnarRecordReader;
+import org.datavec.api.records.reader.impl.csv.CSVRecordReader;
+import org.datavec.api.split.FileSplit;
+import org.datavec.api.writable.Writable;
+import org.datavec.api.writable.batch.ColumnarRecordBatch;
+import org.deeplearning4j.datasets.datavec.RecordReaderDataSetIterator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.BaseND4JTest;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Csv Columnar Record Reader Test")
+@NativeTag
+@Tag(TagNames.FILE_IO)
+class CSVColumnarRecordReaderTest extends BaseND4JTest {
+
+    @Test
+    @DisplayName("Test Parse Values")
+    void testParseValues(@TempDir Path testDir) throws Exception {
+        File f = new File(testDir.toFile(), "values.csv");
+        FileUtils.writeStringToFile(f, "a,b,c,d\n1, -2.5 ,\"3.25\",1e3\n0.000125,+7,-0,123456789012345678\n",
+                StandardCharsets.UTF_8);
+
+        CSVColumnarRecordReader rr = new CSVColumnarRecordReader(1, ',', '"', DataType.DOUBLE);
+        rr.initialize(new FileSplit(f));
+        List<List<Writable>> batch = rr.next(10);
+        assertTrue(batch instanceof ColumnarRecordBatch);
+        INDArray expected = Nd4j.createFromArray(new double[][]{
+                {1, -2.5, 3.25, 1000},
+                {0.000125, 7, 0, 123456789012345678.0}});
+        assertEquals(expected, ((ColumnarRecordBatch) batch).getArray());
+        assertEquals(2, batch.size());
+        assertEquals(-2.5, batch.get(0).get(1).toDouble(), 0.0);
+        assertFalse(rr.hasNext());
+    }
+
+    @Test
+    @DisplayName("Test Inconsistent Columns")
+    void testInconsistentColumns(@TempDir Path testDir) throws Exception {
+        File f = new File(testDir.toFile(), "bad.csv");
+        FileUtils.writeStringToFile(f, "1,2,3\n4,5\n", StandardCharsets.UTF_8);
+
+        CSVColumnarRecordReader rr = new CSVColumnarRecordReader();
+        rr.initialize(new FileSplit(f));
+        assertThrows(IllegalStateException.class, () -> rr.next(10));
+    }
+
+    @Test
+    @DisplayName("Test Matches CSV Record Reader")
+    void testMatchesCSVRecordReader(@TempDir Path testDir) throws Exception {
+        File f = new File(testDir.toFile(), "data.csv");
+        Random r = new Random(12345);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            for (int j = 0; j < 6; j++) {
+                sb.append(String.format(Locale.US, "%.4f", r.nextGaussian())).append(",");
+            }
+            sb.append(r.nextInt(3)).append("\n");
+        }
+        FileUtils.writeStringToFile(f, sb.toString(), StandardCharsets.UTF_8);
+
+        for (boolean regression : new boolean[]{false, true}) {
+            RecordReader standard = new CSVRecordReader();
+            standard.initialize(new FileSplit(f));
+            RecordReader columnar = new CSVColumnarRecordReader();
+            columnar.initialize(new FileSplit(f));
+
+            RecordReaderDataSetIterator expIter = regression ?
+                    new RecordReaderDataSetIterator(standard, 64, 5, 6, true) :
+                    new RecordReaderDataSetIterator(standard, 64, 6, 3);
+            RecordReaderDataSetIterator actIter = regression ?
+                    new RecordReaderDataSetIterator(columnar, 64, 5, 6, true) :
+                    new RecordReaderDataSetIterator(columnar, 64, 6, 3);
+
+            int count = 0;
+            while (expIter.hasNext()) {
+                assertTrue(actIter.hasNext());
+                DataSet exp = expIter.next();
+                DataSet act = actIter.next();
+                assertEquals(exp.getFeatures().castTo(DataType.FLOAT), act.getFeatures().castTo(DataType.FLOAT));
+                assertEquals(exp.getLabels().castTo(DataType.FLOAT), act.getLabels().castTo(DataType.FLOAT));
+                count += act.numExamples();
+            }
+            assertFalse(actIter.hasNext());
+            assertEquals(1000, count);
+        }
+    }
+}
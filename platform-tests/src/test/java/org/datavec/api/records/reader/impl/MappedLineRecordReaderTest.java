@@ -0,0 +1,170 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.records.reader.impl;
+
+import org.apache.commons.io.FileUtils;
+import org.datavec.api.records.Record;
+import org.datavec.api.records.metadata.RecordMetaData;
+import org.datavec.api.split.FileSplit;
+import org.datavec.api.writable.Text;
+import org.datavec.api.writable.Writable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.BaseND4JTest;
+import org.nd4j.common.tests.tags.TagNames;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Mapped Line Record Reader Test")
+@Tag(TagNames.JAVA_ONLY)
+@Tag(TagNames.FILE_IO)
+class MappedLineRecordReaderTest extends BaseND4JTest {
+
+    @Test
+    @DisplayName("Test Sequential")
+    void testSequential(@TempDir Path testDir) throws Exception {
+        File dir = testDir.toFile();
+        List<String> expected = writeFiles(dir);
+
+        for (int i = 0; i < 2; i++) {
+            //Second iteration: persisted indexes are loaded, and ignored as locations
+            MappedLineRecordReader rr = new MappedLineRecordReader();
+            rr.initialize(new FileSplit(dir));
+            assertEquals(expected.size(), rr.getNumLines());
+            for (int epoch = 0; epoch < 2; epoch++) {
+                assertEquals(expected, readAll(rr));
+                assertThrows(NoSuchElementException.class, rr::next);
+                rr.reset();
+            }
+            rr.close();
+        }
+        assertTrue(new File(dir, "a.txt" + MappedLineRecordReader.INDEX_EXTENSION).exists());
+    }
+
+    @Test
+    @DisplayName("Test Shuffle")
+    void testShuffle(@TempDir Path testDir) throws Exception {
+        File dir = new File(testDir.toFile(), "data");
+        File indexDir = new File(testDir.toFile(), "index");
+        assertTrue(dir.mkdir() && indexDir.mkdir());
+        List<String> expected = writeFiles(dir);
+        Collections.sort(expected);
+
+        MappedLineRecordReader rr = new MappedLineRecordReader(true, indexDir, new Random(12345));
+        rr.initialize(new FileSplit(dir));
+        assertFalse(new File(dir, "a.txt" + MappedLineRecordReader.INDEX_EXTENSION).exists());
+        assertTrue(indexDir.listFiles().length > 0);
+
+        List<String> first = readAll(rr);
+        rr.reset();
+        List<String> second = readAll(rr);
+        assertNotEquals(first, second);
+        Collections.sort(first);
+        Collections.sort(second);
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+    }
+
+    @Test
+    @DisplayName("Test Metadata")
+    void testMetadata(@TempDir Path testDir) throws Exception {
+        File dir = testDir.toFile();
+        writeFiles(dir);
+        MappedLineRecordReader rr = new MappedLineRecordReader(false, null, new Random(12345));
+        rr.initialize(new FileSplit(dir));
+        List<Record> records = new ArrayList<>();
+        List<RecordMetaData> meta = new ArrayList<>();
+        while (rr.hasNext()) {
+            Record r = rr.nextRecord();
+            records.add(r);
+            meta.add(r.getMetaData());
+        }
+        List<Record> loaded = rr.loadFromMetaData(meta);
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(records.get(i).getRecord(), loaded.get(i).getRecord());
+        }
+        assertFalse(new File(dir, "a.txt" + MappedLineRecordReader.INDEX_EXTENSION).exists());
+    }
+
+    @Test
+    @DisplayName("Test Stale Index")
+    void testStaleIndex(@TempDir Path testDir) throws Exception {
+        File f = new File(testDir.toFile(), "data.txt");
+        FileUtils.writeStringToFile(f, "a\nb\n", StandardCharsets.UTF_8);
+        MappedLineRecordReader rr = new MappedLineRecordReader();
+        rr.initialize(new FileSplit(f));
+        assertEquals(Arrays.asList("a", "b"), readAll(rr));
+
+        FileUtils.writeStringToFile(f, "a\nbc\nd", StandardCharsets.UTF_8);
+        rr = new MappedLineRecordReader();
+        rr.initialize(new FileSplit(f));
+        assertEquals(Arrays.asList("a", "bc", "d"), readAll(rr));
+    }
+
+    private static List<String> readAll(MappedLineRecordReader rr) {
+        List<String> out = new ArrayList<>();
+        while (rr.hasNext()) {
+            List<Writable> l = rr.next();
+            assertEquals(1, l.size());
+            assertTrue(l.get(0) instanceof Text);
+            out.add(l.get(0).toString());
+        }
+        return out;
+    }
+
+    /**
+     * Write files with different line endings, empty lines, non-ASCII characters and an empty file.
+     * @return Expected lines, in FileSplit order
+     */
+    private static List<String> writeFiles(File dir) throws Exception {
+        FileUtils.writeStringToFile(new File(dir, "a.txt"), "1,2,3\n4,5,6\n\n7,8,9\n", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "b.txt"), "", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(dir, "c.txt"), "windows\r\nline endings\r\nüñíçødé", StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder();
+        List<String> d = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String s = "line_" + i;
+            d.add(s);
+            sb.append(s).append("\n");
+        }
+        FileUtils.writeStringToFile(new File(dir, "d.txt"), sb.toString(), StandardCharsets.UTF_8);
+
+        Map<String, List<String>> content = new HashMap<>();
+        content.put("a.txt", Arrays.asList("1,2,3", "4,5,6", "", "7,8,9"));
+        content.put("b.txt", Collections.<String>emptyList());
+        content.put("c.txt", Arrays.asList("windows", "line endings", "üñíçødé"));
+        content.put("d.txt", d);
+
+        List<String> expected = new ArrayList<>();
+        for (URI u : new FileSplit(dir).locations()) {
+            expected.addAll(content.get(new File(u).getName()));
+        }
+        return expected;
+    }
+}
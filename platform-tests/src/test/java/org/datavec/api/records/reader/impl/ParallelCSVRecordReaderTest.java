@@ -0,0 +1,203 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.api.records.reader.impl;
+
+import org.apache.commons.io.FileUtils;
+import org.datavec.api.records.Record;
+import org.datavec.api.records.metadata.RecordMetaData;
+import org.datavec.api.records.reader.impl.csv.ParallelCSVRecordReader;
+import org.datavec.api.split.CollectionInputSplit;
+import org.datavec.api.split.FileSplit;
+import org.datavec.api.writable.Text;
+import org.datavec.api.writable.Writable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.BaseND4JTest;
+import org.nd4j.common.tests.tags.TagNames;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Parallel CSV Record Reader Test")
+@Tag(TagNames.FILE_IO)
+class ParallelCSVRecordReaderTest extends BaseND4JTest {
+
+    @Test
+    @DisplayName("Test Ordered")
+    void testOrdered(@TempDir Path testDir) throws Exception {
+        File dir = testDir.toFile();
+        Map<String, List<List<Writable>>> content = writeShards(dir, 12);
+        FileSplit split = new FileSplit(dir);
+        List<List<Writable>> expected = new ArrayList<>();
+        for (URI u : split.locations()) {
+            expected.addAll(content.get(new File(u).getName()));
+        }
+
+        for (int numThreads : new int[]{1, 3, 8}) {
+            ParallelCSVRecordReader rr = new ParallelCSVRecordReader(numThreads, true, 1, ',', '"', 2, 7);
+            rr.initialize(split);
+            for (int epoch = 0; epoch < 2; epoch++) {
+                List<List<Writable>> actual = new ArrayList<>();
+                while (rr.hasNext()) {
+                    actual.add(rr.next());
+                }
+                assertEquals(expected, actual, "numThreads=" + numThreads);
+                assertThrows(NoSuchElementException.class, rr::next);
+                rr.reset();
+            }
+            rr.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Test Reset Reads Split Locations Again")
+    void testResetLocationsChanged(@TempDir Path testDir) throws Exception {
+        File dir = testDir.toFile();
+        Map<String, List<List<Writable>>> content = writeShards(dir, 6);
+        //Split that reverses the order of its locations on each reset
+        CollectionInputSplit split = new CollectionInputSplit(new FileSplit(dir).locations()) {
+            @Override
+            public void reset() {
+                Collections.reverse(uriStrings);
+            }
+        };
+
+        ParallelCSVRecordReader rr = new ParallelCSVRecordReader(3, true, 1, ',', '"', 2, 7);
+        rr.initialize(split);
+        for (int epoch = 0; epoch < 3; epoch++) {
+            List<List<Writable>> expected = new ArrayList<>();
+            for (URI u : split.locations()) {
+                expected.addAll(content.get(new File(u).getName()));
+            }
+            List<List<Writable>> actual = new ArrayList<>();
+            while (rr.hasNext()) {
+                actual.add(rr.next());
+            }
+            assertEquals(expected, actual, "epoch=" + epoch);
+            rr.reset();
+        }
+        rr.close();
+    }
+
+    @Test
+    @DisplayName("Test Unordered")
+    void testUnordered(@TempDir Path testDir) throws Exception {
+        File dir = testDir.toFile();
+        Map<String, List<List<Writable>>> content = writeShards(dir, 10);
+        Map<List<Writable>, Integer> expected = new HashMap<>();
+        for (List<List<Writable>> l : content.values()) {
+            for (List<Writable> r : l) {
+                expected.merge(r, 1, Integer::sum);
+            }
+        }
+
+        ParallelCSVRecordReader rr = new ParallelCSVRecordReader(4, false, 1, ',', '"', 1, 5);
+        rr.initialize(new FileSplit(dir));
+        Map<List<Writable>, Integer> actual = new HashMap<>();
+        int count = 0;
+        while (rr.hasNext()) {
+            List<List<Writable>> batch = rr.next(13);
+            assertTrue(batch.size() > 0 && batch.size() <= 13);
+            for (List<Writable> r : batch) {
+                actual.merge(r, 1, Integer::sum);
+            }
+            count += batch.size();
+        }
+        assertEquals(expected, actual);
+        assertEquals(expected.values().stream().mapToInt(Integer::intValue).sum(), count);
+        rr.close();
+    }
+
+    @Test
+    @DisplayName("Test Metadata")
+    void testMetadata(@TempDir Path testDir) throws Exception {
+        File dir = testDir.toFile();
+        writeShards(dir, 5);
+        ParallelCSVRecordReader rr = new ParallelCSVRecordReader(3, false, 1, ',');
+        rr.initialize(new FileSplit(dir));
+        List<Record> records = new ArrayList<>();
+        List<RecordMetaData> meta = new ArrayList<>();
+        while (rr.hasNext()) {
+            Record r = rr.nextRecord();
+            records.add(r);
+            meta.add(r.getMetaData());
+        }
+        Collections.reverse(records);
+        Collections.reverse(meta);
+        List<Record> loaded = rr.loadFromMetaData(meta);
+        assertEquals(records.size(), loaded.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(records.get(i).getRecord(), loaded.get(i).getRecord());
+            assertEquals(records.get(i).getMetaData(), loaded.get(i).getMetaData());
+        }
+        rr.close();
+    }
+
+    @Test
+    @DisplayName("Test Parse Error Propagated")
+    void testParseErrorPropagated(@TempDir Path testDir) throws Exception {
+        File f = new File(testDir.toFile(), "bad.csv.gz");
+        FileUtils.writeStringToFile(f, "not gzip data", StandardCharsets.UTF_8);
+        ParallelCSVRecordReader rr = new ParallelCSVRecordReader(2);
+        rr.initialize(new FileSplit(f));
+        assertThrows(RuntimeException.class, rr::hasNext);
+        rr.close();
+    }
+
+    /**
+     * Write shards with a header line, of different lengths; every second shard is gzip compressed
+     */
+    private static Map<String, List<List<Writable>>> writeShards(File dir, int numShards) throws Exception {
+        Random r = new Random(12345);
+        Map<String, List<List<Writable>>> content = new HashMap<>();
+        for (int i = 0; i < numShards; i++) {
+            boolean gz = i % 2 == 1;
+            String name = "shard_" + i + (gz ? ".csv.gz" : ".csv");
+            StringBuilder sb = new StringBuilder("a,b,c\n");
+            List<List<Writable>> records = new ArrayList<>();
+            int numLines = r.nextInt(50);
+            for (int j = 0; j < numLines; j++) {
+                String a = String.valueOf(i);
+                String b = String.valueOf(j);
+                String c = "v" + r.nextInt(1000);
+                sb.append(a).append(",").append(b).append(",\"").append(c).append("\"\n");
+                records.add(Arrays.<Writable>asList(new Text(a), new Text(b), new Text(c)));
+            }
+            byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+            try (OutputStream os = gz ? new GZIPOutputStream(new FileOutputStream(new File(dir, name)))
+                    : new FileOutputStream(new File(dir, name))) {
+                os.write(bytes);
+            }
+            content.put(name, records);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.arrow.ipc;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.complex.FixedSizeListVector;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.ArrowWriter;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.BaseND4JTest;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Arrow Ipc Reader Test")
+@Tag(TagNames.JAVA_ONLY)
+@Tag(TagNames.FILE_IO)
+class ArrowIpcReaderTest extends BaseND4JTest {
+
+    private static final int NUM_BATCHES = 3;
+    private static final int ROWS = 5;
+    private static final int LIST_SIZE = 3;
+
+    @TempDir
+    public Path testDir;
+
+    @Test
+    @DisplayName("Test Memory Mapped File Format")
+    void testMemoryMappedFileFormat() throws Exception {
+        File f = testDir.resolve("data.arrow").toFile();
+        try (OutputStream os = new FileOutputStream(f)) {
+            write(os, true, false);
+        }
+
+        try (ArrowIpcReader reader = ArrowIpcReader.open(f)) {
+            assertTrue(reader.isMemoryMapped());
+            assertEquals(Arrays.asList("x", "features", "label"), columnNames(reader.getSchema()));
+            checkBatches(reader, true);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Streaming Format")
+    void testStreamingFormat() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        write(baos, false, false);
+
+        try (ArrowIpcReader reader = ArrowIpcReader.fromStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            assertFalse(reader.isMemoryMapped());
+            checkBatches(reader, false);
+        }
+
+        //Streaming format written to a file: memory mapped
+        File f = testDir.resolve("data.arrows").toFile();
+        try (OutputStream os = new FileOutputStream(f)) {
+            os.write(baos.toByteArray());
+        }
+        try (ArrowIpcReader reader = ArrowIpcReader.open(f)) {
+            assertTrue(reader.isMemoryMapped());
+            checkBatches(reader, true);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Nulls Not Exported")
+    void testNullsNotExported() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        write(baos, false, true);
+
+        try (ArrowIpcReader reader = ArrowIpcReader.fromStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            ArrowIpcBatch batch = reader.next();
+            assertThrows(IllegalStateException.class, () -> batch.getColumn("x"));
+            assertEquals(expectedFeatures(0), batch.getColumn("features"));
+        }
+    }
+
+    @Test
+    @DisplayName("Test Data Set Iterator")
+    void testDataSetIterator() throws Exception {
+        File f = testDir.resolve("data.arrow").toFile();
+        try (OutputStream os = new FileOutputStream(f)) {
+            write(os, true, false);
+        }
+
+        try (ArrowDataSetIterator iter = new ArrowDataSetIterator(f, new String[]{"features"}, new String[]{"label"})) {
+            assertTrue(iter.resetSupported());
+            assertEquals(LIST_SIZE, iter.inputColumns());
+            assertEquals(1, iter.totalOutcomes());
+            assertEquals(ROWS, iter.batch());
+            for (int epoch = 0; epoch < 2; epoch++) {
+                int count = 0;
+                while (iter.hasNext()) {
+                    DataSet ds = iter.next();
+                    assertEquals(expectedFeatures(count), ds.getFeatures());
+                    assertEquals(expectedLabels(), ds.getLabels());
+                    count++;
+                }
+                assertEquals(NUM_BATCHES, count);
+                iter.reset();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test Data Set Iterator Pre Processor")
+    void testDataSetIteratorPreProcessor() throws Exception {
+        File f = testDir.resolve("data.arrow").toFile();
+        try (OutputStream os = new FileOutputStream(f)) {
+            write(os, true, false);
+        }
+
+        try (ArrowDataSetIterator iter = new ArrowDataSetIterator(f, new String[]{"features"}, new String[]{"label"})) {
+            //Pre processors modify the features in place: the read-only mapped file must be left untouched
+            iter.setPreProcessor(ds -> ds.getFeatures().muli(2));
+            for (int epoch = 0; epoch < 2; epoch++) {
+                int count = 0;
+                while (iter.hasNext()) {
+                    DataSet ds = iter.next();
+                    assertEquals(expectedFeatures(count).mul(2), ds.getFeatures());
+                    assertEquals(expectedLabels(), ds.getLabels());
+                    count++;
+                }
+                assertEquals(NUM_BATCHES, count);
+                iter.reset();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test Data Set Iterator Copies Unless Zero Copy")
+    void testDataSetIteratorZeroCopy() throws Exception {
+        File f = testDir.resolve("data.arrow").toFile();
+        try (OutputStream os = new FileOutputStream(f)) {
+            write(os, true, false);
+        }
+
+        try (ArrowDataSetIterator iter = new ArrowDataSetIterator(f, new String[]{"features"}, new String[]{"label"})) {
+            assertFalse(iter.isZeroCopy());
+            //Copies by default: data sets can be modified in place by any consumer
+            for (int epoch = 0; epoch < 2; epoch++) {
+                int count = 0;
+                while (iter.hasNext()) {
+                    DataSet ds = iter.next();
+                    assertEquals(expectedFeatures(count), ds.getFeatures());
+                    ds.getFeatures().assign(0);
+                    ds.getLabels().addi(1);
+                    count++;
+                }
+                assertEquals(NUM_BATCHES, count);
+                iter.reset();
+            }
+
+            iter.setZeroCopy(true);
+            int count = 0;
+            while (iter.hasNext()) {
+                DataSet ds = iter.next();
+                assertEquals(expectedFeatures(count), ds.getFeatures());
+                assertEquals(expectedLabels(), ds.getLabels());
+                count++;
+            }
+            assertEquals(NUM_BATCHES, count);
+        }
+    }
+
+    private static void checkBatches(ArrowIpcReader reader, boolean views) throws IOException {
+        int count = 0;
+        ArrowIpcBatch batch;
+        while ((batch = reader.next()) != null) {
+            assertEquals(ROWS, batch.getNumRows());
+            assertEquals(views, batch.isView());
+
+            INDArray x = batch.getColumn("x");
+            assertEquals(DataType.FLOAT, x.dataType());
+            assertEquals(expectedX(count), x);
+            assertEquals(expectedFeatures(count), batch.getColumn(1));
+            assertEquals(expectedLabels(), batch.getColumn("label"));
+
+            INDArray combined = batch.getColumns("x", "features", "label");
+            assertArrayEquals(new long[]{ROWS, 2 + LIST_SIZE}, combined.shape());
+            assertEquals(DataType.FLOAT, combined.dataType());
+            assertEquals(Nd4j.hstack(expectedX(count), expectedFeatures(count), expectedLabels().castTo(DataType.FLOAT)),
+                    combined);
+            count++;
+        }
+        assertEquals(NUM_BATCHES, count);
+        assertNull(reader.next());
+    }
+
+    private static INDArray expectedX(int batch) {
+        float[][] out = new float[ROWS][1];
+        for (int r = 0; r < ROWS; r++) {
+            out[r][0] = batch * 100 + r;
+        }
+        return Nd4j.createFromArray(out);
+    }
+
+    private static INDArray expectedFeatures(int batch) {
+        float[][] out = new float[ROWS][LIST_SIZE];
+        for (int r = 0; r < ROWS; r++) {
+            for (int j = 0; j < LIST_SIZE; j++) {
+                out[r][j] = (batch * 100 + r) * 10 + j;
+            }
+        }
+        return Nd4j.createFromArray(out);
+    }
+
+    private static INDArray expectedLabels() {
+        int[][] out = new int[ROWS][1];
+        for (int r = 0; r < ROWS; r++) {
+            out[r][0] = r % 3;
+        }
+        return Nd4j.createFromArray(out);
+    }
+
+    private static List<String> columnNames(Schema schema) {
+        List<String> out = new ArrayList<>();
+        for (Field f : schema.getFields()) {
+            out.add(f.getName());
+        }
+        return out;
+    }
+
+    private static void write(OutputStream os, boolean fileFormat, boolean withNull) throws IOException {
+        FieldType floatType = FieldType.nullable(new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE));
+        Schema schema = new Schema(Arrays.asList(
+                new Field("x", floatType, null),
+                new Field("features", FieldType.nullable(new ArrowType.FixedSizeList(LIST_SIZE)),
+                        Collections.singletonList(new Field("item", floatType, null))),
+                new Field("label", FieldType.nullable(new ArrowType.Int(32, true)), null)));
+
+        try (BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE);
+             VectorSchemaRoot root = VectorSchemaRoot.create(schema, allocator);
+             ArrowWriter writer = fileFormat ? new ArrowFileWriter(root, null, Channels.newChannel(os))
+                     : new ArrowStreamWriter(root, null, Channels.newChannel(os))) {
+            writer.start();
+            for (int b = 0; b < NUM_BATCHES; b++) {
+                root.allocateNew();
+                Float4Vector x = (Float4Vector) root.getVector("x");
+                FixedSizeListVector features = (FixedSizeListVector) root.getVector("features");
+                Float4Vector items = (Float4Vector) features.getDataVector();
+                IntVector label = (IntVector) root.getVector("label");
+                for (int r = 0; r < ROWS; r++) {
+                    if (withNull && r == 0) {
+                        x.setNull(r);
+                    } else {
+                        x.setSafe(r, b * 100 + r);
+                    }
+                    features.setNotNull(r);
+                    for (int j = 0; j < LIST_SIZE; j++) {
+                        items.setSafe(r * LIST_SIZE + j, (b * 100 + r) * 10 + j);
+                    }
+                    label.setSafe(r, r % 3);
+                }
+                items.setValueCount(ROWS * LIST_SIZE);
+                root.setRowCount(ROWS);
+                writer.writeBatch();
+            }
+            writer.end();
+        }
+    }
+}
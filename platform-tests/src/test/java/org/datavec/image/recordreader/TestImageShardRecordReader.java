@@ -0,0 +1,171 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.image.recordreader;
+
+import org.datavec.api.io.labels.ParentPathLabelGenerator;
+import org.datavec.api.records.Record;
+import org.datavec.api.records.metadata.RecordMetaData;
+import org.datavec.api.split.FileSplit;
+import org.datavec.api.writable.NDArrayWritable;
+import org.datavec.api.writable.Writable;
+import org.datavec.api.writable.batch.NDArrayRecordBatch;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.io.ClassPathResource;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.FILE_IO)
+public class TestImageShardRecordReader {
+
+    @Test
+    public void testConvertAndRead(@TempDir Path testDir) throws Exception {
+        File imageDir = new File(testDir.toFile(), "images");
+        File shardDir = new File(testDir.toFile(), "shards");
+        new ClassPathResource("datavec-data-image/testimages/").copyDirectory(imageDir);
+
+        ImageRecordReader source = new ImageRecordReader(32, 32, 3, new ParentPathLabelGenerator());
+        source.initialize(new FileSplit(imageDir, new Random(12345)));
+        List<File> shards = ImageShardWriter.convert(source, shardDir, 4);
+        assertEquals(2, shards.size());
+
+        ImageRecordReader expRR = new ImageRecordReader(32, 32, 3, new ParentPathLabelGenerator());
+        expRR.initialize(new FileSplit(imageDir, new Random(12345)));
+        ImageShardRecordReader rr = new ImageShardRecordReader();
+        rr.initialize(new FileSplit(shardDir));
+        assertEquals(expRR.getLabels(), rr.getLabels());
+
+        //Single records, including metadata
+        List<RecordMetaData> meta = new ArrayList<>();
+        List<List<Writable>> records = new ArrayList<>();
+        while (expRR.hasNext()) {
+            assertTrue(rr.hasNext());
+            Record exp = expRR.nextRecord();
+            Record act = rr.nextRecord();
+            assertEquals(exp.getRecord(), act.getRecord());
+            assertEquals(exp.getMetaData().getURI(), act.getMetaData().getURI());
+            meta.add(act.getMetaData());
+            records.add(act.getRecord());
+        }
+        assertFalse(rr.hasNext());
+
+        List<Record> loaded = rr.loadFromMetaData(meta);
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(records.get(i), loaded.get(i).getRecord());
+        }
+
+        //Batches, with a batch spanning both shards
+        expRR.reset();
+        rr.reset();
+        while (expRR.hasNext()) {
+            List<List<Writable>> exp = expRR.next(5);
+            List<List<Writable>> act = rr.next(5);
+            assertTrue(act instanceof NDArrayRecordBatch);
+            assertEquals(exp.size(), act.size());
+            for (int i = 0; i < exp.size(); i++) {
+                assertEquals(exp.get(i), act.get(i));
+            }
+        }
+        assertFalse(rr.hasNext());
+        rr.close();
+    }
+
+    @Test
+    public void testUint8Views(@TempDir Path testDir) throws Exception {
+        File imageDir = new File(testDir.toFile(), "images");
+        File shardDir = new File(testDir.toFile(), "shards");
+        new ClassPathResource("datavec-data-image/testimages/").copyDirectory(imageDir);
+
+        ImageRecordReader source = new ImageRecordReader(16, 16, 3, false);
+        source.initialize(new FileSplit(imageDir));
+        ImageShardWriter.convert(source, shardDir, 100);
+
+        ImageShardRecordReader rr = new ImageShardRecordReader(DataType.UINT8);
+        rr.initialize(new FileSplit(shardDir));
+        List<List<Writable>> batch = rr.next(3);
+        INDArray f = ((NDArrayWritable) batch.get(0).get(0)).get();
+        assertEquals(DataType.UINT8, f.dataType());
+        assertArrayEquals(new long[]{1, 16, 16, 3}, f.shape());
+        assertEquals(1, batch.get(0).size());   //No labels
+
+        //In-place modification must not fail or affect the shard files
+        f.assign(0);
+        rr.reset();
+        source.reset();
+        for (int i = 0; i < 3; i++) {
+            INDArray exp = ((NDArrayWritable) source.next().get(0)).get().castTo(DataType.UINT8);
+            assertEquals(exp, ((NDArrayWritable) rr.next().get(0)).get());
+        }
+        rr.close();
+        ImageShardRecordReader rr2 = new ImageShardRecordReader();
+        rr2.initialize(new FileSplit(shardDir));
+        source.reset();
+        assertEquals(source.next(), rr2.next());
+    }
+
+    @Test
+    public void testZeroCopyViews(@TempDir Path testDir) throws Exception {
+        File imageDir = new File(testDir.toFile(), "images");
+        File shardDir = new File(testDir.toFile(), "shards");
+        new ClassPathResource("datavec-data-image/testimages/").copyDirectory(imageDir);
+
+        ImageRecordReader source = new ImageRecordReader(16, 16, 3, false);
+        source.initialize(new FileSplit(imageDir));
+        ImageShardWriter.convert(source, shardDir, 100);
+
+        assertThrows(IllegalArgumentException.class, () -> new ImageShardRecordReader(DataType.FLOAT, true));
+
+        ImageShardRecordReader rr = new ImageShardRecordReader(DataType.UINT8, true);
+        rr.initialize(new FileSplit(shardDir));
+        source.reset();
+        List<List<Writable>> batch = rr.next(3);
+        INDArray f = ((NDArrayRecordBatch) batch).getArrays().get(0);
+        assertEquals(DataType.UINT8, f.dataType());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(((NDArrayWritable) source.next().get(0)).get().castTo(DataType.UINT8),
+                    ((NDArrayWritable) batch.get(i).get(0)).get());
+        }
+
+        //Copy-on-write: modifications are seen by this reader, but never written to the shard files
+        f.assign(0);
+        rr.reset();
+        assertEquals(0, ((NDArrayWritable) rr.next().get(0)).get().sumNumber().intValue());
+        rr.close();
+
+        ImageShardRecordReader rr2 = new ImageShardRecordReader(DataType.UINT8, true);
+        rr2.initialize(new FileSplit(shardDir));
+        source.reset();
+        assertEquals(((NDArrayWritable) source.next().get(0)).get().castTo(DataType.UINT8),
+                ((NDArrayWritable) rr2.next().get(0)).get());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.image.recordreader;
+
+import org.apache.commons.io.FileUtils;
+import org.datavec.api.io.labels.ParentPathLabelGenerator;
+import org.datavec.api.split.FileSplit;
+import org.datavec.api.writable.NDArrayWritable;
+import org.datavec.api.writable.Writable;
+import org.datavec.image.transform.FlipImageTransform;
+import org.datavec.image.transform.ImageTransform;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.io.ClassPathResource;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.FILE_IO)
+public class TestParallelImageRecordReader {
+
+    @Test
+    public void testMatchesSequential(@TempDir Path testDir) throws Exception {
+        File f = testDir.toFile();
+        new ClassPathResource("datavec-data-image/testimages/").copyDirectory(f);
+
+        for (boolean nchw : new boolean[]{true, false}) {
+            ImageRecordReader expRR = new ImageRecordReader(32, 32, 3, nchw, new ParentPathLabelGenerator(), null);
+            expRR.initialize(new FileSplit(f, new Random(12345)));
+            ParallelImageRecordReader rr = new ParallelImageRecordReader(32, 32, 3, nchw,
+                    new ParentPathLabelGenerator(), (ImageTransform) null, 4);
+            rr.initialize(new FileSplit(f, new Random(12345)));
+            assertEquals(expRR.getLabels(), rr.getLabels());
+
+            assertBatchesEqual(expRR, rr, nchw);
+            rr.reset();
+            expRR.reset();
+            assertBatchesEqual(expRR, rr, nchw);
+            rr.close();
+        }
+    }
+
+    @Test
+    public void testTransformFactory(@TempDir Path testDir) throws Exception {
+        File f = testDir.toFile();
+        new ClassPathResource("datavec-data-image/testimages/").copyDirectory(f);
+
+        //Deterministic (horizontal flip) transform: per-worker and shared transforms should give the same result
+        ImageRecordReader expRR = new ImageRecordReader(32, 32, 3, true, new ParentPathLabelGenerator(),
+                new FlipImageTransform(1));
+        expRR.initialize(new FileSplit(f, new Random(12345)));
+        ParallelImageRecordReader rr = new ParallelImageRecordReader(32, 32, 3, true,
+                new ParentPathLabelGenerator(), () -> new FlipImageTransform(1), 3);
+        rr.initialize(new FileSplit(f, new Random(12345)));
+        assertBatchesEqual(expRR, rr, true);
+        rr.close();
+
+        expRR.reset();
+        ParallelImageRecordReader shared = new ParallelImageRecordReader(32, 32, 3, true,
+                new ParentPathLabelGenerator(), new FlipImageTransform(1), 3);
+        shared.initialize(new FileSplit(f, new Random(12345)));
+        assertBatchesEqual(expRR, shared, true);
+        shared.close();
+    }
+
+    @Test
+    public void testInvalidImage(@TempDir Path testDir) throws Exception {
+        File f = testDir.toFile();
+        new ClassPathResource("datavec-data-image/testimages/class0/").copyDirectory(f);
+        FileUtils.writeStringToFile(new File(f, "corrupt.jpg"), "not an image", StandardCharsets.UTF_8);
+
+        ParallelImageRecordReader rr = new ParallelImageRecordReader(32, 32, 3, null, 2);
+        rr.initialize(new FileSplit(f));
+        RuntimeException e = assertThrows(RuntimeException.class, () -> rr.next(10));
+        assertTrue(e.getMessage().contains("corrupt.jpg"), e.getMessage());
+        rr.close();
+    }
+
+    private static void assertBatchesEqual(ImageRecordReader expRR, ParallelImageRecordReader rr, boolean nchw) {
+        int count = 0;
+        while (expRR.hasNext()) {
+            assertTrue(rr.hasNext());
+            List<List<Writable>> exp = expRR.next(4);
+            List<List<Writable>> act = rr.next(4);
+            assertEquals(exp.size(), act.size());
+            for (int i = 0; i < exp.size(); i++) {
+                INDArray expF = ((NDArrayWritable) exp.get(i).get(0)).get();
+                INDArray actF = ((NDArrayWritable) act.get(i).get(0)).get();
+                assertArrayEquals(nchw ? new long[]{1, 3, 32, 32} : new long[]{1, 32, 32, 3}, actF.shape());
+                assertEquals(expF, actF);
+                assertEquals(((NDArrayWritable) exp.get(i).get(1)).get(), ((NDArrayWritable) act.get(i).get(1)).get());
+                count++;
+            }
+        }
+        assertFalse(rr.hasNext());
+        assertEquals(6, count);
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms;
+
+import org.datavec.api.records.reader.impl.collection.CollectionRecordReader;
+import org.datavec.api.records.reader.impl.csv.CSVRecordReader;
+import org.datavec.api.records.writer.impl.csv.CSVRecordWriter;
+import org.datavec.api.split.FileSplit;
+import org.datavec.api.split.partition.NumberOfRecordsPartitioner;
+import org.datavec.api.transform.ReduceOp;
+import org.datavec.api.transform.TransformProcess;
+import org.datavec.api.transform.join.Join;
+import org.datavec.api.transform.reduce.Reducer;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.writable.*;
+import org.datavec.local.transforms.join.ExecuteJoinFromCoGroupFlatMapFunction;
+import org.datavec.local.transforms.join.ExtractKeysFunction;
+import org.datavec.local.transforms.join.PartitionedHashJoin;
+import org.datavec.local.transforms.reduce.SortedGroupByReducer;
+import org.datavec.local.transforms.spill.ExternalSorter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.function.FunctionalUtils;
+import org.nd4j.common.primitives.Pair;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Spilling Join And Reduce Test")
+@Tag(TagNames.FILE_IO)
+@NativeTag
+class SpillingJoinReduceTest {
+
+    @TempDir
+    Path testDir;
+
+    @Test
+    @DisplayName("Test Partitioned Hash Join Matches In Memory")
+    void testPartitionedHashJoinMatchesInMemory() throws Exception {
+        File spillDir = testDir.toFile();
+        for (Join.JoinType type : Join.JoinType.values()) {
+            Join join = join(type);
+            List<List<Writable>> left = left(300);
+            List<List<Writable>> right = right(500);
+
+            List<List<Writable>> out = new ArrayList<>();
+            //Small budget and few partitions: forces recursive re-partitioning
+            try (PartitionedHashJoin hashJoin = new PartitionedHashJoin(join, 2, 40, spillDir)) {
+                for (List<Writable> record : left)
+                    hashJoin.addLeft(record);
+                for (List<Writable> record : right)
+                    hashJoin.addRight(record);
+                hashJoin.execute(out::add);
+            }
+
+            assertEquals(sorted(inMemoryJoin(join, left, right)), sorted(out), type.toString());
+            assertEquals(0, spillDir.listFiles().length);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Execute Join With Spilling")
+    void testExecuteJoinWithSpilling() {
+        Join join = join(Join.JoinType.Inner);
+        List<List<Writable>> left = left(300);
+        List<List<Writable>> right = right(500);
+
+        List<List<Writable>> expected = LocalTransformExecutor.executeJoin(join, left, right);
+        List<List<Writable>> actual;
+        System.setProperty(LocalTransformExecutor.MAX_RECORDS_IN_MEMORY_PROPERTY, "50");
+        System.setProperty(LocalTransformExecutor.SPILL_DIRECTORY_PROPERTY, testDir.toString());
+        try {
+            actual = LocalTransformExecutor.executeJoin(join, left, right);
+        } finally {
+            System.clearProperty(LocalTransformExecutor.MAX_RECORDS_IN_MEMORY_PROPERTY);
+            System.clearProperty(LocalTransformExecutor.SPILL_DIRECTORY_PROPERTY);
+        }
+
+        assertFalse(expected.isEmpty());
+        assertEquals(sorted(expected), sorted(actual));
+        assertEquals(0, testDir.toFile().listFiles().length);
+    }
+
+    @Test
+    @DisplayName("Test Execute Join Readers")
+    void testExecuteJoinReaders() throws Exception {
+        Join join = join(Join.JoinType.Inner);
+        List<List<Writable>> left = left(300);
+        List<List<Writable>> right = right(500);
+
+        File outFile = testDir.resolve("joined.csv").toFile();
+        CSVRecordWriter writer = new CSVRecordWriter();
+        writer.initialize(new FileSplit(outFile), new NumberOfRecordsPartitioner());
+        long count = LocalTransformExecutor.executeJoin(join, new CollectionRecordReader(left),
+                new CollectionRecordReader(right), writer);
+        writer.close();
+
+        List<List<Writable>> actual = new ArrayList<>();
+        CSVRecordReader reader = new CSVRecordReader();
+        reader.initialize(new FileSplit(outFile));
+        while (reader.hasNext()) {
+            actual.add(reader.next());
+        }
+
+        List<List<Writable>> expected = LocalTransformExecutor.executeJoin(join, left, right);
+        assertEquals(expected.size(), count);
+        assertEquals(sorted(expected), sorted(actual));
+    }
+
+    @Test
+    @DisplayName("Test Reduce With Spilling")
+    void testReduceWithSpilling() {
+        Schema schema = new Schema.Builder().addColumnString("key").addColumnDouble("value").addColumnInteger("count")
+                .build();
+        TransformProcess tp = new TransformProcess.Builder(schema)
+                .reduce(new Reducer.Builder(ReduceOp.Sum).keyColumns("key").countColumns("count")
+                        .maxColumn("value").build())
+                .build();
+        Random r = new Random(12345);
+        List<List<Writable>> input = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            input.add(Arrays.asList(new Text("key" + r.nextInt(37)), new DoubleWritable(r.nextDouble()),
+                    new IntWritable(i)));
+        }
+
+        List<List<Writable>> expected = LocalTransformExecutor.execute(input, tp);
+        List<List<Writable>> actual;
+        System.setProperty(LocalTransformExecutor.MAX_RECORDS_IN_MEMORY_PROPERTY, "64");
+        System.setProperty(LocalTransformExecutor.SPILL_DIRECTORY_PROPERTY, testDir.toString());
+        try {
+            actual = LocalTransformExecutor.execute(input, tp);
+        } finally {
+            System.clearProperty(LocalTransformExecutor.MAX_RECORDS_IN_MEMORY_PROPERTY);
+            System.clearProperty(LocalTransformExecutor.SPILL_DIRECTORY_PROPERTY);
+        }
+
+        assertEquals(37, expected.size());
+        assertEquals(sorted(expected), sorted(actual));
+        assertEquals(0, testDir.toFile().listFiles().length);
+    }
+
+    @Test
+    @DisplayName("Test Sorted Group By Reducer Ordered By Key")
+    void testSortedGroupByReducer() throws Exception {
+        Schema schema = new Schema.Builder().addColumnString("key").addColumnInteger("value").build();
+        Reducer reducer = new Reducer.Builder(ReduceOp.TakeFirst).keyColumns("key").build();
+        reducer.setInputSchema(schema);
+
+        List<List<Writable>> out = new ArrayList<>();
+        try (SortedGroupByReducer groupBy = new SortedGroupByReducer(reducer, 7, testDir.toFile())) {
+            for (int i = 0; i < 100; i++) {
+                groupBy.add(Arrays.asList(new Text("k" + (9 - i % 10)), new IntWritable(i)));
+            }
+            groupBy.reduce().forEachRemaining(out::add);
+        }
+
+        assertEquals(10, out.size());
+        for (int i = 0; i < 10; i++) {
+            //Stable sort: first value for each key is the first one added
+            assertEquals(Arrays.asList(new Text("k" + i), new IntWritable(9 - i)), out.get(i));
+        }
+        assertEquals(0, testDir.toFile().listFiles().length);
+    }
+
+    @Test
+    @DisplayName("Test External Sorter Multi Pass Merge Is Stable")
+    void testExternalSorterMultiPassMerge() throws Exception {
+        Comparator<List<Writable>> byKey = Comparator.comparingInt(r -> r.get(0).toInt());
+        List<List<Writable>> records = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            records.add(Arrays.asList(new IntWritable((i * 37) % 23), new IntWritable(i)));
+        }
+
+        List<List<Writable>> out = new ArrayList<>();
+        //100 runs of 5 records, merged at most 3 at a time: several intermediate passes
+        try (ExternalSorter sorter = new ExternalSorter(byKey, 5, 3, testDir.toFile())) {
+            for (List<Writable> record : records)
+                sorter.add(record);
+            assertEquals(100, sorter.numRuns());
+            sorter.sorted().forEachRemaining(out::add);
+            assertTrue(sorter.numRuns() < 3);
+        }
+
+        List<List<Writable>> expected = new ArrayList<>(records);
+        expected.sort(byKey);
+        assertEquals(expected, out);
+        assertEquals(0, testDir.toFile().listFiles().length);
+    }
+
+    private static Join join(Join.JoinType type) {
+        Schema leftSchema = new Schema.Builder().addColumnLong("customerID").addColumnString("customerName").build();
+        Schema rightSchema = new Schema.Builder().addColumnLong("purchaseID").addColumnLong("customerID")
+                .addColumnDouble("amount").build();
+        return new Join.Builder(type).setJoinColumns("customerID").setSchemas(leftSchema, rightSchema).build();
+    }
+
+    private static List<List<Writable>> left(int n) {
+        List<List<Writable>> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            //Some duplicate keys, and keys 250 and up that have no purchases
+            out.add(Arrays.asList(new LongWritable(i % 280), new Text("Customer" + i)));
+        }
+        return out;
+    }
+
+    private static List<List<Writable>> right(int n) {
+        List<List<Writable>> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            //Keys 280 to 299 have no customer info
+            out.add(Arrays.asList(new LongWritable(1000000 + i), new LongWritable((i * 7) % 300),
+                    new DoubleWritable(i / 4.0)));
+        }
+        return out;
+    }
+
+    private static List<List<Writable>> inMemoryJoin(Join join, List<List<Writable>> left,
+                                                     List<List<Writable>> right) {
+        ExtractKeysFunction leftKeys = new ExtractKeysFunction(join.getLeftSchema().getIndexOfColumns("customerID"));
+        ExtractKeysFunction rightKeys = new ExtractKeysFunction(join.getRightSchema().getIndexOfColumns("customerID"));
+        Map<List<Writable>, Pair<List<List<Writable>>, List<List<Writable>>>> cogrouped = FunctionalUtils.cogroup(
+                left.stream().map(leftKeys::apply).collect(Collectors.toList()),
+                right.stream().map(rightKeys::apply).collect(Collectors.toList()));
+        ExecuteJoinFromCoGroupFlatMapFunction fn = new ExecuteJoinFromCoGroupFlatMapFunction(join);
+        List<List<Writable>> out = new ArrayList<>();
+        for (Map.Entry<List<Writable>, Pair<List<List<Writable>>, List<List<Writable>>>> e : cogrouped.entrySet()) {
+            out.addAll(fn.call(Pair.of(e.getKey(), e.getValue())));
+        }
+        return out;
+    }
+
+    private static List<String> sorted(List<List<Writable>> records) {
+        List<String> out = new ArrayList<>();
+        for (List<Writable> record : records) {
+            out.add(record.stream().map(Writable::toString).collect(Collectors.joining(",")));
+        }
+        Collections.sort(out);
+        return out;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms;
+
+import org.datavec.api.conf.Configuration;
+import org.datavec.api.records.reader.impl.collection.CollectionRecordReader;
+import org.datavec.api.records.reader.impl.collection.CollectionSequenceRecordReader;
+import org.datavec.api.records.writer.RecordWriter;
+import org.datavec.api.records.writer.SequenceRecordWriter;
+import org.datavec.api.split.InputSplit;
+import org.datavec.api.split.partition.PartitionMetaData;
+import org.datavec.api.split.partition.Partitioner;
+import org.datavec.api.transform.MathOp;
+import org.datavec.api.transform.ReduceOp;
+import org.datavec.api.transform.TransformProcess;
+import org.datavec.api.transform.condition.ConditionOp;
+import org.datavec.api.transform.condition.column.DoubleColumnCondition;
+import org.datavec.api.transform.reduce.Reducer;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.transform.schema.SequenceSchema;
+import org.datavec.api.transform.sequence.comparator.NumericalColumnComparator;
+import org.datavec.api.writable.*;
+import org.datavec.api.writable.comparator.IntWritableComparator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Streaming Transform Executor Test")
+@Tag(TagNames.FILE_IO)
+@NativeTag
+class StreamingTransformExecutorTest {
+
+    @TempDir
+    Path testDir;
+
+    @Test
+    @DisplayName("Test Stateless Matches Local Executor")
+    void testStatelessMatchesLocalExecutor() throws Exception {
+        TransformProcess tp = new TransformProcess.Builder(schema())
+                .doubleMathOp("value", MathOp.Multiply, 2.0)
+                .filter(new DoubleColumnCondition("value", ConditionOp.LessThan, 0.0))
+                .integerMathOp("count", MathOp.Add, 1)
+                .build();
+
+        List<List<Writable>> input = data(1000);
+        StreamingTransformExecutor exec = new StreamingTransformExecutor.Builder(tp)
+                .numThreads(4).batchSize(16).build();
+        CollectingRecordWriter writer = new CollectingRecordWriter();
+        long count = exec.execute(new CollectionRecordReader(input), writer);
+
+        List<List<Writable>> expected = LocalTransformExecutor.execute(input, tp);
+        assertEquals(expected.size(), count);
+        assertEquals(toStrings(expected), toStrings(writer.records));
+    }
+
+    @Test
+    @DisplayName("Test Reduce With Spill")
+    void testReduceWithSpill() throws Exception {
+        TransformProcess tp = new TransformProcess.Builder(schema())
+                .reduce(new Reducer.Builder(ReduceOp.Sum).keyColumns("key").countColumns("count").build())
+                .build();
+
+        List<List<Writable>> input = data(1000);
+        File spillDir = testDir.toFile();
+        StreamingTransformExecutor exec = new StreamingTransformExecutor.Builder(tp)
+                .maxRecordsInMemory(50).numPartitions(4).spillDirectory(spillDir).build();
+        CollectingRecordWriter writer = new CollectingRecordWriter();
+        exec.execute(new CollectionRecordReader(input), writer);
+
+        assertEquals(sorted(toStrings(LocalTransformExecutor.execute(input, tp))), sorted(toStrings(writer.records)));
+        assertEquals(0, spillDir.listFiles().length);
+    }
+
+    @Test
+    @DisplayName("Test Convert To Sequence With Spill")
+    void testConvertToSequenceWithSpill() throws Exception {
+        TransformProcess tp = new TransformProcess.Builder(schema())
+                .convertToSequence("key", new NumericalColumnComparator("value"))
+                .build();
+
+        List<List<Writable>> input = data(300);
+        StreamingTransformExecutor exec = new StreamingTransformExecutor.Builder(tp)
+                .maxRecordsInMemory(20).numPartitions(3).spillDirectory(testDir.toFile()).build();
+        CollectingSequenceRecordWriter writer = new CollectingSequenceRecordWriter();
+        exec.execute(new CollectionRecordReader(input), writer);
+
+        List<String> expected = new ArrayList<>();
+        for (List<List<Writable>> s : LocalTransformExecutor.executeToSequence(input, tp)) {
+            expected.add(toStrings(s).toString());
+        }
+        List<String> actual = new ArrayList<>();
+        for (List<List<Writable>> s : writer.sequences) {
+            actual.add(toStrings(s).toString());
+        }
+        assertEquals(sorted(expected), sorted(actual));
+    }
+
+    @Test
+    @DisplayName("Test Sorted Rank With Spill")
+    void testSortedRankWithSpill() throws Exception {
+        TransformProcess tp = new TransformProcess.Builder(schema())
+                .doubleMathOp("value", MathOp.Multiply, 10.0)
+                .calculateSortedRank("rank", "count", new IntWritableComparator())
+                .filter(new DoubleColumnCondition("value", ConditionOp.GreaterThan, 5.0))
+                .build();
+
+        //Many ties on the sort column: checks the merge is stable, as per the in-memory sort
+        List<List<Writable>> input = data(500);
+        StreamingTransformExecutor exec = new StreamingTransformExecutor.Builder(tp)
+                .numThreads(3).batchSize(7).maxRecordsInMemory(30).spillDirectory(testDir.toFile()).build();
+        CollectingRecordWriter writer = new CollectingRecordWriter();
+        exec.execute(new CollectionRecordReader(input), writer);
+
+        assertEquals(toStrings(LocalTransformExecutor.execute(input, tp)), toStrings(writer.records));
+    }
+
+    @Test
+    @DisplayName("Test Sequence Input")
+    void testSequenceInput() throws Exception {
+        Schema schema = new SequenceSchema.Builder().addColumnDouble("value").addColumnInteger("count").build();
+        TransformProcess tp = new TransformProcess.Builder(schema)
+                .doubleMathOp("value", MathOp.Add, 1.0)
+                .convertFromSequence()
+                .build();
+
+        List<List<List<Writable>>> input = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            List<List<Writable>> seq = new ArrayList<>();
+            for (int j = 0; j <= i % 4; j++) {
+                seq.add(Arrays.asList(new DoubleWritable(i + 0.5 * j), new IntWritable(j)));
+            }
+            input.add(seq);
+        }
+
+        CollectingRecordWriter writer = new CollectingRecordWriter();
+        long count = LocalTransformExecutor.executeSequenceToSeparate(new CollectionSequenceRecordReader(input), writer, tp);
+        assertEquals(toStrings(LocalTransformExecutor.executeSequenceToSeparate(input, tp)), toStrings(writer.records));
+        assertEquals(writer.records.size(), count);
+    }
+
+    @Test
+    @DisplayName("Test Schema Validation")
+    void testSchemaValidation() {
+        TransformProcess tp = new TransformProcess.Builder(schema())
+                .convertToSequence("key", new NumericalColumnComparator("value"))
+                .build();
+        assertThrows(IllegalStateException.class, () -> LocalTransformExecutor.execute(
+                new CollectionRecordReader(data(10)), new CollectingRecordWriter(), tp));
+    }
+
+    private static Schema schema() {
+        return new Schema.Builder()
+                .addColumnString("key")
+                .addColumnDouble("value")
+                .addColumnInteger("count")
+                .build();
+    }
+
+    private static List<List<Writable>> data(int n) {
+        Random r = new Random(12345);
+        List<List<Writable>> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            out.add(Arrays.asList(new Text("key" + r.nextInt(40)), new DoubleWritable(r.nextGaussian()),
+                    new IntWritable(r.nextInt(10))));
+        }
+        return out;
+    }
+
+    private static List<String> toStrings(List<List<Writable>> records) {
+        List<String> out = new ArrayList<>(records.size());
+        for (List<Writable> record : records) {
+            out.add(record.toString());
+        }
+        return out;
+    }
+
+    private static List<String> sorted(List<String> list) {
+        List<String> out = new ArrayList<>(list);
+        Collections.sort(out);
+        return out;
+    }
+
+    private static class CollectingRecordWriter implements RecordWriter {
+        private final List<List<Writable>> records = new ArrayList<>();
+
+        @Override
+        public boolean supportsBatch() {
+            return false;
+        }
+
+        @Override
+        public void initialize(InputSplit inputSplit, Partitioner partitioner) {
+        }
+
+        @Override
+        public void initialize(Configuration configuration, InputSplit split, Partitioner partitioner) {
+        }
+
+        @Override
+        public PartitionMetaData write(List<Writable> record) {
+            records.add(record);
+            return null;
+        }
+
+        @Override
+        public PartitionMetaData writeBatch(List<List<Writable>> batch) {
+            records.addAll(batch);
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void setConf(Configuration conf) {
+        }
+
+        @Override
+        public Configuration getConf() {
+            return null;
+        }
+    }
+
+    private static class CollectingSequenceRecordWriter implements SequenceRecordWriter {
+        private final List<List<List<Writable>>> sequences = new ArrayList<>();
+
+        @Override
+        public PartitionMetaData write(List<List<Writable>> sequence) {
+            sequences.add(sequence);
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void setConf(Configuration conf) {
+        }
+
+        @Override
+        public Configuration getConf() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.local.transforms.columnar;
+
+import org.apache.arrow.memory.RootAllocator;
+import org.datavec.api.transform.MathFunction;
+import org.datavec.api.transform.MathOp;
+import org.datavec.api.transform.TransformProcess;
+import org.datavec.api.transform.condition.BooleanCondition;
+import org.datavec.api.transform.condition.ConditionOp;
+import org.datavec.api.transform.condition.column.CategoricalColumnCondition;
+import org.datavec.api.transform.condition.column.DoubleColumnCondition;
+import org.datavec.api.transform.condition.column.IntegerColumnCondition;
+import org.datavec.api.transform.condition.column.StringColumnCondition;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.transform.transform.doubletransform.MinMaxNormalizer;
+import org.datavec.api.transform.transform.doubletransform.StandardizeNormalizer;
+import org.datavec.api.writable.*;
+import org.datavec.arrow.ArrowConverter;
+import org.datavec.arrow.recordreader.ArrowWritableRecordBatch;
+import org.datavec.local.transforms.LocalTransformExecutor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Columnar Transform Executor Test")
+@Tag(TagNames.FILE_IO)
+@NativeTag
+class ColumnarTransformExecutorTest {
+
+    private static final String[] STATES = {"a", "b", "c"};
+
+    @Test
+    @DisplayName("Test Matches Local Executor")
+    void testMatchesLocalExecutor() {
+        TransformProcess tp = new TransformProcess.Builder(schema())
+                .integerMathOp("int", MathOp.Multiply, 3)
+                .longMathOp("long", MathOp.Modulus, 7)
+                .doubleMathOp("double", MathOp.ScalarMax, -0.5)
+                .doubleMathFunction("double", MathFunction.EXP)
+                .transform(new StandardizeNormalizer("double", 1.0, 2.0))
+                .transform(new MinMaxNormalizer("double", -1, 3))
+                .floatMathOp("float", MathOp.ReverseDivide, 2f)
+                .filter(BooleanCondition.OR(new DoubleColumnCondition("double", ConditionOp.GreaterThan, 0.5),
+                        new CategoricalColumnCondition("cat", ConditionOp.Equal, "c")))
+                //No columnar kernels for these: executed per value and per record respectively
+                .appendStringColumnTransform("str", "_x")
+                .addConstantIntegerColumn("const", 7)
+                .filter(new StringColumnCondition("str", ConditionOp.Equal, "s3_x"))
+                .duplicateColumn("int", "intCopy")
+                .categoricalToOneHot("cat")
+                .renameColumn("long", "renamed")
+                .removeColumns("float")
+                .reorderColumns("str", "renamed")
+                .build();
+
+        List<List<Writable>> input = data(500);
+        List<List<Writable>> expected = LocalTransformExecutor.execute(input, tp);
+        List<List<Writable>> actual = ColumnarTransformExecutor.execute(input, tp);
+        assertTrue(expected.size() > 0 && expected.size() < input.size());
+        assertRecordsEqual(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Test Arrow Input")
+    void testArrowInput() {
+        Schema schema = schema();
+        TransformProcess tp = new TransformProcess.Builder(schema)
+                .categoricalToInteger("cat")
+                .integerToCategorical("cat", Arrays.asList("x", "y", "z"))
+                .doubleMathOp("double", MathOp.Subtract, 1.0)
+                .filter(new IntegerColumnCondition("int", ConditionOp.LessThan, 0))
+                .build();
+
+        List<List<Writable>> input = data(200);
+        ArrowWritableRecordBatch arrow = ArrowConverter.toArrowWritables(
+                ArrowConverter.toArrowColumns(new RootAllocator(Long.MAX_VALUE), schema, input), schema);
+        assertRecordsEqual(LocalTransformExecutor.execute(input, tp), ColumnarTransformExecutor.execute(arrow, tp));
+    }
+
+    @Test
+    @DisplayName("Test Null Values")
+    void testNullValues() {
+        List<List<Writable>> input = data(100);
+        for (int i = 0; i < input.size(); i += 3) {
+            input.get(i).set(2, NullWritable.INSTANCE);
+        }
+        TransformProcess tp = new TransformProcess.Builder(schema())
+                .integerMathOp("int", MathOp.Add, 1)
+                .filter(new CategoricalColumnCondition("cat", ConditionOp.Equal, "a"))
+                .build();
+
+        assertRecordsEqual(LocalTransformExecutor.execute(input, tp), ColumnarTransformExecutor.execute(input, tp));
+    }
+
+    @Test
+    @DisplayName("Test Unknown Category")
+    void testUnknownCategory() {
+        List<List<Writable>> input = data(10);
+        input.get(5).set(4, new Text("unknown"));
+        TransformProcess tp = new TransformProcess.Builder(schema()).categoricalToInteger("cat").build();
+        assertThrows(IllegalStateException.class, () -> ColumnarTransformExecutor.execute(input, tp));
+    }
+
+    @Test
+    @DisplayName("Test Can Execute")
+    void testCanExecute() {
+        assertTrue(ColumnarTransformExecutor.canExecute(new TransformProcess.Builder(schema())
+                .doubleMathOp("double", MathOp.Add, 1.0).build()));
+        assertFalse(ColumnarTransformExecutor.canExecute(new TransformProcess.Builder(schema())
+                .convertToSequence().build()));
+    }
+
+    private static Schema schema() {
+        return new Schema.Builder()
+                .addColumnInteger("int")
+                .addColumnLong("long")
+                .addColumnDouble("double")
+                .addColumnFloat("float")
+                .addColumnCategorical("cat", STATES)
+                .addColumnString("str")
+                .build();
+    }
+
+    private static List<List<Writable>> data(int n) {
+        Random r = new Random(12345);
+        List<List<Writable>> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            out.add(new ArrayList<>(Arrays.asList(
+                    new IntWritable(r.nextInt(100) - 50),
+                    new LongWritable(r.nextInt(10000)),
+                    new DoubleWritable(r.nextGaussian()),
+                    new FloatWritable(r.nextFloat()),
+                    new Text(STATES[r.nextInt(STATES.length)]),
+                    new Text("s" + i))));
+        }
+        return out;
+    }
+
+    private static void assertRecordsEqual(List<List<Writable>> expected, List<List<Writable>> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(new ArrayList<>(expected.get(i)), new ArrayList<>(actual.get(i)), "Record " + i);
+        }
+    }
+}
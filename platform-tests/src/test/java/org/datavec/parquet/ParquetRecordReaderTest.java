@@ -0,0 +1,234 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.datavec.parquet;
+
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.datavec.api.records.Record;
+import org.datavec.api.records.metadata.RecordMetaData;
+import org.datavec.api.split.FileSplit;
+import org.datavec.api.split.partition.NumberOfRecordsPartitioner;
+import org.datavec.api.transform.ColumnType;
+import org.datavec.api.transform.condition.BooleanCondition;
+import org.datavec.api.transform.condition.ConditionOp;
+import org.datavec.api.transform.condition.column.DoubleColumnCondition;
+import org.datavec.api.transform.condition.column.LongColumnCondition;
+import org.datavec.api.transform.condition.column.NullWritableColumnCondition;
+import org.datavec.api.transform.metadata.BinaryMetaData;
+import org.datavec.api.transform.schema.Schema;
+import org.datavec.api.writable.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.BaseND4JTest;
+import org.nd4j.common.tests.tags.TagNames;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Parquet Record Reader Test")
+@Tag(TagNames.JAVA_ONLY)
+@Tag(TagNames.FILE_IO)
+class ParquetRecordReaderTest extends BaseND4JTest {
+
+    private static final int NUM_RECORDS = 1000;
+
+    @TempDir
+    public Path testDir;
+
+    private static Schema schema() {
+        return new Schema.Builder()
+                .addColumnLong("id")
+                .addColumnInteger("i")
+                .addColumnDouble("d")
+                .addColumnFloat("f")
+                .addColumnString("s")
+                .addColumnBoolean("b")
+                .addColumnTime("t", TimeZone.getTimeZone("UTC"))
+                .addColumn(new BinaryMetaData("bytes"))
+                .build();
+    }
+
+    private static List<List<Writable>> data() {
+        List<List<Writable>> out = new ArrayList<>();
+        for (int i = 0; i < NUM_RECORDS; i++) {
+            out.add(Arrays.<Writable>asList(
+                    new LongWritable(i),
+                    new IntWritable(i % 7),
+                    i % 10 == 3 ? NullWritable.INSTANCE : new DoubleWritable(i * 0.5),
+                    new FloatWritable(i / 3.0f),
+                    new Text("value_" + i),
+                    new BooleanWritable(i % 2 == 0),
+                    new LongWritable(1500000000000L + i),
+                    new BytesWritable(("b" + i).getBytes(StandardCharsets.UTF_8))));
+        }
+        return out;
+    }
+
+    private File write(CompressionCodecName codec) throws Exception {
+        File f = testDir.resolve("data_" + codec + ".parquet").toFile();
+        ParquetRecordWriter writer = new ParquetRecordWriter(schema(), codec, 2048);
+        writer.initialize(new FileSplit(f), new NumberOfRecordsPartitioner());
+        writer.writeBatch(data());
+        writer.close();
+        return f;
+    }
+
+    private static List<List<Writable>> readAll(ParquetRecordReader reader) {
+        List<List<Writable>> out = new ArrayList<>();
+        while (reader.hasNext()) {
+            out.add(reader.next());
+        }
+        return out;
+    }
+
+    @Test
+    @DisplayName("Test Round Trip")
+    void testRoundTrip() throws Exception {
+        for (CompressionCodecName codec : new CompressionCodecName[]{CompressionCodecName.UNCOMPRESSED, CompressionCodecName.SNAPPY}) {
+            File f = write(codec);
+            for (int numThreads : new int[]{1, 4}) {
+                ParquetRecordReader reader = new ParquetRecordReader(null, null, numThreads);
+                reader.initialize(new FileSplit(f));
+                Schema s = reader.getSchema();
+                assertEquals(schema().getColumnNames(), s.getColumnNames());
+                assertEquals(Arrays.asList(ColumnType.Long, ColumnType.Integer, ColumnType.Double, ColumnType.Float,
+                        ColumnType.String, ColumnType.Boolean, ColumnType.Time, ColumnType.Bytes), s.getColumnTypes());
+                assertEquals(data(), readAll(reader));
+
+                //Reset: same data again
+                reader.reset();
+                assertEquals(data(), readAll(reader));
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test Column Projection")
+    void testProjection() throws Exception {
+        File f = write(CompressionCodecName.UNCOMPRESSED);
+        ParquetRecordReader reader = new ParquetRecordReader("s", "id");
+        reader.initialize(new FileSplit(f));
+        assertEquals(Arrays.asList("s", "id"), reader.getSchema().getColumnNames());
+
+        List<List<Writable>> all = readAll(reader);
+        assertEquals(NUM_RECORDS, all.size());
+        for (int i = 0; i < NUM_RECORDS; i++) {
+            assertEquals(Arrays.<Writable>asList(new Text("value_" + i), new LongWritable(i)), all.get(i));
+        }
+
+        assertThrows(IllegalStateException.class, () -> new ParquetRecordReader("doesNotExist").initialize(new FileSplit(f)));
+    }
+
+    @Test
+    @DisplayName("Test Predicate Pushdown")
+    void testPredicatePushdown() throws Exception {
+        File f = write(CompressionCodecName.UNCOMPRESSED);
+        for (int numThreads : new int[]{1, 3}) {
+            //Remove all records with id < 500 or id >= 900: row groups entirely in these ranges are skipped
+            ParquetRecordReader reader = new ParquetRecordReader(Arrays.asList("id", "i"),
+                    BooleanCondition.OR(new LongColumnCondition("id", ConditionOp.LessThan, 500),
+                            new LongColumnCondition("id", ConditionOp.GreaterOrEqual, 900)), numThreads);
+            reader.initialize(new FileSplit(f));
+            assertTrue(reader.getNumRowGroupsSkipped() > 0);
+
+            List<List<Writable>> all = readAll(reader);
+            assertEquals(400, all.size());
+            for (int i = 0; i < all.size(); i++) {
+                assertEquals(500 + i, all.get(i).get(0).toLong());
+            }
+            reader.close();
+        }
+
+        //Column with missing values: statistics can't be used, but records must still be filtered
+        ParquetRecordReader reader = new ParquetRecordReader(Arrays.asList("id", "d"),
+                BooleanCondition.AND(BooleanCondition.NOT(new NullWritableColumnCondition("d")),
+                        new DoubleColumnCondition("d", ConditionOp.LessThan, 1e9)), 1);
+        reader.initialize(new FileSplit(f));
+        assertEquals(0, reader.getNumRowGroupsSkipped());
+        List<List<Writable>> all = readAll(reader);
+        assertEquals(NUM_RECORDS / 10, all.size());
+        for (List<Writable> l : all) {
+            assertTrue(l.get(1) instanceof NullWritable);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Row Group Statistics NaN Handling")
+    void testStatisticsNaN() {
+        //Float columns may contain NaN values that are not reflected in the min/max statistics
+        assertEquals(RowGroupFilter.Verdict.ALL, RowGroupFilter.evaluate(ConditionOp.LessThan, 1L, 5L, 10L, null, false));
+        assertEquals(RowGroupFilter.Verdict.UNKNOWN, RowGroupFilter.evaluate(ConditionOp.LessThan, 1.0, 5.0, 10.0, null, true));
+        assertEquals(RowGroupFilter.Verdict.NONE, RowGroupFilter.evaluate(ConditionOp.GreaterThan, 1.0, 5.0, 10.0, null, true));
+        assertEquals(RowGroupFilter.Verdict.ALL, RowGroupFilter.evaluate(ConditionOp.NotEqual, 1.0, 5.0, 10.0, null, true));
+        assertEquals(RowGroupFilter.Verdict.UNKNOWN, RowGroupFilter.evaluate(ConditionOp.Equal, 1.0, 5.0, 3.0, null, true));
+        assertEquals(RowGroupFilter.Verdict.NONE, RowGroupFilter.evaluate(ConditionOp.InSet, 1L, 5L, null,
+                new HashSet<>(Arrays.asList(0L, 6L)), false));
+        assertEquals(RowGroupFilter.Verdict.UNKNOWN, RowGroupFilter.evaluate(ConditionOp.LessThan, 1.0, 5.0, Double.NaN, null, false));
+    }
+
+    @Test
+    @DisplayName("Test Row Group Statistics Signed Zero Handling")
+    void testStatisticsSignedZero() {
+        //InSet uses Set.contains: -0.0 is not in {0.0}, but bounds and set elements are normalized to 0.0
+        assertFalse(new DoubleColumnCondition("d", ConditionOp.InSet, Collections.singleton(0.0))
+                .columnCondition(new DoubleWritable(-0.0)));
+        Set<Double> zero = Collections.singleton(0.0);
+        assertEquals(RowGroupFilter.Verdict.UNKNOWN, RowGroupFilter.evaluate(ConditionOp.InSet, 0.0, 0.0, null, zero, false));
+        assertEquals(RowGroupFilter.Verdict.UNKNOWN, RowGroupFilter.evaluate(ConditionOp.NotInSet, 0.0, 0.0, null, zero, false));
+        assertEquals(RowGroupFilter.Verdict.UNKNOWN, RowGroupFilter.evaluate(ConditionOp.InSet, 0.0, 0.0, null,
+                Collections.singleton(1.0), false));
+        //Equal uses primitive comparison, for which -0.0 == 0.0
+        assertEquals(RowGroupFilter.Verdict.ALL, RowGroupFilter.evaluate(ConditionOp.Equal, 0.0, 0.0, 0.0, null, false));
+        assertEquals(RowGroupFilter.Verdict.ALL, RowGroupFilter.evaluate(ConditionOp.InSet, 2.0, 2.0, null,
+                Collections.singleton(2.0), false));
+    }
+
+    @Test
+    @DisplayName("Test Load From Meta Data")
+    void testLoadFromMetaData() throws Exception {
+        File f = write(CompressionCodecName.UNCOMPRESSED);
+        ParquetRecordReader reader = new ParquetRecordReader(Arrays.asList("id", "s"),
+                new LongColumnCondition("id", ConditionOp.LessThan, 100), 2);
+        reader.initialize(new FileSplit(f));
+
+        List<Record> records = new ArrayList<>();
+        List<RecordMetaData> meta = new ArrayList<>();
+        while (reader.hasNext()) {
+            Record r = reader.nextRecord();
+            records.add(r);
+            meta.add(r.getMetaData());
+        }
+        assertEquals(NUM_RECORDS - 100, records.size());
+
+        Collections.reverse(meta);
+        List<Record> loaded = reader.loadFromMetaData(meta);
+        for (int i = 0; i < loaded.size(); i++) {
+            assertEquals(records.get(records.size() - 1 - i).getRecord(), loaded.get(i).getRecord());
+        }
+        reader.close();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.embeddings.learning.impl.elements;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.config.DL4JSystemProperties;
+import org.deeplearning4j.models.embeddings.learning.ElementsLearningAlgorithm;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.Word2Vec;
+import org.deeplearning4j.text.sentenceiterator.BasicLineIterator;
+import org.deeplearning4j.text.tokenization.tokenizer.preprocessor.CommonPreprocessor;
+import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFactory;
+import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.resources.Resources;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@Tag(TagNames.FILE_IO)
+@NativeTag
+public class HogwildTrainingTest extends BaseDL4JTest {
+
+    @Override
+    public long getTimeoutMilliseconds() {
+        return isIntegrationTests() ? 240000 : 120000;
+    }
+
+    @BeforeEach
+    public void setUp() {
+        // small rounds, so both full and partial rounds get executed
+        System.setProperty(DL4JSystemProperties.NLP_HOGWILD_ROUND_SIZE, "1024");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.clearProperty(DL4JSystemProperties.NLP_HOGWILD_ROUND_SIZE);
+    }
+
+    @Test
+    public void testHogwildSkipGram() throws Exception {
+        HogwildSkipGram<VocabWord> algorithm = new HogwildSkipGram<>();
+        Word2Vec vec = fit(algorithm, false);
+
+        double sim = vec.similarity("day", "night");
+        log.info("Day/night similarity: {}; Words/sec: {}", sim, algorithm.getRounds().wordsPerSecond());
+        assertTrue(sim > 0.6d);
+        assertTrue(algorithm.getRounds().getWordsProcessed() > 0);
+        assertTrue(algorithm.getRounds().getRowsProcessed() > 0);
+    }
+
+    @Test
+    public void testHogwildCBOW() throws Exception {
+        HogwildCBOW<VocabWord> algorithm = new HogwildCBOW<>();
+        Word2Vec vec = fit(algorithm, false);
+
+        double sim = vec.similarity("day", "night");
+        log.info("Day/night similarity: {}; Words/sec: {}", sim, algorithm.getRounds().wordsPerSecond());
+        assertTrue(sim > 0.6d);
+        assertTrue(algorithm.getRounds().getWordsProcessed() > 0);
+    }
+
+    @Test
+    public void testHogwildSkipGramHierarchicSoftmax() throws Exception {
+        HogwildSkipGram<VocabWord> algorithm = new HogwildSkipGram<>();
+        Word2Vec vec = fit(algorithm, true);
+
+        double sim = vec.similarity("day", "night");
+        log.info("Day/night similarity: {}", sim);
+        assertTrue(sim > 0.6d);
+    }
+
+    private static Word2Vec fit(ElementsLearningAlgorithm<VocabWord> algorithm, boolean useHS) throws Exception {
+        File inputFile = Resources.asFile("big/raw_sentences.txt");
+        BasicLineIterator iter = new BasicLineIterator(inputFile);
+        TokenizerFactory t = new DefaultTokenizerFactory();
+        t.setTokenPreProcessor(new CommonPreprocessor());
+
+        Word2Vec vec = new Word2Vec.Builder()
+                .minWordFrequency(5)
+                .layerSize(100)
+                .windowSize(5)
+                .epochs(1)
+                .iterations(1)
+                .learningRate(0.025)
+                .negativeSample(useHS ? 0 : 5)
+                .useHierarchicSoftmax(useHS)
+                .sampling(0)
+                .seed(42)
+                .workers(4)
+                .vectorCalcThreads(2)
+                .elementsLearningAlgorithm(algorithm)
+                .iterate(iter)
+                .tokenizerFactory(t)
+                .build();
+
+        vec.fit();
+        return vec;
+    }
+}
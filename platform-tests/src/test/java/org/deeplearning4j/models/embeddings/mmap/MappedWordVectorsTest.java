@@ -0,0 +1,211 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.embeddings.mmap;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.models.embeddings.loader.WordVectorSerializer;
+import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Mapped Word Vectors Test")
+@Tag(TagNames.FILE_IO)
+@NativeTag
+class MappedWordVectorsTest extends BaseDL4JTest {
+
+    private static final int NUM_WORDS = 200;
+    private static final int VECTOR_SIZE = 16;
+
+    @TempDir
+    public Path testDir;
+
+    private static String word(int i) {
+        return "word_" + i;
+    }
+
+    private static float[][] vectors() {
+        Random r = new Random(12345);
+        float[][] out = new float[NUM_WORDS][VECTOR_SIZE];
+        for (float[] v : out) {
+            for (int j = 0; j < VECTOR_SIZE; j++) {
+                v[j] = r.nextFloat() * 2 - 1;
+            }
+        }
+        return out;
+    }
+
+    private File writeText() throws IOException {
+        File f = testDir.resolve("vectors.txt").toFile();
+        float[][] vectors = vectors();
+        try (PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8))) {
+            pw.println(NUM_WORDS + " " + VECTOR_SIZE);
+            for (int i = 0; i < NUM_WORDS; i++) {
+                StringBuilder sb = new StringBuilder(word(i));
+                for (float x : vectors[i]) {
+                    sb.append(' ').append(x);
+                }
+                pw.println(sb);
+            }
+        }
+        return f;
+    }
+
+    private File writeBinary() throws IOException {
+        File f = testDir.resolve("vectors.bin").toFile();
+        float[][] vectors = vectors();
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(f))) {
+            os.write((NUM_WORDS + " " + VECTOR_SIZE + "\n").getBytes(StandardCharsets.UTF_8));
+            ByteBuffer bb = ByteBuffer.allocate(4 * VECTOR_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < NUM_WORDS; i++) {
+                os.write((word(i) + " ").getBytes(StandardCharsets.UTF_8));
+                bb.clear();
+                for (float x : vectors[i]) {
+                    bb.putFloat(x);
+                }
+                os.write(bb.array());
+                os.write('\n');
+            }
+        }
+        return f;
+    }
+
+    private static void checkVectors(MappedWordVectors mapped) {
+        float[][] vectors = vectors();
+        assertEquals(NUM_WORDS, mapped.vocabSize());
+        assertEquals(VECTOR_SIZE, mapped.vectorSize());
+        assertEquals(NUM_WORDS, mapped.vocab().numWords());
+        for (int i = 0; i < NUM_WORDS; i++) {
+            assertTrue(mapped.hasWord(word(i)));
+            assertEquals(i, mapped.indexOf(word(i)));
+            assertEquals(word(i), mapped.vocab().wordAtIndex(i));
+            INDArray v = mapped.getWordVectorMatrix(word(i));
+            assertArrayEquals(new long[]{VECTOR_SIZE}, v.shape());
+            assertArrayEquals(vectors[i], v.toFloatVector(), 0.0f);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Convert Text Model")
+    void testConvertText() throws Exception {
+        File mappedFile = testDir.resolve("text.wv").toFile();
+        WordVectorSerializer.convertToMappedWordVectors(writeText(), mappedFile);
+
+        try (MappedWordVectors mapped = WordVectorSerializer.readMappedWordVectors(mappedFile)) {
+            checkVectors(mapped);
+
+            assertFalse(mapped.hasWord("missing"));
+            assertEquals(-1, mapped.indexOf("missing"));
+            assertNull(mapped.getWordVectorMatrix("missing"));
+            mapped.setUNK(word(5));
+            assertEquals(mapped.getWordVectorMatrix(word(5)), mapped.getWordVectorMatrix("missing"));
+
+            //Returned vectors are copies of the read-only mapping: modifying them is safe and never modifies the file
+            mapped.getWordVectorMatrix(word(1)).assign(0);
+            checkVectors(mapped);
+            INDArray single = mapped.getWordVectors(Collections.singletonList(word(2)));
+            assertArrayEquals(new long[]{1, VECTOR_SIZE}, single.shape());
+            single.assign(0);
+            mapped.getWordVectors(Arrays.asList(word(2), word(3))).assign(0);
+            checkVectors(mapped);
+        }
+        try (MappedWordVectors mapped = MappedWordVectors.open(mappedFile)) {
+            checkVectors(mapped);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Convert Binary Model")
+    void testConvertBinary() throws Exception {
+        File mappedFile = testDir.resolve("binary.wv").toFile();
+        WordVectorSerializer.convertToMappedWordVectors(writeBinary(), mappedFile, true);
+        try (MappedWordVectors mapped = MappedWordVectors.open(mappedFile)) {
+            checkVectors(mapped);
+        }
+    }
+
+    @Test
+    @DisplayName("Test Convert Truncated Model")
+    void testConvertTruncated() throws Exception {
+        byte[] bytes = Files.readAllBytes(writeBinary().toPath());
+        File truncated = testDir.resolve("truncated.bin").toFile();
+        Files.write(truncated.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+
+        //Conversion fails in both formats, and no file with a partial vocabulary is left behind
+        File mappedFile = testDir.resolve("truncated.wv").toFile();
+        assertThrows(IOException.class, () -> WordVectorSerializer.convertToMappedWordVectors(truncated, mappedFile));
+        assertFalse(mappedFile.exists());
+    }
+
+    @Test
+    @DisplayName("Test Consistency With In Memory Model")
+    void testConsistency() throws Exception {
+        WordVectors inMemory = WordVectorSerializer.loadTxtVectors(writeText());
+        File mappedFile = testDir.resolve("written.wv").toFile();
+        WordVectorSerializer.writeMappedWordVectors(inMemory, mappedFile);
+
+        try (MappedWordVectors mapped = MappedWordVectors.open(mappedFile)) {
+            for (int i = 0; i < NUM_WORDS; i += 7) {
+                String w = word(i);
+                assertEquals(inMemory.getWordVectorMatrix(w).castTo(DataType.FLOAT), mapped.getWordVectorMatrix(w));
+                assertEquals(inMemory.similarity(w, word(i + 1)), mapped.similarity(w, word(i + 1)), 1e-5);
+                assertEquals(new HashSet<>(inMemory.wordsNearest(w, 5)), new HashSet<>(mapped.wordsNearest(w, 5)));
+            }
+
+            INDArray all = Nd4j.create(DataType.FLOAT, NUM_WORDS, VECTOR_SIZE);
+            mapped.loadWeightsInto(all);
+            assertEquals(mapped.getWordVectorMatrix(word(42)), all.getRow(42));
+        }
+    }
+
+    @Test
+    @DisplayName("Test Duplicate Words")
+    void testDuplicateWords() throws Exception {
+        File f = testDir.resolve("duplicate.wv").toFile();
+        MappedWordVectorsWriter writer = new MappedWordVectorsWriter(f, 2, DataType.FLOAT);
+        writer.add("a", 1, new float[]{1, 2});
+        writer.add("b", 1, new float[]{3, 4});
+        writer.add("a", 1, new float[]{5, 6});
+        assertThrows(IllegalStateException.class, writer::close);
+        assertFalse(f.exists());
+        assertEquals(3, writer.numWords());
+        assertThrows(IllegalArgumentException.class, () -> new MappedWordVectorsWriter(f, 2, DataType.INT));
+    }
+}
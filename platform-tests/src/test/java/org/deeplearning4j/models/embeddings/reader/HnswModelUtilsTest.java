@@ -0,0 +1,138 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.embeddings.reader;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
+import org.deeplearning4j.models.embeddings.reader.impl.FlatModelUtils;
+import org.deeplearning4j.models.embeddings.reader.impl.HnswIndex;
+import org.deeplearning4j.models.embeddings.reader.impl.HnswModelUtils;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.FILE_IO)
+public class HnswModelUtilsTest extends BaseDL4JTest {
+
+    @Test
+    public void testRecall() {
+        int n = 5000;
+        int dim = 32;
+        Random r = new Random(12345);
+        float[] data = new float[n * dim];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (float) r.nextGaussian();
+        }
+        float[] original = data.clone();
+
+        HnswIndex index = HnswIndex.build(data, dim, 16, 100, 50, 4, 12345);
+        assertEquals(n, index.getSize());
+
+        int k = 10;
+        int found = 0;
+        int queries = 100;
+        for (int q = 0; q < queries; q++) {
+            float[] query = new float[dim];
+            for (int i = 0; i < dim; i++) {
+                query[i] = (float) r.nextGaussian();
+            }
+            Set<Integer> exact = bruteForce(original, dim, query, k);
+            for (int id : index.search(query, k)) {
+                if (exact.contains(id))
+                    found++;
+            }
+        }
+        double recall = found / (double) (queries * k);
+        assertTrue(recall >= 0.9, "Recall: " + recall);
+
+        //Element itself is always its own nearest neighbour
+        assertEquals(42, index.search(Arrays.copyOfRange(original, 42 * dim, 43 * dim), 1)[0]);
+    }
+
+    @Test
+    public void testModelUtils(@TempDir Path testDir) throws Exception {
+        int n = 500;
+        int dim = 16;
+        AbstractCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+        for (int i = 0; i < n; i++) {
+            VocabWord w = new VocabWord(1.0, "word" + i);
+            cache.addToken(w);
+            cache.addWordToIndex(i, w.getLabel());
+        }
+
+        InMemoryLookupTable<VocabWord> lookupTable = new InMemoryLookupTable.Builder<VocabWord>()
+                .useAdaGrad(false)
+                .cache(cache)
+                .vectorLength(dim)
+                .build();
+        Nd4j.getRandom().setSeed(12345);
+        lookupTable.setSyn0(Nd4j.randn(DataType.FLOAT, n, dim));
+
+        HnswModelUtils<VocabWord> hnsw = new HnswModelUtils<>();
+        hnsw.init(lookupTable);
+        FlatModelUtils<VocabWord> flat = new FlatModelUtils<>();
+        flat.init(lookupTable);
+
+        INDArray query = lookupTable.vector("word7");
+        List<String> expected = new ArrayList<>(flat.wordsNearest(query, 5));
+        List<String> actual = new ArrayList<>(hnsw.wordsNearest(query, 5));
+        assertEquals(expected, actual);
+        assertFalse(hnsw.wordsNearest("word7", 5).contains("word7"));
+
+        File f = new File(testDir.toFile(), "index.hnsw");
+        hnsw.saveIndex(f);
+
+        HnswModelUtils<VocabWord> restored = new HnswModelUtils<>(HnswIndex.load(f));
+        restored.init(lookupTable);
+        assertEquals(actual, new ArrayList<>(restored.wordsNearest(query, 5)));
+    }
+
+    private static Set<Integer> bruteForce(float[] data, int dim, float[] query, int k) {
+        int n = data.length / dim;
+        Integer[] ids = new Integer[n];
+        double[] sims = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+            double dot = 0, norm = 0;
+            for (int j = 0; j < dim; j++) {
+                dot += data[i * dim + j] * query[j];
+                norm += data[i * dim + j] * data[i * dim + j];
+            }
+            sims[i] = dot / Math.sqrt(norm);
+        }
+        Arrays.sort(ids, (a, b) -> Double.compare(sims[b], sims[a]));
+        return new HashSet<>(Arrays.asList(ids).subList(0, k));
+    }
+}
@@ -28,6 +28,7 @@ import org.deeplearning4j.models.sequencevectors.sequence.Sequence;
 import org.deeplearning4j.models.sequencevectors.transformers.impl.SentenceTransformer;
 import org.deeplearning4j.models.word2vec.VocabWord;
 import org.deeplearning4j.models.word2vec.wordstore.inmemory.AbstractCache;
+import org.deeplearning4j.models.word2vec.wordstore.inmemory.CompactVocabCache;
 import org.deeplearning4j.text.documentiterator.FileLabelAwareIterator;
 import org.deeplearning4j.text.sentenceiterator.BasicLineIterator;
 import org.deeplearning4j.text.sentenceiterator.SentenceIterator;
@@ -53,6 +54,7 @@ import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Tag(TagNames.FILE_IO)
@@ -470,4 +472,65 @@ public class VocabConstructorTest extends BaseDL4JTest {
 
         constructor.buildJointVocabulary(false, true);
     }
+
+    @Test
+    public void testShardedCounting() throws Exception {
+        File inputFile = Resources.asFile("big/raw_sentences.txt");
+
+        VocabCache<VocabWord> reference = buildVocab(inputFile, new VocabConstructor.Builder<VocabWord>()
+                .allowParallelTokenization(false));
+        VocabCache<VocabWord> sharded = buildVocab(inputFile, new VocabConstructor.Builder<VocabWord>()
+                .useShardedCounting(4));
+        VocabCache<VocabWord> pruned = buildVocab(inputFile, new VocabConstructor.Builder<VocabWord>()
+                .enableCountMinPrePruning(true).setCountMinSketchSize(1 << 10, 4));
+        VocabCache<VocabWord> compact = buildVocab(inputFile, new CompactVocabCache(),
+                new VocabConstructor.Builder<VocabWord>().useShardedCounting(4));
+
+        assertEquals(242, reference.numWords());
+        for (VocabCache<VocabWord> cache : Arrays.asList(sharded, pruned, compact)) {
+            assertEquals(reference.numWords(), cache.numWords());
+            assertEquals(reference.totalNumberOfDocs(), cache.totalNumberOfDocs());
+            for (String word : reference.words()) {
+                assertEquals(reference.wordFrequency(word), cache.wordFrequency(word), word);
+                assertEquals(reference.docAppearedIn(word), cache.docAppearedIn(word), word);
+            }
+        }
+    }
+
+    @Test
+    public void testCountMinSketch() {
+        CountMinSketch sketch = new CountMinSketch(1 << 8, 4);
+        CountMinSketch other = new CountMinSketch(1 << 8, 4);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("word" + (i % 100));
+            other.add("word" + (i % 10));
+        }
+
+        // estimates never go below the true count
+        for (int i = 0; i < 100; i++)
+            assertTrue(sketch.estimate("word" + i) >= 10);
+
+        sketch.merge(other);
+        assertTrue(sketch.estimate("word1") >= 110);
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(1000, 4));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new CountMinSketch(1 << 9, 4)));
+    }
+
+    private VocabCache<VocabWord> buildVocab(File file, VocabConstructor.Builder<VocabWord> builder) throws Exception {
+        return buildVocab(file, new AbstractCache.Builder<VocabWord>().build(), builder);
+    }
+
+    private VocabCache<VocabWord> buildVocab(File file, VocabCache<VocabWord> cache,
+                                             VocabConstructor.Builder<VocabWord> builder) throws Exception {
+
+        SentenceTransformer transformer = new SentenceTransformer.Builder()
+                .vocabCache(cache)
+                .iterator(new BasicLineIterator(file)).tokenizerFactory(t).build();
+
+        AbstractSequenceIterator<VocabWord> sequenceIterator =
+                new AbstractSequenceIterator.Builder<>(transformer).build();
+
+        builder.addSource(sequenceIterator, 5).setTargetVocabCache(cache).build().buildJointVocabulary(false, true);
+        return cache;
+    }
 }
@@ -0,0 +1,259 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.models.word2vec.wordstore.inmemory;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.models.sequencevectors.iterators.AbstractSequenceIterator;
+import org.deeplearning4j.models.sequencevectors.transformers.impl.SentenceTransformer;
+import org.deeplearning4j.models.word2vec.Huffman;
+import org.deeplearning4j.models.word2vec.VocabWord;
+import org.deeplearning4j.models.word2vec.wordstore.VocabCache;
+import org.deeplearning4j.models.word2vec.wordstore.VocabConstructor;
+import org.deeplearning4j.text.sentenceiterator.BasicLineIterator;
+import org.deeplearning4j.text.tokenization.tokenizer.preprocessor.CommonPreprocessor;
+import org.deeplearning4j.text.tokenization.tokenizerfactory.DefaultTokenizerFactory;
+import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.resources.Resources;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Compact Vocab Cache Test")
+@Tag(TagNames.FILE_IO)
+@NativeTag
+class CompactVocabCacheTest extends BaseDL4JTest {
+
+    @Test
+    void testAddAndMerge() {
+        CompactVocabCache cache = new CompactVocabCache(2);
+
+        assertTrue(cache.addToken(new VocabWord(1.0, "word")));
+        assertTrue(cache.addToken(new VocabWord(2.0, "test")));
+        assertTrue(cache.addToken(new VocabWord(3.0, "tester")));
+        assertFalse(cache.addToken(new VocabWord(4.0, "word")));
+
+        assertEquals(3, cache.numWords());
+        assertEquals(5, cache.wordFrequency("word"));
+        assertEquals(0, cache.wordFrequency("missing"));
+        assertEquals(-2, cache.indexOf("missing"));
+        assertEquals(-1, cache.indexOf("word"));
+        assertTrue(cache.containsWord("tester"));
+        assertFalse(cache.containsWord("testers"));
+
+        VocabWord word = cache.wordFor("word");
+        assertEquals(new VocabWord(1.0, "word"), word);
+        assertEquals("word", cache.wordFor(word.getStorageId()).getLabel());
+    }
+
+    @Test
+    void testLabels() {
+        CompactVocabCache cache = new CompactVocabCache();
+
+        cache.addToken(new VocabWord(1.0, "word"));
+        cache.addToken(new VocabWord(2.0, "über"));
+        cache.addToken(new VocabWord(3.0, "漢字"));
+
+        Collection<String> collection = cache.words();
+        assertEquals(3, collection.size());
+        assertEquals(new HashSet<>(Arrays.asList("word", "über", "漢字")), new HashSet<>(collection));
+        assertEquals(2, cache.wordFrequency("über"));
+        assertFalse(cache.containsWord("uber"));
+    }
+
+    @Test
+    void testRemoval() {
+        CompactVocabCache cache = new CompactVocabCache();
+
+        cache.addToken(new VocabWord(1.0, "word"));
+        cache.addToken(new VocabWord(2.0, "test"));
+        cache.addToken(new VocabWord(3.0, "tester"));
+        cache.addWordToIndex(0, "tester");
+
+        assertEquals(6, cache.totalWordOccurrences());
+
+        cache.removeElement("tester");
+        assertEquals(2, cache.numWords());
+        assertEquals(3, cache.totalWordOccurrences());
+        assertFalse(cache.containsWord("tester"));
+        assertNull(cache.wordAtIndex(0));
+        assertThrows(IllegalStateException.class, () -> cache.removeElement("tester"));
+
+        cache.addToken(new VocabWord(7.0, "tester"));
+        assertEquals(7, cache.wordFrequency("tester"));
+        assertEquals(3, cache.numWords());
+    }
+
+    @Test
+    void testCompaction() {
+        CompactVocabCache cache = new CompactVocabCache();
+        for (int i = 0; i < 1000; i++) {
+            cache.addToken(new VocabWord(i + 1, "word_" + i));
+            cache.addWordToIndex(i, "word_" + i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 != 0)
+                cache.removeElement("word_" + i);
+        }
+
+        long before = cache.memoryUsage();
+        cache.compact();
+        assertTrue(cache.memoryUsage() < before);
+
+        assertEquals(100, cache.numWords());
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 == 0) {
+                assertEquals(i + 1, cache.wordFrequency("word_" + i));
+                assertEquals(i, cache.indexOf("word_" + i));
+                assertEquals("word_" + i, cache.wordAtIndex(i));
+            } else {
+                assertFalse(cache.containsWord("word_" + i));
+                assertNull(cache.wordAtIndex(i));
+            }
+        }
+
+        cache.addToken(new VocabWord(3.0, "word_1"));
+        cache.addToken(new VocabWord(2.0, "word_0"));
+        assertEquals(101, cache.numWords());
+        assertEquals(3, cache.wordFrequency("word_1"));
+        assertEquals(3, cache.wordFrequency("word_0"));
+    }
+
+    @Test
+    void testElementsWriteThrough() {
+        CompactVocabCache cache = new CompactVocabCache();
+        cache.addToken(new VocabWord(1.0, "word"));
+
+        VocabWord word = cache.wordFor("word");
+        word.increaseElementFrequency(4);
+        word.incrementSequencesCount(2);
+        word.setSpecial(true);
+        word.setCodes(Arrays.asList((byte) 1, (byte) 0, (byte) 1));
+        word.setPoints(new int[] {7, 8, 9});
+
+        VocabWord other = cache.wordFor("word");
+        assertEquals(5.0, other.getElementFrequency(), 0.0);
+        assertEquals(2, cache.docAppearedIn("word"));
+        assertTrue(other.isSpecial());
+        assertEquals(Arrays.asList((byte) 1, (byte) 0, (byte) 1), other.getCodes());
+        assertEquals(Arrays.asList(7, 8, 9), other.getPoints());
+
+        other.getPoints().set(1, 42);
+        assertEquals(42, (int) word.getPoints().get(1));
+    }
+
+    @Test
+    void testHuffmanMatchesAbstractCache() {
+        AbstractCache<VocabWord> reference = new AbstractCache.Builder<VocabWord>().build();
+        CompactVocabCache cache = new CompactVocabCache(16);
+
+        // distinct frequencies, so Huffman tree doesn't depend on iteration order
+        for (int i = 0; i < 2000; i++) {
+            reference.addToken(new VocabWord(i + 1, "w" + i));
+            cache.addToken(new VocabWord(i + 1, "w" + i));
+        }
+
+        Huffman huffman = new Huffman(reference.vocabWords());
+        huffman.build();
+        huffman.applyIndexes(reference);
+
+        huffman = new Huffman(cache.vocabWords());
+        huffman.build();
+        huffman.applyIndexes(cache);
+
+        assertEquals(reference.numWords(), cache.numWords());
+        assertEquals(reference.totalWordOccurrences(), cache.totalWordOccurrences());
+        for (int i = 0; i < reference.numWords(); i++) {
+            VocabWord expected = reference.elementAtIndex(i);
+            VocabWord actual = cache.elementAtIndex(i);
+
+            assertEquals(expected, actual);
+            assertEquals(expected.getIndex(), actual.getIndex());
+            assertEquals(expected.getCodeLength(), actual.getCodeLength());
+            assertEquals(expected.getCodes(), actual.getCodes());
+            assertEquals(expected.getPoints(), actual.getPoints());
+        }
+    }
+
+    @Test
+    void testCodeLengthGrowth() {
+        CompactVocabCache cache = new CompactVocabCache();
+        cache.addToken(new VocabWord(1.0, "word"));
+
+        // rebuilding Huffman tree can assign longer codes to the same element
+        VocabWord word = cache.wordFor("word");
+        word.setCodeLength((short) 40);
+        word.setCodeLength((short) 50);
+        word.setCodeLength((short) 20);
+
+        assertEquals(20, word.getCodeLength());
+        assertEquals(50, word.getCodes().size());
+        assertEquals(50, word.getPoints().size());
+        assertThrows(IllegalArgumentException.class, () -> word.setCodeLength((short) (CompactVocabCache.MAX_CODE_LENGTH + 1)));
+    }
+
+    @Test
+    void testVocabConstructor() throws Exception {
+        File inputFile = Resources.asFile("big/raw_sentences.txt");
+        TokenizerFactory t = new DefaultTokenizerFactory();
+        t.setTokenPreProcessor(new CommonPreprocessor());
+
+        VocabCache<VocabWord> reference = buildVocab(inputFile, t, new AbstractCache.Builder<VocabWord>().build());
+        VocabCache<VocabWord> cache = buildVocab(inputFile, t, new CompactVocabCache());
+
+        assertEquals(reference.numWords(), cache.numWords());
+        assertEquals(reference.totalWordOccurrences(), cache.totalWordOccurrences());
+        for (String word : reference.words()) {
+            assertEquals(reference.wordFrequency(word), cache.wordFrequency(word), word);
+            assertEquals(reference.docAppearedIn(word), cache.docAppearedIn(word), word);
+        }
+
+        double previous = Double.MAX_VALUE;
+        for (int i = 0; i < cache.numWords(); i++) {
+            VocabWord word = cache.elementAtIndex(i);
+            assertEquals(i, cache.indexOf(word.getLabel()));
+            assertTrue(word.getElementFrequency() <= previous);
+            previous = word.getElementFrequency();
+        }
+    }
+
+    private static VocabCache<VocabWord> buildVocab(File file, TokenizerFactory t, VocabCache<VocabWord> cache) throws Exception {
+        SentenceTransformer transformer = new SentenceTransformer.Builder()
+                .vocabCache(cache)
+                .iterator(new BasicLineIterator(file)).tokenizerFactory(t).build();
+
+        AbstractSequenceIterator<VocabWord> sequenceIterator =
+                new AbstractSequenceIterator.Builder<>(transformer).build();
+
+        VocabConstructor<VocabWord> constructor = new VocabConstructor.Builder<VocabWord>()
+                .addSource(sequenceIterator, 5).setTargetVocabCache(cache).build();
+
+        constructor.buildJointVocabulary(false, true);
+        return cache;
+    }
+}
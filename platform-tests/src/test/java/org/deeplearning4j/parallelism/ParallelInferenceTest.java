@@ -28,6 +28,7 @@ import org.deeplearning4j.datasets.iterator.impl.MnistDataSetIterator;
 import org.deeplearning4j.eval.Evaluation;
 import org.deeplearning4j.exception.DL4JInvalidInputException;
 import org.deeplearning4j.nn.api.Model;
+import org.deeplearning4j.nn.api.ModelAdapter;
 import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
 import org.deeplearning4j.nn.conf.ConvolutionMode;
 import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
@@ -55,8 +56,11 @@ import org.nd4j.linalg.factory.Nd4j;
 import java.io.File;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -181,6 +185,91 @@ public class ParallelInferenceTest extends BaseDL4JTest {
     }
 
 
+    @Test()
+    @Timeout(30000)
+    public void testInferenceAdaptive1() throws Exception {
+        ParallelInference inf = new ParallelInference.Builder(model).inferenceMode(InferenceMode.ADAPTIVE).batchLimit(8)
+                .maxLatency(20, TimeUnit.MILLISECONDS).workers(2).build();
+        try {
+            iterator = new MnistDataSetIterator(1, false, 12345);
+
+            INDArray array1 = inf.output(iterator.next().getFeatures());
+            INDArray array2 = inf.output(new INDArray[]{iterator.next().getFeatures()}, null, 5, TimeUnit.MILLISECONDS)[0];
+
+            assertFalse(array1.isAttached());
+            assertFalse(array2.isAttached());
+            assertArrayEquals(new long[] {1, 10}, array2.shape());
+
+            iterator.reset();
+
+            evalClassifcationMultipleThreads(inf, iterator, 10);
+
+            assertTrue(inf.getWorkerCounter(0) + inf.getWorkerCounter(1) > 0L);
+        } finally {
+            inf.shutdown();
+        }
+    }
+
+    @Test
+    public void testAdaptiveProvider1() throws Exception {
+        LinkedBlockingQueue queue = new LinkedBlockingQueue();
+        BasicInferenceObserver observer = new BasicInferenceObserver();
+        ParallelInference.AdaptiveObservablesProvider provider =
+                new ParallelInference.AdaptiveObservablesProvider(TimeUnit.SECONDS.toNanos(10), 2, 1, queue);
+
+        InferenceObservable observable1 = provider.setInput(observer, new INDArray[]{Nd4j.create(1,100).assign(1.0)}, null, TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, queue.size());
+
+        InferenceObservable observable2 = provider.setInput(observer, new INDArray[]{Nd4j.create(1,100).assign(2.0)}, null, TimeUnit.SECONDS.toNanos(10));
+        assertTrue(observable1 == observable2);
+
+        // batch limit reached, so batch should be flushed
+        assertEquals(1, queue.size());
+
+        // expired request should be flushed immediately
+        InferenceObservable observable3 = provider.setInput(observer, new INDArray[]{Nd4j.create(1,100).assign(3.0)}, null, 0L);
+        assertTrue(observable1 != observable3);
+        assertEquals(2, queue.size());
+
+        List<Pair<INDArray[],INDArray[]>> l = observable1.getInputBatches();
+        assertEquals(1, l.size());
+        assertArrayEquals(new long[] {2, 100}, l.get(0).getFirst()[0].shape());
+    }
+
+    @Test
+    public void testAdaptiveProvider2() throws Exception {
+        LinkedBlockingQueue queue = new LinkedBlockingQueue();
+        ParallelInference.AdaptiveObservablesProvider provider =
+                new ParallelInference.AdaptiveObservablesProvider(TimeUnit.MILLISECONDS.toNanos(10), 64, 1, queue);
+
+        assertEquals(64, provider.getDynamicBatchLimit());
+
+        // 1 ms per example means only 5 examples fit into half of the 10 ms budget
+        provider.reportExecution(4, TimeUnit.MILLISECONDS.toNanos(4));
+        assertEquals(5, provider.getDynamicBatchLimit());
+
+        // very slow model still gets batches of at least 1 example
+        provider.reportExecution(1, TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, provider.getDynamicBatchLimit());
+    }
+
+    @Test
+    public void testAdaptiveProvider3() throws Exception {
+        LinkedBlockingQueue queue = new LinkedBlockingQueue();
+        BasicInferenceObserver observer = new BasicInferenceObserver();
+        ParallelInference.AdaptiveObservablesProvider provider =
+                new ParallelInference.AdaptiveObservablesProvider(TimeUnit.SECONDS.toNanos(10), 64, 1, queue);
+
+        InferenceObservable observable = provider.setInput(observer, new INDArray[]{Nd4j.create(1,100).assign(1.0)}, null, TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, queue.size());
+
+        // pending request is failed on shutdown, instead of being left without output
+        provider.shutdown();
+        assertThrows(IllegalStateException.class, observable::getOutput);
+        assertThrows(IllegalStateException.class, () -> provider.setInput(observer,
+                new INDArray[]{Nd4j.create(1,100).assign(2.0)}, null, TimeUnit.SECONDS.toNanos(10)));
+    }
+
     @Test
     public void testProvider1() throws Exception {
         LinkedBlockingQueue queue = new LinkedBlockingQueue();
@@ -638,6 +727,63 @@ public class ParallelInferenceTest extends BaseDL4JTest {
         }
     }
 
+    @Test()
+    @Timeout(20000)
+    public void testParallelInferenceAsync() throws Exception {
+        int nIn = 10;
+
+        MultiLayerConfiguration conf = new NeuralNetConfiguration.Builder()
+                .activation(Activation.TANH)
+                .seed(12345)
+                .list()
+                .layer(new DenseLayer.Builder().nIn(nIn).nOut(5).build())
+                .layer(new OutputLayer.Builder().nIn(5).nOut(5).activation(Activation.SOFTMAX).build())
+                .build();
+
+        MultiLayerNetwork net = new MultiLayerNetwork(conf);
+        net.init();
+
+        for (InferenceMode m : InferenceMode.values()) {
+            log.info("Starting: m={}", m);
+            ParallelInference inf = new ParallelInference.Builder(net).inferenceMode(m).batchLimit(20).workers(2).build();
+            try {
+                List<INDArray> exp = new ArrayList<>();
+                List<CompletableFuture<INDArray[]>> futures = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    INDArray in = Nd4j.rand(1, nIn);
+                    exp.add(net.output(in));
+                    futures.add(inf.outputAsync(in));
+                }
+
+                for (int i = 0; i < futures.size(); i++) {
+                    assertEquals(exp.get(i), futures.get(i).get()[0]);
+                }
+
+                // errors should be propagated via future
+                CompletableFuture<INDArray[]> wrong = inf.outputAsync(Nd4j.ones(1, 5));
+                ExecutionException e = assertThrows(ExecutionException.class, wrong::get);
+                assertTrue(e.getCause() instanceof DL4JInvalidInputException);
+
+                // adapter is applied by the worker to its own model replica
+                INDArray in = Nd4j.rand(1, nIn);
+                INDArray adapted = inf.outputAsync(new ModelAdapter<INDArray>() {
+                    @Override
+                    public INDArray apply(Model model, INDArray[] inputs, INDArray[] inputMasks, INDArray[] labelsMasks) {
+                        return ((MultiLayerNetwork) model).output(inputs[0]);
+                    }
+
+                    @Override
+                    public INDArray apply(INDArray... outputs) {
+                        return outputs[0];
+                    }
+                }, in).get();
+                assertEquals(net.output(in), adapted);
+            } finally {
+                inf.shutdown();
+            }
+        }
+    }
+
     @Test
     public void testInputMaskingCyclic() throws Exception {
         for (int e = 0; e < 3; e++) {
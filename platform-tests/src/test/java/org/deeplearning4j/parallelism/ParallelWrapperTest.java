@@ -0,0 +1,276 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.deeplearning4j.parallelism;
+
+import lombok.extern.slf4j.Slf4j;
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.datasets.iterator.utilty.ListDataSetIterator;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.residual.ResidualClippingPostProcessor;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.threshold.AdaptiveThresholdAlgorithm;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.threshold.FixedThresholdAlgorithm;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Sgd;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@NativeTag
+@Tag(TagNames.FILE_IO)
+public class ParallelWrapperTest extends BaseDL4JTest {
+
+    @Override
+    public long getTimeoutMilliseconds() {
+        return 120000L;
+    }
+
+    @Test
+    public void testSharedGradientsMatchesLargerMinibatch() {
+        MultiLayerNetwork ref = new MultiLayerNetwork(conf(10));
+        ref.init();
+        MultiLayerNetwork net = new MultiLayerNetwork(conf(10));
+        net.init();
+        net.setParams(ref.params().dup());
+
+        List<DataSet> batches = randomData(8, 8, 10);
+        try (ParallelWrapper wrapper = new ParallelWrapper.Builder(net)
+                .workers(2)
+                .prefetchBuffer(0)
+                .trainingMode(ParallelWrapper.TrainingMode.SHARED_GRADIENTS)
+                .build()) {
+            wrapper.fit(new ListDataSetIterator<>(batches, 1));
+        }
+
+        for (int i = 0; i < batches.size(); i += 2) {
+            ref.fit(DataSet.merge(batches.subList(i, i + 2)));
+        }
+
+        assertEquals(ref.params(), net.params());
+        assertEquals(ref.score(), net.score(), 1e-10);
+        assertEquals(4, net.getIterationCount());
+        assertEquals(1, net.getEpochCount());
+    }
+
+    @Test
+    public void testSharedGradientsComputationGraph() {
+        MultiLayerNetwork ref = new MultiLayerNetwork(conf(10));
+        ref.init();
+        ComputationGraph net = ref.toComputationGraph();
+
+        //Odd number of minibatches: last round is handled by a single worker
+        List<DataSet> batches = randomData(5, 8, 10);
+        try (ParallelWrapper wrapper = new ParallelWrapper.Builder(net)
+                .workers(2)
+                .prefetchBuffer(0)
+                .build()) {
+            wrapper.fit(new ListDataSetIterator<>(batches, 1));
+        }
+
+        ref.fit(DataSet.merge(batches.subList(0, 2)));
+        ref.fit(DataSet.merge(batches.subList(2, 4)));
+        ref.fit(batches.get(4));
+
+        assertEquals(ref.params(), net.params());
+        assertEquals(3, net.getIterationCount());
+    }
+
+    @Test
+    public void testAveraging() {
+        MultiLayerNetwork net = new MultiLayerNetwork(conf(10));
+        net.init();
+
+        List<DataSet> batches = randomData(32, 16, 10);
+        DataSet all = DataSet.merge(batches);
+        double scoreBefore = net.score(all);
+
+        try (ParallelWrapper wrapper = new ParallelWrapper.Builder(net)
+                .workers(4)
+                .averagingFrequency(2)
+                .trainingMode(ParallelWrapper.TrainingMode.AVERAGING)
+                .build()) {
+            for (int i = 0; i < 3; i++) {
+                wrapper.fit(new ListDataSetIterator<>(batches, 1));
+            }
+
+            //All replicas hold the averaged parameters after fit
+            for (org.deeplearning4j.nn.api.Model m : wrapper.getCurrentModelsFromWorkers()) {
+                assertEquals(net.params(), m.params());
+            }
+        }
+
+        assertTrue(net.score(all) < scoreBefore);
+        assertEquals(3, net.getEpochCount());
+    }
+
+    @Test
+    public void testAveragingShortRound() {
+        MultiLayerNetwork net = new MultiLayerNetwork(conf(10));
+        net.init();
+        INDArray initial = net.params().dup();
+
+        //Last round is handled by a single worker: the idle replica must not be averaged in
+        List<DataSet> batches = randomData(3, 8, 10);
+        try (ParallelWrapper wrapper = new ParallelWrapper.Builder(net)
+                .workers(2)
+                .prefetchBuffer(0)
+                .averagingFrequency(1)
+                .trainingMode(ParallelWrapper.TrainingMode.AVERAGING)
+                .build()) {
+            wrapper.fit(new ListDataSetIterator<>(batches, 1));
+        }
+
+        MultiLayerNetwork first = new MultiLayerNetwork(conf(10));
+        first.init();
+        first.setParams(initial.dup());
+        first.fit(batches.get(0));
+        MultiLayerNetwork second = new MultiLayerNetwork(conf(10));
+        second.init();
+        second.setParams(initial.dup());
+        second.fit(batches.get(1));
+
+        first.setParams(first.params().add(second.params()).divi(2));
+        first.fit(batches.get(2));
+
+        assertEquals(first.params(), net.params());
+    }
+
+    @Test
+    public void testSharedGradientsThresholdEncoding() {
+        MultiLayerNetwork net = new MultiLayerNetwork(conf(256));
+        net.init();
+
+        List<DataSet> batches = randomData(32, 16, 256);
+        DataSet all = DataSet.merge(batches);
+        double scoreBefore = net.score(all);
+
+        try (ParallelWrapper wrapper = new ParallelWrapper.Builder(net)
+                .workers(2)
+                .prefetchBuffer(0)
+                .thresholdAlgorithm(new AdaptiveThresholdAlgorithm(1e-3, 1e-3, 2e-2, 0.9))
+                .residualPostProcessor(new ResidualClippingPostProcessor(5, 5))
+                .build()) {
+            for (int i = 0; i < 3; i++) {
+                wrapper.fit(new ListDataSetIterator<>(batches, 1));
+            }
+
+            //Encoded gradients are a small fraction of the dense gradients
+            assertTrue(wrapper.getLastEncodedRatio() < 0.1, String.valueOf(wrapper.getLastEncodedRatio()));
+        }
+
+        assertTrue(net.score(all) < scoreBefore);
+    }
+
+    @Test
+    public void testBuilderValidation() {
+        MultiLayerNetwork net = new MultiLayerNetwork(conf(16));
+        net.init();
+        assertThrows(IllegalStateException.class, () -> new ParallelWrapper.Builder(net).workers(0));
+        assertThrows(IllegalStateException.class, () -> new ParallelWrapper.Builder(net).averagingFrequency(0));
+        assertThrows(IllegalStateException.class, () -> new ParallelWrapper.Builder(net).prefetchBuffer(-1));
+        assertThrows(IllegalStateException.class, () -> new ParallelWrapper.Builder(net)
+                .trainingMode(ParallelWrapper.TrainingMode.AVERAGING)
+                .thresholdAlgorithm(new FixedThresholdAlgorithm(1e-3))
+                .build());
+    }
+
+    @Test
+    @Tag(TagNames.LONG_TEST)
+    @Tag(TagNames.LARGE_RESOURCES)
+    public void benchmarkThroughput() {
+        int batchSize = 64;
+        int nIn = 256;
+        List<DataSet> batches = randomData(128, batchSize, nIn);
+        int workers = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+        MultiLayerNetwork plain = new MultiLayerNetwork(conf(nIn));
+        plain.init();
+        plain.fit(new ListDataSetIterator<>(batches, 1));        //Warmup
+        long start = System.nanoTime();
+        plain.fit(new ListDataSetIterator<>(batches, 1));
+        double plainRate = examplesPerSecond(batches.size() * batchSize, start);
+
+        for (ParallelWrapper.TrainingMode mode : ParallelWrapper.TrainingMode.values()) {
+            MultiLayerNetwork net = new MultiLayerNetwork(conf(nIn));
+            net.init();
+            try (ParallelWrapper wrapper = new ParallelWrapper.Builder(net)
+                    .workers(workers)
+                    .averagingFrequency(4)
+                    .trainingMode(mode)
+                    .build()) {
+                wrapper.fit(new ListDataSetIterator<>(batches, 1));
+                start = System.nanoTime();
+                wrapper.fit(new ListDataSetIterator<>(batches, 1));
+                double rate = examplesPerSecond(batches.size() * batchSize, start);
+                log.info("ParallelWrapper {} with {} workers: {} examples/sec; plain fit(): {} examples/sec ({}x)",
+                        mode, workers, String.format("%.1f", rate), String.format("%.1f", plainRate),
+                        String.format("%.2f", rate / plainRate));
+            }
+        }
+    }
+
+    private static double examplesPerSecond(int examples, long startNanos) {
+        return examples / ((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    private static List<DataSet> randomData(int numBatches, int batchSize, int nIn) {
+        Nd4j.getRandom().setSeed(12345);
+        List<DataSet> out = new ArrayList<>();
+        for (int b = 0; b < numBatches; b++) {
+            INDArray f = Nd4j.rand(DataType.DOUBLE, batchSize, nIn);
+            INDArray l = Nd4j.zeros(DataType.DOUBLE, batchSize, 3);
+            for (int i = 0; i < batchSize; i++) {
+                l.putScalar(i, (b + i) % 3, 1.0);
+            }
+            out.add(new DataSet(f, l));
+        }
+        return out;
+    }
+
+    private static MultiLayerConfiguration conf(int nIn) {
+        return new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(DataType.DOUBLE)
+                .updater(new Sgd(0.1))
+                .list()
+                .layer(new DenseLayer.Builder().nIn(nIn).nOut(64).activation(Activation.TANH).build())
+                .layer(new DenseLayer.Builder().nIn(64).nOut(64).activation(Activation.TANH).build())
+                .layer(new OutputLayer.Builder().nIn(64).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .build();
+    }
+}
@@ -42,6 +42,8 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -282,4 +284,63 @@ public class BertWordPieceTokenizerTests extends BaseDL4JTest {
             assertEquals(expected, tokenizer.getTokens());
         }
     }
+
+    @Test
+    public void testWordPieceTrie() throws Exception {
+        BertWordPieceTokenizerFactory t = new BertWordPieceTokenizerFactory(pathToVocab, false, false, c);
+        Map<String, Integer> vocab = t.getVocab();
+        WordPieceTrie trie = t.getTrie();
+        assertEquals(vocab.size(), trie.size());
+        assertEquals((int) vocab.get("tele"), trie.tokenId("tele"));
+        assertEquals((int) vocab.get("##scope"), trie.tokenId("##scope"));
+        assertEquals(-1, trie.tokenId("notInVocab\u23A0"));
+
+        final List<String> expected = Arrays.asList("Donau", "##dam", "##pf", "##schiff", "##fahrt", "##skap", "##itä", "##ns", "##m", "##ützen", "##innen", "##fu", "##tter", "##sa", "##um");
+        assertEquals(expected, trie.tokenize("Donaudampfschifffahrtskapitänsmützeninnenfuttersaum"));
+
+        //Trie based tokenization should match the NavigableMap based implementation
+        NavigableMap<String, Integer> vocabMap = BertWordPieceTokenizerFactory.loadVocab(pathToVocab, c);
+        ClassPathResource resource = new ClassPathResource("reuters/5250");
+        for (String line : FileUtils.readLines(resource.getFile(), c)) {
+            List<String> fromMap = new BertWordPieceTokenizer(line, vocabMap, t.getPreTokenizePreProcessor(), null).getTokens();
+            assertEquals(fromMap, t.create(line).getTokens(), line);
+        }
+    }
+
+    @Test
+    public void testEncodeBatch() throws Exception {
+        BertWordPieceTokenizerFactory t = new BertWordPieceTokenizerFactory(pathToVocab, true, true, c);
+        Map<String, Integer> vocab = t.getVocab();
+        List<String> sentences = Arrays.asList("I saw a girl with a telescope.", "Goodnight moon", "");
+
+        int maxLength = 8;
+        int[] ids = new int[sentences.size() * maxLength];
+        int[] mask = new int[sentences.size() * maxLength];
+        int cls = vocab.get("[CLS]");
+        int sep = vocab.get("[SEP]");
+        int[] lengths = t.encodeBatch(sentences, cls, sep, maxLength, ids, mask);
+
+        for (int i = 0; i < sentences.size(); i++) {
+            List<String> tokens = t.create(sentences.get(i)).getTokens();
+            assertEquals(tokens.size() + 2, lengths[i]);
+
+            int[] expIds = new int[maxLength];
+            int[] expMask = new int[maxLength];
+            int pos = 0;
+            expIds[pos++] = cls;
+            for (int j = 0; j < tokens.size() && pos < maxLength; j++)
+                expIds[pos++] = vocab.get(tokens.get(j));
+            if (pos < maxLength && tokens.size() + 2 <= maxLength)
+                expIds[pos++] = sep;
+            Arrays.fill(expMask, 0, pos, 1);
+
+            assertArrayEquals(expIds, Arrays.copyOfRange(ids, i * maxLength, (i + 1) * maxLength), sentences.get(i));
+            assertArrayEquals(expMask, Arrays.copyOfRange(mask, i * maxLength, (i + 1) * maxLength), sentences.get(i));
+        }
+
+        //Truncated sentence keeps [CLS], drops [SEP]
+        assertEquals(cls, ids[0]);
+        assertNotEquals(sep, ids[maxLength - 1]);
+        assertEquals(1, mask[maxLength - 1]);
+    }
 }
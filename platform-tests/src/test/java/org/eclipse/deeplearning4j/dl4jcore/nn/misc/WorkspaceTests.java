@@ -24,6 +24,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.deeplearning4j.BaseDL4JTest;
 import org.deeplearning4j.nn.api.MaskState;
 import org.deeplearning4j.nn.conf.*;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
 import org.deeplearning4j.nn.conf.graph.rnn.LastTimeStepVertex;
 import org.deeplearning4j.nn.conf.inputs.InputType;
 import org.deeplearning4j.nn.conf.layers.*;
@@ -40,6 +41,7 @@ import org.junit.jupiter.api.Test;
 import org.nd4j.common.tests.tags.NativeTag;
 import org.nd4j.common.tests.tags.TagNames;
 import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
 import org.nd4j.linalg.api.memory.MemoryWorkspace;
 import org.nd4j.linalg.api.memory.conf.WorkspaceConfiguration;
 import org.nd4j.linalg.api.memory.enums.AllocationPolicy;
@@ -698,4 +700,120 @@ public class WorkspaceTests extends BaseDL4JTest {
             }
         }
     }
+
+    @Test
+    public void testGradientCheckpointingMLN() {
+        MultiLayerNetwork ref = new MultiLayerNetwork(checkpointingConfMLN(false));
+        ref.init();
+        MultiLayerNetwork net = new MultiLayerNetwork(checkpointingConfMLN(true));
+        net.init();
+        net.setParams(ref.params().dup());
+
+        INDArray f = Nd4j.rand(DataType.FLOAT, 5, 4);
+        INDArray l = Nd4j.createFromArray(new float[][]{{1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {1, 0, 0}, {0, 1, 0}});
+        for (int i = 0; i < 3; i++) {
+            ref.setInput(f);
+            ref.setLabels(l);
+            ref.computeGradientAndScore();
+            net.setInput(f);
+            net.setLabels(l);
+            net.computeGradientAndScore();
+
+            assertEquals(ref.score(), net.score(), 1e-6);
+            assertEquals(ref.gradient().gradient(), net.gradient().gradient());
+
+            ref.fit(new DataSet(f, l));
+            net.fit(new DataSet(f, l));
+            assertEquals(ref.params(), net.params());
+        }
+    }
+
+    @Test
+    public void testGradientCheckpointingCG() {
+        ComputationGraph ref = new ComputationGraph(checkpointingConfCG(false));
+        ref.init();
+        ComputationGraph net = new ComputationGraph(checkpointingConfCG(true));
+        net.init();
+        net.setParams(ref.params().dup());
+
+        INDArray f = Nd4j.rand(DataType.FLOAT, 5, 4);
+        INDArray l = Nd4j.createFromArray(new float[][]{{1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {1, 0, 0}, {0, 1, 0}});
+        for (int i = 0; i < 3; i++) {
+            ref.setInputs(f);
+            ref.setLabels(l);
+            ref.computeGradientAndScore();
+            net.setInputs(f);
+            net.setLabels(l);
+            net.computeGradientAndScore();
+
+            assertEquals(ref.score(), net.score(), 1e-6);
+            assertEquals(ref.gradient().gradient(), net.gradient().gradient());
+
+            ref.fit(new DataSet(f, l));
+            net.fit(new DataSet(f, l));
+            assertEquals(ref.params(), net.params());
+        }
+    }
+
+    private static MultiLayerConfiguration checkpointingConfMLN(boolean checkpoint) {
+        ListBuilder b = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .trainingWorkspaceMode(WorkspaceMode.ENABLED)
+                .inferenceWorkspaceMode(WorkspaceMode.ENABLED)
+                .updater(new Adam(1e-3))
+                .list()
+                .layer(new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build())
+                .layer(new DenseLayer.Builder().nIn(8).nOut(8).activation(Activation.TANH).build())
+                .layer(new DenseLayer.Builder().nIn(8).nOut(8).activation(Activation.TANH).build())
+                .layer(new DenseLayer.Builder().nIn(8).nOut(8).activation(Activation.TANH).build())
+                .layer(new OutputLayer.Builder().nIn(8).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build());
+        if (checkpoint) {
+            b.checkpointSegment(0, 2);
+        }
+        return b.build();
+    }
+
+    private static ComputationGraphConfiguration checkpointingConfCG(boolean checkpoint) {
+        ComputationGraphConfiguration.GraphBuilder b = new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .trainingWorkspaceMode(WorkspaceMode.ENABLED)
+                .inferenceWorkspaceMode(WorkspaceMode.ENABLED)
+                .updater(new Adam(1e-3))
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("0", new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build(), "in")
+                .addLayer("1", new DenseLayer.Builder().nIn(8).nOut(8).activation(Activation.TANH).build(), "0")
+                .addLayer("2", new DenseLayer.Builder().nIn(8).nOut(8).activation(Activation.TANH).build(), "1")
+                .addLayer("side", new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build(), "in")
+                .addVertex("merge", new MergeVertex(), "2", "side")
+                .addLayer("out", new OutputLayer.Builder().nIn(16).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "merge")
+                .setOutputs("out");
+        if (checkpoint) {
+            b.checkpointSegment("0", "1", "2");
+        }
+        return b.build();
+    }
+
+    @Test
+    public void testGradientCheckpointingValidation() {
+        ListBuilder b = new NeuralNetConfiguration.Builder()
+                .list()
+                .layer(new DenseLayer.Builder().nIn(4).nOut(8).build())
+                .layer(new DenseLayer.Builder().nIn(8).nOut(8).dropOut(0.5).build())
+                .layer(new OutputLayer.Builder().nIn(8).nOut(3).build())
+                .checkpointSegment(0, 1);
+        assertThrows(IllegalStateException.class, b::build);
+
+        ComputationGraphConfiguration.GraphBuilder gb = new NeuralNetConfiguration.Builder()
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("0", new DenseLayer.Builder().nIn(4).nOut(8).build(), "in")
+                .addLayer("1", new DenseLayer.Builder().nIn(8).nOut(8).build(), "0")
+                .addLayer("out", new OutputLayer.Builder().nIn(16).nOut(3).build(), "0", "1")
+                .setOutputs("out")
+                .checkpointSegment("0", "1");
+        assertThrows(IllegalStateException.class, gb::build);
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.eclipse.deeplearning4j.dl4jcore.nn.updater;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.MultiLayerConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.WorkspaceMode;
+import org.deeplearning4j.nn.conf.layers.DenseLayer;
+import org.deeplearning4j.nn.conf.layers.OutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.nn.multilayer.MultiLayerNetwork;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.DataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.learning.config.Sgd;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.DL4J_OLD_API)
+public class TestGradientAccumulation extends BaseDL4JTest {
+
+    @Test
+    public void testGradientAccumulationMLN() {
+        for (WorkspaceMode wsm : new WorkspaceMode[]{WorkspaceMode.NONE, WorkspaceMode.ENABLED}) {
+            MultiLayerNetwork ref = new MultiLayerNetwork(confMLN(wsm, 1));
+            ref.init();
+            MultiLayerNetwork net = new MultiLayerNetwork(confMLN(wsm, 4));
+            net.init();
+            net.setParams(ref.params().dup());
+
+            DataSet ds = randomData(16);
+            List<DataSet> micro = ds.batchBy(4);
+            for (int i = 0; i < 3; i++) {
+                ref.fit(ds);
+                for (DataSet d : micro) {
+                    net.fit(d);
+                }
+                assertEquals(ref.params(), net.params(), wsm.toString());
+            }
+            assertEquals(3, ref.getIterationCount());
+            assertEquals(3, net.getIterationCount());
+
+            //Partially accumulated: no parameter update yet
+            INDArray before = net.params().dup();
+            net.fit(micro.get(0));
+            assertEquals(before, net.params());
+        }
+    }
+
+    @Test
+    public void testGradientAccumulationCG() {
+        ComputationGraph ref = new ComputationGraph(confCG(1));
+        ref.init();
+        ComputationGraph net = new ComputationGraph(confCG(4));
+        net.init();
+        net.setParams(ref.params().dup());
+
+        DataSet ds = randomData(16);
+        List<DataSet> micro = ds.batchBy(4);
+        for (int i = 0; i < 3; i++) {
+            ref.fit(ds);
+            for (DataSet d : micro) {
+                net.fit(d);
+            }
+            assertEquals(ref.params(), net.params());
+        }
+        assertEquals(3, net.getIterationCount());
+    }
+
+    @Test
+    public void testGradientAccumulationValidation() {
+        assertThrows(IllegalStateException.class, () -> confMLN(WorkspaceMode.ENABLED, 0));
+    }
+
+    private static DataSet randomData(int n) {
+        Nd4j.getRandom().setSeed(12345);
+        INDArray f = Nd4j.rand(DataType.DOUBLE, n, 4);
+        INDArray l = Nd4j.zeros(DataType.DOUBLE, n, 3);
+        for (int i = 0; i < n; i++) {
+            l.putScalar(i, i % 3, 1.0);
+        }
+        return new DataSet(f, l);
+    }
+
+    private static MultiLayerConfiguration confMLN(WorkspaceMode wsm, int accumulationSteps) {
+        return new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(DataType.DOUBLE)
+                .trainingWorkspaceMode(wsm)
+                .inferenceWorkspaceMode(wsm)
+                .updater(new Sgd(0.1))
+                .list()
+                .layer(new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build())
+                .layer(new DenseLayer.Builder().nIn(8).nOut(8).activation(Activation.TANH).build())
+                .layer(new OutputLayer.Builder().nIn(8).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build())
+                .gradientAccumulationSteps(accumulationSteps)
+                .build();
+    }
+
+    private static ComputationGraphConfiguration confCG(int accumulationSteps) {
+        return new NeuralNetConfiguration.Builder()
+                .seed(12345)
+                .dataType(DataType.DOUBLE)
+                .updater(new Sgd(0.1))
+                .graphBuilder()
+                .addInputs("in")
+                .addLayer("0", new DenseLayer.Builder().nIn(4).nOut(8).activation(Activation.TANH).build(), "in")
+                .addLayer("1", new DenseLayer.Builder().nIn(8).nOut(8).activation(Activation.TANH).build(), "0")
+                .addLayer("out", new OutputLayer.Builder().nIn(8).nOut(3).activation(Activation.SOFTMAX)
+                        .lossFunction(LossFunctions.LossFunction.MCXENT).build(), "1")
+                .setOutputs("out")
+                .gradientAccumulationSteps(accumulationSteps)
+                .build();
+    }
+}
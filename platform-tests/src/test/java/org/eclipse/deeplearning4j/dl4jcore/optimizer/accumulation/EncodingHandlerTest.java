@@ -0,0 +1,93 @@
+/*
+ *  ******************************************************************************
+ *  *
+ *  *
+ *  * This program and the accompanying materials are made available under the
+ *  * terms of the Apache License, Version 2.0 which is available at
+ *  * https://www.apache.org/licenses/LICENSE-2.0.
+ *  *
+ *  *  See the NOTICE file distributed with this work for additional
+ *  *  information regarding copyright ownership.
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *  * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *  * License for the specific language governing permissions and limitations
+ *  * under the License.
+ *  *
+ *  * SPDX-License-Identifier: Apache-2.0
+ *  *****************************************************************************
+ */
+
+package org.eclipse.deeplearning4j.dl4jcore.optimizer.accumulation;
+
+import org.deeplearning4j.BaseDL4JTest;
+import org.deeplearning4j.optimize.listeners.SharedGradient;
+import org.deeplearning4j.optimize.solvers.accumulation.EncodingHandler;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.threshold.AdaptiveThresholdAlgorithm;
+import org.deeplearning4j.optimize.solvers.accumulation.encoding.threshold.FixedThresholdAlgorithm;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.nd4j.common.tests.tags.NativeTag;
+import org.nd4j.common.tests.tags.TagNames;
+import org.nd4j.linalg.api.buffer.DataType;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.compression.ThresholdCompression;
+import org.nd4j.linalg.factory.Nd4j;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@NativeTag
+@Tag(TagNames.DL4J_OLD_API)
+public class EncodingHandlerTest extends BaseDL4JTest {
+
+    @Test
+    public void testEncodeDecode() {
+        INDArray residual = Nd4j.createFromArray(0.5, -1.5, 0.9, 1.0, -0.99, 3.0);
+        INDArray original = residual.dup();
+
+        INDArray encoded = ThresholdCompression.encode(residual, 1.0);
+        assertEquals(DataType.INT, encoded.dataType());
+        assertEquals(3, ThresholdCompression.numEncoded(encoded));
+        assertArrayEquals(new int[]{3, 6, Float.floatToIntBits(1.0f), ThresholdCompression.FLEXIBLE_ENCODING, -2, 4, 6},
+                encoded.toIntVector());
+
+        INDArray decoded = Nd4j.zeros(DataType.DOUBLE, 6);
+        ThresholdCompression.decode(encoded, decoded);
+        assertEquals(Nd4j.createFromArray(0.0, -1.0, 0.0, 1.0, 0.0, 1.0), decoded);
+        assertEquals(original, decoded.add(residual));
+    }
+
+    @Test
+    public void testResidualAccumulation() {
+        Nd4j.getRandom().setSeed(12345);
+        EncodingHandler handler = new EncodingHandler(new FixedThresholdAlgorithm(1e-2), null);
+
+        INDArray sumUpdates = Nd4j.zeros(DataType.DOUBLE, 1000);
+        INDArray sumDecoded = Nd4j.zeros(DataType.DOUBLE, 1000);
+        for (int i = 0; i < 20; i++) {
+            INDArray updates = Nd4j.randn(DataType.DOUBLE, 1, 1000).muli(1e-2);
+            sumUpdates.addi(updates.reshape(1000));
+            SharedGradient sg = handler.encodeUpdates("0", i, 0, updates);
+            EncodingHandler.decodeUpdates(sg, sumDecoded);
+        }
+
+        //Nothing is lost: transmitted updates plus residual equal the sum of all updates
+        assertTrue(sumUpdates.equalsWithEps(sumDecoded.add(handler.getResidual()), 1e-5));
+        assertTrue(handler.getLastSparsityRatio() < 1.0);
+    }
+
+    @Test
+    public void testAdaptiveThreshold() {
+        Nd4j.getRandom().setSeed(12345);
+        AdaptiveThresholdAlgorithm algorithm = new AdaptiveThresholdAlgorithm(1e-5, 1e-3, 1e-2, 0.8);
+        EncodingHandler handler = new EncodingHandler(algorithm, null);
+
+        for (int i = 0; i < 200; i++) {
+            handler.encodeUpdates(i, 0, Nd4j.randn(DataType.FLOAT, 1, 10000).muli(1e-2));
+        }
+
+        //Threshold was raised from the (far too small) initial value, towards the target sparsity range
+        assertTrue(handler.getLastThreshold() > 1e-3);
+        assertTrue(handler.getLastSparsityRatio() < 0.1, String.valueOf(handler.getLastSparsityRatio()));
+    }
+}
@@ -26,6 +26,9 @@ import org.junit.jupiter.params.provider.MethodSource;
 import org.nd4j.autodiff.samediff.SDVariable;
 import org.nd4j.autodiff.samediff.SameDiff;
 import org.nd4j.autodiff.samediff.TrainingConfig;
+import org.nd4j.autodiff.samediff.internal.AbstractSession;
+import org.nd4j.autodiff.samediff.internal.InferenceSession;
+import org.nd4j.autodiff.samediff.internal.memory.PlannedMemoryMgr;
 import org.nd4j.common.tests.tags.NativeTag;
 import org.nd4j.common.tests.tags.TagNames;
 import org.nd4j.linalg.BaseNd4jTestWithBackends;
@@ -36,12 +39,16 @@ import org.nd4j.linalg.dataset.DataSet;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.factory.Nd4jBackend;
 import org.nd4j.linalg.learning.config.Sgd;
+import org.nd4j.linalg.ops.transforms.Transforms;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -103,6 +110,156 @@ public class SameDiffOutputTest extends BaseNd4jTestWithBackends {
                 0.0001),"output != input + 2");
     }
 
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testIndependentOpExecution(Nd4jBackend backend) throws Exception {
+        Nd4j.getRandom().setSeed(12345);
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 8);
+
+        //Several independent towers, joined at the end
+        SDVariable[] towers = new SDVariable[4];
+        for (int i = 0; i < towers.length; i++) {
+            SDVariable w = sd.var("w" + i, Nd4j.rand(DataType.FLOAT, 8, 8));
+            SDVariable b = sd.var("b" + i, Nd4j.rand(DataType.FLOAT, 1, 8));
+            towers[i] = sd.nn().tanh(in.mmul(w).add(b));
+        }
+        SDVariable out = sd.math().mergeAdd(towers).sum("out", 1);
+
+        INDArray input = Nd4j.rand(DataType.FLOAT, 5, 8);
+        INDArray expected = sd.outputSingle(Collections.singletonMap("in", input), "out");
+
+        Set<Thread> before = opExecutorThreads();
+        sd.setOpExecutionThreads(4);
+        for (int i = 0; i < 3; i++) {
+            INDArray actual = sd.outputSingle(Collections.singletonMap("in", input), "out");
+            assertEquals(expected, actual);
+        }
+
+        //Discarding the sessions must shut down their op executor threads
+        Set<Thread> started = opExecutorThreads();
+        started.removeAll(before);
+        assertFalse(started.isEmpty());
+        sd.setMemoryPlanning(true);
+        assertTrue(sd.getSessions().isEmpty());
+        for (Thread t : started) {
+            t.join(10000);
+            assertFalse(t.isAlive());
+        }
+        assertEquals(expected, sd.outputSingle(Collections.singletonMap("in", input), "out"));
+    }
+
+    private static Set<Thread> opExecutorThreads() {
+        Set<Thread> out = new HashSet<>();
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if ("SameDiff-OpExecutor".equals(t.getName()))
+                out.add(t);
+        }
+        return out;
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testExecutionPlanCaching(Nd4jBackend backend) {
+        Nd4j.getRandom().setSeed(12345);
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 4);
+        SDVariable w = sd.var("w", Nd4j.rand(DataType.FLOAT, 4, 3));
+        SDVariable b = sd.var("b", Nd4j.rand(DataType.FLOAT, 1, 3));
+        SDVariable z = in.mmul(w).add("z", b);
+        SDVariable zAlt = in.mmul(w).sub("zAlt", b);
+        SDVariable out = sd.nn().softmax("out", z);
+
+        INDArray in1 = Nd4j.rand(DataType.FLOAT, 2, 4);
+        INDArray in2 = Nd4j.rand(DataType.FLOAT, 5, 4);
+        INDArray exp1 = sd.outputSingle(Collections.singletonMap("in", in1), "out");
+        INDArray exp2 = sd.outputSingle(Collections.singletonMap("in", in2), "out");
+        INDArray expZ = sd.outputSingle(Collections.singletonMap("in", in1), "z");
+
+        sd.setExecutionPlanCaching(true);
+        for (int i = 0; i < 3; i++) {
+            //Different placeholder shapes and requested outputs use different plans
+            assertEquals(exp1, sd.outputSingle(Collections.singletonMap("in", in1), "out"));
+            assertEquals(exp2, sd.outputSingle(Collections.singletonMap("in", in2), "out"));
+            assertEquals(expZ, sd.outputSingle(Collections.singletonMap("in", in1), "z"));
+        }
+
+        //Graph changes: cached plan must not be used
+        SDVariable out2 = out.mul("out2", 2.0);
+        assertEquals(exp1.mul(2.0), sd.outputSingle(Collections.singletonMap("in", in1), "out2"));
+        assertEquals(exp1, sd.outputSingle(Collections.singletonMap("in", in1), "out"));
+
+        //Rewiring an op changes neither the number nor the names of ops and variables: only the graph version
+        // invalidates the cached plan
+        INDArray expAlt = Transforms.softmax(sd.outputSingle(Collections.singletonMap("in", in1), "zAlt"), true);
+        long version = sd.getStructureVersion();
+        sd.replaceArgFor(0, zAlt, sd.getVariableOutputOp("out"));
+        assertTrue(sd.getStructureVersion() > version);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(expAlt, sd.outputSingle(Collections.singletonMap("in", in1), "out"));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("org.nd4j.linalg.BaseNd4jTestWithBackends#configs")
+    public void testMemoryPlanning(Nd4jBackend backend) {
+        Nd4j.getRandom().setSeed(12345);
+        SameDiff sd = SameDiff.create();
+        SDVariable in = sd.placeHolder("in", DataType.FLOAT, -1, 8);
+        SDVariable x = in;
+        for (int i = 0; i < 4; i++) {
+            SDVariable w = sd.var("w" + i, Nd4j.rand(DataType.FLOAT, 8, 8).subi(0.5));
+            x = sd.nn().relu(x.mmul(w), 0.0).add(x);
+        }
+        SDVariable out = x.mean("out", 1);
+
+        INDArray input = Nd4j.rand(DataType.FLOAT, 3, 8);
+        INDArray expected = sd.outputSingle(Collections.singletonMap("in", input), "out");
+
+        sd.setMemoryPlanning(true);
+        assertEquals(-1, sd.getPlannedPeakMemory(Collections.singletonMap("in", input), "out"));
+        for (int i = 0; i < 4; i++) {
+            INDArray actual = sd.outputSingle(Collections.singletonMap("in", input), "out");
+            assertEquals(expected, actual);
+        }
+
+        InferenceSession session = sd.getSessions().values().iterator().next();
+        assertTrue(session.getMmgr() instanceof PlannedMemoryMgr);
+        assertEquals(1, ((PlannedMemoryMgr) session.getMmgr()).numPlans());
+
+        //Peak memory is known before the next execution, for the same placeholder shapes only
+        long peak = sd.getPlannedPeakMemory(Collections.singletonMap("in", input), "out");
+        assertTrue(peak > 0);
+        assertEquals(-1, sd.getPlannedPeakMemory(Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, 5, 8)), "out"));
+
+        //Each batch size gets its own plan: only the most recently used ones are kept
+        for (int batch = 1; batch <= AbstractSession.MAX_CACHED_PLANS + 4; batch++) {
+            INDArray in2 = Nd4j.rand(DataType.FLOAT, batch, 8);
+            sd.outputSingle(Collections.singletonMap("in", in2), "out");
+            assertTrue(sd.getPlannedPeakMemory(Collections.singletonMap("in", in2), "out") > 0);
+        }
+        assertEquals(AbstractSession.MAX_CACHED_PLANS, ((PlannedMemoryMgr) session.getMmgr()).numPlans());
+        assertEquals(-1, sd.getPlannedPeakMemory(Collections.singletonMap("in", Nd4j.rand(DataType.FLOAT, 1, 8)), "out"));
+        assertEquals(expected, sd.outputSingle(Collections.singletonMap("in", input), "out"));
+
+        //Toggling memory planning discards the sessions: their arenas must be released
+        for (int toggle = 0; toggle < 3; toggle++) {
+            PlannedMemoryMgr mmgr = (PlannedMemoryMgr) sd.getSessions().values().iterator().next().getMmgr();
+            assertTrue(mmgr.getAllocatedArenaBytes() > 0);
+            sd.setMemoryPlanning(false);
+            assertTrue(sd.getSessions().isEmpty());
+            assertEquals(0, mmgr.numPlans());
+            assertEquals(0, mmgr.getAllocatedArenaBytes());
+            assertEquals(expected, sd.outputSingle(Collections.singletonMap("in", input), "out"));
+
+            sd.setMemoryPlanning(true);
+            assertTrue(sd.getSessions().isEmpty());
+            for (int i = 0; i < 2; i++) {
+                assertEquals(expected, sd.outputSingle(Collections.singletonMap("in", input), "out"));
+            }
+        }
+    }
+
     @Override
     public char ordering() {
         return 'c';
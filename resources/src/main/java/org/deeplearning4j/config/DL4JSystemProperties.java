@@ -127,4 +127,11 @@ public class DL4JSystemProperties {
      * for each cache value.
      */
     public static final String NLP_QUEUE_SIZE = "org.eclipse.deeplearning4j.nlp.queuesize";
+
+    /**
+     * Applicability: NLP HogwildSkipGram and HogwildCBOW
+     * Number of rows each worker thread accumulates before
+     * executing them as a single native round. Defaults to 65536.
+     */
+    public static final String NLP_HOGWILD_ROUND_SIZE = "org.eclipse.deeplearning4j.nlp.hogwild.roundsize";
 }